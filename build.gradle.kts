@@ -42,6 +42,27 @@ dependencies {
     // Logging
     implementation("org.slf4j:slf4j-api:2.0.12")
     implementation("ch.qos.logback:logback-classic:1.5.13")
+
+    // Test
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Renderer comparison: ./gradlew benchmarkRenderers [-Pmegabytes=16] [-Pruns=3]
+tasks.register<JavaExec>("benchmarkRenderers") {
+    group = "verification"
+    description = "Feed fixed output through the Canvas and Swing renderers and report fps and CPU per MB"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("com.ninja.terminal.renderer.RendererBenchmark")
+    args = listOf(
+        (project.findProperty("megabytes") ?: "16").toString(),
+        (project.findProperty("runs") ?: "3").toString()
+    )
 }
 
 tasks.jar {
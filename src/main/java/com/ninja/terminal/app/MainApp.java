@@ -1,5 +1,6 @@
 package com.ninja.terminal.app;
 
+import com.ninja.terminal.service.SessionLogService;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -27,6 +28,11 @@ public class MainApp extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        SessionLogService.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -27,6 +27,7 @@ public class HostDialogController implements Initializable {
     @FXML private Button browseKeyBtn;
     @FXML private ComboBox<HostGroup> groupCombo;
     @FXML private TextField startupCommandField;
+    @FXML private ComboBox<HostInfo.CompressionMode> compressionCombo;
     @FXML private Button saveBtn;
     @FXML private Button cancelBtn;
     
@@ -51,6 +52,10 @@ public class HostDialogController implements Initializable {
         // Load groups into combo box
         groupCombo.getItems().add(null); // No group option
         groupCombo.getItems().addAll(configService.getGroups());
+
+        // Compression, empty means the global setting
+        compressionCombo.getItems().add(null);
+        compressionCombo.getItems().addAll(HostInfo.CompressionMode.values());
         
         // Default port
         portField.setText("22");
@@ -96,6 +101,8 @@ public class HostDialogController implements Initializable {
         if (host.getStartupCommand() != null) {
             startupCommandField.setText(host.getStartupCommand());
         }
+
+        compressionCombo.setValue(host.getCompression());
     }
     
     @FXML
@@ -156,6 +163,8 @@ public class HostDialogController implements Initializable {
         String startupCmd = startupCommandField.getText();
         host.setStartupCommand(startupCmd != null && !startupCmd.trim().isEmpty() ? startupCmd.trim() : null);
 
+        host.setCompression(compressionCombo.getValue());
+
         if (existingHost != null) {
             configService.updateHost(host);
         } else {
@@ -3,6 +3,7 @@ package com.ninja.terminal.controller;
 import com.ninja.terminal.model.HostGroup;
 import com.ninja.terminal.model.HostInfo;
 import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.service.SessionRecorder;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -16,11 +17,13 @@ import javafx.scene.input.MouseButton;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Objects;
@@ -38,6 +41,7 @@ public class MainController implements Initializable {
     private TabPane terminalTabs;
     private Button addHostBtn;
     private Button addGroupBtn;
+    private Button playRecordingBtn;
     private TextField searchField;
 
     private final ConfigService configService = ConfigService.getInstance();
@@ -79,6 +83,9 @@ public class MainController implements Initializable {
         if (addGroupBtn != null) {
             addGroupBtn.setOnAction(e -> onAddGroup());
         }
+        if (playRecordingBtn != null) {
+            playRecordingBtn.setOnAction(e -> onPlayRecording());
+        }
     }
 
     private void findHostsViewComponents() {
@@ -112,6 +119,9 @@ public class MainController implements Initializable {
                         if (buttonBox.getChildren().get(1) instanceof Button btn) {
                             addGroupBtn = btn;
                         }
+                        if (buttonBox.getChildren().size() > 2 && buttonBox.getChildren().get(2) instanceof Button btn) {
+                            playRecordingBtn = btn;
+                        }
                     }
                 }
 
@@ -305,6 +315,41 @@ public class MainController implements Initializable {
         });
     }
 
+    private void onPlayRecording() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Play Recording");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Session recordings", "*.cast", "*.cast.gz"));
+        File directory = SessionRecorder.recordingsDirectory().toFile();
+        if (directory.isDirectory()) {
+            chooser.setInitialDirectory(directory);
+        }
+        File file = chooser.showOpenDialog(rootPane.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/PlayerView.fxml"));
+            Parent root = loader.load();
+            PlayerController controller = loader.getController();
+
+            Stage stage = new Stage();
+            stage.setTitle("Replay " + file.getName());
+
+            Scene scene = new Scene(root);
+            scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/css/dark-theme.css")).toExternalForm());
+            stage.setScene(scene);
+            stage.setOnHidden(e -> controller.close());
+            stage.show();
+
+            controller.open(file.toPath());
+
+        } catch (IOException e) {
+            log.error("Failed to open player", e);
+            showError("Cannot Play Recording", e.getMessage());
+        }
+    }
+
     private void showHostDialog(HostInfo existingHost) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/HostDialog.fxml"));
@@ -343,6 +388,7 @@ public class MainController implements Initializable {
             Tab tab = new Tab(host.getName() != null ? host.getName() : host.getHostname());
             tab.setContent(terminalContent);
             tab.setOnClosed(e -> controller.disconnect());
+            tab.selectedProperty().addListener((obs, old, selected) -> controller.setActive(selected));
 
             // Store controller reference in tab properties for later access
             tab.setUserData(controller);
@@ -0,0 +1,127 @@
+package com.ninja.terminal.controller;
+
+import com.ninja.terminal.util.LatencyHistogram;
+import com.ninja.terminal.util.TerminalMetrics;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.function.Function;
+
+/**
+ * Window showing a terminal tab's latency percentiles, refreshed every second, with CSV export.
+ */
+public class MetricsController implements Initializable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsController.class);
+
+    private record MetricRow(String name, LatencyHistogram.Snapshot snapshot) {
+    }
+
+    @FXML private TableView<MetricRow> metricsTable;
+    @FXML private TableColumn<MetricRow, String> nameColumn;
+    @FXML private TableColumn<MetricRow, String> samplesColumn;
+    @FXML private TableColumn<MetricRow, String> p50Column;
+    @FXML private TableColumn<MetricRow, String> p95Column;
+    @FXML private TableColumn<MetricRow, String> p99Column;
+    @FXML private TableColumn<MetricRow, String> maxColumn;
+    @FXML private Button copyBtn;
+    @FXML private Button exportBtn;
+    @FXML private Label statusLabel;
+
+    private String tabName;
+    private TerminalMetrics metrics;
+    private Timeline refreshTimeline;
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        bind(nameColumn, MetricRow::name);
+        bind(samplesColumn, row -> String.valueOf(row.snapshot().count()));
+        bind(p50Column, row -> formatMillis(row, row.snapshot().p50()));
+        bind(p95Column, row -> formatMillis(row, row.snapshot().p95()));
+        bind(p99Column, row -> formatMillis(row, row.snapshot().p99()));
+        bind(maxColumn, row -> formatMillis(row, row.snapshot().max()));
+
+        copyBtn.setOnAction(e -> onCopy());
+        exportBtn.setOnAction(e -> onExport());
+    }
+
+    private static void bind(TableColumn<MetricRow, String> column, Function<MetricRow, String> value) {
+        column.setCellValueFactory(cellData -> new SimpleStringProperty(value.apply(cellData.getValue())));
+    }
+
+    private static String formatMillis(MetricRow row, long micros) {
+        return row.snapshot().count() > 0 ? TerminalMetrics.formatMillis(micros) : "-";
+    }
+
+    public void setMetrics(String tabName, TerminalMetrics metrics) {
+        this.tabName = tabName;
+        this.metrics = metrics;
+        refresh();
+        refreshTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+        refreshTimeline.setCycleCount(Animation.INDEFINITE);
+        refreshTimeline.play();
+    }
+
+    private void refresh() {
+        metricsTable.getItems().clear();
+        for (Map.Entry<String, LatencyHistogram> entry : metrics.all().entrySet()) {
+            metricsTable.getItems().add(new MetricRow(entry.getKey(), entry.getValue().snapshot()));
+        }
+        String status = tabName + "  ·  " + metrics.getEcho().getTotal() + " keystrokes measured since connecting";
+        if (!metrics.isPaintTimed()) {
+            status += "  ·  paint times are only available with the Canvas renderer";
+        }
+        statusLabel.setText(status);
+    }
+
+    private void onCopy() {
+        ClipboardContent content = new ClipboardContent();
+        content.putString(metrics.toCsv(tabName));
+        Clipboard.getSystemClipboard().setContent(content);
+        statusLabel.setText("Copied to clipboard");
+    }
+
+    private void onExport() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Metrics");
+        chooser.setInitialFileName("metrics-" + tabName.replaceAll("[^A-Za-z0-9._-]", "_") + ".csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showSaveDialog(metricsTable.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.writeString(file.toPath(), metrics.toCsv(tabName), StandardCharsets.UTF_8);
+            statusLabel.setText("Exported to " + file.getName());
+        } catch (Exception e) {
+            log.error("Failed to export metrics to {}", file, e);
+            statusLabel.setText("Export failed: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        if (refreshTimeline != null) {
+            refreshTimeline.stop();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.ninja.terminal.controller;
+
+import com.ninja.terminal.renderer.CanvasTerminalRenderer;
+import com.ninja.terminal.renderer.PlaybackConnector;
+import com.ninja.terminal.service.SessionRecording;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ResourceBundle;
+
+/**
+ * Window replaying a recorded session with play/pause, speed and a seek slider.
+ *
+ * The recording is indexed in the background when the window opens; after that, moving
+ * the slider jumps straight to the nearest keyframe of the {@link PlaybackConnector}.
+ */
+public class PlayerController implements Initializable {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerController.class);
+    private static final String[] SPEEDS = {"0.5×", "1×", "2×", "4×", "8×"};
+
+    @FXML private ToggleButton playBtn;
+    @FXML private ChoiceBox<String> speedChoice;
+    @FXML private Slider seekSlider;
+    @FXML private Label timeLabel;
+    @FXML private StackPane terminalPane;
+    @FXML private Label statusLabel;
+
+    private PlaybackConnector playback;
+    private CanvasTerminalRenderer renderer;
+    private Timeline positionTimeline;
+    private boolean updatingSlider;
+    private boolean closed;
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        speedChoice.getItems().addAll(SPEEDS);
+        speedChoice.setValue("1×");
+        speedChoice.valueProperty().addListener((obs, old, speed) -> {
+            if (playback != null && speed != null) {
+                playback.setSpeed(Double.parseDouble(speed.substring(0, speed.length() - 1)));
+            }
+        });
+
+        playBtn.selectedProperty().addListener((obs, old, playing) -> {
+            playBtn.setText(playing ? "⏸ Pause" : "▶ Play");
+            if (playback == null) {
+                return;
+            }
+            if (playing) {
+                // Start over when play is pressed at the end
+                if (playback.getPosition() >= playback.getRecording().getDuration()) {
+                    playback.seek(0);
+                }
+                playback.play();
+            } else {
+                playback.pause();
+            }
+        });
+
+        seekSlider.valueProperty().addListener((obs, old, seconds) -> {
+            if (!updatingSlider && playback != null) {
+                playback.seek((long) (seconds.doubleValue() * 1_000_000));
+                updatePosition();
+            }
+        });
+    }
+
+    /**
+     * Load and index a recording, then start playing it
+     */
+    public void open(Path file) {
+        statusLabel.setText("Indexing " + file.getFileName() + "...");
+
+        new Thread(() -> {
+            try {
+                PlaybackConnector connector = new PlaybackConnector(SessionRecording.load(file));
+                Platform.runLater(() -> start(connector));
+            } catch (Exception e) {
+                log.error("Failed to open recording {}", file, e);
+                Platform.runLater(() -> statusLabel.setText("Cannot open recording: " + e.getMessage()));
+            }
+        }).start();
+    }
+
+    private void start(PlaybackConnector connector) {
+        if (closed) {
+            connector.close();
+            return;
+        }
+        playback = connector;
+        SessionRecording recording = connector.getRecording();
+
+        renderer = new CanvasTerminalRenderer();
+        renderer.setFixedSize(recording.getWidth(), recording.getHeight());
+        connector.setSizeListener((columns, rows) -> Platform.runLater(() -> {
+            if (renderer != null) {
+                renderer.setFixedSize(columns, rows);
+            }
+        }));
+        renderer.start(connector);
+        terminalPane.getChildren().add(renderer.getNode());
+        connector.seek(0);
+
+        seekSlider.setMax(recording.getDuration() / 1_000_000.0);
+        playBtn.setDisable(false);
+        speedChoice.setDisable(false);
+        seekSlider.setDisable(false);
+        statusLabel.setText(recording.getTitle() + "  ·  " + recording.size() + " events");
+
+        positionTimeline = new Timeline(new KeyFrame(Duration.millis(100), e -> updatePosition()));
+        positionTimeline.setCycleCount(Animation.INDEFINITE);
+        positionTimeline.play();
+        playBtn.setSelected(true);
+    }
+
+    private void updatePosition() {
+        long position = playback.getPosition();
+        long duration = playback.getRecording().getDuration();
+        if (!seekSlider.isValueChanging()) {
+            updatingSlider = true;
+            seekSlider.setValue(position / 1_000_000.0);
+            updatingSlider = false;
+        }
+        timeLabel.setText(formatTime(position) + " / " + formatTime(duration));
+        if (position >= duration && playBtn.isSelected()) {
+            playBtn.setSelected(false);
+        }
+    }
+
+    private static String formatTime(long micros) {
+        long seconds = micros / 1_000_000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    public void close() {
+        closed = true;
+        if (positionTimeline != null) {
+            positionTimeline.stop();
+        }
+        if (renderer != null) {
+            renderer.close();
+            renderer = null;
+        } else if (playback != null) {
+            playback.close();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.ninja.terminal.controller;
+
+import com.ninja.terminal.service.RemoteFileReader;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.ScrollEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only viewer for remote files of any size.
+ *
+ * Only the lines that fit the window are loaded. Scrolling, jumping and searching move an
+ * anchor (the byte offset of the first visible line) on a single loader thread, and the
+ * scroll bar maps to byte offsets so any part of the file can be reached without an index.
+ */
+public class RemoteViewerController implements Initializable {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteViewerController.class);
+    private static final double ROW_HEIGHT = 18;
+    private static final double SCROLL_RESOLUTION = 10_000;
+
+    @FXML private Button topBtn;
+    @FXML private Button endBtn;
+    @FXML private Button reloadBtn;
+    @FXML private TextField gotoField;
+    @FXML private TextField findField;
+    @FXML private CheckBox matchCaseCheck;
+    @FXML private Button findNextBtn;
+    @FXML private ListView<RemoteFileReader.Line> linesView;
+    @FXML private ScrollBar fileScroll;
+    @FXML private Label statusLabel;
+    @FXML private Label positionLabel;
+
+    private final ObservableList<RemoteFileReader.Line> lines = FXCollections.observableArrayList();
+    private final AtomicLong requestId = new AtomicLong();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "remote-viewer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private RemoteFileReader reader;
+    private boolean updatingScroll;
+    private Thread searchThread;
+    private String highlight;
+    private long lastMatch = -1;
+
+    // Owned by the loader thread
+    private long anchor;
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        linesView.setItems(lines);
+        linesView.setFocusTraversable(true);
+        linesView.setCellFactory(lv -> new ListCell<>() {
+            @Override
+            protected void updateItem(RemoteFileReader.Line item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item.getText());
+                boolean match = !empty && item != null && highlight != null && isHighlighted(item.getText());
+                if (match && !getStyleClass().contains("log-match")) {
+                    getStyleClass().add("log-match");
+                } else if (!match) {
+                    getStyleClass().remove("log-match");
+                }
+            }
+        });
+
+        linesView.addEventFilter(ScrollEvent.SCROLL, e -> {
+            int delta = (int) Math.round(-e.getDeltaY() / ROW_HEIGHT);
+            if (delta == 0) {
+                delta = e.getDeltaY() > 0 ? -1 : 1;
+            }
+            scrollLines(delta);
+            e.consume();
+        });
+        linesView.addEventFilter(KeyEvent.KEY_PRESSED, this::onKey);
+        linesView.heightProperty().addListener((obs, old, height) -> {
+            if (reader != null) {
+                submit(() -> render(anchor));
+            }
+        });
+
+        fileScroll.setMax(SCROLL_RESOLUTION);
+        fileScroll.valueProperty().addListener((obs, old, value) -> {
+            if (!updatingScroll && reader != null) {
+                long offset = (long) (value.doubleValue() / SCROLL_RESOLUTION * reader.getSize());
+                submit(() -> render(reader.findLineStart(offset)));
+            }
+        });
+
+        topBtn.setOnAction(e -> submit(() -> render(0)));
+        endBtn.setOnAction(e -> submit(this::renderEnd));
+        reloadBtn.setOnAction(e -> submit(() -> {
+            reader.refreshSize();
+            render(Math.min(anchor, reader.getSize()));
+        }));
+        gotoField.setOnAction(e -> onGoto());
+        findField.setOnAction(e -> onFindNext());
+        findNextBtn.setOnAction(e -> onFindNext());
+    }
+
+    /**
+     * Show a file; the reader is closed with the viewer
+     */
+    public void setReader(RemoteFileReader reader) {
+        this.reader = reader;
+        submit(() -> render(0));
+    }
+
+    public void close() {
+        requestId.incrementAndGet();
+        if (searchThread != null) {
+            searchThread.interrupt();
+        }
+        loader.shutdownNow();
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private interface LoaderTask {
+        void run() throws Exception;
+    }
+
+    private void submit(LoaderTask task) {
+        long id = requestId.incrementAndGet();
+        loader.execute(() -> {
+            // A newer request replaces this one, except for scrolling which accumulates
+            if (id != requestId.get()) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Failed to read {}", reader.getPath(), e);
+                Platform.runLater(() -> statusLabel.setText("Error: " + e.getMessage()));
+            }
+        });
+    }
+
+    private int visibleRows() {
+        return Math.max(1, (int) ((linesView.getHeight() - 4) / ROW_HEIGHT));
+    }
+
+    /**
+     * Move the view by a number of lines. Runs on the loader thread without coalescing so
+     * fast wheel movements add up.
+     */
+    private void scrollLines(int delta) {
+        if (reader == null) {
+            return;
+        }
+        loader.execute(() -> {
+            try {
+                long target;
+                if (delta > 0) {
+                    List<RemoteFileReader.Line> ahead = reader.readLines(anchor, delta + visibleRows());
+                    // Stop once the last line is at the bottom of the view
+                    int maxStep = Math.max(0, ahead.size() - visibleRows());
+                    int step = Math.min(delta, maxStep);
+                    target = step < ahead.size() ? ahead.get(step).getOffset() : anchor;
+                } else {
+                    List<RemoteFileReader.Line> before = reader.readLinesBefore(anchor, -delta);
+                    target = before.isEmpty() ? 0 : before.get(0).getOffset();
+                }
+                render(target);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Failed to scroll {}", reader.getPath(), e);
+            }
+        });
+    }
+
+    /**
+     * Load the lines starting at a line start and show them. Loader thread only.
+     */
+    private void render(long offset) throws Exception {
+        int rows = visibleRows();
+        List<RemoteFileReader.Line> page = new ArrayList<>(reader.readLines(offset, rows));
+        if (page.size() < rows && offset > 0) {
+            // Near the end: fill the view from above
+            List<RemoteFileReader.Line> before = reader.readLinesBefore(offset, rows - page.size());
+            page.addAll(0, before);
+        }
+        anchor = page.isEmpty() ? offset : page.get(0).getOffset();
+
+        long lineNumber = reader.lineNumberAt(anchor);
+        long size = reader.getSize();
+        long totalLines = reader.getTotalLines();
+        long indexed = reader.getIndexedBytes();
+        long shownAnchor = anchor;
+
+        Platform.runLater(() -> {
+            lines.setAll(page);
+            updatingScroll = true;
+            fileScroll.setValue(size > 0 ? (double) shownAnchor / size * SCROLL_RESOLUTION : 0);
+            fileScroll.setVisibleAmount(size > 0 ? Math.max(50, SCROLL_RESOLUTION * rows * 100.0 / size) : SCROLL_RESOLUTION);
+            updatingScroll = false;
+
+            String line = lineNumber >= 0 ? "Line " + (lineNumber + 1) : "Byte " + shownAnchor;
+            String total = totalLines >= 0 ? " of " + totalLines
+                    : String.format(" (indexing %.0f%%)", size > 0 ? indexed * 100.0 / size : 100.0);
+            positionLabel.setText(line + total + "  ·  " + formatSize(size));
+        });
+    }
+
+    private void renderEnd() throws Exception {
+        List<RemoteFileReader.Line> last = reader.readLinesBefore(reader.getSize(), visibleRows());
+        render(last.isEmpty() ? 0 : last.get(0).getOffset());
+    }
+
+    private void onKey(KeyEvent e) {
+        switch (e.getCode()) {
+            case UP -> scrollLines(-1);
+            case DOWN -> scrollLines(1);
+            case PAGE_UP -> scrollLines(-visibleRows());
+            case PAGE_DOWN -> scrollLines(visibleRows());
+            case HOME -> submit(() -> render(0));
+            case END -> submit(this::renderEnd);
+            default -> {
+                return;
+            }
+        }
+        e.consume();
+    }
+
+    private void onGoto() {
+        String text = gotoField.getText() != null ? gotoField.getText().trim() : "";
+        long line;
+        try {
+            line = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            statusLabel.setText("Enter a line number");
+            return;
+        }
+
+        submit(() -> {
+            long offset = reader.offsetOfLine(Math.max(0, line - 1));
+            if (offset < 0) {
+                Platform.runLater(() -> statusLabel.setText("Line " + line + " is not indexed yet"));
+                return;
+            }
+            render(offset);
+            Platform.runLater(() -> statusLabel.setText("Ready"));
+        });
+    }
+
+    /**
+     * Find the next match after the last one (or after the top of the view) and scroll to it
+     */
+    private void onFindNext() {
+        String text = findField.getText();
+        if (text == null || text.isEmpty() || reader == null) {
+            return;
+        }
+        if (searchThread != null && searchThread.isAlive()) {
+            return;
+        }
+
+        boolean caseSensitive = matchCaseCheck.isSelected();
+        if (!text.equals(highlight)) {
+            lastMatch = -1;
+        }
+        highlight = text;
+        long from = lastMatch >= 0 && lastMatch >= anchorSnapshot() ? lastMatch + 1 : anchorSnapshot();
+
+        statusLabel.setText("Searching...");
+        findNextBtn.setDisable(true);
+        searchThread = new Thread(() -> {
+            try {
+                long match = reader.search(text, from, caseSensitive);
+                Platform.runLater(() -> {
+                    findNextBtn.setDisable(false);
+                    if (match < 0) {
+                        statusLabel.setText("No more matches for \"" + text + "\"");
+                        return;
+                    }
+                    lastMatch = match;
+                    statusLabel.setText("Match at byte " + match);
+                    submit(() -> render(reader.findLineStart(match)));
+                    linesView.refresh();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Search failed in {}", reader.getPath(), e);
+                Platform.runLater(() -> {
+                    findNextBtn.setDisable(false);
+                    statusLabel.setText("Search failed: " + e.getMessage());
+                });
+            }
+        }, "remote-viewer-search");
+        searchThread.setDaemon(true);
+        searchThread.start();
+    }
+
+    private long anchorSnapshot() {
+        return lines.isEmpty() ? 0 : lines.get(0).getOffset();
+    }
+
+    private boolean isHighlighted(String line) {
+        if (matchCaseCheck.isSelected()) {
+            return line.contains(highlight);
+        }
+        return line.toLowerCase().contains(highlight.toLowerCase());
+    }
+
+    private static String formatSize(long size) {
+        if (size < 1024) return size + " B";
+        if (size < 1024 * 1024) return String.format("%.1f KB", size / 1024.0);
+        if (size < 1024L * 1024 * 1024) return String.format("%.1f MB", size / (1024.0 * 1024));
+        return String.format("%.2f GB", size / (1024.0 * 1024 * 1024));
+    }
+}
@@ -1,6 +1,7 @@
 package com.ninja.terminal.controller;
 
 import com.ninja.terminal.model.AppConfig;
+import com.ninja.terminal.model.HostInfo;
 import com.ninja.terminal.service.ConfigService;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
@@ -21,9 +22,15 @@ public class SettingsController implements Initializable {
     @FXML private ComboBox<String> fontFamilyCombo;
     @FXML private Spinner<Integer> fontSizeSpinner;
     @FXML private Spinner<Integer> scrollBufferSpinner;
+    @FXML private Spinner<Integer> scrollMemorySpinner;
+    @FXML private Spinner<Integer> hibernateSpinner;
+    @FXML private CheckBox sessionLogCheck;
+    @FXML private Spinner<Integer> sessionLogSizeSpinner;
     @FXML private Spinner<Integer> defaultPortSpinner;
     @FXML private Spinner<Integer> connectionTimeoutSpinner;
     @FXML private ComboBox<String> themeCombo;
+    @FXML private ComboBox<HostInfo.CompressionMode> compressionCombo;
+    @FXML private ComboBox<AppConfig.RendererType> rendererCombo;
     @FXML private Button resetBtn;
     @FXML private Button saveBtn;
 
@@ -56,6 +63,8 @@ public class SettingsController implements Initializable {
         setupFontFamilyCombo();
         setupSpinners();
         setupThemeCombo();
+        setupCompressionCombo();
+        setupRendererCombo();
         setupButtons();
 
         loadSettings();
@@ -72,12 +81,30 @@ public class SettingsController implements Initializable {
         fontSizeSpinner.setValueFactory(fontSizeFactory);
         fontSizeSpinner.setEditable(true);
 
-        // Scroll Buffer Size Spinner (1000-50000)
+        // Scroll Buffer Size Spinner (1000-5000000)
         SpinnerValueFactory<Integer> scrollBufferFactory =
-            new SpinnerValueFactory.IntegerSpinnerValueFactory(1000, 50000, 10000, 1000);
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(1000, 5_000_000, 10000, 1000);
         scrollBufferSpinner.setValueFactory(scrollBufferFactory);
         scrollBufferSpinner.setEditable(true);
 
+        // Scroll Buffer Memory Spinner (8-4096 MB)
+        SpinnerValueFactory<Integer> scrollMemoryFactory =
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(8, 4096, 64, 8);
+        scrollMemorySpinner.setValueFactory(scrollMemoryFactory);
+        scrollMemorySpinner.setEditable(true);
+
+        // Hibernate Minutes Spinner (0-1440)
+        SpinnerValueFactory<Integer> hibernateFactory =
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 1440, 10);
+        hibernateSpinner.setValueFactory(hibernateFactory);
+        hibernateSpinner.setEditable(true);
+
+        // Session Log Size Spinner (0-10240 MB)
+        SpinnerValueFactory<Integer> sessionLogSizeFactory =
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 10240, 10);
+        sessionLogSizeSpinner.setValueFactory(sessionLogSizeFactory);
+        sessionLogSizeSpinner.setEditable(true);
+
         // Default Port Spinner (1-65535)
         SpinnerValueFactory<Integer> defaultPortFactory =
             new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 65535, 22);
@@ -93,6 +120,9 @@ public class SettingsController implements Initializable {
         // Add text formatter for spinners to handle manual input
         addSpinnerTextFormatter(fontSizeSpinner);
         addSpinnerTextFormatter(scrollBufferSpinner);
+        addSpinnerTextFormatter(scrollMemorySpinner);
+        addSpinnerTextFormatter(hibernateSpinner);
+        addSpinnerTextFormatter(sessionLogSizeSpinner);
         addSpinnerTextFormatter(defaultPortSpinner);
         addSpinnerTextFormatter(connectionTimeoutSpinner);
     }
@@ -118,6 +148,14 @@ public class SettingsController implements Initializable {
         themeCombo.setItems(FXCollections.observableArrayList(THEMES));
     }
 
+    private void setupCompressionCombo() {
+        compressionCombo.setItems(FXCollections.observableArrayList(HostInfo.CompressionMode.values()));
+    }
+
+    private void setupRendererCombo() {
+        rendererCombo.setItems(FXCollections.observableArrayList(AppConfig.RendererType.values()));
+    }
+
     private void setupButtons() {
         saveBtn.setOnAction(e -> onSave());
         resetBtn.setOnAction(e -> onReset());
@@ -128,8 +166,14 @@ public class SettingsController implements Initializable {
         fontFamilyCombo.setValue(settings.getFontFamily());
         fontSizeSpinner.getValueFactory().setValue(settings.getFontSize());
         scrollBufferSpinner.getValueFactory().setValue(settings.getScrollBufferSize());
+        scrollMemorySpinner.getValueFactory().setValue(settings.getScrollBufferMegabytes());
+        hibernateSpinner.getValueFactory().setValue(settings.getTerminalHibernateMinutes());
+        sessionLogCheck.setSelected(settings.isSessionLogging());
+        sessionLogSizeSpinner.getValueFactory().setValue(settings.getSessionLogMaxMegabytes());
         defaultPortSpinner.getValueFactory().setValue(settings.getDefaultPort());
         connectionTimeoutSpinner.getValueFactory().setValue(settings.getConnectionTimeout());
+        compressionCombo.setValue(settings.getCompression());
+        rendererCombo.setValue(settings.getTerminalRenderer());
 
         // Capitalize theme name for display
         String themeName = capitalizeFirst(settings.getTheme());
@@ -156,8 +200,16 @@ public class SettingsController implements Initializable {
             settings.setFontFamily(fontFamily);
             settings.setFontSize(fontSize);
             settings.setScrollBufferSize(scrollBuffer);
+            settings.setScrollBufferMegabytes(scrollMemorySpinner.getValue());
+            settings.setTerminalHibernateMinutes(hibernateSpinner.getValue());
+            settings.setSessionLogging(sessionLogCheck.isSelected());
+            settings.setSessionLogMaxMegabytes(sessionLogSizeSpinner.getValue());
             settings.setDefaultPort(defaultPort);
             settings.setConnectionTimeout(timeout);
+            settings.setCompression(compressionCombo.getValue() != null
+                    ? compressionCombo.getValue() : HostInfo.CompressionMode.NONE);
+            settings.setTerminalRenderer(rendererCombo.getValue() != null
+                    ? rendererCombo.getValue() : AppConfig.RendererType.SWING);
             settings.setTheme(theme);
 
             // Save to file
@@ -195,9 +247,15 @@ public class SettingsController implements Initializable {
         fontFamilyCombo.setValue("JetBrains Mono");
         fontSizeSpinner.getValueFactory().setValue(14);
         scrollBufferSpinner.getValueFactory().setValue(10000);
+        scrollMemorySpinner.getValueFactory().setValue(64);
+        hibernateSpinner.getValueFactory().setValue(10);
+        sessionLogCheck.setSelected(false);
+        sessionLogSizeSpinner.getValueFactory().setValue(10);
         defaultPortSpinner.getValueFactory().setValue(22);
         connectionTimeoutSpinner.getValueFactory().setValue(30000);
+        compressionCombo.setValue(HostInfo.CompressionMode.NONE);
         themeCombo.setValue("Dark");
+        rendererCombo.setValue(AppConfig.RendererType.SWING);
 
         log.info("Settings reset to defaults");
         showInfo("Settings Reset", "All settings have been reset to their default values.\n\nClick 'Save Changes' to apply.");
@@ -3,31 +3,53 @@ package com.ninja.terminal.controller;
 import com.ninja.terminal.model.HostInfo;
 import com.ninja.terminal.model.RemoteFile;
 import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.service.DeltaUploader;
+import com.ninja.terminal.service.DirectoryMirror;
+import com.ninja.terminal.service.DirectoryListingCache;
+import com.ninja.terminal.service.RemoteBatchTask;
+import com.ninja.terminal.service.RemoteCopyTask;
+import com.ninja.terminal.service.RemoteDeleteTask;
+import com.ninja.terminal.service.RemoteFileReader;
+import com.ninja.terminal.service.RemoteSearchTask;
+import com.ninja.terminal.service.RemoteTailer;
 import com.ninja.terminal.service.SftpService;
 import com.ninja.terminal.service.SshService;
+import com.ninja.terminal.service.TransferVerifier;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
+import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.net.URL;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class SftpController implements Initializable {
 
     private static final Logger log = LoggerFactory.getLogger(SftpController.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int LISTING_BATCH = 1000;
+    private static final int SORT_LIMIT = 50_000;
 
     @FXML private ComboBox<HostInfo> hostCombo;
     @FXML private Button connectBtn;
@@ -36,22 +58,35 @@ public class SftpController implements Initializable {
     @FXML private Button backBtn;
     @FXML private TextField pathField;
     @FXML private Button refreshBtn;
+    @FXML private TextField searchField;
     @FXML private Button uploadBtn;
     @FXML private Button downloadBtn;
     @FXML private Button newFolderBtn;
     @FXML private Button deleteBtn;
+    @FXML private Button mirrorBtn;
     @FXML private TableView<RemoteFile> fileTable;
     @FXML private TableColumn<RemoteFile, String> nameColumn;
     @FXML private TableColumn<RemoteFile, String> sizeColumn;
     @FXML private TableColumn<RemoteFile, String> permissionsColumn;
     @FXML private TableColumn<RemoteFile, String> modifiedColumn;
     @FXML private Label statusLabel;
+    @FXML private Button cancelBtn;
     @FXML private Label fileCountLabel;
 
     private final ConfigService configService = ConfigService.getInstance();
     private final SshService sshService = new SshService();
     private final SftpService sftpService = new SftpService();
 
+    private Runnable activeCancel;
+    private DirectoryMirror mirror;
+    private RemoteSearchTask activeSearch;
+    private String searchRoot;
+    private final AtomicLong listingGeneration = new AtomicLong();
+    private final AtomicLong navigationGeneration = new AtomicLong();
+    private final Object navigationLock = new Object();
+    // Directory whose listing is shown; every action on "this directory" uses it. FX thread only.
+    private String displayedPath = "/";
+
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         setupHostCombo();
@@ -85,7 +120,7 @@ public class SftpController implements Initializable {
     private void setupFileTable() {
         // Name column with icon
         nameColumn.setCellValueFactory(cellData ->
-            new SimpleStringProperty(cellData.getValue().getFilename())
+            new SimpleStringProperty(displayName(cellData.getValue()))
         );
 
         // Size column
@@ -99,12 +134,11 @@ public class SftpController implements Initializable {
         );
 
         // Modified time column
-        modifiedColumn.setCellValueFactory(cellData -> {
-            RemoteFile file = cellData.getValue();
-            String formatted = file.getModifiedTime() != null ?
-                file.getModifiedTime().format(DATE_FORMATTER) : "-";
-            return new SimpleStringProperty(formatted);
-        });
+        modifiedColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().getFormattedModifiedTime())
+        );
+
+        fileTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         // Double-click to open directory
         fileTable.setOnMouseClicked(event -> {
@@ -112,6 +146,9 @@ public class SftpController implements Initializable {
                 RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
                 if (selectedFile != null && selectedFile.isDirectory()) {
                     openDirectory(selectedFile);
+                } else if (selectedFile != null && searchRoot != null) {
+                    // Show a found file in its directory
+                    navigateTo(selectedFile.getPath());
                 }
             }
         });
@@ -129,15 +166,24 @@ public class SftpController implements Initializable {
         disconnectBtn.setOnAction(e -> onDisconnect());
         backBtn.setOnAction(e -> onBack());
         refreshBtn.setOnAction(e -> refreshFileList());
+        searchField.setOnAction(e -> onSearch());
         uploadBtn.setOnAction(e -> onUpload());
         downloadBtn.setOnAction(e -> onDownload());
         newFolderBtn.setOnAction(e -> onNewFolder());
         deleteBtn.setOnAction(e -> onDelete());
+        mirrorBtn.setOnAction(e -> onMirror());
+        cancelBtn.setOnAction(e -> onCancel());
     }
 
     private void setupContextMenu() {
         ContextMenu contextMenu = new ContextMenu();
 
+        MenuItem viewItem = new MenuItem("View");
+        viewItem.setOnAction(e -> onView());
+
+        MenuItem tailItem = new MenuItem("Tail");
+        tailItem.setOnAction(e -> onTail());
+
         MenuItem downloadItem = new MenuItem("Download");
         downloadItem.setOnAction(e -> onDownload());
 
@@ -150,8 +196,14 @@ public class SftpController implements Initializable {
         MenuItem permissionsItem = new MenuItem("Change Permissions");
         permissionsItem.setOnAction(e -> onChangePermissions());
 
-        contextMenu.getItems().addAll(downloadItem, new SeparatorMenuItem(),
-                                      renameItem, permissionsItem, new SeparatorMenuItem(),
+        MenuItem moveItem = new MenuItem("Move to...");
+        moveItem.setOnAction(e -> onMove());
+
+        MenuItem copyToHostItem = new MenuItem("Copy to Host...");
+        copyToHostItem.setOnAction(e -> onCopyToHost());
+
+        contextMenu.getItems().addAll(viewItem, tailItem, downloadItem, copyToHostItem, new SeparatorMenuItem(),
+                                      renameItem, moveItem, permissionsItem, new SeparatorMenuItem(),
                                       deleteItem);
 
         fileTable.setContextMenu(contextMenu);
@@ -182,6 +234,7 @@ public class SftpController implements Initializable {
                     disconnectBtn.setDisable(false);
                     enableFileOperations(true);
 
+                    displayedPath = sftpService.getCurrentPath();
                     refreshFileList();
                 });
 
@@ -198,6 +251,8 @@ public class SftpController implements Initializable {
     }
 
     private void onDisconnect() {
+        endSearch();
+        stopMirror();
         sftpService.disconnect();
         sshService.disconnect();
 
@@ -215,8 +270,10 @@ public class SftpController implements Initializable {
     private void enableFileOperations(boolean enable) {
         backBtn.setDisable(!enable);
         refreshBtn.setDisable(!enable);
+        searchField.setDisable(!enable);
         uploadBtn.setDisable(!enable);
         newFolderBtn.setDisable(!enable);
+        mirrorBtn.setDisable(!enable);
         // download and delete are controlled by selection
     }
 
@@ -225,42 +282,162 @@ public class SftpController implements Initializable {
             return;
         }
 
+        endSearch();
         statusLabel.setText("Loading...");
+        String currentPath = displayedPath;
+        long generation = listingGeneration.incrementAndGet();
+
+        new Thread(() -> streamListing(currentPath, generation)).start();
+    }
+
+    /**
+     * Navigate to a directory. A cached listing is shown immediately and
+     * revalidated in the background once it is older than the cache TTL.
+     * Directory changes run one at a time, and one superseded by a newer
+     * navigation is dropped, so the last navigation always wins.
+     */
+    private void navigateTo(String path) {
+        endSearch();
+        long navigation = navigationGeneration.incrementAndGet();
+        long generation = listingGeneration.incrementAndGet();
+        DirectoryListingCache.Entry cached = sftpService.getCachedListing(path);
+        if (cached != null) {
+            showFiles(path, cached.getFiles());
+        } else {
+            statusLabel.setText("Loading...");
+        }
 
         new Thread(() -> {
             try {
-                List<RemoteFile> files = sftpService.listFiles();
-                String currentPath = sftpService.getCurrentPath();
+                String currentPath;
+                synchronized (navigationLock) {
+                    if (navigation != navigationGeneration.get()) {
+                        return;
+                    }
+                    sftpService.changeDirectory(path);
+                    currentPath = sftpService.getCurrentPath();
+                }
+
+                if (cached == null || !currentPath.equals(path)) {
+                    streamListing(currentPath, generation);
+                    return;
+                }
+
+                if (cached.isFresh(sftpService.getCacheTtlMillis())) {
+                    return;
+                }
+
+                List<RemoteFile> files = sftpService.listFiles(currentPath);
 
                 Platform.runLater(() -> {
-                    fileTable.setItems(FXCollections.observableArrayList(files));
-                    pathField.setText(currentPath);
-                    fileCountLabel.setText(files.size() + " items");
-                    statusLabel.setText("Ready");
+                    // Ignore the result if the user has navigated elsewhere meanwhile
+                    if (generation == listingGeneration.get()) {
+                        showFiles(currentPath, files);
+                    }
                 });
 
             } catch (Exception e) {
-                log.error("Failed to list files", e);
+                log.error("Failed to change directory", e);
                 Platform.runLater(() -> {
+                    if (generation != listingGeneration.get()) {
+                        return;
+                    }
                     statusLabel.setText("Error: " + e.getMessage());
-                    showError("Failed to List Files", e.getMessage());
+                    showError("Failed to Open Directory", e.getMessage());
                 });
             }
         }).start();
     }
 
-    private void openDirectory(RemoteFile directory) {
-        String newPath = directory.getFullPath();
-
-        new Thread(() -> {
-            try {
-                sftpService.changeDirectory(newPath);
-                Platform.runLater(this::refreshFileList);
-            } catch (Exception e) {
-                log.error("Failed to change directory", e);
-                Platform.runLater(() -> showError("Failed to Open Directory", e.getMessage()));
+    /**
+     * List a directory into the table batch by batch as entries arrive.
+     * The generation is taken on the FX thread when the listing is requested,
+     * so a later navigation, refresh or search supersedes it.
+     * Must be called from a background thread.
+     */
+    private void streamListing(String path, long generation) {
+        int limit = configService.getSettings().getSftpMaxListingEntries();
+
+        ObservableList<RemoteFile> items = FXCollections.observableArrayList();
+        ConcurrentLinkedQueue<List<RemoteFile>> pending = new ConcurrentLinkedQueue<>();
+        AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+        Runnable drain = () -> {
+            drainScheduled.set(false);
+            List<RemoteFile> batch;
+            while ((batch = pending.poll()) != null) {
+                items.addAll(batch);
             }
-        }).start();
+            if (generation == listingGeneration.get()) {
+                fileCountLabel.setText(items.size() + " items");
+            }
+        };
+
+        Platform.runLater(() -> {
+            if (generation == listingGeneration.get()) {
+                fileTable.setItems(items);
+                displayedPath = path;
+                pathField.setText(path);
+                fileCountLabel.setText("0 items");
+            }
+        });
+
+        try {
+            int count = sftpService.streamFiles(path, LISTING_BATCH, limit, batch -> {
+                // A newer listing replaced this one
+                if (generation != listingGeneration.get()) {
+                    return false;
+                }
+
+                pending.add(batch);
+                // Coalesce batches so the FX thread gets one update per pulse at most
+                if (drainScheduled.compareAndSet(false, true)) {
+                    Platform.runLater(drain);
+                }
+                return true;
+            });
+
+            Platform.runLater(() -> {
+                drain.run();
+                if (generation != listingGeneration.get()) {
+                    return;
+                }
+
+                if (count <= SORT_LIMIT) {
+                    FXCollections.sort(items, SftpService.LISTING_ORDER);
+                    statusLabel.setText("Ready");
+                } else {
+                    // Sorting huge listings is left to column clicks
+                    statusLabel.setText("Unsorted - click a column to sort");
+                }
+                if (count >= limit) {
+                    statusLabel.setText("Showing first " + limit + " entries");
+                }
+
+                sftpService.prefetchSubdirectories(items);
+            });
+
+        } catch (Exception e) {
+            log.error("Failed to list files", e);
+            Platform.runLater(() -> {
+                statusLabel.setText("Error: " + e.getMessage());
+                showError("Failed to List Files", e.getMessage());
+            });
+        }
+    }
+
+    private void showFiles(String path, List<RemoteFile> files) {
+        fileTable.setItems(FXCollections.observableArrayList(files));
+        displayedPath = path;
+        pathField.setText(path);
+        fileCountLabel.setText(files.size() + " items");
+        statusLabel.setText("Ready");
+
+        sftpService.prefetchSubdirectories(files);
+    }
+
+    private void openDirectory(RemoteFile directory) {
+        navigateTo(directory.getFullPath());
     }
 
     private void onBack() {
@@ -268,15 +445,139 @@ public class SftpController implements Initializable {
             return;
         }
 
+        // Leaving search results goes back to the directory that was searched
+        if (searchRoot != null) {
+            navigateTo(searchRoot);
+            return;
+        }
+
+        String currentPath = displayedPath;
+        if ("/".equals(currentPath)) {
+            return;
+        }
+
+        navigateTo(SftpService.getParentPath(currentPath));
+    }
+
+    /**
+     * Search names below the current directory, streaming matches into the table.
+     * A query wrapped in slashes is a regular expression, anything else a glob. Queries in
+     * lower case match regardless of case, any upper-case letter makes the search case-sensitive.
+     */
+    private void onSearch() {
+        String query = searchField.getText() != null ? searchField.getText().trim() : "";
+        if (query.isEmpty() || !sftpService.isConnected()) {
+            return;
+        }
+
+        boolean regex = query.length() > 2 && query.startsWith("/") && query.endsWith("/");
+        String pattern = regex ? query.substring(1, query.length() - 1) : query;
+        String root = displayedPath;
+
+        endSearch();
+        RemoteSearchTask task = sftpService.createSearchTask(root, pattern, regex);
+        task.setCaseSensitive(!pattern.equals(pattern.toLowerCase(Locale.ROOT)));
+        long generation = listingGeneration.incrementAndGet();
+        activeSearch = task;
+        searchRoot = root;
+
+        ObservableList<RemoteFile> items = FXCollections.observableArrayList();
+        ConcurrentLinkedQueue<List<RemoteFile>> pending = new ConcurrentLinkedQueue<>();
+        AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+        Runnable drain = () -> {
+            drainScheduled.set(false);
+            if (generation != listingGeneration.get()) {
+                pending.clear();
+                return;
+            }
+            List<RemoteFile> batch;
+            while ((batch = pending.poll()) != null) {
+                items.addAll(batch);
+            }
+            fileCountLabel.setText(items.size() + " matches");
+        };
+
+        task.setListener(matches -> {
+            pending.add(matches);
+            // Coalesce batches so the FX thread gets one update per pulse at most
+            if (drainScheduled.compareAndSet(false, true)) {
+                Platform.runLater(drain);
+            }
+        });
+
+        fileTable.setItems(items);
+        pathField.setText("Search: " + query + " in " + root);
+        fileCountLabel.setText("0 matches");
+        statusLabel.setText("Searching...");
+        showCancel(task::cancel);
+
         new Thread(() -> {
             try {
-                sftpService.goToParentDirectory();
-                Platform.runLater(this::refreshFileList);
+                task.run();
+
+                Platform.runLater(() -> {
+                    drain.run();
+                    if (generation != listingGeneration.get()) {
+                        return;
+                    }
+                    activeSearch = null;
+                    hideCancel();
+                    String status = "Found " + task.getMatched() + " matches in " + task.getScanned() + " entries";
+                    if (task.isTruncated()) {
+                        status += " (result limit reached)";
+                    } else if (task.isTimedOut()) {
+                        status += " (time limit reached)";
+                    }
+                    statusLabel.setText(status);
+                });
+
+            } catch (CancellationException e) {
+                Platform.runLater(() -> {
+                    drain.run();
+                    if (generation == listingGeneration.get()) {
+                        activeSearch = null;
+                        hideCancel();
+                        statusLabel.setText("Search cancelled after " + task.getMatched() + " matches");
+                    }
+                });
+
             } catch (Exception e) {
-                log.error("Failed to go to parent directory", e);
-                Platform.runLater(() -> showError("Failed to Go Back", e.getMessage()));
+                log.error("Search failed", e);
+                Platform.runLater(() -> {
+                    if (generation == listingGeneration.get()) {
+                        activeSearch = null;
+                        hideCancel();
+                        statusLabel.setText("Search failed");
+                        showError("Search Failed", e.getMessage());
+                    }
+                });
             }
-        }).start();
+        }, "sftp-search").start();
+    }
+
+    /**
+     * Stop a running search and leave search mode
+     */
+    private void endSearch() {
+        if (activeSearch != null) {
+            activeSearch.cancel();
+            activeSearch = null;
+            hideCancel();
+        }
+        searchRoot = null;
+    }
+
+    /**
+     * Name shown in the table; search results show their path below the searched directory
+     */
+    private String displayName(RemoteFile file) {
+        if (searchRoot == null) {
+            return file.getFilename();
+        }
+        String fullPath = file.getFullPath();
+        String prefix = searchRoot.endsWith("/") ? searchRoot : searchRoot + "/";
+        return fullPath.startsWith(prefix) ? fullPath.substring(prefix.length()) : fullPath;
     }
 
     private void onUpload() {
@@ -293,19 +594,26 @@ public class SftpController implements Initializable {
         }
 
         statusLabel.setText("Uploading " + file.getName() + "...");
+        String directory = displayedPath;
 
         new Thread(() -> {
             try {
-                String remotePath = sftpService.getCurrentPath();
-                if (!remotePath.endsWith("/")) {
-                    remotePath += "/";
+                String remotePath = directory.endsWith("/") ? directory + file.getName()
+                        : directory + "/" + file.getName();
+
+                String uploaded;
+                if (configService.getSettings().isSftpDeltaUpload()) {
+                    DeltaUploader.Result result = sftpService.uploadFileDelta(file.getAbsolutePath(), remotePath);
+                    uploaded = String.format("Uploaded %s (sent %.1f of %.1f MB%s)", file.getName(),
+                            result.getLiteralBytes() / (1024.0 * 1024), result.getFileSize() / (1024.0 * 1024),
+                            result.getCheck() != null ? ", " + result.getCheck() : "");
+                } else {
+                    TransferVerifier.Result check = sftpService.uploadFile(file.getAbsolutePath(), remotePath);
+                    uploaded = "Uploaded " + file.getName() + (check != null ? " (" + check + ")" : "");
                 }
-                remotePath += file.getName();
-
-                sftpService.uploadFile(file.getAbsolutePath(), remotePath);
 
                 Platform.runLater(() -> {
-                    statusLabel.setText("Uploaded " + file.getName());
+                    statusLabel.setText(uploaded);
                     refreshFileList();
                 });
 
@@ -319,12 +627,150 @@ public class SftpController implements Initializable {
         }).start();
     }
 
-    private void onDownload() {
+    private void onMirror() {
+        if (mirror != null) {
+            stopMirror();
+            statusLabel.setText("Mirror stopped");
+            return;
+        }
+        if (!sftpService.isConnected()) {
+            return;
+        }
+
+        DirectoryChooser dirChooser = new DirectoryChooser();
+        dirChooser.setTitle("Select Local Folder to Mirror");
+        File directory = dirChooser.showDialog(mirrorBtn.getScene().getWindow());
+
+        if (directory == null) {
+            return;
+        }
+
+        String remotePath = displayedPath;
+        DirectoryMirror newMirror = new DirectoryMirror(sftpService, directory.toPath(), remotePath);
+        newMirror.setListener(new DirectoryMirror.Listener() {
+            @Override
+            public void onSynced(int uploaded, int deleted, long elapsedMillis) {
+                Platform.runLater(() -> {
+                    statusLabel.setText(String.format("Mirror: %d uploaded, %d deleted (%d ms)",
+                            uploaded, deleted, elapsedMillis));
+                    if (remotePath.equals(displayedPath) && searchRoot == null) {
+                        refreshFileList();
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String path, Exception e) {
+                Platform.runLater(() -> statusLabel.setText("Mirror: failed to sync " + path + ": " + e.getMessage()));
+            }
+        });
+
+        try {
+            newMirror.start();
+        } catch (Exception e) {
+            log.error("Failed to start mirror", e);
+            showError("Mirror Failed", e.getMessage());
+            return;
+        }
+
+        mirror = newMirror;
+        mirrorBtn.setText("Stop Mirror");
+        statusLabel.setText("Mirroring " + directory.getAbsolutePath() + " → " + remotePath);
+    }
+
+    private void stopMirror() {
+        if (mirror != null) {
+            mirror.stop();
+            mirror = null;
+            mirrorBtn.setText("Mirror...");
+        }
+    }
+
+    private void onView() {
         RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
         if (selectedFile == null || selectedFile.isDirectory()) {
             return;
         }
 
+        statusLabel.setText("Opening " + selectedFile.getFilename() + "...");
+
+        new Thread(() -> {
+            try {
+                RemoteFileReader reader = sftpService.openReader(selectedFile.getFullPath());
+                Platform.runLater(() -> {
+                    statusLabel.setText("Ready");
+                    showViewer(selectedFile.getFilename(), reader);
+                });
+            } catch (Exception e) {
+                log.error("Failed to open file for viewing", e);
+                Platform.runLater(() -> {
+                    statusLabel.setText("Ready");
+                    showError("Failed to Open File", e.getMessage());
+                });
+            }
+        }).start();
+    }
+
+    private void showViewer(String title, RemoteFileReader reader) {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/RemoteViewer.fxml"));
+            Parent root = loader.load();
+
+            RemoteViewerController controller = loader.getController();
+            controller.setReader(reader);
+
+            Stage stage = new Stage();
+            stage.setTitle(title + " - " + reader.getPath());
+
+            Scene scene = new Scene(root, 900, 600);
+            scene.getStylesheets().add(getClass().getResource("/css/dark-theme.css").toExternalForm());
+            stage.setScene(scene);
+            stage.setOnHidden(e -> controller.close());
+            stage.show();
+
+        } catch (Exception e) {
+            log.error("Failed to open viewer", e);
+            reader.close();
+            showError("Failed to Open File", e.getMessage());
+        }
+    }
+
+    private void onTail() {
+        RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
+        if (selectedFile == null || selectedFile.isDirectory() || !sftpService.isConnected()) {
+            return;
+        }
+
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/TailView.fxml"));
+            Parent root = loader.load();
+
+            TailViewController controller = loader.getController();
+            RemoteTailer tailer = sftpService.createTailer(selectedFile.getFullPath(), controller);
+
+            Stage stage = new Stage();
+            stage.setTitle("tail " + selectedFile.getFullPath());
+
+            Scene scene = new Scene(root);
+            scene.getStylesheets().add(getClass().getResource("/css/dark-theme.css").toExternalForm());
+            stage.setScene(scene);
+            stage.setOnHidden(e -> controller.close());
+            stage.show();
+
+            controller.setTailer(tailer);
+
+        } catch (Exception e) {
+            log.error("Failed to tail file", e);
+            showError("Failed to Tail File", e.getMessage());
+        }
+    }
+
+    private void onDownload() {
+        List<RemoteFile> selectedFiles = selectedFiles();
+        if (selectedFiles.isEmpty()) {
+            return;
+        }
+
         DirectoryChooser dirChooser = new DirectoryChooser();
         dirChooser.setTitle("Select Download Location");
         File directory = dirChooser.showDialog(downloadBtn.getScene().getWindow());
@@ -333,15 +779,25 @@ public class SftpController implements Initializable {
             return;
         }
 
+        // Directories are downloaded with everything below them by the batch task
+        if (selectedFiles.size() > 1 || selectedFiles.get(0).isDirectory()) {
+            RemoteBatchTask task = sftpService.createBatchTask(RemoteBatchTask.Operation.DOWNLOAD, selectedFiles);
+            task.setLocalDirectory(directory.getAbsolutePath());
+            runBatch(task);
+            return;
+        }
+
+        RemoteFile selectedFile = selectedFiles.get(0);
+
         statusLabel.setText("Downloading " + selectedFile.getFilename() + "...");
 
         new Thread(() -> {
             try {
                 String localPath = directory.getAbsolutePath() + File.separator + selectedFile.getFilename();
-                sftpService.downloadFile(selectedFile.getFullPath(), localPath);
+                TransferVerifier.Result check = sftpService.downloadFile(selectedFile.getFullPath(), localPath);
 
                 Platform.runLater(() -> {
-                    statusLabel.setText("Downloaded " + selectedFile.getFilename());
+                    statusLabel.setText("Downloaded " + selectedFile.getFilename() + (check != null ? " (" + check + ")" : ""));
                     showInfo("Download Complete", "File saved to: " + localPath);
                 });
 
@@ -373,13 +829,11 @@ public class SftpController implements Initializable {
                 return;
             }
 
+            String directory = displayedPath;
             new Thread(() -> {
                 try {
-                    String newPath = sftpService.getCurrentPath();
-                    if (!newPath.endsWith("/")) {
-                        newPath += "/";
-                    }
-                    newPath += folderName;
+                    String newPath = directory.endsWith("/") ? directory + folderName
+                            : directory + "/" + folderName;
 
                     sftpService.createDirectory(newPath);
 
@@ -397,11 +851,16 @@ public class SftpController implements Initializable {
     }
 
     private void onDelete() {
-        RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
-        if (selectedFile == null) {
+        List<RemoteFile> selectedFiles = selectedFiles();
+        if (selectedFiles.isEmpty()) {
+            return;
+        }
+        if (selectedFiles.size() > 1) {
+            deleteSelection(selectedFiles);
             return;
         }
 
+        RemoteFile selectedFile = selectedFiles.get(0);
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Delete " + (selectedFile.isDirectory() ? "Folder" : "File"));
         alert.setHeaderText("Delete " + selectedFile.getFilename() + "?");
@@ -412,13 +871,14 @@ public class SftpController implements Initializable {
 
         alert.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
+                if (selectedFile.isDirectory()) {
+                    deleteDirectory(selectedFile);
+                    return;
+                }
+
                 new Thread(() -> {
                     try {
-                        if (selectedFile.isDirectory()) {
-                            sftpService.deleteDirectory(selectedFile.getFullPath());
-                        } else {
-                            sftpService.deleteFile(selectedFile.getFullPath());
-                        }
+                        sftpService.deleteFile(selectedFile.getFullPath());
 
                         Platform.runLater(() -> {
                             statusLabel.setText("Deleted: " + selectedFile.getFilename());
@@ -434,6 +894,206 @@ public class SftpController implements Initializable {
         });
     }
 
+    private void deleteSelection(List<RemoteFile> selectedFiles) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Delete Items");
+        alert.setHeaderText("Delete " + selectedFiles.size() + " items?");
+        alert.setContentText("Folders are deleted with everything in them. This action cannot be undone.");
+        alert.getDialogPane().getStylesheets().add(
+            getClass().getResource("/css/dark-theme.css").toExternalForm()
+        );
+
+        alert.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.OK) {
+                runBatch(sftpService.createBatchTask(RemoteBatchTask.Operation.DELETE, selectedFiles));
+            }
+        });
+    }
+
+    private void deleteDirectory(RemoteFile directory) {
+        RemoteDeleteTask task = sftpService.createDeleteTask(directory.getFullPath());
+        AtomicBoolean updatePending = new AtomicBoolean(false);
+
+        // Coalesce progress updates so worker threads don't flood the FX thread
+        task.setListener((deleted, discovered) -> {
+            if (updatePending.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    updatePending.set(false);
+                    statusLabel.setText(String.format("Deleting %s... %d / %d",
+                            directory.getFilename(), task.getDeleted(), task.getDiscovered()));
+                });
+            }
+        });
+
+        statusLabel.setText("Deleting " + directory.getFilename() + "...");
+        showCancel(task::cancel);
+
+        new Thread(() -> {
+            try {
+                task.run();
+
+                Platform.runLater(() -> {
+                    hideCancel();
+                    statusLabel.setText("Deleted: " + directory.getFilename());
+                    refreshFileList();
+                });
+
+            } catch (CancellationException e) {
+                log.info("Delete of {} cancelled", directory.getFullPath());
+                Platform.runLater(() -> {
+                    hideCancel();
+                    statusLabel.setText("Delete cancelled after " + task.getDeleted() + " items");
+                    refreshFileList();
+                });
+
+            } catch (Exception e) {
+                log.error("Failed to delete", e);
+                Platform.runLater(() -> {
+                    hideCancel();
+                    statusLabel.setText("Delete failed");
+                    showError("Delete Failed", e.getMessage());
+                    refreshFileList();
+                });
+            }
+        }, "sftp-delete-" + directory.getFilename()).start();
+    }
+
+    private void onCopyToHost() {
+        RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
+        if (selectedFile == null || !sftpService.isConnected()) {
+            return;
+        }
+
+        List<HostInfo> hosts = configService.getHosts();
+        if (hosts.isEmpty()) {
+            return;
+        }
+
+        ChoiceDialog<HostInfo> hostDialog = new ChoiceDialog<>(hosts.get(0), hosts);
+        hostDialog.setTitle("Copy to Host");
+        hostDialog.setHeaderText("Copy " + selectedFile.getFilename() + " to another host");
+        hostDialog.setContentText("Target host:");
+        hostDialog.getDialogPane().getStylesheets().add(
+            getClass().getResource("/css/dark-theme.css").toExternalForm()
+        );
+
+        Optional<HostInfo> targetHost = hostDialog.showAndWait();
+        if (targetHost.isEmpty()) {
+            return;
+        }
+
+        TextInputDialog pathDialog = new TextInputDialog(selectedFile.getPath());
+        pathDialog.setTitle("Copy to Host");
+        pathDialog.setHeaderText("Copy " + selectedFile.getFilename() + " to " + targetHost.get().getName());
+        pathDialog.setContentText("Target directory:");
+        pathDialog.getDialogPane().getStylesheets().add(
+            getClass().getResource("/css/dark-theme.css").toExternalForm()
+        );
+
+        pathDialog.showAndWait().ifPresent(targetDir -> {
+            if (targetDir.trim().isEmpty()) {
+                return;
+            }
+
+            String targetPath = (targetDir.endsWith("/") ? targetDir : targetDir + "/") + selectedFile.getFilename();
+            copyToHost(selectedFile, targetHost.get(), targetPath);
+        });
+    }
+
+    private void copyToHost(RemoteFile file, HostInfo targetHost, String targetPath) {
+        SshService targetSsh = new SshService();
+        SftpService targetSftp = new SftpService();
+        AtomicReference<RemoteCopyTask> taskRef = new AtomicReference<>();
+        AtomicBoolean cancelRequested = new AtomicBoolean(false);
+        AtomicBoolean updatePending = new AtomicBoolean(false);
+
+        statusLabel.setText("Connecting to " + targetHost.getName() + "...");
+        showCancel(() -> {
+            cancelRequested.set(true);
+            RemoteCopyTask task = taskRef.get();
+            if (task != null) {
+                task.cancel();
+            }
+        });
+
+        new Thread(() -> {
+            try {
+                targetSsh.connect(targetHost);
+                targetSftp.connect(targetSsh.getSession());
+
+                RemoteCopyTask task = sftpService.createCopyTask(file.getFullPath(), targetSftp, targetPath);
+                task.setListener((copied, total) -> {
+                    if (updatePending.compareAndSet(false, true)) {
+                        Platform.runLater(() -> {
+                            updatePending.set(false);
+                            statusLabel.setText(String.format("Copying %s to %s... %d / %d MB",
+                                    file.getFilename(), targetHost.getName(),
+                                    task.getBytesCopied() >> 20, task.getBytesTotal() >> 20));
+                        });
+                    }
+                });
+                taskRef.set(task);
+                if (cancelRequested.get()) {
+                    task.cancel();
+                }
+
+                Platform.runLater(() -> statusLabel.setText("Copying " + file.getFilename() + "..."));
+                task.run();
+
+                List<String> skipped = task.getSkipped();
+                Platform.runLater(() -> {
+                    hideCancel();
+                    statusLabel.setText("Copied " + file.getFilename() + " to " + targetHost.getName()
+                            + (skipped.isEmpty() ? "" : ", " + skipped.size() + " skipped"));
+                    if (!skipped.isEmpty()) {
+                        List<String> shown = skipped.subList(0, Math.min(10, skipped.size()));
+                        String more = skipped.size() > shown.size()
+                                ? "\n... and " + (skipped.size() - shown.size()) + " more" : "";
+                        showInfo(skipped.size() + " Items Not Copied", String.join("\n", shown) + more);
+                    }
+                });
+
+            } catch (CancellationException e) {
+                log.info("Copy of {} cancelled", file.getFullPath());
+                Platform.runLater(() -> {
+                    hideCancel();
+                    statusLabel.setText("Copy cancelled");
+                });
+
+            } catch (Exception e) {
+                log.error("Failed to copy to {}", targetHost.getName(), e);
+                Platform.runLater(() -> {
+                    hideCancel();
+                    statusLabel.setText("Copy failed");
+                    showError("Copy Failed", e.getMessage());
+                });
+
+            } finally {
+                targetSftp.disconnect();
+                targetSsh.disconnect();
+            }
+        }, "sftp-copy-" + file.getFilename()).start();
+    }
+
+    private void showCancel(Runnable cancelAction) {
+        activeCancel = cancelAction;
+        cancelBtn.setVisible(true);
+        cancelBtn.setManaged(true);
+    }
+
+    private void hideCancel() {
+        activeCancel = null;
+        cancelBtn.setVisible(false);
+        cancelBtn.setManaged(false);
+    }
+
+    private void onCancel() {
+        if (activeCancel != null) {
+            activeCancel.run();
+            statusLabel.setText("Cancelling...");
+        }
+    }
+
     private void onRename() {
         RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
         if (selectedFile == null) {
@@ -479,15 +1139,19 @@ public class SftpController implements Initializable {
     }
 
     private void onChangePermissions() {
-        RemoteFile selectedFile = fileTable.getSelectionModel().getSelectedItem();
-        if (selectedFile == null) {
+        List<RemoteFile> selectedFiles = selectedFiles();
+        if (selectedFiles.isEmpty()) {
             return;
         }
 
+        RemoteFile selectedFile = selectedFiles.get(0);
+        boolean batch = selectedFiles.size() > 1;
+
         // Simple permission dialog with octal input
         TextInputDialog dialog = new TextInputDialog(Integer.toOctalString(selectedFile.getPermissions()));
         dialog.setTitle("Change Permissions");
-        dialog.setHeaderText("Change permissions for " + selectedFile.getFilename());
+        dialog.setHeaderText("Change permissions for "
+                + (batch ? selectedFiles.size() + " items" : selectedFile.getFilename()));
         dialog.setContentText("Permissions (octal, e.g., 755):");
         dialog.getDialogPane().getStylesheets().add(
             getClass().getResource("/css/dark-theme.css").toExternalForm()
@@ -497,6 +1161,13 @@ public class SftpController implements Initializable {
             try {
                 int permissions = Integer.parseInt(permStr, 8);
 
+                if (batch) {
+                    RemoteBatchTask task = sftpService.createBatchTask(RemoteBatchTask.Operation.CHMOD, selectedFiles);
+                    task.setPermissions(permissions);
+                    runBatch(task);
+                    return;
+                }
+
                 new Thread(() -> {
                     try {
                         sftpService.chmod(selectedFile.getFullPath(), permissions);
@@ -518,6 +1189,90 @@ public class SftpController implements Initializable {
         });
     }
 
+    private void onMove() {
+        List<RemoteFile> selectedFiles = selectedFiles();
+        if (selectedFiles.isEmpty() || !sftpService.isConnected()) {
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog(selectedFiles.get(0).getPath());
+        dialog.setTitle("Move");
+        dialog.setHeaderText("Move " + (selectedFiles.size() > 1
+                ? selectedFiles.size() + " items" : selectedFiles.get(0).getFilename()));
+        dialog.setContentText("Target directory:");
+        dialog.getDialogPane().getStylesheets().add(
+            getClass().getResource("/css/dark-theme.css").toExternalForm()
+        );
+
+        dialog.showAndWait().ifPresent(targetDir -> {
+            if (targetDir.trim().isEmpty()) {
+                return;
+            }
+
+            RemoteBatchTask task = sftpService.createBatchTask(RemoteBatchTask.Operation.MOVE, selectedFiles);
+            task.setTargetDirectory(targetDir.trim());
+            sftpService.invalidateCachedTree(targetDir.trim());
+            runBatch(task);
+        });
+    }
+
+    /**
+     * Run a batch operation in the background with one progress line and one summary
+     */
+    private void runBatch(RemoteBatchTask task) {
+        String action = task.getOperation().getActive();
+        AtomicBoolean updatePending = new AtomicBoolean(false);
+
+        // Coalesce progress updates so worker threads don't flood the FX thread
+        task.setListener((completed, total) -> {
+            if (updatePending.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    updatePending.set(false);
+                    statusLabel.setText(String.format("%s %d items... %d / %d (%.1f/s)",
+                            action, task.getTotal(), task.getCompleted() + task.getFailed(), task.getTotal(),
+                            task.getOpsPerSecond()));
+                });
+            }
+        });
+
+        statusLabel.setText(action + " " + task.getTotal() + " items...");
+        showCancel(task::cancel);
+
+        new Thread(() -> {
+            String summary;
+            try {
+                task.run();
+                summary = String.format("%s %d items in %.1f s (%.1f/s)", task.getOperation().getDone(),
+                        task.getCompleted(), task.getElapsedMillis() / 1000.0, task.getOpsPerSecond());
+            } catch (CancellationException e) {
+                summary = action + " cancelled after " + task.getCompleted() + " items";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            String status = summary;
+            List<String> failures = task.getFailures();
+            Platform.runLater(() -> {
+                hideCancel();
+                statusLabel.setText(failures.isEmpty() ? status : status + ", " + failures.size() + " failed");
+                if (task.getOperation() != RemoteBatchTask.Operation.DOWNLOAD) {
+                    refreshFileList();
+                }
+                if (!failures.isEmpty()) {
+                    List<String> shown = failures.subList(0, Math.min(10, failures.size()));
+                    String more = failures.size() > shown.size()
+                            ? "\n... and " + (failures.size() - shown.size()) + " more" : "";
+                    showError(failures.size() + " Items Failed", String.join("\n", shown) + more);
+                }
+            });
+        }, "sftp-batch-" + task.getOperation().name().toLowerCase()).start();
+    }
+
+    private List<RemoteFile> selectedFiles() {
+        return new ArrayList<>(fileTable.getSelectionModel().getSelectedItems());
+    }
+
     private void showError(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle(title);
@@ -0,0 +1,151 @@
+package com.ninja.terminal.controller;
+
+import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.service.RemoteTailer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.*;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Window showing the output of a {@link RemoteTailer}.
+ *
+ * Lines arrive on the tailer's thread and are handed to the FX thread in batches; the list
+ * keeps at most {@code sftpTailMaxLines} lines and drops the oldest ones first.
+ */
+public class TailViewController implements Initializable, RemoteTailer.Listener {
+
+    @FXML private CheckBox followCheck;
+    @FXML private ToggleButton pauseBtn;
+    @FXML private Button clearBtn;
+    @FXML private ListView<String> linesView;
+    @FXML private Label statusLabel;
+    @FXML private Label lineCountLabel;
+
+    private final ObservableList<String> lines = FXCollections.observableArrayList();
+    private final ConcurrentLinkedQueue<String> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final int maxLines = Math.max(100, ConfigService.getInstance().getSettings().getSftpTailMaxLines());
+
+    private RemoteTailer tailer;
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        linesView.setItems(lines);
+        clearBtn.setOnAction(e -> {
+            lines.clear();
+            dropped.set(0);
+            updateCount();
+        });
+        pauseBtn.selectedProperty().addListener((obs, old, paused) -> {
+            pauseBtn.setText(paused ? "Resume" : "Pause");
+            if (!paused) {
+                scheduleDrain();
+            }
+        });
+    }
+
+    /**
+     * Follow a file; the tailer is stopped when the window closes
+     */
+    public void setTailer(RemoteTailer tailer) {
+        this.tailer = tailer;
+        statusLabel.setText("Following " + tailer.getPath());
+        tailer.start();
+    }
+
+    public void close() {
+        if (tailer != null) {
+            tailer.stop();
+        }
+    }
+
+    @Override
+    public void onLines(List<String> newLines) {
+        incoming.addAll(newLines);
+        // Keep the backlog bounded while paused or while the FX thread is busy
+        int excess = queued.addAndGet(newLines.size()) - maxLines;
+        while (excess-- > 0 && incoming.poll() != null) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        scheduleDrain();
+    }
+
+    @Override
+    public void onReset(String reason) {
+        Platform.runLater(() -> {
+            statusLabel.setText(reason);
+            onLines(List.of("--- " + reason + " ---"));
+        });
+    }
+
+    @Override
+    public void onError(Exception e) {
+        Platform.runLater(() -> statusLabel.setText("Error: " + e.getMessage()));
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        // While paused, lines wait in the queue
+        if (pauseBtn.isSelected()) {
+            return;
+        }
+
+        List<String> batch = new ArrayList<>();
+        String line;
+        while ((line = incoming.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(line);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        if (batch.size() > maxLines) {
+            dropped.addAndGet(batch.size() - maxLines);
+            batch = batch.subList(batch.size() - maxLines, batch.size());
+        }
+
+        int overflow = lines.size() + batch.size() - maxLines;
+        if (overflow > 0) {
+            lines.remove(0, Math.min(overflow, lines.size()));
+            dropped.addAndGet(overflow);
+        }
+        lines.addAll(batch);
+
+        if (followCheck.isSelected()) {
+            linesView.scrollTo(lines.size() - 1);
+        }
+        if (statusLabel.getText().startsWith("Error") && tailer != null) {
+            statusLabel.setText("Following " + tailer.getPath());
+        }
+        updateCount();
+    }
+
+    private void updateCount() {
+        long older = dropped.get();
+        lineCountLabel.setText(older > 0
+                ? String.format("%,d lines (%,d older dropped)", lines.size(), older)
+                : String.format("%,d lines", lines.size()));
+    }
+}
@@ -1,29 +1,42 @@
 package com.ninja.terminal.controller;
 
 import com.jcraft.jsch.ChannelShell;
-import com.jediterm.terminal.TerminalColor;
-import com.jediterm.terminal.TextStyle;
-import com.jediterm.terminal.TtyConnector;
-import com.jediterm.terminal.emulator.ColorPalette;
-import com.jediterm.terminal.ui.JediTermWidget;
-import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import com.ninja.terminal.model.AppConfig;
 import com.ninja.terminal.model.HostInfo;
+import com.ninja.terminal.renderer.CanvasTerminalRenderer;
+import com.ninja.terminal.renderer.SwingTerminalRenderer;
+import com.ninja.terminal.renderer.TerminalRenderer;
 import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.service.SessionLogService;
+import com.ninja.terminal.service.SessionRecorder;
 import com.ninja.terminal.service.SshService;
 import com.ninja.terminal.util.JSchTtyConnector;
+import com.ninja.terminal.util.LatencyHistogram;
+import com.ninja.terminal.util.TerminalMetrics;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
-import javafx.embed.swing.SwingNode;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ToggleButton;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.StackPane;
-import org.jetbrains.annotations.NotNull;
+import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.awt.*;
+import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.ResourceBundle;
 
 public class TerminalTabController implements Initializable {
@@ -32,11 +45,20 @@ public class TerminalTabController implements Initializable {
 
     @FXML private StackPane terminalPane;
     @FXML private Label connectionInfo;
+    @FXML private Label recordingLabel;
+    @FXML private ToggleButton recordBtn;
+    @FXML private Button metricsBtn;
 
     private SshService sshService;
-    private JediTermWidget terminalWidget;
-    private TtyConnector ttyConnector;
+    private TerminalRenderer renderer;
+    private JSchTtyConnector ttyConnector;
+    private HostInfo host;
+    private SessionRecorder recorder;
+    private SessionLogService.SessionLog sessionLog;
     private Runnable onConnectionFailed;
+    private Timeline statsTimeline;
+    private boolean active = true;
+    private PauseTransition hibernateTimer;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -44,6 +66,7 @@ public class TerminalTabController implements Initializable {
     }
 
     public void connect(HostInfo host) {
+        this.host = host;
         connectionInfo.setText(String.format("Connecting to %s@%s:%d...",
                 host.getUsername(), host.getHostname(), host.getPort()));
 
@@ -54,7 +77,7 @@ public class TerminalTabController implements Initializable {
 
                 ttyConnector = new JSchTtyConnector(sshService.getSession(), channel);
 
-                Platform.runLater(() -> createJediTermWidget(ttyConnector, host));
+                Platform.runLater(() -> createTerminal(ttyConnector, host));
 
             } catch (Exception e) {
                 log.error("Connection failed to {}@{}:{}", host.getUsername(), host.getHostname(), host.getPort(), e);
@@ -91,57 +114,27 @@ public class TerminalTabController implements Initializable {
         return message;
     }
 
-    private void createJediTermWidget(TtyConnector connector, HostInfo host) {
-        DefaultSettingsProvider settings = new DefaultSettingsProvider() {
-            @Override
-            public Font getTerminalFont() {
-                String fontFamily = ConfigService.getInstance().getSettings().getFontFamily();
-                int fontSize = ConfigService.getInstance().getSettings().getFontSize();
-                try {
-                    return new Font(fontFamily, Font.PLAIN, fontSize);
-                } catch (Exception e) {
-                    log.warn("Font {} not found, using default", fontFamily);
-                    return new Font(Font.MONOSPACED, Font.PLAIN, fontSize);
-                }
-            }
-
-            @Override
-            public float getTerminalFontSize() {
-                return ConfigService.getInstance().getSettings().getFontSize();
-            }
-
-            @Override
-            public ColorPalette getTerminalColorPalette() {
-                return super.getTerminalColorPalette();
-            }
-
-            @NotNull
-            @Override
-            public TextStyle getDefaultStyle() {
-                return new TextStyle(
-                        TerminalColor.rgb(0xe0, 0xe0, 0xe0),
-                        TerminalColor.rgb(0x1a, 0x1a, 0x2e)
-                );
-            }
-        };
-
-        terminalWidget = new JediTermWidget(settings);
-        terminalWidget.setTtyConnector(connector);
-        terminalWidget.start();
-
-        SwingNode swingNode = new SwingNode();
-        swingNode.setContent(terminalWidget);
-
-        // 포커스 문제 해결
-        swingNode.setOnMouseClicked(event -> swingNode.requestFocus());
+    private void createTerminal(JSchTtyConnector connector, HostInfo host) {
+        if (ConfigService.getInstance().getSettings().isSessionLogging()) {
+            sessionLog = SessionLogService.getInstance().open(host.getName() != null ? host.getName() : host.getHostname());
+            connector.addListener(sessionLog);
+        }
 
-        terminalPane.getChildren().add(swingNode);
+        renderer = createRenderer();
+        renderer.setMetrics(connector.getMetrics());
+        renderer.setActive(active);
+        renderer.start(connector);
+        terminalPane.getChildren().add(renderer.getNode());
+        renderer.requestFocus();
 
         // 연결 시간 업데이트 및 저장
         host.setLastConnectedAt(LocalDateTime.now());
         ConfigService.getInstance().updateHost(host);
 
         connectionInfo.setText("Connected: " + host.getName());
+        recordBtn.setDisable(false);
+        metricsBtn.setDisable(false);
+        startStatsUpdates(host);
 
         // Execute startup command if configured
         if (host.getStartupCommand() != null && !host.getStartupCommand().trim().isEmpty()) {
@@ -158,16 +151,193 @@ public class TerminalTabController implements Initializable {
         }
     }
 
-    public void disconnect() {
-        if (terminalWidget != null) {
+    /**
+     * Renderer chosen in the settings; falls back to the Swing widget if the canvas cannot be set up
+     */
+    private TerminalRenderer createRenderer() {
+        if (ConfigService.getInstance().getSettings().getTerminalRenderer() == AppConfig.RendererType.CANVAS) {
             try {
-                terminalWidget.close();
-            } catch (Exception e) {
-                log.warn("Error closing terminal widget", e);
-            } finally {
-                terminalWidget = null;
+                return new CanvasTerminalRenderer();
+            } catch (RuntimeException e) {
+                log.warn("Canvas renderer unavailable, using the Swing widget", e);
             }
         }
+        return new SwingTerminalRenderer();
+    }
+
+    /**
+     * Periodically show the compression state, throughput and echo latency next to the connection info
+     */
+    private void startStatsUpdates(HostInfo host) {
+        Tooltip tooltip = new Tooltip();
+        connectionInfo.setTooltip(tooltip);
+        long[] lastBytes = {ttyConnector.getBytesRead()};
+        statsTimeline = new Timeline(new KeyFrame(Duration.seconds(2), e -> {
+            if (!sshService.isConnected()) {
+                return;
+            }
+            long bytes = ttyConnector.getBytesRead();
+            long perSecond = (bytes - lastBytes[0]) / 2;
+            lastBytes[0] = bytes;
+
+            StringBuilder text = new StringBuilder("Connected: ").append(host.getName())
+                    .append("  ·  ").append(sshService.getCompressionSummary());
+            LatencyHistogram.Snapshot echo = ttyConnector.getMetrics().getEcho().snapshot();
+            if (echo.count() > 0) {
+                text.append("  ·  echo p50 ").append(TerminalMetrics.formatMillis(echo.p50()))
+                        .append(" / p95 ").append(TerminalMetrics.formatMillis(echo.p95()))
+                        .append(" / p99 ").append(TerminalMetrics.formatMillis(echo.p99())).append(" ms");
+            }
+            if (perSecond > 0) {
+                text.append("  ·  ").append(formatSize(perSecond)).append("/s");
+            }
+            connectionInfo.setText(text.toString());
+            tooltip.setText(String.format("Received %s, %s per read on average, batch limit %s",
+                    formatSize(bytes), formatSize(ttyConnector.getAverageBatch()), formatSize(ttyConnector.getBatchSize())));
+        }));
+        statsTimeline.setCycleCount(Animation.INDEFINITE);
+        statsTimeline.play();
+    }
+
+    private static String formatSize(long size) {
+        if (size < 1024) return size + " B";
+        if (size < 1024 * 1024) return String.format("%.1f KB", size / 1024.0);
+        return String.format("%.1f MB", size / (1024.0 * 1024));
+    }
+
+    /**
+     * Called when the tab is selected or deselected; background tabs do not paint and
+     * hibernate after the configured idle time
+     */
+    public void setActive(boolean active) {
+        this.active = active;
+        if (hibernateTimer != null) {
+            hibernateTimer.stop();
+            hibernateTimer = null;
+        }
+        if (renderer == null) {
+            return;
+        }
+        renderer.setActive(active);
+        if (active) {
+            renderer.requestFocus();
+            return;
+        }
+
+        int minutes = ConfigService.getInstance().getSettings().getTerminalHibernateMinutes();
+        if (minutes > 0) {
+            hibernateTimer = new PauseTransition(Duration.minutes(minutes));
+            hibernateTimer.setOnFinished(e -> {
+                if (renderer != null && !this.active) {
+                    log.debug("Hibernating idle terminal tab: {}", connectionInfo.getText());
+                    renderer.hibernate();
+                }
+            });
+            hibernateTimer.play();
+        }
+    }
+
+    /**
+     * Open a window with this tab's latency percentiles
+     */
+    @FXML
+    private void onMetrics() {
+        if (ttyConnector == null) {
+            return;
+        }
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/MetricsView.fxml"));
+            Parent root = loader.load();
+            MetricsController controller = loader.getController();
+
+            Stage stage = new Stage();
+            stage.setTitle("Metrics - " + host.getName());
+            Scene scene = new Scene(root);
+            scene.getStylesheets().add(Objects.requireNonNull(getClass().getResource("/css/dark-theme.css")).toExternalForm());
+            stage.setScene(scene);
+            stage.setOnHidden(e -> controller.close());
+            stage.show();
+
+            controller.setMetrics(host.getName(), ttyConnector.getMetrics());
+        } catch (IOException e) {
+            log.error("Failed to open metrics view", e);
+        }
+    }
+
+    /**
+     * Start or stop recording the session to an asciicast file
+     */
+    @FXML
+    private void onRecord() {
+        if (recordBtn.isSelected()) {
+            startRecording();
+        } else {
+            stopRecording();
+        }
+    }
+
+    private void startRecording() {
+        if (ttyConnector == null || recorder != null) {
+            return;
+        }
+        AppConfig.Settings settings = ConfigService.getInstance().getSettings();
+        try {
+            recorder = new SessionRecorder(SessionRecorder.defaultFile(host.getName(), settings.isRecordingCompress()),
+                    ttyConnector.getColumns(), ttyConnector.getRows(), host.getName(),
+                    settings.isRecordingCompress(), settings.isRecordingIncludeInput());
+            ttyConnector.addListener(recorder);
+            recordBtn.setText("■ Stop");
+            recordingLabel.setText("Recording");
+        } catch (Exception e) {
+            log.error("Failed to start recording for {}", host.getName(), e);
+            recorder = null;
+            recordBtn.setSelected(false);
+            recordingLabel.setText("Recording failed: " + e.getMessage());
+        }
+    }
+
+    private void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        SessionRecorder stopped = recorder;
+        recorder = null;
+        if (ttyConnector != null) {
+            ttyConnector.removeListener(stopped);
+        }
+        recordBtn.setSelected(false);
+        recordBtn.setText("● Record");
+
+        // Draining the queue can take a moment; keep it off the FX thread
+        new Thread(() -> {
+            stopped.stop();
+            Platform.runLater(() -> {
+                if (recorder == null) {
+                    recordingLabel.setText("Saved " + stopped.getFile().getFileName());
+                }
+            });
+        }).start();
+    }
+
+    public void disconnect() {
+        stopRecording();
+        if (sessionLog != null) {
+            ttyConnector.removeListener(sessionLog);
+            sessionLog.close();
+            sessionLog = null;
+        }
+        if (hibernateTimer != null) {
+            hibernateTimer.stop();
+            hibernateTimer = null;
+        }
+        if (statsTimeline != null) {
+            statsTimeline.stop();
+            statsTimeline = null;
+        }
+        if (renderer != null) {
+            renderer.close();
+            renderer = null;
+        }
         if (sshService != null) {
             try {
                 sshService.disconnect();
@@ -26,6 +26,21 @@ public class AppConfig {
     public Settings getSettings() { return settings; }
     public void setSettings(Settings settings) { this.settings = settings; }
 
+    public enum RendererType {
+        SWING("JediTerm (Swing)"), CANVAS("Canvas (JavaFX)");
+
+        private final String label;
+
+        RendererType(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class Settings {
         private String fontFamily = "JetBrains Mono";
@@ -34,6 +49,28 @@ public class AppConfig {
         private int defaultPort = 22;
         private int connectionTimeout = 30000;
         private int scrollBufferSize = 10000;
+        private int scrollBufferMegabytes = 64;
+        private HostInfo.CompressionMode compression = HostInfo.CompressionMode.NONE;
+        private RendererType terminalRenderer = RendererType.SWING;
+        private int terminalHibernateMinutes = 10;
+        private boolean recordingCompress = false;
+        private boolean recordingIncludeInput = false;
+        private boolean sessionLogging = false;
+        private int sessionLogMaxMegabytes = 10;
+        private int sftpMaxChannels = 4;
+        private boolean sftpExecDelete = false;
+        private int sftpCacheTtlSeconds = 30;
+        private int sftpMaxListingEntries = 200_000;
+        private boolean sftpPrefetchEnabled = false;
+        private int sftpPrefetchCount = 3;
+        private boolean sftpDirectTransfer = false;
+        private boolean sftpDeltaUpload = false;
+        private boolean sftpVerifyTransfers = false;
+        private boolean sftpSearchUseFind = true;
+        private int sftpSearchMaxDepth = 32;
+        private int sftpSearchTimeLimitSeconds = 60;
+        private int sftpSearchMaxResults = 10_000;
+        private int sftpTailMaxLines = 10_000;
         
         public String getFontFamily() { return fontFamily; }
         public void setFontFamily(String fontFamily) { this.fontFamily = fontFamily; }
@@ -52,5 +89,71 @@ public class AppConfig {
 
         public int getScrollBufferSize() { return scrollBufferSize; }
         public void setScrollBufferSize(int scrollBufferSize) { this.scrollBufferSize = scrollBufferSize; }
+
+        public int getScrollBufferMegabytes() { return scrollBufferMegabytes; }
+        public void setScrollBufferMegabytes(int scrollBufferMegabytes) { this.scrollBufferMegabytes = scrollBufferMegabytes; }
+
+        public HostInfo.CompressionMode getCompression() { return compression; }
+        public void setCompression(HostInfo.CompressionMode compression) { this.compression = compression; }
+
+        public RendererType getTerminalRenderer() { return terminalRenderer; }
+        public void setTerminalRenderer(RendererType terminalRenderer) { this.terminalRenderer = terminalRenderer; }
+
+        public int getTerminalHibernateMinutes() { return terminalHibernateMinutes; }
+        public void setTerminalHibernateMinutes(int terminalHibernateMinutes) { this.terminalHibernateMinutes = terminalHibernateMinutes; }
+
+        public boolean isRecordingCompress() { return recordingCompress; }
+        public void setRecordingCompress(boolean recordingCompress) { this.recordingCompress = recordingCompress; }
+
+        public boolean isRecordingIncludeInput() { return recordingIncludeInput; }
+        public void setRecordingIncludeInput(boolean recordingIncludeInput) { this.recordingIncludeInput = recordingIncludeInput; }
+
+        public boolean isSessionLogging() { return sessionLogging; }
+        public void setSessionLogging(boolean sessionLogging) { this.sessionLogging = sessionLogging; }
+
+        public int getSessionLogMaxMegabytes() { return sessionLogMaxMegabytes; }
+        public void setSessionLogMaxMegabytes(int sessionLogMaxMegabytes) { this.sessionLogMaxMegabytes = sessionLogMaxMegabytes; }
+
+        public int getSftpMaxChannels() { return sftpMaxChannels; }
+        public void setSftpMaxChannels(int sftpMaxChannels) { this.sftpMaxChannels = sftpMaxChannels; }
+
+        public boolean isSftpExecDelete() { return sftpExecDelete; }
+        public void setSftpExecDelete(boolean sftpExecDelete) { this.sftpExecDelete = sftpExecDelete; }
+
+        public int getSftpCacheTtlSeconds() { return sftpCacheTtlSeconds; }
+        public void setSftpCacheTtlSeconds(int sftpCacheTtlSeconds) { this.sftpCacheTtlSeconds = sftpCacheTtlSeconds; }
+
+        public int getSftpMaxListingEntries() { return sftpMaxListingEntries; }
+        public void setSftpMaxListingEntries(int sftpMaxListingEntries) { this.sftpMaxListingEntries = sftpMaxListingEntries; }
+
+        public boolean isSftpPrefetchEnabled() { return sftpPrefetchEnabled; }
+        public void setSftpPrefetchEnabled(boolean sftpPrefetchEnabled) { this.sftpPrefetchEnabled = sftpPrefetchEnabled; }
+
+        public int getSftpPrefetchCount() { return sftpPrefetchCount; }
+        public void setSftpPrefetchCount(int sftpPrefetchCount) { this.sftpPrefetchCount = sftpPrefetchCount; }
+
+        public boolean isSftpDirectTransfer() { return sftpDirectTransfer; }
+        public void setSftpDirectTransfer(boolean sftpDirectTransfer) { this.sftpDirectTransfer = sftpDirectTransfer; }
+
+        public boolean isSftpDeltaUpload() { return sftpDeltaUpload; }
+        public void setSftpDeltaUpload(boolean sftpDeltaUpload) { this.sftpDeltaUpload = sftpDeltaUpload; }
+
+        public boolean isSftpVerifyTransfers() { return sftpVerifyTransfers; }
+        public void setSftpVerifyTransfers(boolean sftpVerifyTransfers) { this.sftpVerifyTransfers = sftpVerifyTransfers; }
+
+        public boolean isSftpSearchUseFind() { return sftpSearchUseFind; }
+        public void setSftpSearchUseFind(boolean sftpSearchUseFind) { this.sftpSearchUseFind = sftpSearchUseFind; }
+
+        public int getSftpSearchMaxDepth() { return sftpSearchMaxDepth; }
+        public void setSftpSearchMaxDepth(int sftpSearchMaxDepth) { this.sftpSearchMaxDepth = sftpSearchMaxDepth; }
+
+        public int getSftpSearchTimeLimitSeconds() { return sftpSearchTimeLimitSeconds; }
+        public void setSftpSearchTimeLimitSeconds(int sftpSearchTimeLimitSeconds) { this.sftpSearchTimeLimitSeconds = sftpSearchTimeLimitSeconds; }
+
+        public int getSftpSearchMaxResults() { return sftpSearchMaxResults; }
+        public void setSftpSearchMaxResults(int sftpSearchMaxResults) { this.sftpSearchMaxResults = sftpSearchMaxResults; }
+
+        public int getSftpTailMaxLines() { return sftpTailMaxLines; }
+        public void setSftpTailMaxLines(int sftpTailMaxLines) { this.sftpTailMaxLines = sftpTailMaxLines; }
     }
 }
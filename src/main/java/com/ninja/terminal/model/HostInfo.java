@@ -18,12 +18,28 @@ public class HostInfo {
     private String groupId;
     private AuthType authType;
     private String startupCommand;  // Command to run automatically on connection
+    private CompressionMode compression;  // null uses the global setting
     private LocalDateTime createdAt;
     private LocalDateTime lastConnectedAt;
     
     public enum AuthType {
         PASSWORD, KEY
     }
+
+    public enum CompressionMode {
+        NONE("None"), ZLIB("zlib@openssh.com"), AUTO("Auto");
+
+        private final String label;
+
+        CompressionMode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
     
     public HostInfo() {
         this.id = UUID.randomUUID().toString();
@@ -79,6 +95,9 @@ public class HostInfo {
     public String getStartupCommand() { return startupCommand; }
     public void setStartupCommand(String startupCommand) { this.startupCommand = startupCommand; }
 
+    public CompressionMode getCompression() { return compression; }
+    public void setCompression(CompressionMode compression) { this.compression = compression; }
+
     @Override
     public String toString() {
         return name != null ? name : hostname;
@@ -0,0 +1,57 @@
+package com.ninja.terminal.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Last pushed state of a mirrored local directory, keyed by path relative to the mirror root
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MirrorManifest {
+
+    private String localRoot;
+    private String remoteRoot;
+    private Map<String, FileState> files = new HashMap<>();
+    private Set<String> directories = new HashSet<>();
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class FileState {
+        private long size;
+        private long modifiedTime;
+        private String hash;
+
+        public FileState() {
+        }
+
+        public FileState(long size, long modifiedTime, String hash) {
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+            this.hash = hash;
+        }
+
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+
+        public long getModifiedTime() { return modifiedTime; }
+        public void setModifiedTime(long modifiedTime) { this.modifiedTime = modifiedTime; }
+
+        public String getHash() { return hash; }
+        public void setHash(String hash) { this.hash = hash; }
+    }
+
+    public String getLocalRoot() { return localRoot; }
+    public void setLocalRoot(String localRoot) { this.localRoot = localRoot; }
+
+    public String getRemoteRoot() { return remoteRoot; }
+    public void setRemoteRoot(String remoteRoot) { this.remoteRoot = remoteRoot; }
+
+    public Map<String, FileState> getFiles() { return files; }
+    public void setFiles(Map<String, FileState> files) { this.files = files; }
+
+    public Set<String> getDirectories() { return directories; }
+    public void setDirectories(Set<String> directories) { this.directories = directories; }
+}
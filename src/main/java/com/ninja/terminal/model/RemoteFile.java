@@ -1,35 +1,61 @@
 package com.ninja.terminal.model;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.Date;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A remote directory entry.
+ *
+ * Kept compact because listings can hold hundreds of thousands of entries:
+ * the modification time is stored as epoch seconds, the parent path is a reference
+ * shared by all entries of a listing, owner and group are interned ids, and the
+ * display strings are computed once on first use.
+ */
 public class RemoteFile {
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // One shared string per permission combination
+    private static final String[] PERMISSION_STRINGS = new String[01000];
+
+    static {
+        for (int i = 0; i < PERMISSION_STRINGS.length; i++) {
+            PERMISSION_STRINGS[i] = buildPermissionString(i);
+        }
+    }
+
     private String filename;
     private String path;
     private long size;
     private int permissions;
-    private LocalDateTime modifiedTime;
+    private long modifiedTime;
     private boolean isDirectory;
-    private String owner;
-    private String group;
+    private int ownerId = Names.NONE;
+    private int groupId = Names.NONE;
+
+    // Lazily computed display strings
+    private String formattedSize;
+    private String formattedModifiedTime;
 
     public RemoteFile(String filename, String path, long size, int permissions,
-                      LocalDateTime modifiedTime, boolean isDirectory) {
+                      long modifiedEpochSecond, boolean isDirectory) {
         this.filename = filename;
         this.path = path;
         this.size = size;
         this.permissions = permissions;
-        this.modifiedTime = modifiedTime;
+        this.modifiedTime = modifiedEpochSecond;
         this.isDirectory = isDirectory;
     }
 
     public RemoteFile(String filename, String path, long size, int permissions,
-                      Date modifiedTime, boolean isDirectory) {
-        this(filename, path, size, permissions,
-             modifiedTime != null ? LocalDateTime.ofInstant(modifiedTime.toInstant(), ZoneId.systemDefault()) : null,
-             isDirectory);
+                      LocalDateTime modifiedTime, boolean isDirectory) {
+        this(filename, path, size, permissions, toEpochSecond(modifiedTime), isDirectory);
     }
 
     // Getters and Setters
@@ -40,22 +66,42 @@ public class RemoteFile {
     public void setPath(String path) { this.path = path; }
 
     public long getSize() { return size; }
-    public void setSize(long size) { this.size = size; }
+    public void setSize(long size) {
+        this.size = size;
+        this.formattedSize = null;
+    }
 
     public int getPermissions() { return permissions; }
     public void setPermissions(int permissions) { this.permissions = permissions; }
 
-    public LocalDateTime getModifiedTime() { return modifiedTime; }
-    public void setModifiedTime(LocalDateTime modifiedTime) { this.modifiedTime = modifiedTime; }
+    /**
+     * Modification time in seconds since the epoch, or Long.MIN_VALUE if unknown
+     */
+    public long getModifiedEpochSecond() { return modifiedTime; }
+
+    public LocalDateTime getModifiedTime() {
+        if (modifiedTime == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(modifiedTime), ZoneId.systemDefault());
+    }
+
+    public void setModifiedTime(LocalDateTime modifiedTime) {
+        this.modifiedTime = toEpochSecond(modifiedTime);
+        this.formattedModifiedTime = null;
+    }
 
     public boolean isDirectory() { return isDirectory; }
-    public void setDirectory(boolean directory) { isDirectory = directory; }
+    public void setDirectory(boolean directory) {
+        isDirectory = directory;
+        this.formattedSize = null;
+    }
 
-    public String getOwner() { return owner; }
-    public void setOwner(String owner) { this.owner = owner; }
+    public String getOwner() { return Names.lookup(ownerId); }
+    public void setOwner(String owner) { this.ownerId = Names.intern(owner); }
 
-    public String getGroup() { return group; }
-    public void setGroup(String group) { this.group = group; }
+    public String getGroup() { return Names.lookup(groupId); }
+    public void setGroup(String group) { this.groupId = Names.intern(group); }
 
     /**
      * Get full path including filename
@@ -71,6 +117,15 @@ public class RemoteFile {
      * Get human-readable file size
      */
     public String getFormattedSize() {
+        String formatted = formattedSize;
+        if (formatted == null) {
+            formatted = formatSize();
+            formattedSize = formatted;
+        }
+        return formatted;
+    }
+
+    private String formatSize() {
         if (isDirectory) {
             return "-";
         }
@@ -90,6 +145,23 @@ public class RemoteFile {
      * Get Unix-style permission string (e.g., "rwxr-xr-x")
      */
     public String getPermissionString() {
+        return PERMISSION_STRINGS[permissions & 0777];
+    }
+
+    /**
+     * Get modification time as "yyyy-MM-dd HH:mm:ss", or "-" if unknown
+     */
+    public String getFormattedModifiedTime() {
+        String formatted = formattedModifiedTime;
+        if (formatted == null) {
+            LocalDateTime time = getModifiedTime();
+            formatted = time != null ? time.format(DATE_FORMATTER) : "-";
+            formattedModifiedTime = formatted;
+        }
+        return formatted;
+    }
+
+    private static String buildPermissionString(int permissions) {
         StringBuilder sb = new StringBuilder();
 
         // Owner permissions
@@ -110,6 +182,44 @@ public class RemoteFile {
         return sb.toString();
     }
 
+    private static long toEpochSecond(LocalDateTime time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    /**
+     * Process-wide table of owner and group names, so each distinct name is stored once
+     */
+    private static final class Names {
+        static final int NONE = -1;
+
+        private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private static final List<String> names = new ArrayList<>();
+
+        static int intern(String name) {
+            if (name == null) {
+                return NONE;
+            }
+            return ids.computeIfAbsent(name, n -> {
+                synchronized (names) {
+                    names.add(n);
+                    return names.size() - 1;
+                }
+            });
+        }
+
+        static String lookup(int id) {
+            if (id == NONE) {
+                return null;
+            }
+            synchronized (names) {
+                return names.get(id);
+            }
+        }
+    }
+
     /**
      * Get file type icon name for CSS styling
      */
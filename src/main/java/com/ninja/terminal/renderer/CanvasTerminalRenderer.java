@@ -0,0 +1,1284 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.CursorShape;
+import com.jediterm.terminal.RequestOrigin;
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TerminalDisplay;
+import com.jediterm.terminal.TerminalOutputStream;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.TtyBasedArrayDataStream;
+import com.jediterm.terminal.TtyConnector;
+import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.emulator.mouse.MouseFormat;
+import com.jediterm.terminal.emulator.mouse.MouseMode;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.StyledTextConsumer;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalSelection;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.util.CharUtils;
+import com.ninja.terminal.model.AppConfig;
+import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.util.TerminalMetrics;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Terminal drawn directly on a JavaFX Canvas.
+ *
+ * JediTerm's headless model (emulator, text buffer, key encoder) does the terminal work;
+ * this class only paints the buffer. The emulator thread parses output as fast as it arrives
+ * and only marks the view dirty; painting happens at most once per JavaFX pulse, so repaints
+ * follow the display refresh rate no matter how much output comes in. The frame timer stops
+ * on the first pulse with nothing to paint and the next change starts it again. Each paint takes a
+ * snapshot of the visible rows and redraws only the rows that differ from the previous
+ * frame, with characters copied from a {@link GlyphAtlas}. Inactive renderers do not paint,
+ * and a hibernated renderer drops its canvas and atlas until it is shown again.
+ *
+ * JediTerm keeps only the most recent history lines on the heap. Lines it is about to drop
+ * from that history go to a {@link ScrollbackStore}, which holds the rest of the configured
+ * scrollback compressed and off-heap, so the two never overlap and the view shows the store
+ * above JediTerm's history. Lines dropped by a resize that changes the width are not
+ * recovered, since JediTerm rewraps its history then. Clearing the history (ESC[3J or a
+ * reset) also clears the store. Ctrl+Shift+F searches the store, the history and the screen
+ * in the background and highlights every match.
+ *
+ * Application mouse reporting is not supported yet; the mouse always selects text.
+ */
+public class CanvasTerminalRenderer implements TerminalRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(CanvasTerminalRenderer.class);
+
+    // java.awt.event.InputEvent masks expected by JediTerm's key encoder
+    private static final int SHIFT_MASK = 1;
+    private static final int CTRL_MASK = 2;
+    private static final int META_MASK = 4;
+    private static final int ALT_MASK = 8;
+
+    private static final int WHEEL_LINES = 3;
+    private static final int HOT_HISTORY_LINES = 1000;
+    private static final int SELECTION_BACKGROUND = 0x3e4a7a;
+    private static final int MATCH_BACKGROUND = 0x6b5a24;
+    private static final int CURRENT_MATCH_BACKGROUND = 0xc0872a;
+
+    private static final int UNDERLINE = ScrollbackStore.UNDERLINE;
+    private static final int SELECTED = 8;
+    private static final int CURSOR = 16;
+    private static final int MATCH = 32;
+    private static final int CURRENT_MATCH = 64;
+
+    private final Pane root;
+    private final Font[] fonts;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final double baseline;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicBoolean timerRunning = new AtomicBoolean(false);
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (dirty.getAndSet(false)) {
+                paint();
+                return;
+            }
+            // Idle: stop, unless a change came in meanwhile and found the timer still running
+            timerRunning.set(false);
+            if (!dirty.get() || !timerRunning.compareAndSet(false, true)) {
+                stop();
+            }
+        }
+    };
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "terminal-input");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "terminal-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private TtyConnector connector;
+    private StyleState styleState;
+    private TerminalTextBuffer textBuffer;
+    private ScrollbackStore scrollback;
+    private int hotCapacity;
+    private int knownHot;
+    private boolean resizing;
+    private JediTerminal terminal;
+    private Thread emulatorThread;
+    private volatile boolean closed;
+
+    private int columns = 80;
+    private int rows = 24;
+    private int fixedColumns;
+    private int fixedRows;
+    private Canvas canvas;
+    private GlyphAtlas atlas;
+    private Row[] frame;
+    private Row[] spare;
+    private volatile boolean active = true;
+    private int scrollOrigin;
+
+    private volatile int cursorX;
+    private volatile int cursorY = 1;
+    private volatile boolean cursorVisible = true;
+    private volatile boolean bracketedPaste;
+    private volatile String windowTitle = "";
+
+    private Cell selectionStart;
+    private Cell selectionEnd;
+
+    private TerminalSearchBar searchBar;
+    private ScrollbackSearch activeSearch;
+    private List<ScrollbackSearch.Match> matches = List.of();
+    private int currentMatch = -1;
+
+    private final AtomicLong charsRead = new AtomicLong();
+    private final AtomicLong modelUpdates = new AtomicLong();
+    private volatile long emulatorCpuNanos;
+    private long startedAt;
+    private long frames;
+    private long paintNanos;
+    private TerminalMetrics metrics;
+
+    public CanvasTerminalRenderer() {
+        AppConfig.Settings settings = ConfigService.getInstance().getSettings();
+        fonts = loadFonts(settings.getFontFamily(), settings.getFontSize());
+
+        Text probe = new Text("W");
+        probe.setFont(fonts[0]);
+        Bounds bounds = probe.getLayoutBounds();
+        cellWidth = Math.ceil(bounds.getWidth());
+        cellHeight = Math.ceil(bounds.getHeight());
+        baseline = probe.getBaselineOffset();
+
+        // Input is handled on the root so the canvas can be dropped while hibernating
+        canvas = new Canvas();
+        root = new Pane(canvas);
+        root.setMinSize(0, 0);
+        root.setStyle("-fx-background-color: #1a1a2e;");
+        root.widthProperty().addListener((obs, old, width) -> {
+            resize();
+            placeSearchBar();
+        });
+        root.heightProperty().addListener((obs, old, height) -> resize());
+
+        root.setFocusTraversable(true);
+        root.addEventHandler(KeyEvent.KEY_PRESSED, this::onKeyPressed);
+        root.addEventHandler(KeyEvent.KEY_TYPED, this::onKeyTyped);
+        root.addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+        root.addEventHandler(MouseEvent.MOUSE_PRESSED, this::onMousePressed);
+        root.addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseDragged);
+        setupContextMenu();
+    }
+
+    private static Font[] loadFonts(String family, double size) {
+        Font regular = Font.font(family, FontWeight.NORMAL, FontPosture.REGULAR, size);
+        if (!regular.getFamily().equalsIgnoreCase(family)) {
+            log.warn("Font {} not found, using default", family);
+            family = "Monospaced";
+        }
+        return new Font[] {
+                Font.font(family, FontWeight.NORMAL, FontPosture.REGULAR, size),
+                Font.font(family, FontWeight.BOLD, FontPosture.REGULAR, size),
+                Font.font(family, FontWeight.NORMAL, FontPosture.ITALIC, size),
+                Font.font(family, FontWeight.BOLD, FontPosture.ITALIC, size)
+        };
+    }
+
+    @Override
+    public Node getNode() {
+        return root;
+    }
+
+    /**
+     * Keep the terminal at this size instead of fitting it to the pane, e.g. to replay a recording
+     */
+    public void setFixedSize(int columns, int rows) {
+        fixedColumns = Math.max(1, columns);
+        fixedRows = Math.max(1, rows);
+        if (terminal == null) {
+            this.columns = fixedColumns;
+            this.rows = fixedRows;
+        } else {
+            resize();
+        }
+    }
+
+    @Override
+    public void start(TtyConnector connector) {
+        this.connector = connector;
+        styleState = new StyleState();
+        styleState.setDefaultStyle(new TextStyle(
+                TerminalColor.rgb(0xe0, 0xe0, 0xe0),
+                TerminalColor.rgb(0x1a, 0x1a, 0x2e)));
+        AppConfig.Settings settings = ConfigService.getInstance().getSettings();
+        int historyLines = Math.max(0, settings.getScrollBufferSize());
+        hotCapacity = Math.min(historyLines, HOT_HISTORY_LINES);
+        textBuffer = new TerminalTextBuffer(columns, rows, styleState, hotCapacity, null);
+        // The store only holds what does not fit in JediTerm's history
+        int coldLines = historyLines - hotCapacity;
+        if (coldLines > 0) {
+            scrollback = new ScrollbackStore(coldLines, settings.getScrollBufferMegabytes() * 1024L * 1024L);
+        }
+        terminal = new JediTerminal(new Display(), textBuffer, styleState);
+        terminal.setTerminalOutput(new Output());
+        textBuffer.addModelListener(() -> {
+            checkHistoryCleared();
+            markDirty();
+        });
+        resize();
+
+        startedAt = System.nanoTime();
+        markDirty();
+        emulatorThread = new Thread(this::runEmulator, "terminal-emulator");
+        emulatorThread.setDaemon(true);
+        emulatorThread.start();
+    }
+
+    private void runEmulator() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        try {
+            JediEmulator emulator = new JediEmulator(new TtyBasedArrayDataStream(new CountingConnector()), terminal);
+            while (!closed && emulator.hasNext()) {
+                emulator.next();
+            }
+        } catch (Exception e) {
+            if (!closed) {
+                log.warn("Terminal emulator stopped", e);
+            }
+        } finally {
+            emulatorCpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+        }
+    }
+
+    @Override
+    public void setActive(boolean active) {
+        if (this.active == active) {
+            return;
+        }
+        this.active = active;
+        if (active && !closed && terminal != null) {
+            if (canvas == null) {
+                log.debug("Waking hibernated terminal");
+                canvas = new Canvas();
+                root.getChildren().add(0, canvas);
+                resize();
+            }
+            dirty.set(true);
+            timerRunning.set(true);
+            frameTimer.start();
+        } else {
+            frameTimer.stop();
+            timerRunning.set(false);
+        }
+    }
+
+    /**
+     * Drop the canvas, glyph atlas and frame buffers; the next activation redraws from the model
+     */
+    @Override
+    public void hibernate() {
+        if (active || canvas == null) {
+            return;
+        }
+        root.getChildren().remove(canvas);
+        canvas = null;
+        atlas = null;
+        frame = null;
+        spare = null;
+    }
+
+    @Override
+    public void setMetrics(TerminalMetrics metrics) {
+        this.metrics = metrics;
+        metrics.setPaintTimed(true);
+    }
+
+    @Override
+    public void requestFocus() {
+        root.requestFocus();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        frameTimer.stop();
+        writer.shutdownNow();
+        if (activeSearch != null) {
+            activeSearch.cancel();
+        }
+        searcher.shutdownNow();
+        if (connector != null) {
+            try {
+                connector.close();
+            } catch (Exception e) {
+                log.warn("Error closing terminal connector", e);
+            }
+        }
+        if (emulatorThread != null) {
+            try {
+                emulatorThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logStats();
+        }
+    }
+
+    /**
+     * Frame rate and CPU cost per MB of output of this session. RendererBenchmark compares
+     * both renderers on the same output.
+     */
+    private void logStats() {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startedAt) / 1e9);
+        double megabytes = charsRead.get() / (1024.0 * 1024.0);
+        double cpuMillis = (emulatorCpuNanos + paintNanos) / 1e6;
+        log.info("Canvas renderer: {} frames for {} model updates in {} s ({} fps), {} chars read, {} ms CPU ({} ms per MB), {} glyphs rasterized",
+                frames, modelUpdates.get(), String.format("%.1f", seconds), String.format("%.1f", frames / seconds),
+                charsRead.get(), String.format("%.0f", cpuMillis),
+                megabytes > 0 ? String.format("%.0f", cpuMillis / megabytes) : "-",
+                atlas != null ? atlas.getMisses() : 0);
+        if (scrollback != null) {
+            log.info("Scrollback: {} lines in {} KB off-heap", scrollback.size(), scrollback.getCompressedBytes() / 1024);
+        }
+    }
+
+    // ---- Layout ----
+
+    private void resize() {
+        double width = root.getWidth();
+        double height = root.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (canvas != null) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+        }
+        frame = null;
+        spare = null;
+
+        int newColumns = fixedColumns > 0 ? fixedColumns : Math.max(1, (int) (width / cellWidth));
+        int newRows = fixedRows > 0 ? fixedRows : Math.max(1, (int) (height / cellHeight));
+        if (newColumns != columns || newRows != rows) {
+            int oldColumns = columns;
+            int removedRows = Math.max(0, rows - newRows);
+            columns = newColumns;
+            rows = newRows;
+            if (terminal != null) {
+                resizeTerminal(newColumns != oldColumns, removedRows);
+                connector.resize(new Dimension(columns, rows), new Dimension((int) width, (int) height));
+            }
+        }
+        markDirty();
+    }
+
+    /**
+     * Resize the emulator. A smaller screen may push lines through a full history, which
+     * drops its oldest lines without telling the display; those are found by identity
+     * afterwards and stored. A width change rewraps the history into new lines, so nothing
+     * can be matched then.
+     */
+    private void resizeTerminal(boolean widthChanged, int removedRows) {
+        textBuffer.lock();
+        try {
+            List<TerminalLine> oldest = new ArrayList<>();
+            int hot = textBuffer.getHistoryLinesCount();
+            if (scrollback != null && !widthChanged) {
+                for (int i = 0; i < Math.min(hot, removedRows); i++) {
+                    oldest.add(textBuffer.getLine(i - hot));
+                }
+            }
+
+            resizing = true;
+            try {
+                terminal.resize(new TermSize(columns, rows), RequestOrigin.User);
+            } finally {
+                resizing = false;
+            }
+
+            int newHot = textBuffer.getHistoryLinesCount();
+            if (!oldest.isEmpty() && newHot > 0) {
+                TerminalLine first = textBuffer.getLine(-newHot);
+                int dropped = 0;
+                while (dropped < oldest.size() && oldest.get(dropped) != first) {
+                    dropped++;
+                }
+                for (int i = 0; i < dropped; i++) {
+                    scrollback.append(oldest.get(i));
+                }
+            }
+            knownHot = newHot;
+        } finally {
+            textBuffer.unlock();
+        }
+    }
+
+    /**
+     * An emptied history means ESC[3J or a reset; the stored lines go with it
+     */
+    private void checkHistoryCleared() {
+        if (scrollback == null) {
+            return;
+        }
+        textBuffer.lock();
+        try {
+            int hot = textBuffer.getHistoryLinesCount();
+            if (hot == 0 && knownHot > 0 && !resizing) {
+                log.debug("Terminal history cleared, clearing {} stored lines", scrollback.size());
+                scrollback.clear();
+            }
+            if (!resizing) {
+                knownHot = hot;
+            }
+        } finally {
+            textBuffer.unlock();
+        }
+    }
+
+    // ---- Painting ----
+
+    /**
+     * Request a paint on the next pulse; cheap enough to call for every model change
+     */
+    private void markDirty() {
+        modelUpdates.incrementAndGet();
+        dirty.set(true);
+        if (active && timerRunning.compareAndSet(false, true)) {
+            Platform.runLater(this::startFrames);
+        }
+    }
+
+    private void startFrames() {
+        if (active && !closed) {
+            frameTimer.start();
+        } else {
+            timerRunning.set(false);
+        }
+    }
+
+    private void paint() {
+        if (closed || textBuffer == null || canvas == null || canvas.getWidth() <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        double scale = canvas.getScene() != null && canvas.getScene().getWindow() != null
+                ? canvas.getScene().getWindow().getOutputScaleX() : 1.0;
+        if (atlas == null || atlas.getScale() != scale) {
+            atlas = new GlyphAtlas(fonts, cellWidth, cellHeight, baseline, scale);
+            frame = null;
+        }
+
+        Row[] next = snapshot(spare);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        if (frame == null || frame.length != next.length) {
+            gc.setFill(TerminalColors.toFx(TerminalColors.DEFAULT_BACKGROUND));
+            gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+            frame = null;
+        }
+
+        boolean drawn = false;
+        for (int row = 0; row < next.length; row++) {
+            if (frame == null || !next[row].sameAs(frame[row])) {
+                drawRow(gc, row, next[row]);
+                drawn = true;
+            }
+        }
+        spare = frame;
+        frame = next;
+
+        long elapsed = System.nanoTime() - start;
+        if (drawn) {
+            frames++;
+            if (metrics != null) {
+                metrics.getPaint().record(elapsed);
+            }
+        }
+        paintNanos += elapsed;
+    }
+
+    /**
+     * Copy the visible part of the buffer, including selection and cursor, into rows.
+     * The rows of the frame before last are reused when the size has not changed.
+     */
+    private Row[] snapshot(Row[] reuse) {
+        Row[] next = reuse != null && reuse.length == rows && reuse[0].chars.length == columns ? reuse : new Row[rows];
+        for (int i = 0; i < rows; i++) {
+            if (next[i] == null) {
+                next[i] = new Row(columns);
+            } else {
+                next[i].clear();
+            }
+        }
+
+        textBuffer.lock();
+        try {
+            int hot = textBuffer.getHistoryLinesCount();
+            int cold = coldLines();
+            long screenStart = screenStart(hot);
+            scrollOrigin = Math.max(scrollOrigin, -(hot + cold));
+
+            // Rows above JediTerm's history come from the off-heap store
+            int coldRows = Math.min(rows, Math.max(0, -hot - scrollOrigin));
+            for (int row = 0; row < coldRows; row++) {
+                for (ScrollbackStore.Run run : scrollback.get(cold + hot + scrollOrigin + row)) {
+                    put(next[row], run.x(), run.text(), false, run.fg(), run.bg(), run.attrs());
+                }
+            }
+
+            textBuffer.processHistoryAndScreenLines(scrollOrigin + coldRows, rows - coldRows, new StyledTextConsumer() {
+                @Override
+                public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+                    fill(next, x, coldRows + y - startRow, style, characters, false);
+                }
+
+                @Override
+                public void consumeNul(int x, int y, int nulIndex, @NotNull TextStyle style,
+                                       @NotNull CharBuffer characters, int startRow) {
+                    fill(next, x, coldRows + y - startRow, style, characters, true);
+                }
+
+                @Override
+                public void consumeQueue(int x, int y, int nulIndex, int startRow) {
+                }
+            });
+            markMatches(next, screenStart + scrollOrigin);
+        } finally {
+            textBuffer.unlock();
+        }
+
+        if (selectionStart != null && selectionEnd != null) {
+            Cell from = Cell.min(selectionStart, selectionEnd);
+            Cell to = Cell.max(selectionStart, selectionEnd);
+            for (int row = 0; row < rows; row++) {
+                int line = scrollOrigin + row;
+                if (line < from.line() || line > to.line()) {
+                    continue;
+                }
+                int first = line == from.line() ? from.column() : 0;
+                int last = line == to.line() ? to.column() : columns - 1;
+                for (int col = Math.max(0, first); col <= Math.min(last, columns - 1); col++) {
+                    next[row].attrs[col] |= SELECTED;
+                }
+            }
+        }
+
+        int cursorRow = cursorY - 1 - scrollOrigin;
+        if (cursorVisible && cursorRow >= 0 && cursorRow < rows) {
+            next[cursorRow].attrs[Math.min(Math.max(cursorX, 0), columns - 1)] |= CURSOR;
+        }
+        return next;
+    }
+
+    /**
+     * Flag the search matches that fall into the visible rows
+     * @param firstLine Line number of the top row, as used by {@link ScrollbackSearch.Match}
+     */
+    private void markMatches(Row[] target, long firstLine) {
+        if (matches.isEmpty()) {
+            return;
+        }
+        int low = 0;
+        int high = matches.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (matches.get(mid).line() < firstLine) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < matches.size(); i++) {
+            ScrollbackSearch.Match match = matches.get(i);
+            int row = (int) (match.line() - firstLine);
+            if (row >= target.length) {
+                break;
+            }
+            int flag = i == currentMatch ? CURRENT_MATCH : MATCH;
+            for (int col = match.start(); col < Math.min(match.end(), columns); col++) {
+                target[row].attrs[col] |= flag;
+            }
+        }
+    }
+
+    private void fill(Row[] target, int x, int row, TextStyle style, CharBuffer characters, boolean blank) {
+        if (row < 0 || row >= target.length) {
+            return;
+        }
+        put(target[row], x, characters, blank || style.hasOption(TextStyle.Option.HIDDEN),
+                TerminalColors.foreground(style), TerminalColors.background(style), ScrollbackStore.attributes(style));
+    }
+
+    private void put(Row line, int x, CharSequence characters, boolean blank, int fg, int bg, int attrs) {
+        for (int i = 0; i < characters.length() && x + i < columns; i++) {
+            int col = x + i;
+            char c = characters.charAt(i);
+            line.chars[col] = blank || c == 0 ? ' ' : c;
+            line.fg[col] = fg;
+            line.bg[col] = bg;
+            line.attrs[col] = (byte) attrs;
+        }
+    }
+
+    /**
+     * Stored lines, all older than JediTerm's own history
+     */
+    private int coldLines() {
+        return scrollback != null ? scrollback.size() : 0;
+    }
+
+    /**
+     * Number of the first screen line, as used by {@link ScrollbackSearch.Match}:
+     * stored lines come first, then JediTerm's history
+     */
+    private long screenStart(int hot) {
+        return (scrollback != null ? scrollback.getTotalLines() : 0) + hot;
+    }
+
+    /**
+     * Text of a buffer line; negative lines are history, the oldest ones from the store
+     */
+    private String lineText(int line) {
+        int hot = textBuffer.getHistoryLinesCount();
+        if (line < -hot) {
+            return scrollback != null ? scrollback.getText(coldLines() + hot + line) : "";
+        }
+        return textBuffer.getLine(line).getText();
+    }
+
+    private void drawRow(GraphicsContext gc, int row, Row line) {
+        double y = row * cellHeight;
+
+        int col = 0;
+        while (col < columns) {
+            int bg = line.background(col);
+            int end = col + 1;
+            while (end < columns && line.background(end) == bg) {
+                end++;
+            }
+            gc.setFill(TerminalColors.toFx(bg));
+            gc.fillRect(col * cellWidth, y, (end - col) * cellWidth, cellHeight);
+            col = end;
+        }
+
+        for (col = 0; col < columns; col++) {
+            char c = line.chars[col];
+            if (c == ' ' || c == CharUtils.DWC || Character.isLowSurrogate(c)) {
+                continue;
+            }
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && col + 1 < columns && Character.isLowSurrogate(line.chars[col + 1])) {
+                codePoint = Character.toCodePoint(c, line.chars[col + 1]);
+            }
+            boolean wide = col + 1 < columns && line.chars[col + 1] == CharUtils.DWC;
+            int fg = line.foreground(col);
+            atlas.draw(gc, codePoint, line.attrs[col] & 3, wide, fg, col * cellWidth, y);
+
+            if ((line.attrs[col] & UNDERLINE) != 0) {
+                double underlineY = Math.min(y + cellHeight - 0.5, y + baseline + 1.5);
+                gc.setStroke(TerminalColors.toFx(fg));
+                gc.setLineWidth(1);
+                gc.strokeLine(col * cellWidth, underlineY, (col + (wide ? 2 : 1)) * cellWidth, underlineY);
+            }
+        }
+    }
+
+    // ---- Input ----
+
+    private void onKeyPressed(KeyEvent e) {
+        if (terminal == null) {
+            return;
+        }
+        if (e.isControlDown() && e.isShiftDown() && e.getCode() == KeyCode.F) {
+            showSearch();
+            e.consume();
+            return;
+        }
+        if (e.isControlDown() && e.isShiftDown() && e.getCode() == KeyCode.C) {
+            copySelection();
+            e.consume();
+            return;
+        }
+        if ((e.isControlDown() && e.isShiftDown() && e.getCode() == KeyCode.V)
+                || (e.isShiftDown() && e.getCode() == KeyCode.INSERT)) {
+            paste();
+            e.consume();
+            return;
+        }
+
+        byte[] code = terminal.getCodeForKey(e.getCode().getCode(), modifiers(e));
+        if (code != null) {
+            sendKey(code);
+            e.consume();
+            return;
+        }
+
+        if (e.isControlDown() && !e.isAltDown()) {
+            KeyCode key = e.getCode();
+            if (key.isLetterKey()) {
+                sendKey(new byte[] {(byte) (key.getName().charAt(0) - 'A' + 1)});
+                e.consume();
+            } else if (key == KeyCode.SPACE) {
+                sendKey(new byte[] {0});
+                e.consume();
+            }
+        }
+    }
+
+    private void onKeyTyped(KeyEvent e) {
+        String text = e.getCharacter();
+        if (terminal == null || text.isEmpty() || e.isMetaDown()
+                || (e.isControlDown() && !e.isAltDown())) {
+            return;
+        }
+        // Control characters were handled on key press
+        if (text.length() == 1 && Character.isISOControl(text.charAt(0))) {
+            return;
+        }
+        if (e.isAltDown() && !e.isControlDown()) {
+            text = "\u001b" + text;
+        }
+        sendKey(text.getBytes(StandardCharsets.UTF_8));
+        e.consume();
+    }
+
+    private static int modifiers(KeyEvent e) {
+        return (e.isShiftDown() ? SHIFT_MASK : 0)
+                | (e.isControlDown() ? CTRL_MASK : 0)
+                | (e.isMetaDown() ? META_MASK : 0)
+                | (e.isAltDown() ? ALT_MASK : 0);
+    }
+
+    private void onScroll(ScrollEvent e) {
+        if (terminal == null || e.getDeltaY() == 0) {
+            return;
+        }
+        boolean up = e.getDeltaY() > 0;
+        if (textBuffer.isUsingAlternateBuffer()) {
+            // Full-screen programs have no history; let them scroll themselves
+            byte[] code = terminal.getCodeForKey((up ? KeyCode.UP : KeyCode.DOWN).getCode(), 0);
+            for (int i = 0; code != null && i < WHEEL_LINES; i++) {
+                send(code);
+            }
+        } else {
+            scrollOrigin = Math.min(0, scrollOrigin + (up ? -WHEEL_LINES : WHEEL_LINES));
+            markDirty();
+        }
+        e.consume();
+    }
+
+    private void onMousePressed(MouseEvent e) {
+        root.requestFocus();
+        if (e.getButton() == MouseButton.PRIMARY) {
+            selectionStart = cellAt(e);
+            selectionEnd = null;
+            markDirty();
+        }
+    }
+
+    private void onMouseDragged(MouseEvent e) {
+        if (e.getButton() == MouseButton.PRIMARY && selectionStart != null) {
+            selectionEnd = cellAt(e);
+            markDirty();
+        }
+    }
+
+    private Cell cellAt(MouseEvent e) {
+        int col = Math.max(0, Math.min(columns - 1, (int) (e.getX() / cellWidth)));
+        int row = Math.max(0, Math.min(rows - 1, (int) (e.getY() / cellHeight)));
+        return new Cell(scrollOrigin + row, col);
+    }
+
+    private void setupContextMenu() {
+        MenuItem copyItem = new MenuItem("Copy");
+        copyItem.setOnAction(e -> copySelection());
+        MenuItem pasteItem = new MenuItem("Paste");
+        pasteItem.setOnAction(e -> paste());
+        ContextMenu menu = new ContextMenu(copyItem, pasteItem);
+        menu.setOnShowing(e -> copyItem.setDisable(selectionEnd == null));
+        root.setOnContextMenuRequested(e -> menu.show(root, e.getScreenX(), e.getScreenY()));
+    }
+
+    private void copySelection() {
+        if (selectionStart == null || selectionEnd == null || textBuffer == null) {
+            return;
+        }
+        Cell from = Cell.min(selectionStart, selectionEnd);
+        Cell to = Cell.max(selectionStart, selectionEnd);
+
+        StringBuilder text = new StringBuilder();
+        textBuffer.lock();
+        try {
+            for (int line = from.line(); line <= to.line(); line++) {
+                String content = lineText(line);
+                int first = Math.min(line == from.line() ? from.column() : 0, content.length());
+                int last = Math.min(line == to.line() ? to.column() + 1 : content.length(), content.length());
+                if (line > from.line()) {
+                    text.append('\n');
+                }
+                text.append(content.substring(first, Math.max(first, last))
+                        .replace(String.valueOf(CharUtils.DWC), "")
+                        .stripTrailing());
+            }
+        } finally {
+            textBuffer.unlock();
+        }
+
+        ClipboardContent content = new ClipboardContent();
+        content.putString(text.toString());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    private void paste() {
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text == null || text.isEmpty() || terminal == null) {
+            return;
+        }
+        text = text.replace("\r\n", "\r").replace('\n', '\r');
+        if (bracketedPaste) {
+            text = "\u001b[200~" + text + "\u001b[201~";
+        }
+        send(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Send what the user typed; only these count as keystrokes for the echo latency
+     */
+    private void sendKey(byte[] bytes) {
+        if (metrics != null) {
+            metrics.markKeystroke();
+        }
+        send(bytes);
+    }
+
+    /**
+     * Send user input to the connector off the FX thread and jump back to the live screen
+     */
+    private void send(byte[] bytes) {
+        if (scrollOrigin != 0 || selectionStart != null) {
+            scrollOrigin = 0;
+            selectionStart = null;
+            selectionEnd = null;
+            markDirty();
+        }
+        write(bytes);
+    }
+
+    private void write(byte[] bytes) {
+        if (closed) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                connector.write(bytes);
+            } catch (IOException e) {
+                log.debug("Terminal write failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    // ---- Search ----
+
+    private void showSearch() {
+        if (searchBar == null) {
+            searchBar = new TerminalSearchBar(new TerminalSearchBar.Listener() {
+                @Override
+                public void onQuery(String query, boolean regex, boolean caseSensitive) {
+                    search(query, regex, caseSensitive);
+                }
+
+                @Override
+                public void onNext() {
+                    stepMatch(1);
+                }
+
+                @Override
+                public void onPrevious() {
+                    stepMatch(-1);
+                }
+
+                @Override
+                public void onClose() {
+                    closeSearch();
+                }
+            });
+        }
+        if (!root.getChildren().contains(searchBar)) {
+            root.getChildren().add(searchBar);
+            placeSearchBar();
+        }
+        searchBar.focus();
+    }
+
+    private void placeSearchBar() {
+        if (searchBar != null) {
+            searchBar.relocate(Math.max(0, root.getWidth() - searchBar.prefWidth(-1) - 12), 6);
+        }
+    }
+
+    private void closeSearch() {
+        if (activeSearch != null) {
+            activeSearch.cancel();
+            activeSearch = null;
+        }
+        root.getChildren().remove(searchBar);
+        matches = List.of();
+        currentMatch = -1;
+        markDirty();
+        root.requestFocus();
+    }
+
+    /**
+     * Start a background search; the screen is copied here so the search sees a consistent view
+     */
+    private void search(String query, boolean regex, boolean caseSensitive) {
+        if (activeSearch != null) {
+            activeSearch.cancel();
+            activeSearch = null;
+        }
+        if (query.isEmpty() || textBuffer == null) {
+            matches = List.of();
+            currentMatch = -1;
+            searchBar.setStatus("");
+            markDirty();
+            return;
+        }
+
+        ScrollbackSearch search;
+        try {
+            search = new ScrollbackSearch(query, regex, caseSensitive);
+        } catch (PatternSyntaxException e) {
+            searchBar.setStatus("Invalid pattern");
+            return;
+        }
+
+        // JediTerm's history and the screen, which follow the stored lines
+        List<String> recent = new ArrayList<>(hotCapacity + rows);
+        long recentStart;
+        textBuffer.lock();
+        try {
+            int hot = textBuffer.getHistoryLinesCount();
+            recentStart = screenStart(hot) - hot;
+            for (int i = -hot; i < textBuffer.getHeight(); i++) {
+                recent.add(textBuffer.getLine(i).getText());
+            }
+        } finally {
+            textBuffer.unlock();
+        }
+
+        activeSearch = search;
+        searchBar.setStatus("Searching...");
+        ScrollbackStore store = scrollback;
+        searcher.execute(() -> {
+            long start = System.nanoTime();
+            List<ScrollbackSearch.Match> found = search.run(store, recentStart, recent);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            log.debug("Scrollback search found {} matches in {} ms", found.size(), millis);
+            Platform.runLater(() -> {
+                if (search != activeSearch) {
+                    return;
+                }
+                activeSearch = null;
+                matches = found;
+                currentMatch = found.size() - 1;
+                showCurrentMatch();
+                if (found.size() >= ScrollbackSearch.MAX_MATCHES) {
+                    searchBar.setStatus(String.format("%,d newest matches (%d ms)", found.size(), millis));
+                } else {
+                    searchBar.setStatus(String.format("%,d matches (%d ms)", found.size(), millis));
+                }
+            });
+        });
+    }
+
+    private void stepMatch(int direction) {
+        if (matches.isEmpty()) {
+            return;
+        }
+        currentMatch = Math.floorMod(currentMatch + direction, matches.size());
+        showCurrentMatch();
+        searchBar.setStatus(String.format("%,d of %,d", currentMatch + 1, matches.size()));
+    }
+
+    /**
+     * Scroll so the current match is in the middle of the view
+     */
+    private void showCurrentMatch() {
+        if (currentMatch >= 0 && currentMatch < matches.size()) {
+            long line = matches.get(currentMatch).line() - screenStart(textBuffer.getHistoryLinesCount());
+            scrollOrigin = line >= 0 ? 0 : (int) Math.min(0, line - rows / 2);
+        }
+        markDirty();
+    }
+
+    // ---- Helpers ----
+
+    /**
+     * One visible row: characters, colors and attributes per column
+     */
+    private static final class Row {
+        final char[] chars;
+        final int[] fg;
+        final int[] bg;
+        final byte[] attrs;
+
+        Row(int columns) {
+            chars = new char[columns];
+            fg = new int[columns];
+            bg = new int[columns];
+            attrs = new byte[columns];
+            clear();
+        }
+
+        void clear() {
+            Arrays.fill(chars, ' ');
+            Arrays.fill(fg, TerminalColors.DEFAULT_FOREGROUND);
+            Arrays.fill(bg, TerminalColors.DEFAULT_BACKGROUND);
+            Arrays.fill(attrs, (byte) 0);
+        }
+
+        int foreground(int col) {
+            return (attrs[col] & CURSOR) != 0 ? bg[col] : fg[col];
+        }
+
+        int background(int col) {
+            if ((attrs[col] & CURSOR) != 0) {
+                return fg[col];
+            }
+            if ((attrs[col] & CURRENT_MATCH) != 0) {
+                return CURRENT_MATCH_BACKGROUND;
+            }
+            if ((attrs[col] & MATCH) != 0) {
+                return MATCH_BACKGROUND;
+            }
+            return (attrs[col] & SELECTED) != 0 ? SELECTION_BACKGROUND : bg[col];
+        }
+
+        boolean sameAs(Row other) {
+            return Arrays.equals(chars, other.chars) && Arrays.equals(fg, other.fg)
+                    && Arrays.equals(bg, other.bg) && Arrays.equals(attrs, other.attrs);
+        }
+    }
+
+    /**
+     * Buffer position; negative lines are in the history
+     */
+    private record Cell(int line, int column) {
+        static Cell min(Cell a, Cell b) {
+            return a.line < b.line || (a.line == b.line && a.column <= b.column) ? a : b;
+        }
+
+        static Cell max(Cell a, Cell b) {
+            return min(a, b) == a ? b : a;
+        }
+    }
+
+    /**
+     * Callbacks from the emulator about state that is not part of the text buffer
+     */
+    private class Display implements TerminalDisplay {
+
+        @Override
+        public void setCursor(int x, int y) {
+            cursorX = x;
+            cursorY = y;
+            markDirty();
+        }
+
+        @Override
+        public void setCursorShape(CursorShape cursorShape) {
+        }
+
+        @Override
+        public void beep() {
+        }
+
+        @Override
+        public void scrollArea(int scrollRegionTop, int scrollRegionSize, int dy) {
+            // Called before the buffer scrolls: the top lines are about to enter the history, and
+            // as many of its oldest lines, or of the entering ones, as overflow it leave it
+            if (scrollback != null && dy < 0 && scrollRegionTop == 1 && !textBuffer.isUsingAlternateBuffer()) {
+                textBuffer.lock();
+                try {
+                    int hot = textBuffer.getHistoryLinesCount();
+                    int entering = Math.min(-dy, scrollRegionSize);
+                    int overflow = hot + entering - hotCapacity;
+                    // History and screen lines are numbered contiguously, history negative
+                    for (int i = 0; i < overflow; i++) {
+                        scrollback.append(textBuffer.getLine(i - hot));
+                    }
+                } finally {
+                    textBuffer.unlock();
+                }
+            }
+            markDirty();
+        }
+
+        @Override
+        public void setCursorVisible(boolean visible) {
+            cursorVisible = visible;
+            markDirty();
+        }
+
+        @Override
+        public void useAlternateScreenBuffer(boolean useAlternateScreenBuffer) {
+            Platform.runLater(() -> scrollOrigin = 0);
+            markDirty();
+        }
+
+        @Override
+        public String getWindowTitle() {
+            return windowTitle;
+        }
+
+        @Override
+        public void setWindowTitle(@NotNull String title) {
+            windowTitle = title;
+        }
+
+        @Override
+        public TerminalSelection getSelection() {
+            return null;
+        }
+
+        @Override
+        public void terminalMouseModeSet(@NotNull MouseMode mouseMode) {
+        }
+
+        @Override
+        public void setMouseFormat(@NotNull MouseFormat mouseFormat) {
+        }
+
+        public void setBracketedPasteMode(boolean enabled) {
+            bracketedPaste = enabled;
+        }
+
+        @Override
+        public boolean ambiguousCharsAreDoubleWidth() {
+            return false;
+        }
+    }
+
+    /**
+     * Replies generated by the emulator, such as cursor position reports
+     */
+    private class Output implements TerminalOutputStream {
+
+        public void sendBytes(byte @NotNull [] response, boolean userInput) {
+            write(response);
+        }
+
+        public void sendString(@NotNull String string, boolean userInput) {
+            write(string.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public void sendBytes(byte @NotNull [] response) {
+            write(response);
+        }
+
+        public void sendString(@NotNull String string) {
+            write(string.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Passes everything through to the real connector and counts the characters read
+     */
+    private class CountingConnector implements TtyConnector {
+
+        @Override
+        public int read(char[] buf, int offset, int length) throws IOException {
+            int read = connector.read(buf, offset, length);
+            if (read > 0) {
+                charsRead.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public void write(byte[] bytes) throws IOException {
+            connector.write(bytes);
+        }
+
+        @Override
+        public void write(String string) throws IOException {
+            connector.write(string);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connector.isConnected();
+        }
+
+        @Override
+        public void resize(Dimension termSize, Dimension pixelSize) {
+            connector.resize(termSize, pixelSize);
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            return connector.waitFor();
+        }
+
+        @Override
+        public boolean ready() throws IOException {
+            return connector.ready();
+        }
+
+        @Override
+        public String getName() {
+            return connector.getName();
+        }
+
+        @Override
+        public void close() {
+            connector.close();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.ninja.terminal.renderer;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.transform.Scale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of rasterized glyphs packed into a few large images.
+ *
+ * Each glyph is drawn once per font style and color and afterwards copied with a single
+ * drawImage call, so a frame costs one image blit per visible character instead of text
+ * layout. When the page limit is reached the atlas starts over with fresh pages; old pages
+ * are not reused because the canvas may still reference them until the next pulse.
+ * Only used on the FX thread.
+ */
+final class GlyphAtlas {
+
+    private static final Logger log = LoggerFactory.getLogger(GlyphAtlas.class);
+
+    static final int BOLD = 1;
+    static final int ITALIC = 2;
+
+    private static final int PAGE_SIZE = 1024;
+    private static final int MAX_PAGES = 8;
+
+    /**
+     * Location of a glyph inside a page, in device pixels
+     */
+    record Glyph(WritableImage page, int x, int y, int width, int height) {
+    }
+
+    private final Font[] fonts;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final double baseline;
+    private final double scale;
+    private final int slotWidth;
+    private final int slotHeight;
+    private final int slotsPerRow;
+    private final int slotsPerPage;
+
+    private final Map<Long, Glyph> glyphs = new HashMap<>();
+    private final List<WritableImage> pages = new ArrayList<>();
+    private final Canvas scratch;
+    private final SnapshotParameters snapshotParams = new SnapshotParameters();
+    private int nextSlot;
+    private long misses;
+
+    /**
+     * @param fonts Regular, bold, italic and bold italic fonts, indexed by the style flags
+     * @param scale Output scale of the screen, so glyphs stay sharp on HiDPI displays
+     */
+    GlyphAtlas(Font[] fonts, double cellWidth, double cellHeight, double baseline, double scale) {
+        this.fonts = fonts;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.baseline = baseline;
+        this.scale = scale;
+        // Every slot fits a double-width character
+        this.slotWidth = (int) Math.ceil(cellWidth * 2 * scale);
+        this.slotHeight = (int) Math.ceil(cellHeight * scale);
+        this.slotsPerRow = Math.max(1, PAGE_SIZE / slotWidth);
+        this.slotsPerPage = slotsPerRow * Math.max(1, PAGE_SIZE / slotHeight);
+
+        scratch = new Canvas(cellWidth * 2, cellHeight);
+        snapshotParams.setFill(Color.TRANSPARENT);
+        snapshotParams.setTransform(new Scale(scale, scale));
+    }
+
+    double getScale() {
+        return scale;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Draw a glyph with its top-left corner at the given position
+     */
+    void draw(GraphicsContext gc, int codePoint, int style, boolean wide, int rgb, double x, double y) {
+        Glyph glyph = get(codePoint, style, wide, rgb);
+        gc.drawImage(glyph.page(), glyph.x(), glyph.y(), glyph.width(), glyph.height(),
+                x, y, glyph.width() / scale, glyph.height() / scale);
+    }
+
+    private Glyph get(int codePoint, int style, boolean wide, int rgb) {
+        long key = (long) codePoint | ((long) (style & 3) << 21) | (wide ? 1L << 23 : 0L) | ((long) rgb << 24);
+        Glyph glyph = glyphs.get(key);
+        if (glyph == null) {
+            glyph = rasterize(codePoint, style, wide, rgb);
+            glyphs.put(key, glyph);
+        }
+        return glyph;
+    }
+
+    private Glyph rasterize(int codePoint, int style, boolean wide, int rgb) {
+        misses++;
+        if (nextSlot >= pages.size() * slotsPerPage) {
+            if (pages.size() == MAX_PAGES) {
+                log.debug("Glyph atlas full after {} glyphs, starting over", glyphs.size());
+                glyphs.clear();
+                pages.clear();
+                nextSlot = 0;
+            }
+            pages.add(new WritableImage(PAGE_SIZE, PAGE_SIZE));
+        }
+
+        GraphicsContext gc = scratch.getGraphicsContext2D();
+        gc.clearRect(0, 0, scratch.getWidth(), scratch.getHeight());
+        gc.setFont(fonts[style & 3]);
+        gc.setFill(TerminalColors.toFx(rgb));
+        gc.fillText(Character.toString(codePoint), 0, baseline);
+
+        int width = (int) Math.ceil((wide ? cellWidth * 2 : cellWidth) * scale);
+        WritableImage image = scratch.snapshot(snapshotParams, null);
+
+        WritableImage page = pages.get(nextSlot / slotsPerPage);
+        int slot = nextSlot % slotsPerPage;
+        int x = (slot % slotsPerRow) * slotWidth;
+        int y = (slot / slotsPerRow) * slotHeight;
+        int copyWidth = Math.min(width, (int) image.getWidth());
+        int copyHeight = Math.min(slotHeight, (int) image.getHeight());
+        page.getPixelWriter().setPixels(x, y, copyWidth, copyHeight, image.getPixelReader(), 0, 0);
+        nextSlot++;
+
+        return new Glyph(page, x, y, copyWidth, copyHeight);
+    }
+}
@@ -0,0 +1,588 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.CursorShape;
+import com.jediterm.terminal.RequestOrigin;
+import com.jediterm.terminal.TerminalDisplay;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.TtyBasedArrayDataStream;
+import com.jediterm.terminal.TtyConnector;
+import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.emulator.mouse.MouseFormat;
+import com.jediterm.terminal.emulator.mouse.MouseMode;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.StyledTextConsumer;
+import com.jediterm.terminal.model.TerminalSelection;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.util.CharUtils;
+import com.ninja.terminal.service.SessionRecording;
+import com.ninja.terminal.util.AnsiStripper;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a {@link SessionRecording} into a terminal renderer as if it came from a server.
+ *
+ * Opening a recording runs it once through a headless JediTerm model and keeps a sparse
+ * index of keyframes: every few seconds of busy output, and after every resize, the screen
+ * is saved as the escape sequences that redraw it. Keyframes are only taken between events
+ * that do not split an escape sequence, so a replay never starts inside one. Seeking feeds
+ * the renderer the nearest earlier keyframe followed by the output between it and the target
+ * time, so a jump costs at most one keyframe interval of parsing whatever the position in
+ * the file.
+ *
+ * Keyframes restore the screen contents, colors and cursor, not the full emulator state;
+ * modes such as the scroll region or the hidden main screen behind an alternate screen
+ * start from their defaults after a seek.
+ */
+public class PlaybackConnector implements TtyConnector {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaybackConnector.class);
+    private static final long KEYFRAME_INTERVAL_MICROS = TimeUnit.SECONDS.toMicros(10);
+    private static final int KEYFRAME_CHARS = 512 * 1024;
+
+    // Leave the alternate screen, reset attributes and the scroll region, clear and home
+    private static final String RESET = "\033[?1049l\033[0m\033[r\033[?25h\033[2J\033[H";
+
+    public interface SizeListener {
+        /**
+         * Called on the emulator thread when the recorded terminal changes size
+         */
+        void onSize(int columns, int rows);
+    }
+
+    private record Keyframe(long time, int event, int columns, int rows, String screen) {
+    }
+
+    private final SessionRecording recording;
+    private final List<Keyframe> keyframes;
+    private final Object lock = new Object();
+    private volatile SizeListener sizeListener;
+
+    private String pending;
+    private int pendingOffset;
+    private int next;
+    private int nextOffset;
+    private long mediaBase;
+    private long wallBase = System.nanoTime();
+    private double speed = 1.0;
+    private boolean paused = true;
+    private boolean closed;
+
+    /**
+     * Index the recording; this parses all of it, so call it off the FX thread
+     */
+    public PlaybackConnector(SessionRecording recording) {
+        this.recording = recording;
+        long start = System.nanoTime();
+        this.keyframes = buildIndex(recording);
+        log.info("Indexed {} with {} keyframes in {} ms", recording.getFile(), keyframes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public SessionRecording getRecording() {
+        return recording;
+    }
+
+    public void setSizeListener(SizeListener sizeListener) {
+        this.sizeListener = sizeListener;
+    }
+
+    // ---- Playback control ----
+
+    public void play() {
+        synchronized (lock) {
+            if (paused) {
+                wallBase = System.nanoTime();
+                paused = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public void pause() {
+        synchronized (lock) {
+            if (!paused) {
+                mediaBase = position();
+                paused = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    public void setSpeed(double speed) {
+        synchronized (lock) {
+            mediaBase = position();
+            wallBase = System.nanoTime();
+            this.speed = speed;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Current position in microseconds
+     */
+    public long getPosition() {
+        synchronized (lock) {
+            return position();
+        }
+    }
+
+    private long position() {
+        if (paused) {
+            return mediaBase;
+        }
+        long elapsed = (long) ((System.nanoTime() - wallBase) / 1000 * speed);
+        return Math.min(recording.getDuration(), mediaBase + elapsed);
+    }
+
+    /**
+     * Jump to a time in microseconds: the nearest keyframe is redrawn and the output after
+     * it replayed without delay
+     */
+    public void seek(long time) {
+        synchronized (lock) {
+            time = Math.max(0, Math.min(time, recording.getDuration()));
+            Keyframe keyframe = keyframeAt(time);
+            int end = recording.indexAfter(time);
+            StringBuilder replay = new StringBuilder(keyframe.screen());
+            int columns = keyframe.columns();
+            int rows = keyframe.rows();
+            for (int i = keyframe.event(); i < end; i++) {
+                if (!recording.isResize(i)) {
+                    replay.append(recording.getData(i));
+                } else {
+                    // Only when the resize came inside an escape sequence, see Indexer
+                    int[] size = parseSize(recording.getData(i));
+                    if (size != null) {
+                        columns = Math.max(1, size[0]);
+                        rows = Math.max(1, size[1]);
+                    }
+                }
+            }
+            SizeListener listener = sizeListener;
+            if (listener != null) {
+                listener.onSize(columns, rows);
+            }
+            pending = replay.toString();
+            pendingOffset = 0;
+            next = end;
+            nextOffset = 0;
+            mediaBase = time;
+            wallBase = System.nanoTime();
+            lock.notifyAll();
+        }
+    }
+
+    private Keyframe keyframeAt(long time) {
+        int low = 0;
+        int high = keyframes.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (keyframes.get(mid).time() <= time) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return keyframes.get(low);
+    }
+
+    // ---- TtyConnector ----
+
+    @Override
+    public int read(char[] buf, int offset, int length) throws IOException {
+        synchronized (lock) {
+            try {
+                while (!closed) {
+                    if (pending != null) {
+                        int count = Math.min(length, pending.length() - pendingOffset);
+                        pending.getChars(pendingOffset, pendingOffset + count, buf, offset);
+                        pendingOffset += count;
+                        if (pendingOffset >= pending.length()) {
+                            pending = null;
+                        }
+                        return count;
+                    }
+                    if (paused || next >= recording.size()) {
+                        lock.wait();
+                        continue;
+                    }
+
+                    long wait = due(next) - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, wait);
+                        continue;
+                    }
+                    if (recording.isResize(next)) {
+                        int[] size = parseSize(recording.getData(next));
+                        SizeListener listener = sizeListener;
+                        if (size != null && listener != null) {
+                            listener.onSize(size[0], size[1]);
+                        }
+                        next++;
+                        continue;
+                    }
+
+                    String data = recording.getData(next);
+                    int count = Math.min(length, data.length() - nextOffset);
+                    data.getChars(nextOffset, nextOffset + count, buf, offset);
+                    nextOffset += count;
+                    if (nextOffset >= data.length()) {
+                        next++;
+                        nextOffset = 0;
+                    }
+                    return count;
+                }
+                return -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Playback interrupted");
+            }
+        }
+    }
+
+    /**
+     * System.nanoTime() at which an event is due at the current speed
+     */
+    private long due(int event) {
+        return wallBase + (long) ((recording.getTime(event) - mediaBase) * 1000 / speed);
+    }
+
+    @Override
+    public void write(byte[] bytes) {
+        // Recordings are read-only; keys typed into the player are ignored
+    }
+
+    @Override
+    public void write(String string) {
+    }
+
+    @Override
+    public boolean isConnected() {
+        synchronized (lock) {
+            return !closed;
+        }
+    }
+
+    @Override
+    public void resize(Dimension termSize, Dimension pixelSize) {
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        synchronized (lock) {
+            while (!closed) {
+                lock.wait();
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean ready() {
+        synchronized (lock) {
+            return pending != null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return recording.getTitle();
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    private static int[] parseSize(String size) {
+        int x = size.indexOf('x');
+        try {
+            return new int[] {Integer.parseInt(size.substring(0, x)), Integer.parseInt(size.substring(x + 1))};
+        } catch (RuntimeException e) {
+            log.debug("Ignoring malformed resize event: {}", size);
+            return null;
+        }
+    }
+
+    // ---- Index ----
+
+    private static List<Keyframe> buildIndex(SessionRecording recording) {
+        Indexer indexer = new Indexer(recording);
+        try {
+            JediEmulator emulator = new JediEmulator(new TtyBasedArrayDataStream(indexer), indexer.terminal);
+            while (emulator.hasNext()) {
+                emulator.next();
+            }
+        } catch (IOException e) {
+            // End of the recording
+        }
+        return indexer.keyframes;
+    }
+
+    /**
+     * Feeds the recording to a headless terminal and takes keyframes between events
+     */
+    private static final class Indexer implements TtyConnector, TerminalDisplay {
+
+        private final SessionRecording recording;
+        private final List<Keyframe> keyframes = new ArrayList<>();
+        private final TerminalTextBuffer textBuffer;
+        private final JediTerminal terminal;
+        // Follows the escape sequence state of the output returned so far
+        private final AnsiStripper parser = new AnsiStripper();
+        private final StringBuilder stripped = new StringBuilder();
+        private int columns;
+        private int rows;
+        private int cursorX;
+        private int cursorY = 1;
+        private boolean cursorVisible = true;
+        private int event;
+        private int offset;
+        private long keyframeTime;
+        private long charsSinceKeyframe;
+        private boolean keyframeDue;
+
+        Indexer(SessionRecording recording) {
+            this.recording = recording;
+            columns = Math.max(1, recording.getWidth());
+            rows = Math.max(1, recording.getHeight());
+            StyleState styleState = new StyleState();
+            textBuffer = new TerminalTextBuffer(columns, rows, styleState, 0, null);
+            terminal = new JediTerminal(this, textBuffer, styleState);
+            keyframes.add(new Keyframe(0, 0, columns, rows, RESET));
+        }
+
+        @Override
+        public int read(char[] buf, int off, int length) {
+            while (event < recording.size()) {
+                if (offset == 0 && recording.isResize(event)) {
+                    int[] size = parseSize(recording.getData(event));
+                    event++;
+                    if (size != null) {
+                        columns = Math.max(1, size[0]);
+                        rows = Math.max(1, size[1]);
+                        terminal.resize(new TermSize(columns, rows), RequestOrigin.User);
+                        keyframeDue = true;
+                    }
+                    continue;
+                }
+                // The emulator has parsed everything returned so far, but may be waiting for
+                // the rest of a sequence; a keyframe then waits for the next clean boundary
+                if (offset == 0 && !parser.isInSequence() && (keyframeDue || charsSinceKeyframe >= KEYFRAME_CHARS
+                        || (charsSinceKeyframe > 0 && recording.getTime(event) - keyframeTime >= KEYFRAME_INTERVAL_MICROS))) {
+                    takeKeyframe();
+                }
+
+                String data = recording.getData(event);
+                int count = Math.min(length, data.length() - offset);
+                data.getChars(offset, offset + count, buf, off);
+                parser.strip(data, offset, count, stripped);
+                stripped.setLength(0);
+                offset += count;
+                if (offset >= data.length()) {
+                    event++;
+                    offset = 0;
+                }
+                charsSinceKeyframe += count;
+                return count;
+            }
+            return -1;
+        }
+
+        /**
+         * Save the screen as it is before the next event, valid from the time of the last one
+         */
+        private void takeKeyframe() {
+            long time = event > 0 ? recording.getTime(event - 1) : 0;
+            keyframes.add(new Keyframe(time, event, columns, rows, screen()));
+            keyframeTime = time;
+            charsSinceKeyframe = 0;
+            keyframeDue = false;
+        }
+
+        /**
+         * Escape sequences that clear the screen and draw the current one
+         */
+        private String screen() {
+            StringBuilder out = new StringBuilder(RESET);
+            if (textBuffer.isUsingAlternateBuffer()) {
+                out.append("\033[?1049h\033[2J");
+            }
+            textBuffer.lock();
+            try {
+                textBuffer.processHistoryAndScreenLines(0, rows, new StyledTextConsumer() {
+                    private TextStyle current;
+
+                    @Override
+                    public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+                        append(x, y - startRow, style, characters, false);
+                    }
+
+                    @Override
+                    public void consumeNul(int x, int y, int nulIndex, @NotNull TextStyle style,
+                                           @NotNull CharBuffer characters, int startRow) {
+                        append(x, y - startRow, style, characters, true);
+                    }
+
+                    @Override
+                    public void consumeQueue(int x, int y, int nulIndex, int startRow) {
+                    }
+
+                    private void append(int x, int row, TextStyle style, CharBuffer characters, boolean blank) {
+                        if (row < 0 || row >= rows) {
+                            return;
+                        }
+                        out.append("\033[").append(row + 1).append(';').append(x + 1).append('H');
+                        if (!style.equals(current)) {
+                            appendStyle(out, style);
+                            current = style;
+                        }
+                        for (int i = 0; i < characters.length() && x + i < columns; i++) {
+                            char c = characters.charAt(i);
+                            if (c == CharUtils.DWC) {
+                                continue;
+                            }
+                            out.append(blank || c == 0 || style.hasOption(TextStyle.Option.HIDDEN) ? ' ' : c);
+                        }
+                    }
+                });
+            } finally {
+                textBuffer.unlock();
+            }
+            out.append("\033[0m\033[").append(cursorY).append(';').append(cursorX + 1).append('H');
+            if (!cursorVisible) {
+                out.append("\033[?25l");
+            }
+            return out.toString();
+        }
+
+        private static void appendStyle(StringBuilder out, TextStyle style) {
+            int fg = TerminalColors.foreground(style);
+            int bg = TerminalColors.background(style);
+            out.append("\033[0");
+            if (style.hasOption(TextStyle.Option.BOLD)) {
+                out.append(";1");
+            }
+            if (style.hasOption(TextStyle.Option.ITALIC)) {
+                out.append(";3");
+            }
+            if (style.hasOption(TextStyle.Option.UNDERLINED)) {
+                out.append(";4");
+            }
+            out.append(";38;2;").append(fg >> 16 & 0xff).append(';').append(fg >> 8 & 0xff).append(';').append(fg & 0xff);
+            out.append(";48;2;").append(bg >> 16 & 0xff).append(';').append(bg >> 8 & 0xff).append(';').append(bg & 0xff);
+            out.append('m');
+        }
+
+        @Override
+        public void setCursor(int x, int y) {
+            cursorX = x;
+            cursorY = y;
+        }
+
+        @Override
+        public void setCursorShape(CursorShape cursorShape) {
+        }
+
+        @Override
+        public void beep() {
+        }
+
+        @Override
+        public void scrollArea(int scrollRegionTop, int scrollRegionSize, int dy) {
+        }
+
+        @Override
+        public void setCursorVisible(boolean visible) {
+            cursorVisible = visible;
+        }
+
+        @Override
+        public void useAlternateScreenBuffer(boolean useAlternateScreenBuffer) {
+        }
+
+        @Override
+        public String getWindowTitle() {
+            return recording.getTitle();
+        }
+
+        @Override
+        public void setWindowTitle(@NotNull String title) {
+        }
+
+        @Override
+        public TerminalSelection getSelection() {
+            return null;
+        }
+
+        @Override
+        public void terminalMouseModeSet(@NotNull MouseMode mouseMode) {
+        }
+
+        @Override
+        public void setMouseFormat(@NotNull MouseFormat mouseFormat) {
+        }
+
+        @Override
+        public boolean ambiguousCharsAreDoubleWidth() {
+            return false;
+        }
+
+        @Override
+        public void write(byte[] bytes) {
+        }
+
+        @Override
+        public void write(String string) {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public void resize(Dimension termSize, Dimension pixelSize) {
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public boolean ready() {
+            return event < recording.size();
+        }
+
+        @Override
+        public String getName() {
+            return recording.getTitle();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
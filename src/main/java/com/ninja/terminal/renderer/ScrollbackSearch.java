@@ -0,0 +1,143 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.util.CharUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One search over a terminal's scrollback, history and screen, meant to run off the FX thread.
+ *
+ * Plain queries, and regular expressions that are only words, use the store's trigram
+ * filters to skip blocks; other expressions read every stored line. Lines are matched without
+ * the placeholder cells that follow double-width characters, and matches are mapped back to
+ * cell columns. Only the newest {@link #MAX_MATCHES} matches are kept.
+ */
+final class ScrollbackSearch {
+
+    static final int MAX_MATCHES = 10_000;
+
+    /**
+     * Match in a line numbered like {@link ScrollbackStore#getTotalLines()}, columns end-exclusive
+     */
+    record Match(long line, int start, int end) {
+    }
+
+    private final Pattern pattern;
+    private final String literal;
+    private final String hint;
+    private final boolean caseSensitive;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * @throws PatternSyntaxException if {@code regex} is set and the query is not a valid expression
+     */
+    ScrollbackSearch(String query, boolean regex, boolean caseSensitive) {
+        this.caseSensitive = caseSensitive;
+        if (regex) {
+            pattern = Pattern.compile(query, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            literal = null;
+            hint = query.matches("[\\w -]+") ? query : null;
+        } else {
+            pattern = null;
+            literal = query;
+            hint = query;
+        }
+    }
+
+    void cancel() {
+        cancelled.set(true);
+    }
+
+    boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Search the store, then the lines that follow it
+     * @param store Scrollback, null if the terminal keeps no history
+     * @param recentStart Number of the first of the recent lines
+     * @param recent Lines not in the store yet: the emulator's own history and the screen
+     * @return Matches in line order, empty if cancelled
+     */
+    List<Match> run(ScrollbackStore store, long recentStart, List<String> recent) {
+        ArrayDeque<Match> matches = new ArrayDeque<>();
+        if (store != null) {
+            store.scan(hint, (line, text) -> {
+                // Lines stored after the recent ones were copied are searched there
+                if (line < recentStart) {
+                    find(line, text, matches);
+                }
+            }, cancelled::get);
+        }
+        for (int i = 0; i < recent.size() && !cancelled.get(); i++) {
+            find(recentStart + i, recent.get(i), matches);
+        }
+        return cancelled.get() ? List.of() : new ArrayList<>(matches);
+    }
+
+    private void find(long line, String text, ArrayDeque<Match> matches) {
+        if (pattern == null && literal.isEmpty()) {
+            return;
+        }
+        // Cell column of every character that remains after dropping the placeholders
+        int[] columns = null;
+        String haystack = text;
+        if (text.indexOf(CharUtils.DWC) >= 0) {
+            StringBuilder stripped = new StringBuilder(text.length());
+            columns = new int[text.length()];
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != CharUtils.DWC) {
+                    columns[stripped.length()] = i;
+                    stripped.append(text.charAt(i));
+                }
+            }
+            haystack = stripped.toString();
+        }
+
+        if (pattern != null) {
+            Matcher matcher = pattern.matcher(haystack);
+            while (matcher.find()) {
+                if (matcher.end() > matcher.start()) {
+                    add(matches, match(line, text, columns, matcher.start(), matcher.end()));
+                }
+            }
+            return;
+        }
+
+        int length = literal.length();
+        for (int i = 0; i + length <= haystack.length(); i++) {
+            if (haystack.regionMatches(!caseSensitive, i, literal, 0, length)) {
+                add(matches, match(line, text, columns, i, i + length));
+                i += length - 1;
+            }
+        }
+    }
+
+    /**
+     * Match covering the cells of characters {@code start} to {@code end} of the stripped text,
+     * including the placeholder of a double-width last character
+     */
+    private static Match match(long line, String text, int[] columns, int start, int end) {
+        if (columns == null) {
+            return new Match(line, start, end);
+        }
+        int last = columns[end - 1] + 1;
+        while (last < text.length() && text.charAt(last) == CharUtils.DWC) {
+            last++;
+        }
+        return new Match(line, columns[start], last);
+    }
+
+    private static void add(ArrayDeque<Match> matches, Match match) {
+        matches.addLast(match);
+        if (matches.size() > MAX_MATCHES) {
+            matches.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.StyledTextConsumer;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.util.CharUtils;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Scrollback kept outside the Java heap.
+ *
+ * Each line is encoded as style runs (column, packed colors, attributes, UTF-8 text) and
+ * appended to an open block on the heap. Full blocks are deflated into direct ByteBuffers,
+ * so old lines cost a few bytes each and no heap. The store is limited by line count and by
+ * compressed size, whichever is reached first, and drops whole blocks from the oldest end.
+ * Appends come from the emulator thread and reads from the FX thread.
+ *
+ * Lines are numbered by the order they were appended, so a number keeps pointing at the same
+ * line while output continues. For search, every block carries a bloom filter of the
+ * case-folded character trigrams of its lines, without the placeholder cells that follow
+ * double-width characters; {@link #scan} skips blocks that cannot contain a literal.
+ */
+final class ScrollbackStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ScrollbackStore.class);
+
+    static final int UNDERLINE = 4;
+    private static final int BLANK = 0x80;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int BLOOM_BITS = 16384;
+
+    /**
+     * Characters of one style starting at a column; blank runs have spaces as text
+     */
+    record Run(int x, String text, int fg, int bg, int attrs) {
+    }
+
+    /**
+     * Receives lines during a scan
+     */
+    interface LineVisitor {
+        void visit(long line, String text);
+    }
+
+    private record Block(long firstLine, int lineCount, int rawLength, ByteBuffer data, long[] trigrams) {
+    }
+
+    private final int maxLines;
+    private final long maxBytes;
+    private final List<Block> blocks = new ArrayList<>();
+    private final RawBuffer open = new RawBuffer(BLOCK_SIZE + 4096);
+    private final RawBuffer lineBuffer = new RawBuffer(1024);
+    private final StringBuilder lineText = new StringBuilder();
+    private long[] openTrigrams = new long[BLOOM_BITS / 64];
+    private int[] openOffsets = new int[256];
+    private int openLines;
+    private long firstLine;
+    private long totalLines;
+    private long compressedBytes;
+
+    private Block cachedBlock;
+    private byte[] cachedRaw;
+    private int[] cachedOffsets;
+
+    /**
+     * @param maxLines Lines to keep
+     * @param maxBytes Compressed bytes to keep, 0 for no limit
+     */
+    ScrollbackStore(int maxLines, long maxBytes) {
+        this.maxLines = Math.max(1, maxLines);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Attribute bits shared with the renderer's rows
+     */
+    static int attributes(TextStyle style) {
+        return (style.hasOption(TextStyle.Option.BOLD) ? GlyphAtlas.BOLD : 0)
+                | (style.hasOption(TextStyle.Option.ITALIC) ? GlyphAtlas.ITALIC : 0)
+                | (style.hasOption(TextStyle.Option.UNDERLINED) ? UNDERLINE : 0);
+    }
+
+    synchronized int size() {
+        return (int) (totalLines - firstLine);
+    }
+
+    /**
+     * Number of lines ever appended; the next line gets this number
+     */
+    synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    /**
+     * Off-heap bytes in use
+     */
+    synchronized long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Drop every stored line; numbering continues where it was
+     */
+    synchronized void clear() {
+        blocks.clear();
+        open.reset();
+        openLines = 0;
+        openTrigrams = new long[BLOOM_BITS / 64];
+        firstLine = totalLines;
+        compressedBytes = 0;
+        cachedBlock = null;
+        cachedRaw = null;
+        cachedOffsets = null;
+    }
+
+    /**
+     * Encode a line that is leaving the terminal's own history
+     */
+    synchronized void append(TerminalLine line) {
+        lineBuffer.reset();
+        lineText.setLength(0);
+        int[] runCount = {0};
+        line.process(0, new StyledTextConsumer() {
+            @Override
+            public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+                writeRun(x, style, characters, style.hasOption(TextStyle.Option.HIDDEN));
+                runCount[0]++;
+            }
+
+            @Override
+            public void consumeNul(int x, int y, int nulIndex, @NotNull TextStyle style,
+                                   @NotNull CharBuffer characters, int startRow) {
+                writeRun(x, style, characters, true);
+                runCount[0]++;
+            }
+
+            @Override
+            public void consumeQueue(int x, int y, int nulIndex, int startRow) {
+            }
+        }, 0);
+
+        if (openLines == openOffsets.length) {
+            openOffsets = Arrays.copyOf(openOffsets, openLines * 2);
+        }
+        openOffsets[openLines++] = open.size();
+        writeVarInt(open, runCount[0]);
+        open.write(lineBuffer.array(), 0, lineBuffer.size());
+        addTrigrams(openTrigrams, lineText);
+        totalLines++;
+
+        if (open.size() >= BLOCK_SIZE) {
+            seal();
+        }
+        evict();
+    }
+
+    private void writeRun(int x, TextStyle style, CharBuffer characters, boolean blank) {
+        while (lineText.length() < x) {
+            lineText.append(' ');
+        }
+        if (!blank) {
+            lineText.append(characters);
+        }
+        writeVarInt(lineBuffer, x);
+        lineBuffer.write(attributes(style) | (blank ? BLANK : 0));
+        writeRgb(TerminalColors.foreground(style));
+        writeRgb(TerminalColors.background(style));
+        if (blank) {
+            writeVarInt(lineBuffer, characters.length());
+        } else {
+            byte[] text = characters.toString().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(lineBuffer, text.length);
+            lineBuffer.write(text, 0, text.length);
+        }
+    }
+
+    private void writeRgb(int rgb) {
+        lineBuffer.write(rgb >> 16);
+        lineBuffer.write(rgb >> 8);
+        lineBuffer.write(rgb);
+    }
+
+    private void seal() {
+        byte[] raw = open.toByteArray();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] buffer = new byte[raw.length + 64];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            ByteBuffer data = ByteBuffer.allocateDirect(length);
+            data.put(buffer, 0, length).flip();
+            blocks.add(new Block(totalLines - openLines, openLines, raw.length, data, openTrigrams));
+            compressedBytes += length;
+        } finally {
+            deflater.end();
+        }
+        open.reset();
+        openLines = 0;
+        openTrigrams = new long[BLOOM_BITS / 64];
+    }
+
+    private void evict() {
+        while (!blocks.isEmpty() && (size() > maxLines || (maxBytes > 0 && compressedBytes > maxBytes))) {
+            Block oldest = blocks.remove(0);
+            compressedBytes -= oldest.data().capacity();
+            firstLine = oldest.firstLine() + oldest.lineCount();
+            if (oldest == cachedBlock) {
+                cachedBlock = null;
+            }
+        }
+    }
+
+    /**
+     * Runs of a stored line, 0 being the oldest line kept
+     */
+    synchronized List<Run> get(int index) {
+        long line = firstLine + index;
+        if (index < 0 || line >= totalLines) {
+            return List.of();
+        }
+        long openStart = totalLines - openLines;
+        if (line >= openStart) {
+            return decode(ByteBuffer.wrap(open.array()), openOffsets[(int) (line - openStart)]);
+        }
+
+        Block block = findBlock(line);
+        if (block != cachedBlock) {
+            inflate(block);
+        }
+        return decode(ByteBuffer.wrap(cachedRaw), cachedOffsets[(int) (line - block.firstLine())]);
+    }
+
+    /**
+     * Plain text of a stored line
+     */
+    String getText(int index) {
+        return textOf(get(index));
+    }
+
+    private static String textOf(List<Run> runs) {
+        StringBuilder text = new StringBuilder();
+        for (Run run : runs) {
+            while (text.length() < run.x()) {
+                text.append(' ');
+            }
+            text.append(run.text());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Visit the text of every stored line from oldest to newest, on the calling thread.
+     * The store is only locked while taking a snapshot of its blocks, so appends continue.
+     * @param literal Text every interesting line contains, used to skip blocks; null to visit all
+     */
+    void scan(String literal, LineVisitor visitor, BooleanSupplier cancelled) {
+        List<Block> sealed;
+        byte[] openRaw;
+        int openCount;
+        long openStart;
+        synchronized (this) {
+            sealed = new ArrayList<>(blocks);
+            openRaw = open.toByteArray();
+            openCount = openLines;
+            openStart = totalLines - openLines;
+        }
+
+        long[] needed = new long[BLOOM_BITS / 64];
+        if (literal != null) {
+            addTrigrams(needed, literal);
+        }
+        for (Block block : sealed) {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            if (containsAll(block.trigrams(), needed)) {
+                visitLines(ByteBuffer.wrap(inflateRaw(block)), block.firstLine(), block.lineCount(), visitor);
+            }
+        }
+        if (!cancelled.getAsBoolean()) {
+            visitLines(ByteBuffer.wrap(openRaw), openStart, openCount, visitor);
+        }
+    }
+
+    private static void visitLines(ByteBuffer in, long first, int count, LineVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            visitor.visit(first + i, textOf(decode(in, in.position())));
+        }
+    }
+
+    /**
+     * Add the trigrams of a text, skipping placeholder cells and folding case the way
+     * {@link String#regionMatches(boolean, int, String, int, int)} compares characters
+     */
+    private static void addTrigrams(long[] bloom, CharSequence text) {
+        char a = 0;
+        char b = 0;
+        int seen = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == CharUtils.DWC) {
+                continue;
+            }
+            c = Character.toLowerCase(Character.toUpperCase(c));
+            if (++seen >= 3) {
+                int hash = (a * 31 + b) * 31 + c;
+                int bit = (hash * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(BLOOM_BITS));
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+            a = b;
+            b = c;
+        }
+    }
+
+    private static boolean containsAll(long[] bloom, long[] needed) {
+        for (int i = 0; i < needed.length; i++) {
+            if ((bloom[i] & needed[i]) != needed[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Block findBlock(long line) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks.get(mid).firstLine() <= line) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return blocks.get(low);
+    }
+
+    private static byte[] inflateRaw(Block block) {
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block.data().duplicate());
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            log.error("Corrupt scrollback block at line {}", block.firstLine(), e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private void inflate(Block block) {
+        byte[] raw = inflateRaw(block);
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        int[] offsets = new int[block.lineCount()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = in.position();
+            skipLine(in);
+        }
+        cachedBlock = block;
+        cachedRaw = raw;
+        cachedOffsets = offsets;
+    }
+
+    private static void skipLine(ByteBuffer in) {
+        int runs = readVarInt(in);
+        for (int i = 0; i < runs; i++) {
+            readVarInt(in);
+            boolean blank = (in.get() & BLANK) != 0;
+            in.position(in.position() + 6);
+            int length = readVarInt(in);
+            if (!blank) {
+                in.position(in.position() + length);
+            }
+        }
+    }
+
+    private static List<Run> decode(ByteBuffer in, int offset) {
+        in.position(offset);
+        int count = readVarInt(in);
+        List<Run> runs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int x = readVarInt(in);
+            int attrs = in.get() & 0xff;
+            int fg = readRgb(in);
+            int bg = readRgb(in);
+            int length = readVarInt(in);
+            String text;
+            if ((attrs & BLANK) != 0) {
+                text = " ".repeat(length);
+            } else {
+                text = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            }
+            runs.add(new Run(x, text, fg, bg, attrs & ~BLANK));
+        }
+        return runs;
+    }
+
+    private static int readRgb(ByteBuffer in) {
+        return ((in.get() & 0xff) << 16) | ((in.get() & 0xff) << 8) | (in.get() & 0xff);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Buffer readable without copying, for the block being filled and the line being encoded
+     */
+    private static final class RawBuffer extends ByteArrayOutputStream {
+        RawBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.TtyConnector;
+import com.jediterm.terminal.emulator.ColorPalette;
+import com.jediterm.terminal.ui.JediTermWidget;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.util.TerminalMetrics;
+import javafx.embed.swing.SwingNode;
+import javafx.scene.Node;
+import javafx.scene.layout.StackPane;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.SwingUtilities;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+
+/**
+ * JediTerm's Swing widget embedded through a SwingNode. Every repaint crosses the
+ * Swing/JavaFX bridge, but it supports everything JediTerm does, so it stays the fallback.
+ *
+ * While inactive the widget is detached from the SwingNode, which frees the node's offscreen
+ * image. It does not hibernate: the widget owns JediTerm's model and its own emulator thread,
+ * so the widget, its back buffer and the whole history stay in memory for the tab's lifetime.
+ *
+ * Key presses are recorded for the echo latency, but painting happens inside the widget and
+ * is not timed.
+ */
+public class SwingTerminalRenderer implements TerminalRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(SwingTerminalRenderer.class);
+    private static final int MAX_HISTORY_LINES = 50_000;
+
+    private final StackPane root = new StackPane();
+    private final SwingNode swingNode;
+    private JediTermWidget terminalWidget;
+    private TerminalMetrics metrics;
+    private boolean active = true;
+
+    public SwingTerminalRenderer() {
+        swingNode = createSwingNode();
+        root.getChildren().add(swingNode);
+    }
+
+    private SwingNode createSwingNode() {
+        SwingNode node = new SwingNode();
+        // 포커스 문제 해결
+        node.setOnMouseClicked(event -> node.requestFocus());
+        return node;
+    }
+
+    @Override
+    public Node getNode() {
+        return root;
+    }
+
+    @Override
+    public void start(TtyConnector connector) {
+        DefaultSettingsProvider settings = new DefaultSettingsProvider() {
+            @Override
+            public Font getTerminalFont() {
+                String fontFamily = ConfigService.getInstance().getSettings().getFontFamily();
+                int fontSize = ConfigService.getInstance().getSettings().getFontSize();
+                try {
+                    return new Font(fontFamily, Font.PLAIN, fontSize);
+                } catch (Exception e) {
+                    log.warn("Font {} not found, using default", fontFamily);
+                    return new Font(Font.MONOSPACED, Font.PLAIN, fontSize);
+                }
+            }
+
+            @Override
+            public float getTerminalFontSize() {
+                return ConfigService.getInstance().getSettings().getFontSize();
+            }
+
+            @Override
+            public int getBufferMaxLinesCount() {
+                // The Swing widget keeps its whole history on the heap, so larger settings
+                // only apply to the Canvas renderer's off-heap store
+                return Math.min(MAX_HISTORY_LINES, ConfigService.getInstance().getSettings().getScrollBufferSize());
+            }
+
+            @Override
+            public ColorPalette getTerminalColorPalette() {
+                return super.getTerminalColorPalette();
+            }
+
+            @NotNull
+            @Override
+            public TextStyle getDefaultStyle() {
+                return new TextStyle(
+                        TerminalColor.rgb(0xe0, 0xe0, 0xe0),
+                        TerminalColor.rgb(0x1a, 0x1a, 0x2e)
+                );
+            }
+        };
+
+        terminalWidget = new JediTermWidget(settings);
+        TerminalMetrics keyMetrics = metrics;
+        if (keyMetrics != null) {
+            terminalWidget.getTerminalPanel().addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyPressed(KeyEvent e) {
+                    if (!isModifier(e.getKeyCode())) {
+                        keyMetrics.markKeystroke();
+                    }
+                }
+            });
+        }
+        terminalWidget.setTtyConnector(connector);
+        terminalWidget.setVisible(active);
+        terminalWidget.start();
+
+        if (active) {
+            swingNode.setContent(terminalWidget);
+        }
+    }
+
+    private static boolean isModifier(int keyCode) {
+        return keyCode == KeyEvent.VK_SHIFT || keyCode == KeyEvent.VK_CONTROL
+                || keyCode == KeyEvent.VK_ALT || keyCode == KeyEvent.VK_META
+                || keyCode == KeyEvent.VK_ALT_GRAPH;
+    }
+
+    /**
+     * Records key presses; call before {@link #start}
+     */
+    @Override
+    public void setMetrics(TerminalMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Hides and detaches the widget while inactive; Swing does not paint invisible components
+     */
+    @Override
+    public void setActive(boolean active) {
+        if (this.active == active) {
+            return;
+        }
+        this.active = active;
+        JediTermWidget widget = terminalWidget;
+        if (widget == null) {
+            return;
+        }
+        if (active) {
+            swingNode.setContent(widget);
+            SwingUtilities.invokeLater(() -> widget.setVisible(true));
+        } else {
+            SwingUtilities.invokeLater(() -> widget.setVisible(false));
+            swingNode.setContent(null);
+        }
+    }
+
+    @Override
+    public void requestFocus() {
+        swingNode.requestFocus();
+    }
+
+    @Override
+    public void close() {
+        if (terminalWidget != null) {
+            try {
+                terminalWidget.close();
+            } catch (Exception e) {
+                log.warn("Error closing terminal widget", e);
+            } finally {
+                terminalWidget = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import javafx.scene.paint.Color;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps JediTerm colors to JavaFX colors: the 16 base colors, the xterm 6x6x6 cube,
+ * the gray ramp and true colors. Results are cached per packed RGB value.
+ */
+final class TerminalColors {
+
+    static final int DEFAULT_FOREGROUND = 0xe0e0e0;
+    static final int DEFAULT_BACKGROUND = 0x1a1a2e;
+
+    private static final int[] BASE = {
+            0x000000, 0xcd0000, 0x00cd00, 0xcdcd00, 0x0000ee, 0xcd00cd, 0x00cdcd, 0xe5e5e5,
+            0x7f7f7f, 0xff0000, 0x00ff00, 0xffff00, 0x5c5cff, 0xff00ff, 0x00ffff, 0xffffff
+    };
+
+    private static final Map<Integer, Color> cache = new HashMap<>();
+
+    private TerminalColors() {
+    }
+
+    /**
+     * Packed RGB of the foreground of a style, with inverse applied
+     */
+    static int foreground(TextStyle style) {
+        boolean inverse = style.hasOption(TextStyle.Option.INVERSE);
+        return inverse ? rgb(style.getBackground(), DEFAULT_BACKGROUND) : rgb(style.getForeground(), DEFAULT_FOREGROUND);
+    }
+
+    /**
+     * Packed RGB of the background of a style, with inverse applied
+     */
+    static int background(TextStyle style) {
+        boolean inverse = style.hasOption(TextStyle.Option.INVERSE);
+        return inverse ? rgb(style.getForeground(), DEFAULT_FOREGROUND) : rgb(style.getBackground(), DEFAULT_BACKGROUND);
+    }
+
+    static int rgb(TerminalColor color, int fallback) {
+        if (color == null) {
+            return fallback;
+        }
+        if (!color.isIndexed()) {
+            com.jediterm.core.Color c = color.toColor();
+            return (c.getRed() << 16) | (c.getGreen() << 8) | c.getBlue();
+        }
+
+        int index = color.getColorIndex();
+        if (index < 16) {
+            return BASE[index];
+        }
+        if (index < 232) {
+            int i = index - 16;
+            return (cube(i / 36) << 16) | (cube((i / 6) % 6) << 8) | cube(i % 6);
+        }
+        int gray = 8 + (index - 232) * 10;
+        return (gray << 16) | (gray << 8) | gray;
+    }
+
+    private static int cube(int step) {
+        return step == 0 ? 0 : 55 + step * 40;
+    }
+
+    /**
+     * FX color for a packed RGB value; only called on the FX thread
+     */
+    static Color toFx(int rgb) {
+        return cache.computeIfAbsent(rgb, value -> Color.rgb((value >> 16) & 0xff, (value >> 8) & 0xff, value & 0xff));
+    }
+}
@@ -0,0 +1,53 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.TtyConnector;
+import com.ninja.terminal.util.TerminalMetrics;
+import javafx.scene.Node;
+
+/**
+ * Displays a terminal session inside a tab.
+ *
+ * A renderer owns the emulator that consumes the connector's output and the node that
+ * shows it. Implementations are chosen by the "terminal renderer" setting.
+ */
+public interface TerminalRenderer {
+
+    /**
+     * Node to place in the tab
+     */
+    Node getNode();
+
+    /**
+     * Start reading from the connector and displaying its output
+     */
+    void start(TtyConnector connector);
+
+    /**
+     * Inactive renderers keep feeding the emulator but skip painting until they are active again
+     */
+    void setActive(boolean active);
+
+    /**
+     * Release the visual resources of an inactive renderer. The session keeps running and
+     * the view is rebuilt when the renderer becomes active again. Renderers that cannot
+     * rebuild their view ignore it.
+     */
+    default void hibernate() {
+    }
+
+    /**
+     * Record keystrokes and, where the renderer can time them, paint times into the tab's metrics
+     */
+    default void setMetrics(TerminalMetrics metrics) {
+    }
+
+    /**
+     * Give keyboard focus to the terminal
+     */
+    void requestFocus();
+
+    /**
+     * Stop the emulator and release the node's resources
+     */
+    void close();
+}
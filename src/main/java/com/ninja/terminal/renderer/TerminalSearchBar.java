@@ -0,0 +1,96 @@
+package com.ninja.terminal.renderer;
+
+import javafx.animation.PauseTransition;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.input.ContextMenuEvent;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.HBox;
+import javafx.util.Duration;
+
+/**
+ * Search field shown over the terminal. Queries are reported after a short pause in typing;
+ * Enter and Shift+Enter step through matches and Escape closes the bar.
+ */
+final class TerminalSearchBar extends HBox {
+
+    interface Listener {
+        void onQuery(String query, boolean regex, boolean caseSensitive);
+
+        void onNext();
+
+        void onPrevious();
+
+        void onClose();
+    }
+
+    private final TextField queryField = new TextField();
+    private final CheckBox regexCheck = new CheckBox("Regex");
+    private final CheckBox caseCheck = new CheckBox("Match case");
+    private final Label statusLabel = new Label();
+    private final PauseTransition debounce = new PauseTransition(Duration.millis(200));
+
+    TerminalSearchBar(Listener listener) {
+        super(8);
+        setAlignment(Pos.CENTER_LEFT);
+        setPadding(new Insets(4, 8, 4, 8));
+        getStyleClass().add("sftp-toolbar");
+
+        queryField.setPromptText("Search scrollback");
+        queryField.setPrefWidth(220);
+        queryField.getStyleClass().add("search-field");
+        statusLabel.getStyleClass().add("status-label");
+
+        Button previousBtn = new Button("▲");
+        previousBtn.getStyleClass().add("action-btn-secondary");
+        previousBtn.setOnAction(e -> listener.onPrevious());
+        Button nextBtn = new Button("▼");
+        nextBtn.getStyleClass().add("action-btn-secondary");
+        nextBtn.setOnAction(e -> listener.onNext());
+        Button closeBtn = new Button("✕");
+        closeBtn.getStyleClass().add("action-btn-secondary");
+        closeBtn.setOnAction(e -> listener.onClose());
+
+        getChildren().addAll(queryField, regexCheck, caseCheck, previousBtn, nextBtn, statusLabel, closeBtn);
+
+        debounce.setOnFinished(e -> listener.onQuery(queryField.getText(), regexCheck.isSelected(), caseCheck.isSelected()));
+        queryField.textProperty().addListener((obs, old, text) -> debounce.playFromStart());
+        regexCheck.selectedProperty().addListener((obs, old, selected) -> debounce.playFromStart());
+        caseCheck.selectedProperty().addListener((obs, old, selected) -> debounce.playFromStart());
+
+        queryField.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER) {
+                if (e.isShiftDown()) {
+                    listener.onPrevious();
+                } else {
+                    listener.onNext();
+                }
+            } else if (e.getCode() == KeyCode.ESCAPE) {
+                listener.onClose();
+            }
+        });
+
+        // Keep keys and clicks from reaching the terminal underneath
+        addEventHandler(KeyEvent.ANY, KeyEvent::consume);
+        addEventHandler(MouseEvent.MOUSE_PRESSED, MouseEvent::consume);
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, MouseEvent::consume);
+        addEventHandler(ScrollEvent.SCROLL, ScrollEvent::consume);
+        addEventHandler(ContextMenuEvent.CONTEXT_MENU_REQUESTED, ContextMenuEvent::consume);
+    }
+
+    void focus() {
+        queryField.requestFocus();
+        queryField.selectAll();
+    }
+
+    void setStatus(String status) {
+        statusLabel.setText(status);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.Session;
+import com.ninja.terminal.util.CountingSocketFactory;
+import com.ninja.terminal.util.MeteredCompression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns SSH compression on and off for a session in auto mode.
+ *
+ * Every few seconds the wire throughput of the session and the CPU load of the process are
+ * sampled. While traffic flows slower than a fast link would carry it and the CPU is idle, the
+ * link is assumed to be the bottleneck and compression is enabled. If the data turns out not to
+ * compress or the CPU becomes the bottleneck, the level is lowered first and compression is
+ * disabled after that. Changes take effect through a key re-exchange.
+ */
+public class CompressionMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(CompressionMonitor.class);
+
+    static final String ZLIB_METHODS = "zlib@openssh.com,zlib,none";
+    static final int DEFAULT_LEVEL = 6;
+    static final int LOW_LEVEL = 1;
+
+    private static final long SAMPLE_INTERVAL_MS = 2000;
+    private static final int SUSTAINED_SAMPLES = 3;
+    private static final long MIN_SWITCH_INTERVAL_MS = 60_000;
+    private static final double MIN_ACTIVE_RATE = 16 * 1024;
+    private static final double FAST_LINK_RATE = 4 * 1024 * 1024;
+    private static final double CPU_IDLE = 0.5;
+    private static final double CPU_BUSY = 0.8;
+    private static final double MIN_USEFUL_RATIO = 1.1;
+
+    private static final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ssh-compression-monitor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Session session;
+    private final CountingSocketFactory socketFactory;
+    private final MeteredCompression.Meter meter;
+
+    private ScheduledFuture<?> task;
+    private long lastBytes;
+    private long lastSwitch;
+    private int streak;
+    private int level = DEFAULT_LEVEL;
+    private volatile boolean enabled;
+
+    public CompressionMonitor(Session session, CountingSocketFactory socketFactory, MeteredCompression.Meter meter) {
+        this.session = session;
+        this.socketFactory = socketFactory;
+        this.meter = meter;
+    }
+
+    public synchronized void start() {
+        lastBytes = wireBytes();
+        lastSwitch = System.currentTimeMillis();
+        task = sampler.scheduleWithFixedDelay(this::sample, SAMPLE_INTERVAL_MS, SAMPLE_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public int getLevel() { return level; }
+
+    private synchronized void sample() {
+        if (!session.isConnected()) {
+            stop();
+            return;
+        }
+
+        long bytes = wireBytes();
+        double rate = (bytes - lastBytes) * 1000.0 / SAMPLE_INTERVAL_MS;
+        lastBytes = bytes;
+
+        // Idle sessions say nothing about the link
+        if (rate < MIN_ACTIVE_RATE) {
+            streak = 0;
+            return;
+        }
+
+        double cpu = processCpuLoad();
+        boolean wantChange;
+        if (!enabled) {
+            wantChange = rate < FAST_LINK_RATE && cpu < CPU_IDLE;
+        } else {
+            double ratio = meter.getRatio();
+            wantChange = (ratio > 0 && ratio < MIN_USEFUL_RATIO) || cpu > CPU_BUSY;
+        }
+
+        streak = wantChange ? streak + 1 : 0;
+        if (streak < SUSTAINED_SAMPLES || System.currentTimeMillis() - lastSwitch < MIN_SWITCH_INTERVAL_MS) {
+            return;
+        }
+        streak = 0;
+
+        if (!enabled) {
+            apply(true, DEFAULT_LEVEL);
+        } else if (level > LOW_LEVEL && meter.getRatio() >= MIN_USEFUL_RATIO) {
+            // Compressible data but busy CPU: try a cheaper level before giving up
+            apply(true, LOW_LEVEL);
+        } else {
+            apply(false, DEFAULT_LEVEL);
+        }
+    }
+
+    private void apply(boolean enable, int newLevel) {
+        String methods = enable ? ZLIB_METHODS : "none";
+        session.setConfig("compression.s2c", methods);
+        session.setConfig("compression.c2s", methods);
+        session.setConfig("compression_level", String.valueOf(newLevel));
+        try {
+            session.rekey();
+            if (!enable) {
+                // The new keys use no compressor, so JSch creates none to replace the old ones
+                meter.reset();
+            }
+            enabled = enable;
+            level = newLevel;
+            lastSwitch = System.currentTimeMillis();
+            log.info("Compression for {} {} (level {})", session.getHost(), enable ? "enabled" : "disabled", newLevel);
+        } catch (Exception e) {
+            log.warn("Could not change compression for {}: {}", session.getHost(), e.getMessage());
+        }
+    }
+
+    private long wireBytes() {
+        return socketFactory.getBytesIn() + socketFactory.getBytesOut();
+    }
+
+    private static double processCpuLoad() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            double load = os.getProcessCpuLoad();
+            return load < 0 ? 0 : load;
+        }
+        return 0;
+    }
+}
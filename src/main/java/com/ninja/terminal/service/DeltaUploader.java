@@ -0,0 +1,446 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.ninja.terminal.util.RemoteExec;
+import com.ninja.terminal.util.RollingChecksum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * rsync-style delta upload.
+ *
+ * The remote file is split into fixed-size blocks whose Adler-32 and MD5 are computed on the
+ * server by a small Python helper run over an exec channel. The local file is scanned with a
+ * rolling Adler-32; windows that match a remote block are sent as block references, everything
+ * else as literal data. The helper rebuilds the file next to the original, checks the MD5 of
+ * the result and atomically replaces the original.
+ */
+public class DeltaUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(DeltaUploader.class);
+    private static final String HELPER_RESOURCE = "/scripts/delta_helper.py";
+    private static final int MAX_LITERAL = 256 * 1024;
+    private static final int MAX_COPY_BLOCKS = 1024;
+    private static final int MAX_COPY_BYTES = 64 * 1024 * 1024;
+
+    private static String helperScript;
+
+    /**
+     * Outcome of a delta upload
+     */
+    public static class Result {
+        private final long fileSize;
+        private final long literalBytes;
+        private final long matchedBytes;
+        private final TransferVerifier.Result check;
+
+        public Result(long fileSize, long literalBytes, long matchedBytes) {
+            this(fileSize, literalBytes, matchedBytes, null);
+        }
+
+        private Result(long fileSize, long literalBytes, long matchedBytes, TransferVerifier.Result check) {
+            this.fileSize = fileSize;
+            this.literalBytes = literalBytes;
+            this.matchedBytes = matchedBytes;
+            this.check = check;
+        }
+
+        Result withCheck(TransferVerifier.Result check) {
+            return new Result(fileSize, literalBytes, matchedBytes, check);
+        }
+
+        public long getFileSize() { return fileSize; }
+        public long getLiteralBytes() { return literalBytes; }
+        public long getMatchedBytes() { return matchedBytes; }
+
+        /** Result of the integrity check, null when verification is off */
+        public TransferVerifier.Result getCheck() { return check; }
+    }
+
+    private final Session session;
+    private final String python;
+
+    private DeltaUploader(Session session, String python) {
+        this.session = session;
+        this.python = python;
+    }
+
+    /**
+     * Create an uploader if the server has a Python interpreter for the helper, null otherwise
+     */
+    public static DeltaUploader probe(Session session) {
+        for (String candidate : new String[] { "python3", "python" }) {
+            if (RemoteExec.hasCommand(session, candidate)) {
+                return new DeltaUploader(session, candidate);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Block size used for a remote file, roughly sqrt(size) like rsync
+     */
+    static int blockSizeFor(long remoteSize) {
+        int size = (int) Math.min(128 * 1024, Math.max(2048, Math.sqrt((double) remoteSize)));
+        return (size + 1023) & ~1023;
+    }
+
+    /**
+     * Upload a local file over an existing remote file, sending only what changed
+     */
+    public Result upload(Path localFile, String remotePath, long remoteSize) throws IOException, JSchException {
+        int blockSize = blockSizeFor(remoteSize);
+        Map<Integer, List<Integer>> blocksByWeak = new HashMap<>();
+        List<byte[]> strong = new ArrayList<>();
+        readSignatures(remotePath, blockSize, remoteSize, blocksByWeak, strong);
+
+        ChannelExec channel = RemoteExec.open(session, helperCommand("patch", blockSize, remotePath));
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        channel.setErrStream(stderr);
+        InputStream remoteOut = channel.getInputStream();
+        OutputStream remoteIn = channel.getOutputStream();
+        channel.connect();
+
+        try {
+            Result delta = writeDelta(localFile, blockSize, blocksByWeak, strong, remoteIn);
+
+            byte[] result = remoteOut.readAllBytes();
+            waitForExit(channel);
+            if (channel.getExitStatus() != 0) {
+                throw new IOException("Delta upload failed: " + stderr.toString(StandardCharsets.UTF_8).trim());
+            }
+
+            log.info("Delta upload of {} ({} bytes): {} literal, {} matched, md5 {}",
+                    remotePath, delta.getFileSize(), delta.getLiteralBytes(), delta.getMatchedBytes(),
+                    new String(result, StandardCharsets.UTF_8));
+            return delta;
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    /**
+     * MD5 of each block of a remote file, computed on the server
+     */
+    public List<byte[]> blockDigests(String remotePath, int blockSize) throws IOException, JSchException {
+        List<byte[]> strong = new ArrayList<>();
+        // No full blocks means nothing gets indexed by weak checksum
+        readSignatures(remotePath, blockSize, 0, new HashMap<>(), strong);
+        return strong;
+    }
+
+    /**
+     * Fix an uploaded remote file in place by resending only the given blocks of the local file.
+     * All other blocks are copied from the remote file itself, and the helper checks the MD5 of
+     * the result before replacing it.
+     */
+    public void repair(Path localFile, String remotePath, int blockSize, Set<Integer> changed, byte[] md5)
+            throws IOException, JSchException {
+        ChannelExec channel = RemoteExec.open(session, helperCommand("patch", blockSize, remotePath));
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        channel.setErrStream(stderr);
+        InputStream remoteOut = channel.getInputStream();
+        DataOutputStream ops = new DataOutputStream(new BufferedOutputStream(channel.getOutputStream(), 256 * 1024));
+        channel.connect();
+
+        try (RandomAccessFile local = new RandomAccessFile(localFile.toFile(), "r")) {
+            DeltaWriter writer = new DeltaWriter(ops, blockSize);
+            long size = local.length();
+            byte[] buf = new byte[blockSize];
+            for (int index = 0; (long) index * blockSize < size; index++) {
+                if (!changed.contains(index)) {
+                    writer.copy(index);
+                    continue;
+                }
+                int length = (int) Math.min(blockSize, size - (long) index * blockSize);
+                local.seek((long) index * blockSize);
+                local.readFully(buf, 0, length);
+                writer.literal(buf, 0, length);
+            }
+            writer.finish(md5);
+
+            remoteOut.readAllBytes();
+            waitForExit(channel);
+            if (channel.getExitStatus() != 0) {
+                throw new IOException("Repair failed: " + stderr.toString(StandardCharsets.UTF_8).trim());
+            }
+            log.info("Repaired {} of {}: resent {} bytes", remotePath, localFile, writer.literalBytes);
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    private void readSignatures(String remotePath, int blockSize, long remoteSize,
+                                Map<Integer, List<Integer>> blocksByWeak, List<byte[]> strong)
+            throws IOException, JSchException {
+        ChannelExec channel = RemoteExec.open(session, helperCommand("sig", blockSize, remotePath));
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        channel.setErrStream(stderr);
+        InputStream in = channel.getInputStream();
+        channel.connect();
+
+        try {
+            // A short last block can only match at the very end of the local file, so it is not indexed
+            parseSignatures(in, remoteSize / blockSize, blocksByWeak, strong);
+
+            waitForExit(channel);
+            if (channel.getExitStatus() != 0) {
+                throw new IOException("Could not read remote signatures: "
+                        + stderr.toString(StandardCharsets.UTF_8).trim());
+            }
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    /**
+     * Read the block signatures written by the helper's sig mode
+     * @param fullBlocks Blocks to index by weak checksum
+     */
+    static void parseSignatures(InputStream signatures, long fullBlocks,
+                                Map<Integer, List<Integer>> blocksByWeak, List<byte[]> strong) throws IOException {
+        DataInputStream in = new DataInputStream(signatures);
+        for (int index = 0; ; index++) {
+            int weak;
+            byte[] md5 = new byte[16];
+            try {
+                weak = in.readInt();
+                in.readFully(md5);
+            } catch (EOFException e) {
+                return;
+            }
+            strong.add(md5);
+            if (index < fullBlocks) {
+                blocksByWeak.computeIfAbsent(weak, k -> new ArrayList<>(1)).add(index);
+            }
+        }
+    }
+
+    /**
+     * Write the ops for the helper's patch mode that turn the remote file into the local one
+     */
+    static Result writeDelta(Path localFile, int blockSize, Map<Integer, List<Integer>> blocksByWeak,
+                             List<byte[]> strong, OutputStream out) throws IOException {
+        DataOutputStream ops = new DataOutputStream(new BufferedOutputStream(out, 256 * 1024));
+        DeltaWriter writer = new DeltaWriter(ops, blockSize);
+        long fileSize = scan(localFile, blockSize, blocksByWeak, strong, writer);
+        return new Result(fileSize, writer.literalBytes, writer.matchedBytes);
+    }
+
+    /**
+     * Scan the local file with a rolling checksum and emit copy / literal ops
+     * @return Local file size
+     */
+    private static long scan(Path localFile, int blockSize, Map<Integer, List<Integer>> blocksByWeak,
+                      List<byte[]> strong, DeltaWriter writer) throws IOException {
+        MessageDigest fileDigest = md5();
+        MessageDigest blockDigest = md5();
+        RollingChecksum checksum = new RollingChecksum(blockSize);
+
+        byte[] buf = new byte[Math.max(blockSize * 8, 1024 * 1024)];
+        int len = 0;
+        int pos = 0;
+        int literalStart = 0;
+        boolean valid = false;
+        boolean eof = false;
+        long fileSize = 0;
+
+        try (InputStream in = Files.newInputStream(localFile)) {
+            while (true) {
+                // Keep at least one full window (plus the byte to roll in) in the buffer
+                if (!eof && len - pos <= blockSize) {
+                    writer.literal(buf, literalStart, pos - literalStart);
+                    System.arraycopy(buf, pos, buf, 0, len - pos);
+                    len -= pos;
+                    pos = 0;
+                    literalStart = 0;
+
+                    while (len < buf.length) {
+                        int read = in.read(buf, len, buf.length - len);
+                        if (read < 0) {
+                            eof = true;
+                            break;
+                        }
+                        fileDigest.update(buf, len, read);
+                        fileSize += read;
+                        len += read;
+                    }
+                }
+
+                if (len - pos < blockSize) {
+                    break;
+                }
+
+                if (!valid) {
+                    checksum.reset(buf, pos);
+                    valid = true;
+                }
+
+                int block = findBlock(checksum.getValue(), buf, pos, blockSize, blocksByWeak, strong, blockDigest);
+                if (block >= 0) {
+                    writer.literal(buf, literalStart, pos - literalStart);
+                    writer.copy(block);
+                    pos += blockSize;
+                    literalStart = pos;
+                    valid = false;
+                    continue;
+                }
+
+                if (pos + blockSize < len) {
+                    checksum.roll(buf[pos], buf[pos + blockSize]);
+                    pos++;
+                    if (pos - literalStart >= MAX_LITERAL) {
+                        writer.literal(buf, literalStart, pos - literalStart);
+                        literalStart = pos;
+                    }
+                } else if (eof) {
+                    break;
+                }
+            }
+
+            // Tail shorter than a block
+            writer.literal(buf, literalStart, len - literalStart);
+            writer.finish(fileDigest.digest());
+        }
+
+        return fileSize;
+    }
+
+    private static int findBlock(int weak, byte[] buf, int pos, int blockSize,
+                                 Map<Integer, List<Integer>> blocksByWeak, List<byte[]> strong,
+                                 MessageDigest blockDigest) {
+        List<Integer> candidates = blocksByWeak.get(weak);
+        if (candidates == null) {
+            return -1;
+        }
+
+        blockDigest.update(buf, pos, blockSize);
+        byte[] md5 = blockDigest.digest();
+        for (int candidate : candidates) {
+            if (Arrays.equals(md5, strong.get(candidate))) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Serializes ops for the helper, merging consecutive block references
+     */
+    private static class DeltaWriter {
+        private final DataOutputStream out;
+        private final int blockSize;
+        private final int maxRun;
+        private int runStart = -1;
+        private int runLength;
+        long literalBytes;
+        long matchedBytes;
+
+        DeltaWriter(DataOutputStream out, int blockSize) {
+            this.out = out;
+            this.blockSize = blockSize;
+            // The helper reads a whole run into memory
+            this.maxRun = Math.max(1, Math.min(MAX_COPY_BLOCKS, MAX_COPY_BYTES / blockSize));
+        }
+
+        void copy(int block) throws IOException {
+            if (runStart >= 0 && block == runStart + runLength && runLength < maxRun) {
+                runLength++;
+            } else {
+                flushRun();
+                runStart = block;
+                runLength = 1;
+            }
+            matchedBytes += blockSize;
+        }
+
+        void literal(byte[] buf, int offset, int length) throws IOException {
+            if (length <= 0) {
+                return;
+            }
+            flushRun();
+            out.writeByte('L');
+            out.writeInt(length);
+            out.write(buf, offset, length);
+            literalBytes += length;
+        }
+
+        void finish(byte[] md5) throws IOException {
+            flushRun();
+            out.writeByte('E');
+            out.write(md5);
+            out.flush();
+            out.close();
+        }
+
+        private void flushRun() throws IOException {
+            if (runStart < 0) {
+                return;
+            }
+            out.writeByte('C');
+            out.writeInt(runStart);
+            out.writeInt(runLength);
+            runStart = -1;
+            runLength = 0;
+        }
+    }
+
+    private String helperCommand(String mode, int blockSize, String remotePath) throws IOException {
+        return python + " -c " + RemoteExec.quote(loadHelper()) + " " + mode + " " + blockSize + " "
+                + RemoteExec.quote(remotePath);
+    }
+
+    private static synchronized String loadHelper() throws IOException {
+        if (helperScript == null) {
+            try (InputStream in = DeltaUploader.class.getResourceAsStream(HELPER_RESOURCE)) {
+                if (in == null) {
+                    throw new IOException("Missing resource " + HELPER_RESOURCE);
+                }
+                helperScript = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        return helperScript;
+    }
+
+    private static void waitForExit(ChannelExec channel) throws IOException {
+        while (!channel.isClosed()) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for remote helper", e);
+            }
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ninja.terminal.service;
+
+import com.ninja.terminal.model.RemoteFile;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-session LRU cache of remote directory listings keyed by absolute path.
+ * Bounded both by number of directories and by total number of cached entries.
+ */
+public class DirectoryListingCache {
+
+    private static final int MAX_DIRECTORIES = 256;
+    private static final int MAX_FILES = 100_000;
+
+    public static class Entry {
+        private final List<RemoteFile> files;
+        private final long fetchedAt;
+
+        public Entry(List<RemoteFile> files, long fetchedAt) {
+            this.files = files;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public List<RemoteFile> getFiles() { return files; }
+        public long getFetchedAt() { return fetchedAt; }
+
+        /**
+         * Check whether the entry is younger than the given TTL
+         */
+        public boolean isFresh(long ttlMillis) {
+            return System.currentTimeMillis() - fetchedAt < ttlMillis;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private int totalFiles;
+
+    /**
+     * Get a cached listing, or null if the path is not cached
+     */
+    public synchronized Entry get(String path) {
+        return entries.get(normalize(path));
+    }
+
+    /**
+     * Store a listing. Listings too large for the cache are not stored.
+     */
+    public synchronized void put(String path, List<RemoteFile> files) {
+        if (files.size() > MAX_FILES / 4) {
+            invalidate(path);
+            return;
+        }
+
+        Entry previous = entries.put(normalize(path),
+                new Entry(List.copyOf(files), System.currentTimeMillis()));
+        if (previous != null) {
+            totalFiles -= previous.getFiles().size();
+        }
+        totalFiles += files.size();
+
+        evict();
+    }
+
+    /**
+     * Drop the listing of a single directory
+     */
+    public synchronized void invalidate(String path) {
+        Entry removed = entries.remove(normalize(path));
+        if (removed != null) {
+            totalFiles -= removed.getFiles().size();
+        }
+    }
+
+    /**
+     * Drop the listing of a directory and of everything below it
+     */
+    public synchronized void invalidateTree(String path) {
+        String root = normalize(path);
+        String prefix = root.endsWith("/") ? root : root + "/";
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (e.getKey().equals(root) || e.getKey().startsWith(prefix)) {
+                totalFiles -= e.getValue().getFiles().size();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalFiles = 0;
+    }
+
+    /**
+     * Evict least recently used listings until both caps are met
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && (entries.size() > MAX_DIRECTORIES || totalFiles > MAX_FILES)) {
+            Map.Entry<String, Entry> eldest = it.next();
+            totalFiles -= eldest.getValue().getFiles().size();
+            it.remove();
+        }
+    }
+
+    private static String normalize(String path) {
+        if (path.length() > 1 && path.endsWith("/")) {
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+}
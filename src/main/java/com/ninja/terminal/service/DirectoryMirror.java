@@ -0,0 +1,677 @@
+package com.ninja.terminal.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.model.MirrorManifest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a remote directory in sync with a local one.
+ *
+ * A {@link WatchService} reports local changes, which are collected and flushed after a short
+ * quiet period (or at the latest after {@code MAX_DELAY_MS} during a steady stream of events).
+ * A flush deletes what disappeared locally, creates new directories and uploads changed files
+ * in parallel over pooled channels, verified when transfer verification is on. A manifest of size, mtime and SHA-256 per file is kept
+ * under the config directory so files whose content did not change are never re-sent, also
+ * across restarts.
+ */
+public class DirectoryMirror {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryMirror.class);
+    private static final long DEBOUNCE_MS = 100;
+    private static final long MAX_DELAY_MS = 500;
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+    private static final Set<String> IGNORED_NAMES = Set.of(".git", ".DS_Store", ".idea");
+
+    /**
+     * Sync callbacks, invoked from the mirror's threads
+     */
+    public interface Listener {
+        void onSynced(int uploaded, int deleted, long elapsedMillis);
+        void onError(String path, Exception e);
+    }
+
+    private final SftpService sftpService;
+    private final Path localRoot;
+    private final String remoteRoot;
+    private final Path manifestFile;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+
+    private MirrorManifest manifest;
+    private WatchService watchService;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService uploaders;
+    private ScheduledFuture<?> flushTask;
+    private long firstPendingAt;
+    private Listener listener;
+    private volatile boolean running;
+
+    public DirectoryMirror(SftpService sftpService, Path localRoot, String remoteRoot) {
+        this.sftpService = sftpService;
+        this.localRoot = localRoot.toAbsolutePath().normalize();
+        this.remoteRoot = remoteRoot;
+        this.manifestFile = Paths.get(System.getProperty("user.home"), ".ninja-in-terminal", "mirrors",
+                manifestName(sftpService.getSession(), this.localRoot, remoteRoot));
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    public Path getLocalRoot() { return localRoot; }
+
+    public String getRemoteRoot() { return remoteRoot; }
+
+    public boolean isRunning() { return running; }
+
+    /**
+     * Start watching and push everything that changed since the last run
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        if (!Files.isDirectory(localRoot)) {
+            throw new IOException("Not a directory: " + localRoot);
+        }
+
+        manifest = loadManifest();
+        watchService = FileSystems.getDefault().newWatchService();
+        registerAll(localRoot);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sftp-mirror");
+            t.setDaemon(true);
+            return t;
+        });
+        // Each upload holds a pooled channel
+        int parallelism = sftpService.getChannelPool().getWorkerBudget();
+        uploaders = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "sftp-mirror-upload");
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+
+        Thread watcher = new Thread(this::watchLoop, "sftp-mirror-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        // Initial full comparison against the manifest
+        scheduler.execute(() -> {
+            try {
+                withChannel(channel -> mkdir(channel, remoteRoot));
+            } catch (Exception e) {
+                reportError(remoteRoot, e);
+            }
+        });
+        pending.add(localRoot);
+        scheduler.execute(this::flush);
+        log.info("Mirroring {} to {}", localRoot, remoteRoot);
+    }
+
+    /**
+     * Stop watching. Transfers already running are allowed to finish in the background, since
+     * interrupting a JSch transfer can leave its pooled channel unusable; the manifest is saved
+     * once they are done.
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.debug("Error closing watch service", e);
+        }
+        watchKeys.clear();
+
+        ExecutorService flushing = scheduler;
+        ExecutorService uploading = uploaders;
+        flushing.shutdown();
+        uploading.shutdown();
+        Thread stopper = new Thread(() -> {
+            awaitTermination(flushing);
+            awaitTermination(uploading);
+            saveManifest();
+            log.info("Stopped mirroring {}", localRoot);
+        }, "sftp-mirror-stop");
+        stopper.setDaemon(true);
+        stopper.start();
+    }
+
+    /**
+     * Wait for an executor's tasks, interrupting them only if they do not finish in time.
+     * Channels whose transfer is interrupted are discarded by {@link #withChannel}.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            if (executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return;
+            }
+            log.warn("Mirror transfers did not finish within {} s, interrupting them", STOP_TIMEOUT_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+    }
+
+    private void watchLoop() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = watchKeys.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were lost, compare the whole tree again
+                        pending.add(localRoot);
+                        continue;
+                    }
+
+                    Path child = dir.resolve((Path) event.context());
+                    if (isIgnored(child)) {
+                        continue;
+                    }
+                    // Some platforms report a directory as modified whenever its contents change,
+                    // the contents report their own events
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && Files.isDirectory(child)) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                        try {
+                            registerAll(child);
+                        } catch (IOException e) {
+                            log.warn("Cannot watch {}: {}", child, e.getMessage());
+                        }
+                    }
+                    pending.add(child);
+                }
+            }
+
+            if (!key.reset()) {
+                watchKeys.remove(key);
+            }
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Flush after a quiet period, but never later than MAX_DELAY_MS after the first pending change
+     */
+    private synchronized void scheduleFlush() {
+        if (!running || pending.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (firstPendingAt == 0) {
+            firstPendingAt = now;
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        long delay = Math.max(0, Math.min(DEBOUNCE_MS, firstPendingAt + MAX_DELAY_MS - now));
+        flushTask = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Push all pending changes. Runs on the single scheduler thread, so flushes never overlap.
+     */
+    private void flush() {
+        synchronized (this) {
+            firstPendingAt = 0;
+        }
+        if (!running) {
+            return;
+        }
+        List<Path> changed = new ArrayList<>(pending);
+        pending.removeAll(changed);
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Set<String> files = new TreeSet<>();
+        Set<String> directories = new TreeSet<>();
+        Set<String> removed = new TreeSet<>();
+
+        for (Path path : changed) {
+            String rel = relative(path);
+            if (Files.isDirectory(path)) {
+                scanDirectory(path, rel, files, directories, removed);
+            } else if (Files.isRegularFile(path)) {
+                files.add(rel);
+            } else if (Files.notExists(path)) {
+                removed.add(rel);
+            }
+        }
+
+        int deleted = deleteRemote(removed);
+        createDirectories(directories);
+        int uploaded = uploadChanged(files);
+
+        saveManifest();
+        sftpService.invalidateCachedTree(remoteRoot);
+
+        if (uploaded > 0 || deleted > 0) {
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("Mirror sync: {} uploaded, {} deleted in {} ms", uploaded, deleted, elapsed);
+            if (listener != null) {
+                listener.onSynced(uploaded, deleted, elapsed);
+            }
+        }
+    }
+
+    /**
+     * Collect a directory's contents and the manifest entries below it that no longer exist.
+     * Entries at or below a path that could not be read are kept, since a failed read says
+     * nothing about whether they still exist.
+     */
+    private void scanDirectory(Path dir, String rel, Set<String> files, Set<String> directories, Set<String> removed) {
+        Set<String> seen = new HashSet<>();
+        List<String> unreadable = new ArrayList<>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    if (!d.equals(dir) && isIgnored(d)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    String r = relative(d);
+                    if (!r.isEmpty()) {
+                        directories.add(r);
+                        seen.add(r);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !isIgnored(f)) {
+                        String r = relative(f);
+                        files.add(r);
+                        seen.add(r);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path f, IOException e) {
+                    log.debug("Cannot read {}: {}", f, e.getMessage());
+                    unreadable.add(relative(f));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Cannot scan {}: {}", dir, e.getMessage());
+            return;
+        }
+
+        String prefix = rel.isEmpty() ? "" : rel + "/";
+        for (String known : manifest.getFiles().keySet()) {
+            if (known.startsWith(prefix) && !seen.contains(known) && !isBelowAny(known, unreadable)) {
+                removed.add(known);
+            }
+        }
+        for (String known : manifest.getDirectories()) {
+            if (known.startsWith(prefix) && !seen.contains(known) && !isBelowAny(known, unreadable)) {
+                removed.add(known);
+            }
+        }
+    }
+
+    private static boolean isBelowAny(String rel, List<String> roots) {
+        for (String root : roots) {
+            if (root.isEmpty() || rel.equals(root) || rel.startsWith(root + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Delete removed files and directories remotely. Entries below a removed directory go with it.
+     */
+    private int deleteRemote(Set<String> removed) {
+        int deleted = 0;
+        String lastDirectory = null;
+
+        // Sorted, so a directory always comes right before its contents
+        for (String rel : removed) {
+            if (!running) {
+                break;
+            }
+            if (lastDirectory != null && rel.startsWith(lastDirectory + "/")) {
+                continue;
+            }
+
+            String remotePath = remotePath(rel);
+            try {
+                if (manifest.getDirectories().contains(rel)) {
+                    lastDirectory = rel;
+                    sftpService.deleteDirectory(remotePath);
+                    forgetTree(rel);
+                    deleted++;
+                } else if (manifest.getFiles().containsKey(rel)) {
+                    withChannel(channel -> channel.rm(remotePath));
+                    manifest.getFiles().remove(rel);
+                    deleted++;
+                }
+            } catch (SftpException e) {
+                if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                    forgetTree(rel);
+                } else {
+                    reportError(rel, e);
+                }
+            } catch (Exception e) {
+                reportError(rel, e);
+            }
+        }
+        return deleted;
+    }
+
+    private void createDirectories(Set<String> directories) {
+        // Sorted, so parents are created before their children
+        for (String rel : directories) {
+            if (!running) {
+                break;
+            }
+            if (manifest.getDirectories().contains(rel)) {
+                continue;
+            }
+            try {
+                withChannel(channel -> mkdir(channel, remotePath(rel)));
+                manifest.getDirectories().add(rel);
+            } catch (Exception e) {
+                reportError(rel, e);
+            }
+        }
+    }
+
+    /**
+     * Upload files whose content differs from the manifest
+     * @return Number of files uploaded
+     */
+    private int uploadChanged(Set<String> files) {
+        AtomicInteger uploaded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        TransferVerifier verifier = sftpService.getVerifierIfEnabled();
+
+        for (String rel : files) {
+            if (!running) {
+                break;
+            }
+            Path local = localRoot.resolve(rel);
+            MirrorManifest.FileState state;
+            try {
+                state = currentState(rel, local);
+            } catch (IOException e) {
+                // Deleted again before we got to it; the delete event follows
+                continue;
+            }
+            if (state == null) {
+                continue;
+            }
+
+            try {
+                futures.add(uploaders.submit(() -> {
+                    try {
+                        withChannel(channel -> {
+                            if (verifier != null) {
+                                verifier.upload(channel, local.toString(), remotePath(rel), null);
+                            } else {
+                                channel.put(local.toString(), remotePath(rel), ChannelSftp.OVERWRITE);
+                            }
+                        });
+                        manifest.getFiles().put(rel, state);
+                        uploaded.incrementAndGet();
+                    } catch (Exception e) {
+                        reportError(rel, e);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                // Stopped meanwhile
+                break;
+            }
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Mirror upload failed", e.getCause());
+            }
+        }
+        return uploaded.get();
+    }
+
+    /**
+     * State of a local file if it needs uploading, null if the remote copy is already current.
+     * The hash is only computed when size or mtime differ from the manifest.
+     */
+    private MirrorManifest.FileState currentState(String rel, Path local) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(local, BasicFileAttributes.class);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+
+        MirrorManifest.FileState known = manifest.getFiles().get(rel);
+        if (known != null && known.getSize() == size && known.getModifiedTime() == modified) {
+            return null;
+        }
+
+        String hash = sha256(local);
+        if (known != null && known.getSize() == size && hash.equals(known.getHash())) {
+            // Touched but unchanged
+            known.setModifiedTime(modified);
+            return null;
+        }
+        return new MirrorManifest.FileState(size, modified, hash);
+    }
+
+    private void forgetTree(String rel) {
+        String prefix = rel + "/";
+        manifest.getFiles().keySet().removeIf(k -> k.equals(rel) || k.startsWith(prefix));
+        manifest.getDirectories().removeIf(k -> k.equals(rel) || k.startsWith(prefix));
+    }
+
+    private interface ChannelAction {
+        void run(ChannelSftp channel) throws SftpException, IOException;
+    }
+
+    private void withChannel(ChannelAction action) throws SftpException, IOException, InterruptedException {
+        SftpChannelPool pool = sftpService.getChannelPool();
+        ChannelSftp channel;
+        try {
+            channel = pool.acquire();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+        boolean reusable = false;
+        try {
+            action.run(channel);
+            reusable = true;
+        } catch (SftpException e) {
+            // A status reply from the server leaves the channel in a known state
+            reusable = e.getCause() == null;
+            throw e;
+        } finally {
+            if (reusable) {
+                pool.release(channel);
+            } else {
+                pool.discard(channel);
+            }
+        }
+    }
+
+    private static void mkdir(ChannelSftp channel, String path) throws SftpException {
+        try {
+            channel.mkdir(path);
+        } catch (SftpException e) {
+            // Already exists
+            if (e.id != ChannelSftp.SSH_FX_FAILURE) {
+                throw e;
+            }
+        }
+    }
+
+    private void registerAll(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                if (!d.equals(localRoot) && isIgnored(d)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = d.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchKeys.put(key, d);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path f, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isIgnored(Path path) {
+        for (Path part : localRoot.relativize(path)) {
+            String name = part.toString();
+            if (IGNORED_NAMES.contains(name) || name.endsWith("~") || name.endsWith(".swp")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String relative(Path path) {
+        return localRoot.relativize(path).toString().replace('\\', '/');
+    }
+
+    private String remotePath(String rel) {
+        if (rel.isEmpty()) {
+            return remoteRoot;
+        }
+        return remoteRoot.endsWith("/") ? remoteRoot + rel : remoteRoot + "/" + rel;
+    }
+
+    private void reportError(String rel, Exception e) {
+        log.warn("Mirror sync of {} failed: {}", rel, e.getMessage());
+        if (listener != null) {
+            listener.onError(rel, e);
+        }
+    }
+
+    private MirrorManifest loadManifest() {
+        MirrorManifest loaded = null;
+        if (Files.exists(manifestFile)) {
+            try {
+                loaded = objectMapper.readValue(manifestFile.toFile(), MirrorManifest.class);
+            } catch (IOException e) {
+                log.warn("Failed to load mirror manifest, doing a full sync", e);
+            }
+        }
+        if (loaded == null) {
+            loaded = new MirrorManifest();
+            loaded.setLocalRoot(localRoot.toString());
+            loaded.setRemoteRoot(remoteRoot);
+        }
+
+        // Updated concurrently by the upload workers
+        loaded.setFiles(new ConcurrentHashMap<>(loaded.getFiles()));
+        Set<String> directories = ConcurrentHashMap.newKeySet();
+        directories.addAll(loaded.getDirectories());
+        loaded.setDirectories(directories);
+        return loaded;
+    }
+
+    private synchronized void saveManifest() {
+        if (manifest == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(manifestFile.getParent());
+            Path tmp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+            objectMapper.writeValue(tmp.toFile(), manifest);
+            Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to save mirror manifest", e);
+        }
+    }
+
+    private static String manifestName(Session session, Path localRoot, String remoteRoot) {
+        String key = session.getUserName() + "@" + session.getHost() + ":" + session.getPort()
+                + "|" + localRoot + "|" + remoteRoot;
+        byte[] digest = digest().digest(key.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest, 0, 12) + ".json";
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest md = digest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                md.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ninja.terminal.service;
+
+import com.ninja.terminal.model.RemoteFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Lists likely next directories in the background so drilling down hits the listing cache.
+ *
+ * Candidates are the subdirectories of the directory just shown, ranked by how often and
+ * how recently they were visited. At most {@code budget} listings run at once, and
+ * queued work is dropped as soon as the user navigates elsewhere.
+ */
+public class DirectoryPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryPrefetcher.class);
+    private static final int MAX_HISTORY = 1000;
+
+    /**
+     * Lists a directory into the cache on a spare channel
+     */
+    public interface Loader {
+        void load(String path) throws Exception;
+    }
+
+    private static class Visit {
+        int count;
+        long lastVisit;
+    }
+
+    private final Loader loader;
+    private final ExecutorService executor;
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, Visit> history = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Visit> eldest) {
+            return size() > MAX_HISTORY;
+        }
+    };
+
+    public DirectoryPrefetcher(Loader loader, int budget) {
+        this.loader = loader;
+        this.executor = new ThreadPoolExecutor(budget, budget, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "sftp-prefetch");
+                    t.setDaemon(true);
+                    return t;
+                });
+        ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Record a visit to a directory
+     */
+    public synchronized void recordVisit(String path) {
+        Visit visit = history.computeIfAbsent(path, p -> new Visit());
+        visit.count++;
+        visit.lastVisit = System.currentTimeMillis();
+    }
+
+    /**
+     * Prefetch the most likely subdirectories of a listing, replacing any pending prefetches
+     * @param shouldLoad Filter for paths that still need loading (e.g. not already cached)
+     */
+    public void prefetch(List<RemoteFile> listing, int count, Predicate<String> shouldLoad) {
+        long current = generation.incrementAndGet();
+
+        List<String> directories = listing.stream()
+                .filter(RemoteFile::isDirectory)
+                .map(RemoteFile::getFullPath)
+                .filter(shouldLoad)
+                .toList();
+        Map<String, Double> scores = scores(directories);
+        List<String> candidates = directories.stream()
+                .sorted(Comparator.comparingDouble((String path) -> scores.get(path)).reversed())
+                .limit(count)
+                .toList();
+
+        for (String path : candidates) {
+            executor.execute(() -> {
+                // Skip work queued for a directory the user has already left
+                if (generation.get() != current) {
+                    return;
+                }
+                try {
+                    loader.load(path);
+                    log.debug("Prefetched {}", path);
+                } catch (Exception e) {
+                    log.debug("Prefetch of {} failed: {}", path, e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Score every path against the same time, so the ranking cannot change while it is sorted:
+     * visit frequency, decayed by how long ago the last visit was
+     */
+    private synchronized Map<String, Double> scores(List<String> paths) {
+        long now = System.currentTimeMillis();
+        Map<String, Double> scores = new HashMap<>(paths.size() * 2);
+        for (String path : paths) {
+            Visit visit = history.get(path);
+            double score = 0;
+            if (visit != null) {
+                double hoursAgo = (now - visit.lastVisit) / 3_600_000.0;
+                score = visit.count / (1.0 + hoursAgo);
+            }
+            scores.put(path, score);
+        }
+        return scores;
+    }
+
+    public void shutdown() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,349 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.model.RemoteFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies one operation to many selected entries.
+ *
+ * The entries go into a shared queue drained by one worker per pooled channel; each worker
+ * keeps its channel and issues its requests back-to-back, so the round trips of different
+ * entries overlap instead of running one after another. A failing entry is recorded and the
+ * batch carries on, and progress is reported for the batch as a whole. Downloading a directory
+ * downloads everything below it on the worker's channel. With a {@link TransferVerifier} set,
+ * every downloaded file is verified on that same channel.
+ */
+public class RemoteBatchTask {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteBatchTask.class);
+
+    public enum Operation {
+        DELETE("Deleting", "Deleted"),
+        DOWNLOAD("Downloading", "Downloaded"),
+        CHMOD("Changing permissions of", "Changed permissions of"),
+        MOVE("Moving", "Moved");
+
+        private final String active;
+        private final String done;
+
+        Operation(String active, String done) {
+            this.active = active;
+            this.done = done;
+        }
+
+        public String getActive() { return active; }
+        public String getDone() { return done; }
+    }
+
+    /**
+     * Progress callback, invoked from worker threads
+     */
+    public interface Listener {
+        void onProgress(long completed, long total);
+    }
+
+    private final Session session;
+    private final SftpChannelPool pool;
+    private final Operation operation;
+    private final List<RemoteFile> files;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+    private final Set<RemoteDeleteTask> activeTrees = ConcurrentHashMap.newKeySet();
+
+    private Listener listener;
+    private Runnable onFinished;
+    private String localDirectory;
+    private String targetDirectory;
+    private int permissions;
+    private boolean execFallback;
+    private TransferVerifier verifier;
+    private volatile long startNanos;
+    private long elapsedMillis;
+
+    public RemoteBatchTask(Session session, SftpChannelPool pool, Operation operation, List<RemoteFile> files) {
+        this.session = session;
+        this.pool = pool;
+        this.operation = operation;
+        this.files = List.copyOf(files);
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    /** Destination for {@link Operation#DOWNLOAD} */
+    public void setLocalDirectory(String localDirectory) { this.localDirectory = localDirectory; }
+
+    /** Destination for {@link Operation#MOVE} */
+    public void setTargetDirectory(String targetDirectory) { this.targetDirectory = targetDirectory; }
+
+    /** Mode for {@link Operation#CHMOD} */
+    public void setPermissions(int permissions) { this.permissions = permissions; }
+
+    /** Called on the running thread when the batch ends, whether it succeeded, failed or was cancelled */
+    public void setOnFinished(Runnable onFinished) { this.onFinished = onFinished; }
+
+    /** Verify downloaded files, null to skip verification */
+    public void setVerifier(TransferVerifier verifier) { this.verifier = verifier; }
+
+    /** Allow "rm -rf" for directories when deleting, see {@link RemoteDeleteTask} */
+    public void setExecFallback(boolean execFallback) { this.execFallback = execFallback; }
+
+    public Operation getOperation() { return operation; }
+
+    public List<RemoteFile> getFiles() { return files; }
+
+    public String getTargetDirectory() { return targetDirectory; }
+
+    public long getCompleted() { return completed.get(); }
+
+    /** Entries of the batch that failed or were never processed */
+    public long getFailed() { return failed.get(); }
+
+    public int getTotal() { return files.size(); }
+
+    public long getBytesTransferred() { return bytes.get(); }
+
+    /**
+     * What failed, as "path: reason"; for a directory download, the entries below it that
+     * could not be downloaded
+     */
+    public List<String> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    /**
+     * Entries finished per second so far
+     */
+    public double getOpsPerSecond() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long millis = elapsedMillis > 0 ? elapsedMillis : (System.nanoTime() - start) / 1_000_000;
+        return completed.get() * 1000.0 / Math.max(1, millis);
+    }
+
+    /**
+     * Request cancellation. Entries already in flight finish, nothing new is started.
+     */
+    public void cancel() {
+        cancelled.set(true);
+        activeTrees.forEach(RemoteDeleteTask::cancel);
+    }
+
+    /**
+     * Run the batch on the calling thread
+     * @throws CancellationException if cancelled before every entry was processed
+     */
+    public void run() throws InterruptedException {
+        long start = System.nanoTime();
+        startNanos = start;
+        ConcurrentLinkedQueue<RemoteFile> queue = new ConcurrentLinkedQueue<>(files);
+        int workerCount = Math.max(1, Math.min(pool.getWorkerBudget(), files.size()));
+
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "sftp-batch");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(workers.submit(() -> {
+                    drain(queue);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // A worker that dies leaves its entries unprocessed; report them as failed
+                    log.error("Batch worker failed", e.getCause());
+                    failures.add(operation.getActive() + " stopped: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }
+
+        log.info("{} {} of {} entries in {} ms ({} ops/s, {} failed)",
+                operation.getDone(), completed.get(), files.size(), elapsedMillis,
+                String.format("%.1f", getOpsPerSecond()), failures.size());
+
+        if (cancelled.get() && completed.get() + failed.get() < files.size()) {
+            throw new CancellationException(operation.getActive() + " cancelled");
+        }
+        // Entries left in the queue by a dead worker
+        long unprocessed = files.size() - completed.get() - failed.get();
+        for (RemoteFile file : queue) {
+            if (unprocessed-- <= 0) {
+                break;
+            }
+            failed.incrementAndGet();
+            failures.add(file.getFullPath() + ": not processed");
+        }
+    }
+
+    /**
+     * Process queued entries on one channel until the queue is empty.
+     * Directory deletes run their own parallel walk and use the pool themselves.
+     */
+    private void drain(ConcurrentLinkedQueue<RemoteFile> queue) throws Exception {
+        ChannelSftp channel = null;
+        try {
+            RemoteFile file;
+            while (!cancelled.get() && (file = queue.poll()) != null) {
+                try {
+                    if (operation == Operation.DELETE && file.isDirectory()) {
+                        // Hand the channel back so the tree delete can use every channel
+                        pool.release(channel);
+                        channel = null;
+                        deleteTree(file);
+                    } else {
+                        if (channel == null || !channel.isConnected()) {
+                            pool.release(channel);
+                            channel = null;
+                            channel = pool.acquire();
+                        }
+                        apply(channel, file);
+                    }
+                    completed.incrementAndGet();
+                } catch (SftpException | JSchException | IOException | RuntimeException e) {
+                    if (e instanceof CancellationException && cancelled.get()) {
+                        // A tree delete stopped by cancel() is neither done nor failed
+                        break;
+                    }
+                    log.warn("{} {} failed: {}", operation.getActive(), file.getFullPath(), e.getMessage());
+                    failed.incrementAndGet();
+                    failures.add(file.getFullPath() + ": " + e.getMessage());
+                }
+                reportProgress();
+            }
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    private void apply(ChannelSftp channel, RemoteFile file) throws SftpException, IOException {
+        String path = file.getFullPath();
+        switch (operation) {
+            case DELETE -> channel.rm(path);
+            case DOWNLOAD -> {
+                File local = new File(localDirectory, file.getFilename());
+                if (file.isDirectory()) {
+                    downloadTree(channel, path, local);
+                } else {
+                    download(channel, path, local);
+                    bytes.addAndGet(file.getSize());
+                }
+            }
+            case CHMOD -> channel.chmod(permissions, path);
+            case MOVE -> {
+                String target = targetDirectory.endsWith("/") ? targetDirectory : targetDirectory + "/";
+                channel.rename(path, target + file.getFilename());
+            }
+        }
+    }
+
+    /**
+     * Download a directory and everything below it. Links to directories are not followed.
+     * An entry that fails is recorded in the failures and the rest is still downloaded.
+     */
+    @SuppressWarnings("unchecked")
+    private void downloadTree(ChannelSftp channel, String remoteDir, File localDir) throws SftpException, IOException {
+        Files.createDirectories(localDir.toPath());
+        Vector<ChannelSftp.LsEntry> entries = channel.ls(remoteDir);
+        for (ChannelSftp.LsEntry entry : entries) {
+            String filename = entry.getFilename();
+
+            // Skip . and ..
+            if (".".equals(filename) || "..".equals(filename)) {
+                continue;
+            }
+            if (cancelled.get()) {
+                throw new CancellationException(operation.getActive() + " cancelled");
+            }
+
+            String remotePath = remoteDir.endsWith("/") ? remoteDir + filename : remoteDir + "/" + filename;
+            File local = new File(localDir, filename);
+            try {
+                if (entry.getAttrs().isDir()) {
+                    downloadTree(channel, remotePath, local);
+                } else {
+                    download(channel, remotePath, local);
+                    bytes.addAndGet(entry.getAttrs().getSize());
+                }
+            } catch (SftpException | IOException | RuntimeException e) {
+                if (e instanceof CancellationException) {
+                    throw e;
+                }
+                log.warn("{} {} failed: {}", operation.getActive(), remotePath, e.getMessage());
+                failures.add(remotePath + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void download(ChannelSftp channel, String remotePath, File local) throws SftpException, IOException {
+        if (verifier == null) {
+            channel.get(remotePath, local.getPath());
+            return;
+        }
+        TransferVerifier.Result result = verifier.download(channel, remotePath, local.getPath(), null);
+        log.debug("Downloaded {} ({})", remotePath, result);
+    }
+
+    private void deleteTree(RemoteFile directory) throws SftpException, InterruptedException {
+        RemoteDeleteTask task = new RemoteDeleteTask(session, pool, directory.getFullPath());
+        task.setExecFallback(execFallback);
+        activeTrees.add(task);
+        try {
+            if (cancelled.get()) {
+                task.cancel();
+            }
+            task.run();
+        } finally {
+            activeTrees.remove(task);
+        }
+    }
+
+    private void reportProgress() {
+        if (listener != null) {
+            listener.onProgress(completed.get() + failed.get(), files.size());
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.util.RemoteExec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies a file or directory tree from one SFTP session to another without touching local disk.
+ *
+ * Each file is streamed through a bounded in-memory queue: a reader thread pulls chunks from
+ * the source channel while the writer pushes them to the target channel, so both round trips
+ * overlap and a slow side applies backpressure to the other. Files of a tree are copied in
+ * parallel over pooled channels on both sides; the chunks of one file are written in order,
+ * since JSch opens offset writes in append mode and the server then ignores the offset.
+ *
+ * A directory is merged into the target path, symbolic links are recreated as links, and
+ * other special files are skipped and reported. A file left incomplete by a failure or a
+ * cancellation is removed from the target.
+ *
+ * When enabled and the source host can reach the target non-interactively, the copy is done
+ * directly between the servers with rsync over an exec channel instead, with the same layout.
+ */
+public class RemoteCopyTask {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteCopyTask.class);
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int QUEUE_CHUNKS = 16;
+    private static final byte[] EOF = new byte[0];
+    private static final int READER_STOP_SECONDS = 10;
+
+    /**
+     * Progress callback, invoked from worker threads
+     */
+    public interface Listener {
+        void onProgress(long bytesCopied, long bytesTotal);
+    }
+
+    private final SftpService source;
+    private final SftpService target;
+    private final String sourcePath;
+    private final String targetPath;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicLong bytesCopied = new AtomicLong();
+    private final AtomicLong bytesTotal = new AtomicLong();
+    private final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+
+    private Listener listener;
+    private boolean directTransfer;
+
+    public RemoteCopyTask(SftpService source, SftpService target, String sourcePath, String targetPath) {
+        this.source = source;
+        this.target = target;
+        this.sourcePath = sourcePath;
+        this.targetPath = targetPath;
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    public void setDirectTransfer(boolean directTransfer) { this.directTransfer = directTransfer; }
+
+    public long getBytesCopied() { return bytesCopied.get(); }
+
+    public long getBytesTotal() { return bytesTotal.get(); }
+
+    /**
+     * Entries that were not copied, as "path: reason"
+     */
+    public List<String> getSkipped() {
+        synchronized (skipped) {
+            return new ArrayList<>(skipped);
+        }
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Run the copy on the calling thread
+     * @throws CancellationException if cancelled before completion
+     */
+    public void run() throws SftpException, IOException, InterruptedException {
+        SftpChannelPool sourcePool = source.getChannelPool();
+        SftpChannelPool targetPool = target.getChannelPool();
+
+        SftpATTRS attrs;
+        ChannelSftp sourceChannel = acquire(sourcePool);
+        ChannelSftp targetChannel = acquire(targetPool);
+        try {
+            attrs = sourceChannel.stat(sourcePath);
+            SftpATTRS existing = stat(targetChannel, targetPath);
+            if (attrs.isDir()) {
+                if (existing != null && !existing.isDir()) {
+                    throw new SftpException(ChannelSftp.SSH_FX_FAILURE, targetPath + " exists and is not a directory");
+                }
+            } else if (existing != null && existing.isDir()) {
+                throw new SftpException(ChannelSftp.SSH_FX_FAILURE, targetPath + " is a directory");
+            }
+        } finally {
+            sourcePool.release(sourceChannel);
+            targetPool.release(targetChannel);
+        }
+
+        if (directTransfer && tryDirectTransfer(attrs.isDir())) {
+            return;
+        }
+
+        // Collect files first so progress has a total, creating target directories on the way
+        List<String[]> files = new ArrayList<>();
+        if (attrs.isDir()) {
+            sourceChannel = acquire(sourcePool);
+            targetChannel = acquire(targetPool);
+            try {
+                collect(sourceChannel, targetChannel, sourcePath, targetPath, files);
+            } finally {
+                sourcePool.release(sourceChannel);
+                targetPool.release(targetChannel);
+            }
+        } else {
+            files.add(new String[] { sourcePath, targetPath });
+            bytesTotal.addAndGet(attrs.getSize());
+        }
+
+        // Each file holds one channel on either side
+        int parallelism = Math.min(sourcePool.getWorkerBudget(), targetPool.getWorkerBudget());
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "sftp-copy");
+            t.setDaemon(true);
+            return t;
+        });
+
+        boolean finished = false;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String[] file : files) {
+                futures.add(workers.submit(() -> {
+                    copyFile(sourcePool, targetPool, file[0], file[1]);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Stop the other files; each removes its own incomplete copy
+                    cancelled.set(true);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SftpException se) throw se;
+                    if (cause instanceof IOException ioe) throw ioe;
+                    if (cause instanceof RuntimeException re) throw re;
+                    throw new IOException(cause);
+                }
+            }
+            finished = true;
+        } finally {
+            if (!finished) {
+                // Files still running stop at their next chunk; interrupting a JSch transfer
+                // could leave its pooled channel unusable
+                cancelled.set(true);
+            }
+            workers.shutdown();
+        }
+
+        target.invalidateCachedTree(targetPath);
+        log.info("Copied {} bytes from {} to {} ({} skipped)", bytesCopied.get(), sourcePath, targetPath, skipped.size());
+    }
+
+    private static SftpATTRS stat(ChannelSftp channel, String path) throws SftpException {
+        try {
+            return channel.stat(path);
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(ChannelSftp sourceChannel, ChannelSftp targetChannel,
+                         String dir, String targetDir, List<String[]> files) throws SftpException {
+        checkCancelled();
+
+        try {
+            targetChannel.mkdir(targetDir);
+        } catch (SftpException e) {
+            // Already existing directories are merged into
+            if (e.id != ChannelSftp.SSH_FX_FAILURE) {
+                throw e;
+            }
+        }
+
+        Vector<ChannelSftp.LsEntry> entries = sourceChannel.ls(dir);
+        for (ChannelSftp.LsEntry entry : entries) {
+            String filename = entry.getFilename();
+
+            // Skip . and ..
+            if (".".equals(filename) || "..".equals(filename)) {
+                continue;
+            }
+
+            String from = join(dir, filename);
+            String to = join(targetDir, filename);
+            SftpATTRS attrs = entry.getAttrs();
+
+            if (attrs.isDir()) {
+                collect(sourceChannel, targetChannel, from, to, files);
+            } else if (attrs.isReg()) {
+                files.add(new String[] { from, to });
+                bytesTotal.addAndGet(attrs.getSize());
+            } else if (attrs.isLink()) {
+                copyLink(sourceChannel, targetChannel, from, to);
+            } else {
+                skip(from, "not a regular file");
+            }
+        }
+    }
+
+    /**
+     * Recreate a symbolic link with the same target, as rsync -a does
+     */
+    private void copyLink(ChannelSftp sourceChannel, ChannelSftp targetChannel, String from, String to) {
+        try {
+            String link = sourceChannel.readlink(from);
+            try {
+                targetChannel.rm(to);
+            } catch (SftpException e) {
+                // Nothing to replace
+            }
+            targetChannel.symlink(link, to);
+        } catch (SftpException e) {
+            skip(from, "symbolic link not created: " + e.getMessage());
+        }
+    }
+
+    private void skip(String path, String reason) {
+        log.info("Not copying {}: {}", path, reason);
+        skipped.add(path + ": " + reason);
+    }
+
+    /**
+     * Stream one file through a bounded queue between a reader thread and this thread
+     */
+    private void copyFile(SftpChannelPool sourcePool, SftpChannelPool targetPool,
+                          String from, String to) throws Exception {
+        checkCancelled();
+
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        AtomicBoolean writerFailed = new AtomicBoolean(false);
+
+        ChannelSftp sourceChannel = sourcePool.acquire();
+        ChannelSftp targetChannel = targetPool.acquire();
+        ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sftp-copy-reader");
+            t.setDaemon(true);
+            return t;
+        });
+
+        boolean completed = false;
+        try {
+            Future<?> reading = reader.submit(() -> {
+                try (InputStream in = sourceChannel.get(from)) {
+                    while (true) {
+                        byte[] buffer = new byte[CHUNK_SIZE];
+                        int filled = readFully(in, buffer);
+                        if (filled > 0) {
+                            byte[] chunk = filled == buffer.length ? buffer : Arrays.copyOf(buffer, filled);
+                            if (!offer(queue, chunk, writerFailed)) {
+                                return null;
+                            }
+                        }
+                        if (filled < buffer.length) {
+                            break;
+                        }
+                    }
+                }
+                offer(queue, EOF, writerFailed);
+                return null;
+            });
+
+            long written = 0;
+            try {
+                try (OutputStream out = targetChannel.put(to, ChannelSftp.OVERWRITE)) {
+                    while (true) {
+                        byte[] chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+                        if (chunk == null) {
+                            checkCancelled();
+                            if (reading.isDone() && queue.isEmpty()) {
+                                // Surfaces reader failures
+                                awaitReader(reading);
+                                throw new IOException("Reader stopped before end of " + from);
+                            }
+                            continue;
+                        }
+                        if (chunk == EOF) {
+                            break;
+                        }
+                        out.write(chunk);
+                        written += chunk.length;
+                        reportProgress(bytesCopied.addAndGet(chunk.length));
+                    }
+                }
+                awaitReader(reading);
+                completed = true;
+            } catch (Exception e) {
+                writerFailed.set(true);
+                bytesCopied.addAndGet(-written);
+                removePartial(targetChannel, to);
+                throw e;
+            }
+        } finally {
+            stopReader(reader);
+            if (completed) {
+                sourcePool.release(sourceChannel);
+                targetPool.release(targetChannel);
+            } else {
+                // A read or write abandoned halfway leaves replies in flight on the channel
+                sourcePool.discard(sourceChannel);
+                targetPool.discard(targetChannel);
+            }
+        }
+    }
+
+    /**
+     * Queue a chunk, waiting while the writer is behind. Returns false once the writer has
+     * failed or the copy is cancelled.
+     */
+    private boolean offer(BlockingQueue<byte[]> queue, byte[] chunk, AtomicBoolean writerFailed)
+            throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (writerFailed.get() || cancelled.get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Let the reader return on its own, since interrupting a JSch read can leave the channel
+     * unusable; it is only interrupted if it does not stop in time.
+     */
+    private static void stopReader(ExecutorService reader) {
+        reader.shutdown();
+        try {
+            if (reader.awaitTermination(READER_STOP_SECONDS, TimeUnit.SECONDS)) {
+                return;
+            }
+            log.warn("Copy reader did not stop within {} s", READER_STOP_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        reader.shutdownNow();
+    }
+
+    /**
+     * Wait for the reader and rethrow its failure as it was thrown
+     */
+    private static void awaitReader(Future<?> reading) throws Exception {
+        try {
+            reading.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private static void removePartial(ChannelSftp channel, String path) {
+        try {
+            channel.rm(path);
+            log.info("Removed incomplete copy {}", path);
+        } catch (SftpException e) {
+            log.warn("Failed to remove incomplete copy {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Copy directly from the source server to the target server with rsync when the source can
+     * log in to the target without a password prompt. A directory's contents are merged into
+     * the target path, as the streaming copy does.
+     */
+    private boolean tryDirectTransfer(boolean directory) throws InterruptedException {
+        Session sourceSession = source.getSession();
+        Session targetSession = target.getSession();
+        if (sourceSession == null || targetSession == null) {
+            return false;
+        }
+
+        String port = String.valueOf(targetSession.getPort());
+        String destination = targetSession.getUserName() + "@" + targetSession.getHost();
+        String ssh = "ssh -o BatchMode=yes -o ConnectTimeout=10 -p " + port;
+
+        try {
+            RemoteExec.Result probe = RemoteExec.run(sourceSession,
+                    ssh + " " + RemoteExec.quote(destination) + " true", 20000);
+            if (!probe.isSuccess()) {
+                log.info("Direct transfer not possible, streaming instead: {}", probe.getStderr().trim());
+                return false;
+            }
+
+            if (!RemoteExec.hasCommand(sourceSession, "rsync") || !RemoteExec.hasCommand(targetSession, "rsync")) {
+                log.info("rsync not available on both servers, streaming instead");
+                return false;
+            }
+
+            // Trailing slashes make rsync merge a directory's contents into the target
+            // instead of nesting the directory inside an existing target
+            String from = directory ? trailingSlash(sourcePath) : sourcePath;
+            String to = directory ? trailingSlash(targetPath) : targetPath;
+            String command = "rsync -a --no-devices --no-specials -e " + RemoteExec.quote(ssh) + " -- "
+                    + RemoteExec.quote(from) + " " + RemoteExec.quote(destination + ":" + to);
+
+            RemoteExec.Result result = runCancellable(sourceSession, command);
+            if (result.isSuccess()) {
+                target.invalidateCachedTree(targetPath);
+                log.info("Copied {} to {} directly between servers", sourcePath, destination);
+                return true;
+            }
+            log.info("Direct transfer failed ({}), streaming instead: {}",
+                    result.getExitStatus(), result.getStderr().trim());
+        } catch (CancellationException e) {
+            target.invalidateCachedTree(targetPath);
+            throw e;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.info("Exec channel not available, streaming instead: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Run a command until it exits or the copy is cancelled. On cancel the command gets
+     * SIGTERM, on which rsync removes the file it was writing.
+     */
+    private RemoteExec.Result runCancellable(Session session, String command) throws Exception {
+        ChannelExec channel = RemoteExec.open(session, command);
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        channel.setErrStream(stderr);
+        InputStream in = channel.getInputStream();
+        channel.connect();
+        try {
+            byte[] buffer = new byte[8192];
+            while (!channel.isClosed() || in.available() > 0) {
+                while (in.available() > 0 && in.read(buffer) >= 0) {
+                    // rsync is quiet without -v; drain whatever it prints
+                }
+                if (cancelled.get()) {
+                    try {
+                        channel.sendSignal("TERM");
+                    } catch (Exception e) {
+                        log.debug("Could not signal {}: {}", command, e.getMessage());
+                    }
+                    checkCancelled();
+                }
+                Thread.sleep(50);
+            }
+            return new RemoteExec.Result(channel.getExitStatus(), "", stderr.toString(StandardCharsets.UTF_8));
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    private static String trailingSlash(String path) {
+        return path.endsWith("/") ? path : path + "/";
+    }
+
+    private ChannelSftp acquire(SftpChannelPool pool) throws SftpException, InterruptedException {
+        try {
+            return pool.acquire();
+        } catch (com.jcraft.jsch.JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int filled = 0;
+        while (filled < buffer.length) {
+            int read = in.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+
+    private static String join(String dir, String name) {
+        return dir.endsWith("/") ? dir + name : dir + "/" + name;
+    }
+
+    private void checkCancelled() {
+        if (cancelled.get()) {
+            throw new CancellationException("Copy of " + sourcePath + " cancelled");
+        }
+    }
+
+    private void reportProgress(long copied) {
+        if (listener != null) {
+            listener.onProgress(copied, bytesTotal.get());
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.util.RemoteExec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes a remote directory tree.
+ *
+ * The tree is walked breadth-first, one level at a time. Listings and file removals of a level
+ * run concurrently over pooled SFTP channels, and directories are removed bottom-up
+ * (deepest level first) once all of their children are gone.
+ * Optionally, when the SFTP delete fails, a single "rm -rf" over an exec channel is tried
+ * as a fallback.
+ */
+public class RemoteDeleteTask {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteDeleteTask.class);
+    private static final int FILE_BATCH = 64;
+
+    /**
+     * Progress callback, invoked from worker threads
+     */
+    public interface Listener {
+        void onProgress(long deleted, long discovered);
+    }
+
+    private final Session session;
+    private final SftpChannelPool pool;
+    private final String rootPath;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicBoolean failed = new AtomicBoolean(false);
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong discovered = new AtomicLong();
+
+    private Listener listener;
+    private Runnable onFinished;
+    private boolean execFallback;
+
+    public RemoteDeleteTask(Session session, SftpChannelPool pool, String rootPath) {
+        this.session = session;
+        this.pool = pool;
+        this.rootPath = rootPath;
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    public void setExecFallback(boolean execFallback) { this.execFallback = execFallback; }
+
+    /** Called on the running thread when the task ends, whether it succeeded, failed or was cancelled */
+    public void setOnFinished(Runnable onFinished) { this.onFinished = onFinished; }
+
+    public long getDeleted() { return deleted.get(); }
+
+    public long getDiscovered() { return discovered.get(); }
+
+    public boolean isCancelled() { return cancelled.get(); }
+
+    /**
+     * Request cancellation. Operations already in flight finish, nothing new is started.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Run the delete on the calling thread
+     * @throws CancellationException if cancelled before the tree was removed
+     */
+    public void run() throws SftpException, InterruptedException {
+        try {
+            deleteTree();
+        } catch (SftpException e) {
+            if (!execFallback || cancelled.get()) {
+                throw e;
+            }
+            log.info("SFTP delete of {} failed, trying rm -rf: {}", rootPath, e.getMessage());
+            if (!tryExecDelete()) {
+                throw e;
+            }
+        } finally {
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        }
+    }
+
+    private void deleteTree() throws SftpException, InterruptedException {
+        int workerCount = pool.getWorkerBudget();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "sftp-delete");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            // Walk breadth-first, removing files as each level is listed
+            List<List<String>> levels = new ArrayList<>();
+            List<String> level = List.of(rootPath);
+            discovered.incrementAndGet();
+
+            while (!level.isEmpty()) {
+                levels.add(level);
+                ConcurrentLinkedQueue<String> nextLevel = new ConcurrentLinkedQueue<>();
+                ConcurrentLinkedQueue<Future<?>> removals = new ConcurrentLinkedQueue<>();
+
+                List<Future<?>> listings = new ArrayList<>();
+                for (String dir : level) {
+                    listings.add(workers.submit(() -> {
+                        List<String> files = listAndSplit(dir, nextLevel);
+                        // Spread large directories over the workers
+                        for (int start = 0; start < files.size(); start += FILE_BATCH) {
+                            List<String> batch = files.subList(start, Math.min(files.size(), start + FILE_BATCH));
+                            removals.add(workers.submit(() -> {
+                                deleteAll(batch, false);
+                                return null;
+                            }));
+                        }
+                        return null;
+                    }));
+                }
+                awaitAll(listings);
+                awaitAll(new ArrayList<>(removals));
+
+                level = new ArrayList<>(nextLevel);
+            }
+
+            // Remove directories bottom-up, one level at a time
+            for (int i = levels.size() - 1; i >= 0; i--) {
+                List<String> dirs = levels.get(i);
+                List<Future<?>> removals = new ArrayList<>();
+                int chunk = Math.max(1, dirs.size() / workerCount);
+                for (int start = 0; start < dirs.size(); start += chunk) {
+                    List<String> slice = dirs.subList(start, Math.min(dirs.size(), start + chunk));
+                    removals.add(workers.submit(() -> {
+                        deleteAll(slice, true);
+                        return null;
+                    }));
+                }
+                awaitAll(removals);
+            }
+
+            log.info("Deleted {} entries under {}", deleted.get(), rootPath);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * List a directory, queue its subdirectories and return its files
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> listAndSplit(String dir, ConcurrentLinkedQueue<String> subdirs) throws Exception {
+        checkCancelled();
+
+        ChannelSftp channel = pool.acquire();
+        try {
+            Vector<ChannelSftp.LsEntry> entries = channel.ls(dir);
+            List<String> files = new ArrayList<>();
+            int dirCount = 0;
+
+            for (ChannelSftp.LsEntry entry : entries) {
+                String filename = entry.getFilename();
+
+                // Skip . and ..
+                if (".".equals(filename) || "..".equals(filename)) {
+                    continue;
+                }
+
+                String fullPath = dir.endsWith("/") ? dir + filename : dir + "/" + filename;
+                // Symlinks to directories are removed as links, never followed
+                if (entry.getAttrs().isDir() && !entry.getAttrs().isLink()) {
+                    subdirs.add(fullPath);
+                    dirCount++;
+                } else {
+                    files.add(fullPath);
+                }
+            }
+
+            discovered.addAndGet(files.size() + dirCount);
+            reportProgress();
+            return files;
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    /**
+     * Remove files or empty directories on one pooled channel.
+     * Requests are issued back-to-back so the channel stays busy.
+     */
+    private void deleteAll(List<String> paths, boolean directories) throws Exception {
+        if (paths.isEmpty()) {
+            return;
+        }
+
+        ChannelSftp channel = pool.acquire();
+        try {
+            for (String path : paths) {
+                checkCancelled();
+                if (directories) {
+                    channel.rmdir(path);
+                } else {
+                    channel.rm(path);
+                }
+                deleted.incrementAndGet();
+                reportProgress();
+            }
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    private boolean tryExecDelete() {
+        if (rootPath == null || rootPath.isEmpty() || "/".equals(rootPath)) {
+            return false;
+        }
+
+        try {
+            RemoteExec.Result result = RemoteExec.run(session, "rm -rf -- " + RemoteExec.quote(rootPath), 0);
+            if (result.isSuccess()) {
+                log.info("Deleted {} with rm -rf", rootPath);
+                deleted.set(discovered.get());
+                reportProgress();
+                return true;
+            }
+            log.info("rm -rf failed ({}): {}", result.getExitStatus(), result.getStderr().trim());
+        } catch (Exception e) {
+            log.info("Exec channel not available for rm -rf: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    private void awaitAll(List<Future<?>> futures) throws SftpException, InterruptedException {
+        Exception failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception c ? c : e;
+                // Prefer the real error over the cancellations it triggered in other workers
+                if (failure == null || (failure instanceof CancellationException && !(cause instanceof CancellationException))) {
+                    failure = cause;
+                }
+                // Stop the other workers early
+                failed.set(true);
+            }
+        }
+
+        if (failure instanceof CancellationException ce) {
+            throw ce;
+        }
+        if (failure instanceof SftpException se) {
+            throw se;
+        }
+        if (failure instanceof InterruptedException ie) {
+            throw ie;
+        }
+        if (failure != null) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, failure.getMessage(), failure);
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled.get() || failed.get()) {
+            throw new CancellationException("Delete of " + rootPath + " cancelled");
+        }
+    }
+
+    private void reportProgress() {
+        if (listener != null) {
+            listener.onProgress(deleted.get(), discovered.get());
+        }
+    }
+}
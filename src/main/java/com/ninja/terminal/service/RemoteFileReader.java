@@ -0,0 +1,565 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.util.RemoteExec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only random access to a remote file for the viewer.
+ *
+ * The file is read in fixed-size pages through positional reads on pooled channels, and
+ * recently used pages are kept in an LRU cache, so only the part of the file being looked at is
+ * transferred. A sparse index holding the offset of every {@code INDEX_STRIDE}th line is built
+ * in the background, on the server with awk when possible, to map between line numbers and
+ * byte offsets.
+ */
+public class RemoteFileReader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteFileReader.class);
+    static final int PAGE_SIZE = 64 * 1024;
+    private static final int MAX_PAGES = 256;
+    static final int INDEX_STRIDE = 1000;
+
+    /**
+     * awk program printing the offset of every {@code INDEX_STRIDE}th line, then "E" and the line count
+     */
+    static final String INDEX_SCRIPT = "NR % " + INDEX_STRIDE + " == 1 { printf \"%.0f\\n\", o } { o += length($0) + 1 } "
+            + "END { printf \"E %.0f\\n\", NR }";
+
+    /**
+     * Longest line returned in one piece; longer lines are split
+     */
+    public static final int MAX_LINE_BYTES = 16 * 1024;
+
+    /**
+     * A line and the byte range it occupies, including the line break
+     */
+    public static class Line {
+        private final long offset;
+        private final long end;
+        private final String text;
+
+        public Line(long offset, long end, String text) {
+            this.offset = offset;
+            this.end = end;
+            this.text = text;
+        }
+
+        public long getOffset() { return offset; }
+        public long getEnd() { return end; }
+        public String getText() { return text; }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final Session session;
+    private final SftpChannelPool pool;
+    private final String path;
+    private final Map<Long, byte[]> pages = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    // Offset of line k * INDEX_STRIDE at index k
+    private final List<Long> checkpoints = Collections.synchronizedList(new ArrayList<>());
+    private volatile long size;
+    private volatile long indexedBytes;
+    private volatile long totalLines = -1;
+    private volatile boolean closed;
+    private volatile ChannelExec indexExec;
+    private volatile ChannelExec searchExec;
+    private Thread indexer;
+
+    public RemoteFileReader(Session session, SftpChannelPool pool, String path) {
+        this.session = session;
+        this.pool = pool;
+        this.path = path;
+    }
+
+    /**
+     * Read the current size and start building the line index
+     */
+    public void open() throws SftpException, InterruptedException {
+        refreshSize();
+        indexer = new Thread(this::buildIndex, "remote-viewer-index");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    public String getPath() { return path; }
+
+    public long getSize() { return size; }
+
+    /**
+     * Re-read the file size, e.g. for a growing log
+     */
+    public long refreshSize() throws SftpException, InterruptedException {
+        long previous = size;
+        ChannelSftp channel = acquire();
+        try {
+            size = channel.stat(path).getSize();
+        } finally {
+            pool.release(channel);
+        }
+        synchronized (pages) {
+            if (size < previous) {
+                // Truncated or replaced, nothing cached can be trusted
+                pages.clear();
+            } else {
+                // The last page may have been cut short before the file grew
+                pages.entrySet().removeIf(e -> e.getValue().length < PAGE_SIZE);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Number of lines, or -1 while the index is still being built
+     */
+    public long getTotalLines() { return totalLines; }
+
+    /**
+     * Bytes covered by the line index so far
+     */
+    public long getIndexedBytes() { return indexedBytes; }
+
+    /**
+     * Read up to {@code count} lines starting at a line start
+     */
+    public List<Line> readLines(long offset, int count) throws SftpException, InterruptedException {
+        List<Line> lines = new ArrayList<>(count);
+        long position = offset;
+        while (lines.size() < count && position < size) {
+            Line line = readLine(position);
+            lines.add(line);
+            position = line.getEnd();
+        }
+        return lines;
+    }
+
+    /**
+     * Read up to {@code count} lines ending right before {@code offset}, in file order
+     */
+    public List<Line> readLinesBefore(long offset, int count) throws SftpException, InterruptedException {
+        List<Line> lines = new ArrayList<>(count);
+        long end = offset;
+        while (lines.size() < count && end > 0) {
+            long start = findLineStart(end - 1);
+            lines.add(readLine(start));
+            end = start;
+        }
+        Collections.reverse(lines);
+        return lines;
+    }
+
+    /**
+     * Start of the line containing the given byte
+     */
+    public long findLineStart(long position) throws SftpException, InterruptedException {
+        long limit = Math.max(0, position - MAX_LINE_BYTES);
+        long pos = position - 1;
+        while (pos >= limit) {
+            long pageIndex = pos / PAGE_SIZE;
+            byte[] page = page(pageIndex);
+            long pageStart = pageIndex * PAGE_SIZE;
+            for (int i = (int) (pos - pageStart); i >= 0 && pageStart + i >= limit; i--) {
+                if (page[i] == '\n') {
+                    return pageStart + i + 1;
+                }
+            }
+            pos = pageStart - 1;
+        }
+        return limit;
+    }
+
+    private Line readLine(long offset) throws SftpException, InterruptedException {
+        byte[] buffer = new byte[256];
+        int length = 0;
+        long position = offset;
+
+        while (position < size && length < MAX_LINE_BYTES) {
+            long pageIndex = position / PAGE_SIZE;
+            byte[] page = page(pageIndex);
+            int start = (int) (position - pageIndex * PAGE_SIZE);
+            if (start >= page.length) {
+                break;
+            }
+
+            int i = start;
+            while (i < page.length && page[i] != '\n' && length + (i - start) < MAX_LINE_BYTES) {
+                i++;
+            }
+            int chunk = i - start;
+            if (length + chunk > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, length + chunk)];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+            System.arraycopy(page, start, buffer, length, chunk);
+            length += chunk;
+            position += chunk;
+
+            if (i < page.length && page[i] == '\n') {
+                position++;
+                break;
+            }
+        }
+
+        int textLength = length > 0 && buffer[length - 1] == '\r' ? length - 1 : length;
+        return new Line(offset, position, new String(buffer, 0, textLength, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Find the next occurrence of a text at or after an offset
+     * @return Byte offset of the match, or -1 if not found
+     */
+    public long search(String text, long from, boolean caseSensitive) throws SftpException, InterruptedException {
+        if (text.isEmpty() || from >= size) {
+            return -1;
+        }
+        Long remote = searchOnServer(text, from, caseSensitive);
+        if (remote != null) {
+            return remote;
+        }
+        return searchPages(text, from, caseSensitive);
+    }
+
+    /**
+     * Search with grep on the server so the scanned range never crosses the wire
+     * @return Offset, -1 if not found, or null if grep could not be used
+     */
+    private Long searchOnServer(String text, long from, boolean caseSensitive) {
+        String command = "tail -c +" + (from + 1) + " " + RemoteExec.quote(path)
+                + " | LC_ALL=C grep -a -b -o -F -m 1" + (caseSensitive ? "" : " -i")
+                + " -e " + RemoteExec.quote(text);
+        try {
+            ChannelExec channel = RemoteExec.open(session, command);
+            searchExec = channel;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(channel.getInputStream(),
+                    StandardCharsets.UTF_8));
+            channel.connect();
+            // With -o every match of the first matching line is printed, the first one is enough
+            String first = reader.readLine();
+            while (first == null && !channel.isClosed()) {
+                Thread.sleep(10);
+            }
+            channel.disconnect();
+            if (closed) {
+                return -1L;
+            }
+            if (first == null) {
+                // grep exits with 1 when nothing matched, anything else means it could not run
+                return channel.getExitStatus() == 1 ? -1L : null;
+            }
+            int colon = first.indexOf(':');
+            return from + Long.parseLong(colon > 0 ? first.substring(0, colon) : first.trim());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1L;
+        } catch (Exception e) {
+            log.debug("Server-side search not available: {}", e.getMessage());
+            return null;
+        } finally {
+            searchExec = null;
+        }
+    }
+
+    private long searchPages(String text, long from, boolean caseSensitive) throws SftpException, InterruptedException {
+        byte[] needle = (caseSensitive ? text : text.toLowerCase()).getBytes(StandardCharsets.UTF_8);
+        // Keep the tail of the previous page so matches across page boundaries are found
+        byte[] window = new byte[PAGE_SIZE + needle.length];
+        int carried = 0;
+        long windowStart = from;
+        long position = from;
+
+        while (position < size && !closed) {
+            long pageIndex = position / PAGE_SIZE;
+            byte[] page = fetchPage(pageIndex, false);
+            int start = (int) (position - pageIndex * PAGE_SIZE);
+            int length = page.length - start;
+            if (length <= 0) {
+                break;
+            }
+            System.arraycopy(page, start, window, carried, length);
+            int filled = carried + length;
+
+            for (int i = 0; i + needle.length <= filled; i++) {
+                if (matches(window, i, needle, caseSensitive)) {
+                    return windowStart + i;
+                }
+            }
+
+            carried = Math.min(needle.length - 1, filled);
+            System.arraycopy(window, filled - carried, window, 0, carried);
+            position += length;
+            windowStart = position - carried;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] data, int offset, byte[] needle, boolean caseSensitive) {
+        for (int j = 0; j < needle.length; j++) {
+            byte b = data[offset + j];
+            if (!caseSensitive && b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Byte offset of a line (0-based), or -1 if the index does not reach it yet
+     */
+    public long offsetOfLine(long line) throws SftpException, InterruptedException {
+        int checkpoint = (int) (line / INDEX_STRIDE);
+        long offset;
+        synchronized (checkpoints) {
+            if (checkpoint >= checkpoints.size()) {
+                return -1;
+            }
+            offset = checkpoints.get(checkpoint);
+        }
+        for (long i = (long) checkpoint * INDEX_STRIDE; i < line && offset < size; i++) {
+            offset = readLine(offset).getEnd();
+        }
+        return offset;
+    }
+
+    /**
+     * Line number (0-based) of the line starting at an offset, or -1 if not indexed yet
+     */
+    public long lineNumberAt(long offset) throws SftpException, InterruptedException {
+        int checkpoint;
+        long position;
+        synchronized (checkpoints) {
+            int low = 0;
+            int high = checkpoints.size() - 1;
+            if (high < 0 || (offset > indexedBytes && totalLines < 0)) {
+                return -1;
+            }
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (checkpoints.get(mid) <= offset) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            checkpoint = low;
+            position = checkpoints.get(low);
+        }
+
+        long line = (long) checkpoint * INDEX_STRIDE;
+        while (position < offset && position < size) {
+            position = readLine(position).getEnd();
+            line++;
+        }
+        return line;
+    }
+
+    private void buildIndex() {
+        try {
+            if (!buildIndexOnServer()) {
+                buildIndexLocally();
+            }
+            log.debug("Indexed {} lines of {}", totalLines, path);
+        } catch (Exception e) {
+            if (!closed) {
+                log.warn("Could not index {}: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Let awk compute the checkpoints so only one offset per stride crosses the wire
+     */
+    private boolean buildIndexOnServer() {
+        String command = "LC_ALL=C awk " + RemoteExec.quote(INDEX_SCRIPT) + " " + RemoteExec.quote(path);
+        try {
+            ChannelExec channel = RemoteExec.open(session, command);
+            indexExec = channel;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(channel.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            channel.connect();
+
+            boolean complete = readIndex(reader);
+            channel.disconnect();
+            if (complete) {
+                indexedBytes = size;
+            } else if (!closed) {
+                // awk stopped early; the local scan starts over from the beginning
+                log.debug("Server-side indexing of {} ended before the end of the file", path);
+                resetIndex();
+            }
+            return complete || closed;
+        } catch (Exception e) {
+            log.debug("Server-side indexing not available: {}", e.getMessage());
+            resetIndex();
+            return false;
+        } finally {
+            indexExec = null;
+        }
+    }
+
+    /**
+     * Take the checkpoints printed by {@link #INDEX_SCRIPT}
+     * @return Whether the output reached the end of the file
+     */
+    boolean readIndex(BufferedReader reader) throws IOException {
+        String line;
+        while (!closed && (line = reader.readLine()) != null) {
+            if (line.startsWith("E ")) {
+                totalLines = Long.parseLong(line.substring(2).trim());
+                return true;
+            }
+            long offset = Long.parseLong(line.trim());
+            checkpoints.add(offset);
+            indexedBytes = offset;
+        }
+        return false;
+    }
+
+    private void resetIndex() {
+        synchronized (checkpoints) {
+            checkpoints.clear();
+            indexedBytes = 0;
+            totalLines = -1;
+        }
+    }
+
+    /**
+     * Stream the whole file once, without polluting the page cache
+     */
+    private void buildIndexLocally() throws SftpException, InterruptedException, IOException {
+        ChannelSftp channel = acquire();
+        try (InputStream in = channel.get(path)) {
+            indexStream(in);
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    /**
+     * Take checkpoints while reading the whole file from the start
+     */
+    void indexStream(InputStream in) throws IOException {
+        byte[] buffer = new byte[PAGE_SIZE];
+        long position = 0;
+        long lines = 0;
+        boolean atLineStart = true;
+        int read;
+        while (!closed && (read = in.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (atLineStart) {
+                    if (lines % INDEX_STRIDE == 0) {
+                        checkpoints.add(position + i);
+                    }
+                    lines++;
+                    atLineStart = false;
+                }
+                if (buffer[i] == '\n') {
+                    atLineStart = true;
+                }
+            }
+            position += read;
+            indexedBytes = position;
+        }
+        if (!closed) {
+            totalLines = lines;
+        }
+    }
+
+    private byte[] page(long index) throws SftpException, InterruptedException {
+        return fetchPage(index, true);
+    }
+
+    private byte[] fetchPage(long index, boolean cache) throws SftpException, InterruptedException {
+        synchronized (pages) {
+            byte[] cached = pages.get(index);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long offset = index * PAGE_SIZE;
+        int length = (int) Math.max(0, Math.min(PAGE_SIZE, size - offset));
+        byte[] data = new byte[length];
+
+        ChannelSftp channel = acquire();
+        try (InputStream in = channel.get(path, null, offset)) {
+            int filled = 0;
+            while (filled < length) {
+                int read = in.read(data, filled, length - filled);
+                if (read < 0) {
+                    break;
+                }
+                filled += read;
+            }
+            if (filled < length) {
+                // File shrank under us
+                byte[] shorter = new byte[filled];
+                System.arraycopy(data, 0, shorter, 0, filled);
+                data = shorter;
+            }
+        } catch (IOException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getMessage(), e);
+        } finally {
+            pool.release(channel);
+        }
+
+        if (cache) {
+            synchronized (pages) {
+                pages.put(index, data);
+            }
+        }
+        return data;
+    }
+
+    private ChannelSftp acquire() throws SftpException, InterruptedException {
+        try {
+            return pool.acquire();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (ChannelExec exec : new ChannelExec[] { indexExec, searchExec }) {
+            if (exec != null) {
+                exec.disconnect();
+            }
+        }
+        if (indexer != null) {
+            indexer.interrupt();
+        }
+        synchronized (pages) {
+            pages.clear();
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.model.RemoteFile;
+import com.ninja.terminal.util.RemoteExec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a remote tree for entries whose name matches a glob or regular expression.
+ *
+ * By default the tree is walked concurrently over pooled SFTP channels: every listed directory
+ * queues its subdirectories as new tasks, so all channels stay busy regardless of the tree's
+ * shape. When enabled and the server has GNU find, the traversal runs server-side over an exec
+ * channel instead and only matching entries cross the wire. Matches are reported in batches
+ * while the search runs.
+ */
+public class RemoteSearchTask {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteSearchTask.class);
+    private static final int FIND_BATCH = 200;
+
+    /**
+     * Result callback, invoked from worker threads
+     */
+    public interface Listener {
+        void onMatches(List<RemoteFile> matches);
+    }
+
+    private final Session session;
+    private final SftpChannelPool pool;
+    private final String rootPath;
+    private final String pattern;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicInteger matched = new AtomicInteger();
+
+    private Listener listener;
+    private boolean regex;
+    private boolean caseSensitive = true;
+    private int maxDepth;
+    private long timeLimitMillis;
+    private int maxResults = 10_000;
+    private boolean useFind;
+    private volatile boolean timedOut;
+    private volatile ChannelExec findChannel;
+
+    public RemoteSearchTask(Session session, SftpChannelPool pool, String rootPath, String pattern) {
+        this.session = session;
+        this.pool = pool;
+        this.rootPath = rootPath;
+        this.pattern = pattern;
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    public void setRegex(boolean regex) { this.regex = regex; }
+
+    public void setCaseSensitive(boolean caseSensitive) { this.caseSensitive = caseSensitive; }
+
+    /**
+     * Maximum depth below the root, 0 for unlimited
+     */
+    public void setMaxDepth(int maxDepth) { this.maxDepth = maxDepth; }
+
+    /**
+     * Stop after this long and keep the matches found so far, 0 for no limit
+     */
+    public void setTimeLimitMillis(long timeLimitMillis) { this.timeLimitMillis = timeLimitMillis; }
+
+    public void setMaxResults(int maxResults) { this.maxResults = maxResults; }
+
+    public void setUseFind(boolean useFind) { this.useFind = useFind; }
+
+    public long getScanned() { return scanned.get(); }
+
+    public int getMatched() { return matched.get(); }
+
+    public boolean isTimedOut() { return timedOut; }
+
+    public boolean isTruncated() { return matched.get() >= maxResults; }
+
+    public void cancel() {
+        cancelled.set(true);
+        stop();
+    }
+
+    /**
+     * Run the search on the calling thread. Returns normally when the tree was searched, or
+     * when the time or result limit was reached.
+     * @throws CancellationException if cancelled
+     */
+    public void run() throws SftpException, InterruptedException {
+        Predicate<String> matcher = compile();
+
+        if (timeLimitMillis > 0) {
+            CompletableFuture.delayedExecutor(timeLimitMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!stopped.get()) {
+                    timedOut = true;
+                    stop();
+                }
+            });
+        }
+
+        try {
+            if (useFind && runFind(matcher)) {
+                return;
+            }
+            walk(matcher);
+        } finally {
+            stopped.set(true);
+            if (cancelled.get()) {
+                throw new CancellationException("Search in " + rootPath + " cancelled");
+            }
+            log.info("Search for '{}' in {}: {} matches, {} entries scanned{}", pattern, rootPath,
+                    matched.get(), scanned.get(), timedOut ? " (time limit reached)" : "");
+        }
+    }
+
+    /**
+     * Concurrent SFTP walk. Each directory listing is a task that submits its subdirectories.
+     */
+    private void walk(Predicate<String> matcher) throws SftpException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(pool.getWorkerBudget(), r -> {
+            Thread t = new Thread(r, "sftp-search");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger outstanding = new AtomicInteger(1);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        try {
+            workers.execute(() -> searchDirectory(workers, rootPath, 1, matcher, outstanding, done));
+
+            // Stopping drops queued work, so don't wait for the counter after a stop
+            while (!done.isDone() && !stopped.get()) {
+                try {
+                    done.get(100, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ignored) {
+                    // Poll for stop
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof SftpException se) throw se;
+                    throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void searchDirectory(ExecutorService workers, String dir, int depth, Predicate<String> matcher,
+                                 AtomicInteger outstanding, CompletableFuture<Void> done) {
+        try {
+            if (!stopped.get()) {
+                List<String> subdirs = listDirectory(dir, matcher);
+                if (maxDepth == 0 || depth < maxDepth) {
+                    for (String subdir : subdirs) {
+                        if (stopped.get()) {
+                            break;
+                        }
+                        outstanding.incrementAndGet();
+                        workers.execute(() -> searchDirectory(workers, subdir, depth + 1, matcher, outstanding, done));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            if (dir.equals(rootPath)) {
+                done.completeExceptionally(e);
+            } else {
+                // One unreadable directory does not fail the search
+                log.debug("Cannot search {}: {}", dir, e.getMessage());
+            }
+        } finally {
+            if (outstanding.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * List one directory, report matching entries and return its subdirectories
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> listDirectory(String dir, Predicate<String> matcher) throws Exception {
+        ChannelSftp channel = pool.acquire();
+        List<String> subdirs = new ArrayList<>();
+        List<RemoteFile> matches = new ArrayList<>();
+        try {
+            for (ChannelSftp.LsEntry entry : (List<ChannelSftp.LsEntry>) channel.ls(dir)) {
+                String filename = entry.getFilename();
+
+                // Skip . and ..
+                if (".".equals(filename) || "..".equals(filename)) {
+                    continue;
+                }
+                scanned.incrementAndGet();
+
+                if (matcher.test(filename)) {
+                    matches.add(SftpService.toRemoteFile(entry, dir));
+                }
+                // Links are not followed, they could form cycles
+                if (entry.getAttrs().isDir() && !entry.getAttrs().isLink()) {
+                    subdirs.add(dir.endsWith("/") ? dir + filename : dir + "/" + filename);
+                }
+            }
+        } finally {
+            pool.release(channel);
+        }
+
+        report(matches);
+        return subdirs;
+    }
+
+    /**
+     * Server-side traversal with GNU find. Globs without braces are matched by find itself,
+     * everything else is filtered locally.
+     * @return false if find is not usable on this server
+     */
+    private boolean runFind(Predicate<String> matcher) {
+        StringBuilder command = new StringBuilder("find ").append(RemoteExec.quote(rootPath)).append(" -mindepth 1");
+        if (maxDepth > 0) {
+            command.append(" -maxdepth ").append(maxDepth);
+        }
+        boolean serverSideMatch = !regex && !pattern.contains("{");
+        if (serverSideMatch) {
+            command.append(caseSensitive ? " -name " : " -iname ").append(RemoteExec.quote(pattern));
+        }
+        // Type, size, mode, mtime and path of each entry, NUL-terminated
+        command.append(" -printf ").append(RemoteExec.quote("%y\\t%s\\t%m\\t%T@\\t%p\\0"));
+
+        ChannelExec channel;
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        try {
+            channel = RemoteExec.open(session, command.toString());
+            channel.setErrStream(stderr);
+            InputStream in = channel.getInputStream();
+            channel.connect();
+            findChannel = channel;
+            if (stopped.get()) {
+                channel.disconnect();
+            }
+
+            List<RemoteFile> batch = new ArrayList<>();
+            ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            boolean gotOutput = false;
+            try {
+                while (!stopped.get() && (read = in.read(buffer)) > 0) {
+                    gotOutput = true;
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] != 0) {
+                            record.write(buffer[i]);
+                            continue;
+                        }
+                        RemoteFile file = parseFindRecord(record.toString(StandardCharsets.UTF_8));
+                        record.reset();
+                        scanned.incrementAndGet();
+                        if (file != null && (serverSideMatch || matcher.test(file.getFilename()))) {
+                            batch.add(file);
+                            if (batch.size() >= FIND_BATCH) {
+                                report(batch);
+                                batch = new ArrayList<>();
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Stream closed by a stop
+                if (!stopped.get()) {
+                    throw e;
+                }
+            }
+            report(batch);
+
+            if (!stopped.get()) {
+                while (!channel.isClosed()) {
+                    Thread.sleep(20);
+                }
+                // find exits with 1 on unreadable directories, which is fine once it produced output
+                int status = channel.getExitStatus();
+                if (status != 0 && !(status == 1 && gotOutput)) {
+                    if (matched.get() == 0) {
+                        log.info("find not usable ({}), walking over SFTP instead: {}", status,
+                                stderr.toString(StandardCharsets.UTF_8).trim());
+                        return false;
+                    }
+                }
+            }
+            channel.disconnect();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        } catch (Exception e) {
+            log.info("Exec channel not available, walking over SFTP instead: {}", e.getMessage());
+            return matched.get() > 0;
+        } finally {
+            findChannel = null;
+        }
+    }
+
+    private static RemoteFile parseFindRecord(String record) {
+        String[] fields = record.split("\t", 5);
+        if (fields.length < 5) {
+            return null;
+        }
+        try {
+            String fullPath = fields[4];
+            int slash = fullPath.lastIndexOf('/');
+            String name = fullPath.substring(slash + 1);
+            String parent = slash > 0 ? fullPath.substring(0, slash) : "/";
+            long size = Long.parseLong(fields[1]);
+            int mode = Integer.parseInt(fields[2], 8);
+            int dot = fields[3].indexOf('.');
+            long mtime = Long.parseLong(dot >= 0 ? fields[3].substring(0, dot) : fields[3]);
+            return new RemoteFile(name, parent, size, mode, mtime, "d".equals(fields[0]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void report(List<RemoteFile> matches) {
+        if (matches.isEmpty() || stopped.get()) {
+            return;
+        }
+        int total = matched.addAndGet(matches.size());
+        if (total >= maxResults) {
+            // Trim the batch that crossed the limit and stop
+            int keep = matches.size() - (total - maxResults);
+            matches = matches.subList(0, Math.max(0, keep));
+            matched.set(maxResults);
+            stop();
+        }
+        if (listener != null && !matches.isEmpty()) {
+            listener.onMatches(matches);
+        }
+    }
+
+    private void stop() {
+        stopped.set(true);
+        ChannelExec channel = findChannel;
+        if (channel != null) {
+            channel.disconnect();
+        }
+    }
+
+    private Predicate<String> compile() {
+        int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        if (regex) {
+            // Regular expressions match anywhere in the name
+            return Pattern.compile(pattern, flags).asPredicate();
+        }
+        return Pattern.compile(globToRegex(pattern), flags).asMatchPredicate();
+    }
+
+    /**
+     * Translate a glob (*, ?, [...], {a,b}) into an equivalent regular expression
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        boolean inClass = false;
+
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                } else if (c == '\\' || c == '[' || c == '&') {
+                    regex.append('\\');
+                }
+                regex.append(c);
+                continue;
+            }
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '[' -> {
+                    inClass = true;
+                    regex.append('[');
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '!') {
+                        regex.append('^');
+                        i++;
+                    }
+                }
+                case '{' -> {
+                    inGroup = true;
+                    regex.append("(?:");
+                }
+                case '}' -> {
+                    if (inGroup) {
+                        inGroup = false;
+                        regex.append(')');
+                    } else {
+                        regex.append("\\}");
+                    }
+                }
+                case ',' -> regex.append(inGroup ? "|" : ",");
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    } else {
+                        regex.append("\\\\");
+                    }
+                }
+                default -> {
+                    if (".^$+()|".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                }
+            }
+        }
+        if (inClass) {
+            // Unterminated class, treat literally
+            return Pattern.quote(glob);
+        }
+        if (inGroup) {
+            regex.append(')');
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,289 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a growing remote file like {@code tail -f} over SFTP.
+ *
+ * Each poll is a single stat on a pooled channel; only when the size changed is the appended
+ * range read. The poll interval halves back to the minimum whenever data arrives and doubles
+ * up to the maximum while the file is idle, so quiet logs cost almost nothing. All tailers
+ * share one small scheduler, so many files on many hosts can be followed at once.
+ *
+ * A shrinking file is treated as truncated, and a file whose bytes just before the read
+ * position no longer match what was read is treated as rotated; both restart from the top.
+ */
+public class RemoteTailer {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteTailer.class);
+    public static final long MIN_INTERVAL_MS = 250;
+    public static final long MAX_INTERVAL_MS = 5000;
+    private static final int INITIAL_BYTES = 16 * 1024;
+    private static final int MAX_READ_BYTES = 1024 * 1024;
+    private static final int OVERLAP_BYTES = 64;
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+
+    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4, r -> {
+        Thread t = new Thread(r, "remote-tail");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Receives output on a scheduler thread
+     */
+    public interface Listener {
+        void onLines(List<String> lines);
+
+        /** The file was truncated, rotated or has gone away */
+        void onReset(String reason);
+
+        void onError(Exception e);
+    }
+
+    private final SftpChannelPool pool;
+    private final String path;
+    private final Listener listener;
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+
+    private long position = -1;
+    private byte[] lastBytes = new byte[0];
+    private long interval = MIN_INTERVAL_MS;
+    private boolean missing;
+    private boolean behind;
+    private volatile boolean stopped;
+    private volatile ScheduledFuture<?> pending;
+
+    public RemoteTailer(SftpChannelPool pool, String path, Listener listener) {
+        this.pool = pool;
+        this.path = path;
+        this.listener = listener;
+    }
+
+    /**
+     * Start with the last few kilobytes of the file, like tail does
+     */
+    public void start() {
+        schedule(0);
+    }
+
+    public void stop() {
+        stopped = true;
+        ScheduledFuture<?> future = pending;
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Current poll interval; grows while the file is idle
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    private void schedule(long delay) {
+        if (!stopped) {
+            pending = scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void poll() {
+        if (stopped) {
+            return;
+        }
+
+        boolean grew = false;
+        try {
+            grew = check();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IllegalStateException e) {
+            // Pool closed on disconnect
+            stopped = true;
+            listener.onError(e);
+            return;
+        } catch (Exception e) {
+            log.warn("Tail poll failed for {}: {}", path, e.getMessage());
+            listener.onError(e);
+        }
+
+        interval = grew ? Math.max(MIN_INTERVAL_MS, interval / 2) : Math.min(MAX_INTERVAL_MS, interval * 2);
+        // Catch up without waiting when a large append was only partly read
+        schedule(behind ? 0 : interval);
+    }
+
+    /**
+     * Stat the file and read anything new. Returns true if data arrived.
+     */
+    private boolean check() throws SftpException, InterruptedException {
+        behind = false;
+        ChannelSftp channel = acquire();
+        try {
+            SftpATTRS attrs;
+            try {
+                attrs = channel.stat(path);
+            } catch (SftpException e) {
+                if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                    throw e;
+                }
+                if (!missing) {
+                    missing = true;
+                    listener.onReset(path + " is gone, waiting for it to reappear");
+                }
+                return false;
+            }
+
+            long size = attrs.getSize();
+            if (missing) {
+                // Recreated after a rotation
+                missing = false;
+                restart(0, "reappeared");
+            } else if (position < 0) {
+                position = Math.max(0, size - INITIAL_BYTES);
+                if (position > 0) {
+                    // Skip the partial first line
+                    lastBytes = null;
+                }
+            } else if (size < position) {
+                restart(0, "was truncated or rotated");
+            }
+
+            if (size == position) {
+                return false;
+            }
+
+            long from = Math.max(0, position - OVERLAP_BYTES);
+            int length = (int) Math.min(MAX_READ_BYTES, size - from);
+            byte[] data = read(channel, from, length);
+            int overlap = (int) (position - from);
+
+            if (lastBytes != null && lastBytes.length > 0 && !matchesOverlap(data, overlap)) {
+                // Same size or larger but different content before our position: a new file
+                restart(0, "was replaced");
+                behind = true;
+                return true;
+            }
+            if (lastBytes == null && overlap > 0 && overlap <= data.length && data[overlap - 1] == '\n') {
+                // Started exactly on a line boundary, nothing to skip
+                lastBytes = new byte[0];
+            }
+
+            consume(data, Math.min(overlap, data.length));
+            position = from + data.length;
+            behind = position < size;
+            return data.length > overlap;
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    private boolean matchesOverlap(byte[] data, int overlap) {
+        if (data.length < overlap) {
+            return false;
+        }
+        int n = Math.min(overlap, lastBytes.length);
+        return Arrays.equals(data, overlap - n, overlap, lastBytes, lastBytes.length - n, lastBytes.length);
+    }
+
+    private void restart(long offset, String reason) {
+        position = offset;
+        lastBytes = new byte[0];
+        partial.reset();
+        listener.onReset(path + " " + reason);
+    }
+
+    /**
+     * Split new bytes into lines, keeping an unterminated tail for the next read
+     */
+    private void consume(byte[] data, int start) {
+        boolean skipFirst = lastBytes == null;
+        List<String> lines = new ArrayList<>();
+        int lineStart = start;
+        for (int i = start; i < data.length; i++) {
+            if (data[i] == '\n') {
+                partial.write(data, lineStart, i - lineStart);
+                if (skipFirst) {
+                    skipFirst = false;
+                    partial.reset();
+                } else {
+                    lines.add(takeLine());
+                }
+                lineStart = i + 1;
+            }
+        }
+        partial.write(data, lineStart, data.length - lineStart);
+        if (partial.size() > MAX_LINE_BYTES) {
+            if (skipFirst) {
+                partial.reset();
+            } else {
+                lines.add(takeLine());
+            }
+        }
+
+        // While still skipping there is nothing trustworthy to compare against
+        int keep = Math.min(OVERLAP_BYTES, data.length);
+        lastBytes = skipFirst ? null : Arrays.copyOfRange(data, data.length - keep, data.length);
+
+        if (!lines.isEmpty()) {
+            listener.onLines(lines);
+        }
+    }
+
+    private String takeLine() {
+        byte[] bytes = partial.toByteArray();
+        partial.reset();
+        int end = bytes.length;
+        if (end > 0 && bytes[end - 1] == '\r') {
+            end--;
+        }
+        return new String(bytes, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private byte[] read(ChannelSftp channel, long offset, int length) throws SftpException {
+        byte[] data = new byte[length];
+        int filled = 0;
+        try (InputStream in = channel.get(path, null, offset)) {
+            while (filled < length) {
+                int read = in.read(data, filled, length - filled);
+                if (read < 0) {
+                    break;
+                }
+                filled += read;
+            }
+        } catch (IOException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, e.getMessage(), e);
+        }
+        return filled == length ? data : Arrays.copyOf(data, filled);
+    }
+
+    private ChannelSftp acquire() throws SftpException, InterruptedException {
+        try {
+            return pool.acquire();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        }
+    }
+}
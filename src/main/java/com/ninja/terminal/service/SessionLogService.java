@@ -0,0 +1,394 @@
+package com.ninja.terminal.service;
+
+import com.ninja.terminal.util.AnsiStripper;
+import com.ninja.terminal.util.JSchTtyConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Plain-text logs of session output, one file per host per day under ~/.ninja-in-terminal/logs.
+ *
+ * Each session's connector hands its output to a shared lock-free queue; one background
+ * thread strips escape sequences, writes complete lines to the host's file and rotates it
+ * when it passes {@code sessionLogMaxMegabytes}. Rotated files are gzip-compressed on a
+ * separate thread. The queue is bounded by the characters it holds: when the disk falls
+ * behind, output is left out of the log with a note instead of slowing the terminal.
+ * {@link #shutdown} writes what is queued and closes the files when the application exits.
+ */
+public class SessionLogService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionLogService.class);
+    private static final long MAX_QUEUED_CHARS = 8L * 1024 * 1024;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static SessionLogService instance;
+
+    public static synchronized SessionLogService getInstance() {
+        if (instance == null) {
+            instance = new SessionLogService();
+        }
+        return instance;
+    }
+
+    /**
+     * Write what is still queued, end the open sessions and close their files.
+     * Does nothing if no session was ever logged.
+     */
+    public static void shutdown() {
+        SessionLogService service;
+        synchronized (SessionLogService.class) {
+            service = instance;
+        }
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    private enum Kind { OPEN, OUTPUT, CLOSE }
+
+    private record Entry(SessionLog session, Kind kind, String text) {
+    }
+
+    private final Path logDirectory = Paths.get(System.getProperty("user.home"), ".ninja-in-terminal", "logs");
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedChars = new AtomicLong();
+    private final Map<String, LogFile> files = new HashMap<>();
+    // Writer thread only
+    private final Set<SessionLog> openSessions = new LinkedHashSet<>();
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-log-compress");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Thread writerThread;
+    private volatile boolean stopping;
+
+    private SessionLogService() {
+        writerThread = new Thread(this::writeLoop, "session-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        // Also covers exits that skip Application.stop, such as SIGTERM
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "session-log-shutdown"));
+    }
+
+    private void stop() {
+        stopping = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            compressor.shutdown();
+            compressor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Path getLogDirectory() {
+        return logDirectory;
+    }
+
+    /**
+     * Start logging a session; add the result as a listener to the session's connector
+     */
+    public SessionLog open(String hostName) {
+        SessionLog session = new SessionLog(hostName.replaceAll("[^A-Za-z0-9._-]", "_"));
+        enqueue(new Entry(session, Kind.OPEN, ""));
+        return session;
+    }
+
+    /**
+     * Output of one session. Called on the connector's reading thread, so it only copies the
+     * characters and queues them.
+     */
+    public class SessionLog implements JSchTtyConnector.StreamListener {
+
+        private final String fileName;
+        private final AtomicLong droppedChars = new AtomicLong();
+        // Writer thread only
+        private final AnsiStripper stripper = new AnsiStripper();
+        private final StringBuilder line = new StringBuilder();
+        private LogFile file;
+
+        private SessionLog(String fileName) {
+            this.fileName = fileName;
+        }
+
+        @Override
+        public void onOutput(char[] buf, int offset, int length) {
+            if (queuedChars.addAndGet(length) > MAX_QUEUED_CHARS) {
+                queuedChars.addAndGet(-length);
+                droppedChars.addAndGet(length);
+                return;
+            }
+            queue.add(new Entry(this, Kind.OUTPUT, new String(buf, offset, length)));
+        }
+
+        /**
+         * Write what is left of the session and release its file
+         */
+        public void close() {
+            enqueue(new Entry(this, Kind.CLOSE, ""));
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        queue.add(entry);
+        LockSupport.unpark(writerThread);
+    }
+
+    // ---- Writer thread ----
+
+    private void writeLoop() {
+        long lastFlush = System.nanoTime();
+        boolean unflushed = false;
+        while (true) {
+            Entry entry = queue.poll();
+            if (entry != null) {
+                queuedChars.addAndGet(-entry.text().length());
+                try {
+                    handle(entry);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to write session log for {}", entry.session().fileName, e);
+                }
+                unflushed = true;
+                continue;
+            }
+
+            if (stopping) {
+                closeAll();
+                return;
+            }
+            if (unflushed && System.nanoTime() - lastFlush > FLUSH_INTERVAL_NANOS) {
+                for (LogFile file : files.values()) {
+                    file.flush();
+                }
+                lastFlush = System.nanoTime();
+                unflushed = false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(unflushed ? 100 : 1000));
+        }
+    }
+
+    /**
+     * End every session that is still open, which closes all files
+     */
+    private void closeAll() {
+        for (SessionLog session : new ArrayList<>(openSessions)) {
+            try {
+                handle(new Entry(session, Kind.CLOSE, ""));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to close session log for {}", session.fileName, e);
+            }
+        }
+        for (LogFile file : new ArrayList<>(files.values())) {
+            file.close();
+        }
+        files.clear();
+        log.info("Session logs closed");
+    }
+
+    private void handle(Entry entry) throws IOException {
+        SessionLog session = entry.session();
+        switch (entry.kind()) {
+            case OPEN -> {
+                openSessions.add(session);
+                session.file = acquire(session.fileName);
+                writeLine(session, "=== Session started " + LocalDateTime.now().format(TIME_FORMAT) + " ===");
+            }
+            case OUTPUT -> {
+                long dropped = session.droppedChars.getAndSet(0);
+                if (dropped > 0) {
+                    writeLine(session, "[... " + dropped + " characters not logged ...]");
+                }
+                session.stripper.strip(entry.text(), 0, entry.text().length(), session.line);
+                int start = 0;
+                int newline;
+                while ((newline = session.line.indexOf("\n", start)) >= 0) {
+                    writeLine(session, session.line.substring(start, newline));
+                    start = newline + 1;
+                }
+                session.line.delete(0, start);
+                // The unfinished line stays in the buffer for the stripper; cut very long ones
+                if (session.line.length() > MAX_LINE_LENGTH) {
+                    writeLine(session, session.line.toString());
+                    session.line.setLength(0);
+                }
+            }
+            case CLOSE -> {
+                if (!openSessions.remove(session)) {
+                    return;
+                }
+                if (!session.line.isEmpty()) {
+                    writeLine(session, session.line.toString());
+                    session.line.setLength(0);
+                }
+                writeLine(session, "=== Session ended " + LocalDateTime.now().format(TIME_FORMAT) + " ===");
+                release(session.file);
+                session.file = null;
+            }
+        }
+    }
+
+    /**
+     * Write a line to the session's file, moving to a new file at midnight or when it is full
+     */
+    private void writeLine(SessionLog session, String text) throws IOException {
+        LogFile file = session.file;
+        if (file == null) {
+            return;
+        }
+        if (!file.date.equals(LocalDate.now())) {
+            release(file);
+            file = acquire(session.fileName);
+            session.file = file;
+        }
+        file.write(text);
+        long maxBytes = ConfigService.getInstance().getSettings().getSessionLogMaxMegabytes() * 1024L * 1024L;
+        if (maxBytes > 0 && file.size >= maxBytes) {
+            rotate(file);
+        }
+    }
+
+    private LogFile acquire(String fileName) throws IOException {
+        LocalDate today = LocalDate.now();
+        String key = fileName + "-" + today;
+        LogFile file = files.get(key);
+        if (file == null) {
+            file = new LogFile(key, logDirectory.resolve(key + ".log"), today);
+            files.put(key, file);
+        }
+        file.users++;
+        return file;
+    }
+
+    private void release(LogFile file) {
+        if (file != null && --file.users <= 0) {
+            file.close();
+            files.remove(file.key);
+        }
+    }
+
+    /**
+     * Move a full file aside as &lt;host&gt;-&lt;date&gt;.N.log, compress it in the background and start
+     * a new one under the original name
+     */
+    private void rotate(LogFile file) throws IOException {
+        file.close();
+        int index = 1;
+        Path rotated;
+        while (Files.exists(rotated = logDirectory.resolve(file.key + "." + index + ".log"))
+                || Files.exists(logDirectory.resolve(file.key + "." + index + ".log.gz"))) {
+            index++;
+        }
+        Files.move(file.path, rotated);
+        file.open();
+        log.info("Rotated session log {} to {}", file.path, rotated.getFileName());
+
+        Path source = rotated;
+        compressor.execute(() -> compress(source));
+    }
+
+    private static void compress(Path source) {
+        Path target = source.resolveSibling(source.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            log.warn("Failed to compress rotated session log {}", source, e);
+            return;
+        }
+        try {
+            Files.delete(source);
+        } catch (IOException e) {
+            log.warn("Failed to delete {} after compressing it", source, e);
+        }
+    }
+
+    /**
+     * One open log file, shared by the sessions of a host on one day
+     */
+    private static final class LogFile {
+
+        private final String key;
+        private final Path path;
+        private final LocalDate date;
+        private BufferedWriter writer;
+        private long size;
+        private int users;
+
+        LogFile(String key, Path path, LocalDate date) throws IOException {
+            this.key = key;
+            this.path = path;
+            this.date = date;
+            open();
+        }
+
+        void open() throws IOException {
+            Files.createDirectories(path.getParent());
+            size = Files.exists(path) ? Files.size(path) : 0;
+            writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND),
+                    StandardCharsets.UTF_8), 256 * 1024);
+        }
+
+        void write(String text) throws IOException {
+            writer.write(text);
+            writer.write('\n');
+            size += utf8Length(text) + 1;
+        }
+
+        void flush() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                log.warn("Failed to flush session log {}", path, e);
+            }
+        }
+
+        void close() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close session log {}", path, e);
+            }
+        }
+
+        private static int utf8Length(String text) {
+            int length = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                length += c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate(c) ? 2 : 3;
+            }
+            return length;
+        }
+    }
+}
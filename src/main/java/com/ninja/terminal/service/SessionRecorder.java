@@ -0,0 +1,226 @@
+package com.ninja.terminal.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.ninja.terminal.util.JSchTtyConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records a terminal session in asciicast v2 format.
+ *
+ * The recorder listens on a {@link JSchTtyConnector}. The connector's threads only stamp
+ * each chunk and add it to a lock-free queue, waking the background thread only if it is
+ * parked; that thread formats the events and appends them to the file through a 1 MB buffer,
+ * optionally gzip-compressed. What the user types is only recorded when asked for. The queue is
+ * bounded by the characters it holds: if the disk cannot keep up, further output is dropped
+ * rather than slowing the terminal, and a marker event records how much was lost.
+ */
+public class SessionRecorder implements JSchTtyConnector.StreamListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRecorder.class);
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long MAX_QUEUED_CHARS = 16L * 1024 * 1024;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private record Event(long nanos, String type, String data) {
+    }
+
+    private final Path file;
+    private final boolean includeInput;
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedChars = new AtomicLong();
+    private final AtomicLong droppedChars = new AtomicLong();
+    private final JsonGenerator json;
+    private final Thread writerThread;
+    private volatile boolean stopped;
+    private volatile boolean waiting;
+    private long events;
+    private long reportedDrops;
+
+    /**
+     * Create the file, write the header and start the writer thread
+     * @param compress Write a gzip stream (".cast.gz")
+     * @param includeInput Also record what the user types, which can include passwords
+     */
+    public SessionRecorder(Path file, int columns, int rows, String title,
+                           boolean compress, boolean includeInput) throws IOException {
+        this.file = file;
+        this.includeInput = includeInput;
+
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream stream = Channels.newOutputStream(channel);
+        OutputStream out = compress
+                ? new GZIPOutputStream(stream, BUFFER_SIZE, true)
+                : new BufferedOutputStream(stream, BUFFER_SIZE);
+
+        json = new JsonFactory().createGenerator(out);
+        json.setRootValueSeparator(new SerializedString("\n"));
+        json.writeStartObject();
+        json.writeNumberField("version", 2);
+        json.writeNumberField("width", columns);
+        json.writeNumberField("height", rows);
+        json.writeNumberField("timestamp", System.currentTimeMillis() / 1000);
+        json.writeStringField("title", title);
+        json.writeObjectFieldStart("env");
+        json.writeStringField("TERM", "xterm-256color");
+        json.writeEndObject();
+        json.writeEndObject();
+
+        writerThread = new Thread(this::writeLoop, "session-recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Recording session to {}", file);
+    }
+
+    /**
+     * Default location: ~/.ninja-in-terminal/recordings/&lt;name&gt;-&lt;time&gt;.cast
+     */
+    public static Path defaultFile(String name, boolean compress) {
+        String safeName = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        return recordingsDirectory().resolve(safeName + "-" + time + (compress ? ".cast.gz" : ".cast"));
+    }
+
+    public static Path recordingsDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".ninja-in-terminal", "recordings");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getDroppedChars() {
+        return droppedChars.get();
+    }
+
+    @Override
+    public void onOutput(char[] buf, int offset, int length) {
+        enqueue("o", new String(buf, offset, length));
+    }
+
+    @Override
+    public void onInput(byte[] bytes) {
+        if (includeInput) {
+            enqueue("i", new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void onResize(int columns, int rows) {
+        enqueue("r", columns + "x" + rows);
+    }
+
+    private void enqueue(String type, String data) {
+        if (stopped) {
+            return;
+        }
+        if (queuedChars.addAndGet(data.length()) > MAX_QUEUED_CHARS) {
+            queuedChars.addAndGet(-data.length());
+            droppedChars.addAndGet(data.length());
+            return;
+        }
+        queue.add(new Event(System.nanoTime(), type, data));
+        if (waiting) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Stop recording, write what is still queued and close the file
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.nanoTime();
+        boolean unflushed = false;
+        try {
+            while (true) {
+                Event event = queue.poll();
+                if (event != null) {
+                    queuedChars.addAndGet(-event.data().length());
+                    writeEvent(event.nanos(), event.type(), event.data());
+                    unflushed = true;
+                    continue;
+                }
+
+                long dropped = droppedChars.get();
+                if (dropped > reportedDrops) {
+                    writeEvent(System.nanoTime(), "m", "recording dropped " + (dropped - reportedDrops) + " characters");
+                    reportedDrops = dropped;
+                }
+                if (stopped) {
+                    break;
+                }
+                // Flush while idle so the file is readable during the session
+                long sinceFlush = System.nanoTime() - lastFlush;
+                if (unflushed && sinceFlush >= FLUSH_INTERVAL_NANOS) {
+                    json.flush();
+                    lastFlush = System.nanoTime();
+                    unflushed = false;
+                }
+
+                // Producers see the flag before the queue is checked again, so none is missed
+                waiting = true;
+                if (queue.isEmpty() && !stopped) {
+                    if (unflushed) {
+                        LockSupport.parkNanos(FLUSH_INTERVAL_NANOS - sinceFlush);
+                    } else {
+                        LockSupport.park();
+                    }
+                }
+                waiting = false;
+            }
+        } catch (IOException e) {
+            log.error("Recording to {} failed", file, e);
+            stopped = true;
+        } finally {
+            try {
+                json.writeRaw('\n');
+                json.close();
+            } catch (IOException e) {
+                log.warn("Error closing recording {}", file, e);
+            }
+            log.info("Recording {} closed: {} events, {} characters dropped", file, events, droppedChars.get());
+        }
+    }
+
+    private void writeEvent(long nanos, String type, String data) throws IOException {
+        json.writeStartArray();
+        json.writeNumber(Math.round((nanos - startNanos) / 1000.0) / 1_000_000.0);
+        json.writeString(type);
+        json.writeString(data);
+        json.writeEndArray();
+        events++;
+    }
+}
@@ -0,0 +1,167 @@
+package com.ninja.terminal.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * An asciicast v2 file loaded for playback, as written by {@link SessionRecorder}.
+ *
+ * Only output and resize events are kept; input and marker events do not change what the
+ * terminal shows. Gzip-compressed files are detected by their magic bytes.
+ */
+public class SessionRecording {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionRecording.class);
+
+    private final Path file;
+    private final int width;
+    private final int height;
+    private final String title;
+    private final long[] times;
+    private final boolean[] resizes;
+    private final String[] data;
+
+    private SessionRecording(Path file, int width, int height, String title,
+                             long[] times, boolean[] resizes, String[] data) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.title = title;
+        this.times = times;
+        this.resizes = resizes;
+        this.data = data;
+    }
+
+    public static SessionRecording load(Path file) throws IOException {
+        try (InputStream in = open(file);
+             JsonParser parser = new JsonFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not an asciicast file: " + file.getFileName());
+            }
+            int width = 80;
+            int height = 24;
+            int version = 0;
+            String title = file.getFileName().toString();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "version" -> version = parser.getIntValue();
+                    case "width" -> width = parser.getIntValue();
+                    case "height" -> height = parser.getIntValue();
+                    case "title" -> title = parser.getValueAsString(title);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (version != 2) {
+                throw new IOException("Unsupported asciicast version " + version);
+            }
+
+            int count = 0;
+            long[] times = new long[1024];
+            boolean[] resizes = new boolean[1024];
+            List<String> data = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                long time = Math.round(parser.getDoubleValue() * 1_000_000);
+                String type = parser.nextTextValue();
+                String value = parser.nextTextValue();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    parser.skipChildren();
+                }
+                if (!"o".equals(type) && !"r".equals(type) || value == null) {
+                    continue;
+                }
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, count * 2);
+                    resizes = Arrays.copyOf(resizes, count * 2);
+                }
+                times[count] = time;
+                resizes[count] = "r".equals(type);
+                data.add(value);
+                count++;
+            }
+
+            log.info("Loaded recording {}: {} events, {} s", file, count, count > 0 ? times[count - 1] / 1_000_000 : 0);
+            return new SessionRecording(file, width, height, title,
+                    Arrays.copyOf(times, count), Arrays.copyOf(resizes, count), data.toArray(String[]::new));
+        }
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file), 1024 * 1024);
+        in.mark(2);
+        boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        return gzip ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Terminal size at the start of the recording */
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * Time of an event in microseconds since the start
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public boolean isResize(int index) {
+        return resizes[index];
+    }
+
+    /**
+     * Output text, or "COLSxROWS" for a resize
+     */
+    public String getData(int index) {
+        return data[index];
+    }
+
+    /**
+     * Length in microseconds
+     */
+    public long getDuration() {
+        return times.length > 0 ? times[times.length - 1] : 0;
+    }
+
+    /**
+     * Index of the first event after {@code time}
+     */
+    public int indexAfter(long time) {
+        int index = Arrays.binarySearch(times, time);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // Several events can share a timestamp
+        while (index < times.length && times[index] <= time) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of SFTP channels sharing one SSH session.
+ * Channels are opened lazily and handed out to one caller at a time,
+ * since a single ChannelSftp must not be used concurrently.
+ */
+public class SftpChannelPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SftpChannelPool.class);
+
+    private final Session session;
+    private final int maxChannels;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<ChannelSftp> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    public SftpChannelPool(Session session, int maxChannels) {
+        this.session = session;
+        this.maxChannels = Math.max(1, maxChannels);
+        this.permits = new Semaphore(this.maxChannels, true);
+    }
+
+    /**
+     * Borrow a channel, waiting if all channels are in use
+     */
+    public ChannelSftp acquire() throws JSchException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("SFTP channel pool is closed");
+        }
+
+        permits.acquire();
+        try {
+            ChannelSftp channel;
+            while ((channel = idle.pollFirst()) != null) {
+                if (channel.isConnected()) {
+                    return channel;
+                }
+            }
+
+            channel = (ChannelSftp) session.openChannel("sftp");
+            channel.connect();
+            log.debug("Opened pooled SFTP channel");
+            return channel;
+        } catch (JSchException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a borrowed channel to the pool
+     */
+    public void release(ChannelSftp channel) {
+        if (channel == null) {
+            return;
+        }
+
+        if (closed || !channel.isConnected()) {
+            channel.disconnect();
+        } else {
+            idle.offerFirst(channel);
+        }
+        permits.release();
+    }
+
+    /**
+     * Give back a borrowed channel that may be in an unknown state, closing it instead of
+     * reusing it
+     */
+    public void discard(ChannelSftp channel) {
+        if (channel == null) {
+            return;
+        }
+
+        channel.disconnect();
+        permits.release();
+    }
+
+    public int getMaxChannels() {
+        return maxChannels;
+    }
+
+    /**
+     * Number of channels a background task (batch, copy, delete, search, mirror) may hold at
+     * once: all but one, which stays free for browsing. A pool of one channel has nothing to
+     * spare, so background tasks then share its only channel with browsing.
+     */
+    public int getWorkerBudget() {
+        return Math.max(1, maxChannels - 1);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ChannelSftp channel;
+        while ((channel = idle.pollFirst()) != null) {
+            channel.disconnect();
+        }
+    }
+}
@@ -1,39 +1,99 @@
 package com.ninja.terminal.service;
 
 import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
+import com.ninja.terminal.model.AppConfig;
 import com.ninja.terminal.model.HostInfo;
 import com.ninja.terminal.model.RemoteFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Vector;
 
+/**
+ * SFTP operations on one SSH session.
+ *
+ * Every operation borrows a channel from a bounded per-session pool for its duration, so
+ * independent operations (a listing while an upload runs, a delete while a search walks)
+ * proceed in parallel and a ChannelSftp is never used by two threads at once. The browsing
+ * state is only the path being shown; it is not tied to any channel, and all operations take
+ * absolute paths.
+ */
 public class SftpService {
 
     private static final Logger log = LoggerFactory.getLogger(SftpService.class);
+    private static final int PREFETCH_BUDGET = 2;
+    private static final int PREFETCH_MAX_LISTING = 10_000;
+    private static final long DELTA_MIN_SIZE = 1024 * 1024;
 
-    private Session session;
-    private ChannelSftp sftpChannel;
-    private String currentPath = "/";
+    /**
+     * Directories first, then files, alphabetically
+     */
+    public static final Comparator<RemoteFile> LISTING_ORDER = (f1, f2) -> {
+        if (f1.isDirectory() && !f2.isDirectory()) return -1;
+        if (!f1.isDirectory() && f2.isDirectory()) return 1;
+        return f1.getFilename().compareToIgnoreCase(f2.getFilename());
+    };
+
+    private volatile Session session;
+    private volatile SftpChannelPool channelPool;
+    private volatile String currentPath = "/";
+    private DirectoryPrefetcher prefetcher;
+    private DeltaUploader deltaUploader;
+    private boolean deltaProbed;
+    private TransferVerifier verifier;
+    private final DirectoryListingCache listingCache = new DirectoryListingCache();
 
     /**
      * Connect to SFTP using an existing SSH session
      */
     public void connect(Session session) throws Exception {
-        this.session = session;
+        int maxChannels = ConfigService.getInstance().getSettings().getSftpMaxChannels();
+        SftpChannelPool pool = new SftpChannelPool(session, maxChannels);
+
+        // Open the first channel now so connection problems surface here
+        String home;
+        try {
+            ChannelSftp channel = pool.acquire();
+            try {
+                home = channel.pwd();
+            } finally {
+                pool.release(channel);
+            }
+        } catch (Exception e) {
+            pool.close();
+            throw e;
+        }
 
-        sftpChannel = (ChannelSftp) session.openChannel("sftp");
-        sftpChannel.connect();
+        SftpChannelPool previous;
+        synchronized (this) {
+            previous = this.channelPool;
+            if (prefetcher != null) {
+                prefetcher.shutdown();
+                prefetcher = null;
+            }
+            this.session = session;
+            this.channelPool = pool;
+            deltaUploader = null;
+            deltaProbed = false;
+            verifier = null;
+        }
+        if (previous != null) {
+            previous.close();
+        }
+        listingCache.clear();
 
-        // Get initial path
-        currentPath = sftpChannel.pwd();
+        currentPath = home;
         log.info("SFTP connected, current path: {}", currentPath);
     }
 
@@ -47,14 +107,17 @@ public class SftpService {
     /**
      * List files in a specific directory
      */
-    @SuppressWarnings("unchecked")
     public List<RemoteFile> listFiles(String path) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
-        }
+        return withChannel(channel -> listFiles(channel, path));
+    }
 
+    /**
+     * List a directory on the given channel and store the result in the listing cache
+     */
+    @SuppressWarnings("unchecked")
+    private List<RemoteFile> listFiles(ChannelSftp channel, String path) throws SftpException {
         List<RemoteFile> files = new ArrayList<>();
-        Vector<ChannelSftp.LsEntry> entries = sftpChannel.ls(path);
+        Vector<ChannelSftp.LsEntry> entries = channel.ls(path);
 
         for (ChannelSftp.LsEntry entry : entries) {
             String filename = entry.getFilename();
@@ -64,40 +127,193 @@ public class SftpService {
                 continue;
             }
 
-            com.jcraft.jsch.SftpATTRS attrs = entry.getAttrs();
+            files.add(toRemoteFile(entry, path));
+        }
+
+        // Sort: directories first, then files, alphabetically
+        files.sort(LISTING_ORDER);
+
+        listingCache.put(path, files);
+        return files;
+    }
 
-            RemoteFile file = new RemoteFile(
-                filename,
-                path,
-                attrs.getSize(),
-                attrs.getPermissions(),
-                new java.util.Date((long) attrs.getMTime() * 1000),
-                attrs.isDir()
-            );
+    /**
+     * Stream a directory listing in batches as entries arrive from the server,
+     * without materializing the whole listing. Batches are delivered unsorted.
+     * @param limit Stop after this many entries
+     * @return Number of entries delivered
+     */
+    public int streamFiles(String path, int batchSize, int limit, BatchListener listener) throws SftpException {
+        StreamingSelector selector = new StreamingSelector(path, batchSize, limit, listener);
+        withChannel(channel -> {
+            channel.ls(path, selector);
+            return null;
+        });
+        selector.flush();
 
-            files.add(file);
+        // Complete listings small enough for the cache are kept for later navigation
+        if (!selector.stopped && selector.collected != null) {
+            selector.collected.sort(LISTING_ORDER);
+            listingCache.put(path, selector.collected);
         }
 
-        // Sort: directories first, then files, alphabetically
-        files.sort((f1, f2) -> {
-            if (f1.isDirectory() && !f2.isDirectory()) return -1;
-            if (!f1.isDirectory() && f2.isDirectory()) return 1;
-            return f1.getFilename().compareToIgnoreCase(f2.getFilename());
+        return selector.count;
+    }
+
+    /**
+     * Receives listing batches from {@link #streamFiles}
+     */
+    public interface BatchListener {
+        /**
+         * @return false to stop the listing
+         */
+        boolean onBatch(List<RemoteFile> batch);
+    }
+
+    private static class StreamingSelector implements ChannelSftp.LsEntrySelector {
+        private static final int CACHEABLE_SIZE = 5000;
+
+        private final String path;
+        private final int batchSize;
+        private final int limit;
+        private final BatchListener listener;
+
+        private List<RemoteFile> batch;
+        private List<RemoteFile> collected = new ArrayList<>();
+        private int count;
+        private boolean stopped;
+
+        StreamingSelector(String path, int batchSize, int limit, BatchListener listener) {
+            this.path = path;
+            this.batchSize = batchSize;
+            this.limit = limit;
+            this.listener = listener;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public int select(ChannelSftp.LsEntry entry) {
+            String filename = entry.getFilename();
+            if (".".equals(filename) || "..".equals(filename)) {
+                return CONTINUE;
+            }
+
+            RemoteFile file = toRemoteFile(entry, path);
+            batch.add(file);
+            count++;
+
+            if (collected != null) {
+                collected.add(file);
+                if (collected.size() > CACHEABLE_SIZE) {
+                    collected = null;
+                }
+            }
+
+            if (batch.size() >= batchSize && !flush()) {
+                stopped = true;
+                return BREAK;
+            }
+            if (count >= limit) {
+                stopped = true;
+                return BREAK;
+            }
+            return CONTINUE;
+        }
+
+        boolean flush() {
+            if (batch.isEmpty()) {
+                return true;
+            }
+            List<RemoteFile> full = batch;
+            batch = new ArrayList<>(batchSize);
+            return listener.onBatch(full);
+        }
+    }
+
+    static RemoteFile toRemoteFile(ChannelSftp.LsEntry entry, String path) {
+        com.jcraft.jsch.SftpATTRS attrs = entry.getAttrs();
+
+        return new RemoteFile(
+            entry.getFilename(),
+            path,
+            attrs.getSize(),
+            attrs.getPermissions(),
+            attrs.getMTime() & 0xFFFFFFFFL,
+            attrs.isDir()
+        );
+    }
+
+    /**
+     * Get the cached listing of a directory without a round trip, or null if not cached
+     */
+    public DirectoryListingCache.Entry getCachedListing(String path) {
+        return listingCache.get(path);
+    }
+
+    /**
+     * Prefetch the most likely next subdirectories of a listing into the cache.
+     * Does nothing unless prefetching is enabled in settings.
+     */
+    public void prefetchSubdirectories(List<RemoteFile> listing) {
+        AppConfig.Settings settings = ConfigService.getInstance().getSettings();
+        if (!settings.isSftpPrefetchEnabled() || !isConnected() || listing.size() > PREFETCH_MAX_LISTING) {
+            return;
+        }
+        // With a single channel, prefetching would hold the one the user needs
+        if (getChannelPool().getMaxChannels() < 2) {
+            return;
+        }
+
+        long ttl = getCacheTtlMillis();
+        getPrefetcher().prefetch(listing, settings.getSftpPrefetchCount(), path -> {
+            DirectoryListingCache.Entry cached = listingCache.get(path);
+            return cached == null || !cached.isFresh(ttl);
         });
+    }
 
-        return files;
+    private synchronized DirectoryPrefetcher getPrefetcher() {
+        if (prefetcher == null) {
+            // Prefetching is skipped altogether when the pool has only one channel
+            int budget = Math.min(PREFETCH_BUDGET, getChannelPool().getWorkerBudget());
+            prefetcher = new DirectoryPrefetcher(path -> {
+                SftpChannelPool pool = getChannelPool();
+                ChannelSftp channel = pool.acquire();
+                try {
+                    listFiles(channel, path);
+                } finally {
+                    pool.release(channel);
+                }
+            }, budget);
+        }
+        return prefetcher;
+    }
+
+    /**
+     * How long a cached listing is shown without being revalidated
+     */
+    public long getCacheTtlMillis() {
+        return ConfigService.getInstance().getSettings().getSftpCacheTtlSeconds() * 1000L;
     }
 
     /**
-     * Change current directory
+     * Change the directory being browsed. Relative paths are resolved against it.
      */
     public void changeDirectory(String path) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
-        }
+        String target = path.startsWith("/") ? path
+                : (currentPath.endsWith("/") ? currentPath : currentPath + "/") + path;
+
+        String resolved = withChannel(channel -> {
+            String real = channel.realpath(target);
+            if (!channel.stat(real).isDir()) {
+                throw new SftpException(ChannelSftp.SSH_FX_FAILURE, real + " is not a directory");
+            }
+            return real;
+        });
 
-        sftpChannel.cd(path);
-        currentPath = sftpChannel.pwd();
+        currentPath = resolved;
+        if (prefetcher != null || ConfigService.getInstance().getSettings().isSftpPrefetchEnabled()) {
+            getPrefetcher().recordVisit(currentPath);
+        }
         log.info("Changed directory to: {}", currentPath);
     }
 
@@ -109,128 +325,330 @@ public class SftpService {
             return;
         }
 
-        String parent = currentPath.substring(0, currentPath.lastIndexOf('/'));
-        if (parent.isEmpty()) {
-            parent = "/";
+        changeDirectory(getParentPath(currentPath));
+    }
+
+    /**
+     * Get the parent of an absolute remote path
+     */
+    public static String getParentPath(String path) {
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
         }
 
-        changeDirectory(parent);
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash <= 0) {
+            return "/";
+        }
+        return path.substring(0, lastSlash);
     }
 
     /**
      * Download a file
+     * @return Result of the integrity check, or null when verification is off
      */
-    public void downloadFile(String remotePath, String localPath) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
-        }
-
-        sftpChannel.get(remotePath, localPath);
-        log.info("Downloaded: {} -> {}", remotePath, localPath);
+    public TransferVerifier.Result downloadFile(String remotePath, String localPath) throws SftpException, IOException {
+        return downloadFile(remotePath, localPath, null);
     }
 
     /**
      * Download a file with progress monitoring
+     * @return Result of the integrity check, or null when verification is off
      */
-    public void downloadFile(String remotePath, String localPath, ProgressMonitor monitor) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
+    public TransferVerifier.Result downloadFile(String remotePath, String localPath, ProgressMonitor monitor)
+            throws SftpException, IOException {
+        requireConnected();
+
+        if (ConfigService.getInstance().getSettings().isSftpVerifyTransfers()) {
+            TransferVerifier.Result result = getVerifier().download(remotePath, localPath, monitor);
+            log.info("Downloaded: {} -> {} ({})", remotePath, localPath, result);
+            return result;
         }
 
-        sftpChannel.get(remotePath, localPath, monitor);
+        withChannel(channel -> {
+            channel.get(remotePath, localPath, monitor);
+            return null;
+        });
         log.info("Downloaded: {} -> {}", remotePath, localPath);
+        return null;
     }
 
     /**
      * Upload a file
+     * @return Result of the integrity check, or null when verification is off
      */
-    public void uploadFile(String localPath, String remotePath) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
+    public TransferVerifier.Result uploadFile(String localPath, String remotePath) throws SftpException, IOException {
+        return uploadFile(localPath, remotePath, null);
+    }
+
+    /**
+     * Upload a file with progress monitoring
+     * @return Result of the integrity check, or null when verification is off
+     */
+    public TransferVerifier.Result uploadFile(String localPath, String remotePath, ProgressMonitor monitor)
+            throws SftpException, IOException {
+        requireConnected();
+
+        TransferVerifier.Result result = null;
+        try {
+            if (ConfigService.getInstance().getSettings().isSftpVerifyTransfers()) {
+                result = getVerifier().upload(localPath, remotePath, monitor);
+            } else {
+                withChannel(channel -> {
+                    channel.put(localPath, remotePath, monitor);
+                    return null;
+                });
+            }
+        } finally {
+            listingCache.invalidate(getParentPath(remotePath));
         }
+        log.info("Uploaded: {} -> {}{}", localPath, remotePath, result != null ? " (" + result + ")" : "");
+        return result;
+    }
 
-        sftpChannel.put(localPath, remotePath);
-        log.info("Uploaded: {} -> {}", localPath, remotePath);
+    /**
+     * Upload a file, sending only the changed parts when it replaces a large remote file
+     * and the server can run the delta helper. Falls back to a full upload otherwise.
+     * Either way the result is verified when verification is on.
+     */
+    public DeltaUploader.Result uploadFileDelta(String localPath, String remotePath) throws SftpException, IOException {
+        requireConnected();
+
+        long localSize = new File(localPath).length();
+        long remoteSize = remoteFileSize(remotePath);
+        DeltaUploader uploader = remoteSize >= DELTA_MIN_SIZE ? getDeltaUploader() : null;
+
+        if (uploader != null) {
+            DeltaUploader.Result result = null;
+            try {
+                result = uploader.upload(new File(localPath).toPath(), remotePath, remoteSize);
+            } catch (JSchException | IOException e) {
+                log.warn("Delta upload of {} failed, uploading in full: {}", remotePath, e.getMessage());
+            } finally {
+                listingCache.invalidate(getParentPath(remotePath));
+            }
+            if (result != null) {
+                TransferVerifier verifier = getVerifierIfEnabled();
+                TransferVerifier.Result check = verifier != null ? verifier.verifyUpload(localPath, remotePath) : null;
+                log.info("Uploaded: {} -> {} (delta{})", localPath, remotePath, check != null ? ", " + check : "");
+                return result.withCheck(check);
+            }
+        }
+
+        TransferVerifier.Result check = uploadFile(localPath, remotePath);
+        return new DeltaUploader.Result(localSize, localSize, 0).withCheck(check);
+    }
+
+    private long remoteFileSize(String remotePath) throws SftpException {
+        try {
+            SftpATTRS attrs = withChannel(channel -> channel.stat(remotePath));
+            return attrs.isReg() ? attrs.getSize() : -1;
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return -1;
+            }
+            throw e;
+        }
     }
 
     /**
-     * Upload a file with progress monitoring
+     * The delta helper, probed once per connection; null while delta uploads are off,
+     * so nothing runs on the server for it then
      */
-    public void uploadFile(String localPath, String remotePath, ProgressMonitor monitor) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
+    private synchronized DeltaUploader getDeltaUploader() {
+        if (!ConfigService.getInstance().getSettings().isSftpDeltaUpload()) {
+            return null;
+        }
+        if (!deltaProbed) {
+            deltaUploader = DeltaUploader.probe(session);
+            deltaProbed = true;
+            log.info("Delta uploads {}", deltaUploader != null ? "available" : "not available (no python on server)");
+        }
+        return deltaUploader;
+    }
+
+    private synchronized TransferVerifier getVerifier() {
+        DeltaUploader helper = getDeltaUploader();
+        // Rebuilt when delta uploads are switched on or off
+        if (verifier == null || verifier.getHelper() != helper) {
+            verifier = new TransferVerifier(session, getChannelPool(), helper);
         }
+        return verifier;
+    }
 
-        sftpChannel.put(localPath, remotePath, monitor);
-        log.info("Uploaded: {} -> {}", localPath, remotePath);
+    /**
+     * The verifier when transfers are to be verified, null otherwise
+     */
+    TransferVerifier getVerifierIfEnabled() {
+        return ConfigService.getInstance().getSettings().isSftpVerifyTransfers() ? getVerifier() : null;
     }
 
     /**
      * Delete a file
      */
     public void deleteFile(String path) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
-        }
+        requireConnected();
 
-        sftpChannel.rm(path);
+        withChannel(channel -> {
+            channel.rm(path);
+            return null;
+        });
+        listingCache.invalidate(getParentPath(path));
         log.info("Deleted file: {}", path);
     }
 
     /**
      * Delete a directory recursively (removes all contents)
      */
-    public void deleteDirectory(String path) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
+    public void deleteDirectory(String path) throws SftpException, InterruptedException {
+        createDeleteTask(path).run();
+        log.info("Deleted directory recursively: {}", path);
+    }
+
+    /**
+     * Create a parallel delete task for a directory tree.
+     * The caller runs it on a background thread and may cancel it.
+     */
+    public RemoteDeleteTask createDeleteTask(String path) {
+        requireConnected();
+
+        // Parts of the tree may be gone even if the task fails or is cancelled. Invalidate
+        // again at the end, since a listing that ran meanwhile may have cached entries since deleted.
+        invalidateCachedTree(path);
+
+        RemoteDeleteTask task = new RemoteDeleteTask(session, getChannelPool(), path);
+        task.setExecFallback(ConfigService.getInstance().getSettings().isSftpExecDelete());
+        task.setOnFinished(() -> invalidateCachedTree(path));
+        return task;
+    }
+
+    /**
+     * Create a batch operation over several selected entries.
+     * The caller sets the operation's destination, runs it on a background thread and may cancel it.
+     */
+    public RemoteBatchTask createBatchTask(RemoteBatchTask.Operation operation, List<RemoteFile> files) {
+        requireConnected();
+
+        RemoteBatchTask task = new RemoteBatchTask(session, getChannelPool(), operation, files);
+        task.setExecFallback(ConfigService.getInstance().getSettings().isSftpExecDelete());
+        if (operation == RemoteBatchTask.Operation.DOWNLOAD) {
+            task.setVerifier(getVerifierIfEnabled());
+        }
+        if (operation != RemoteBatchTask.Operation.DOWNLOAD) {
+            invalidateBatch(task);
+            task.setOnFinished(() -> invalidateBatch(task));
         }
+        return task;
+    }
 
-        deleteDirectoryRecursive(path);
-        log.info("Deleted directory recursively: {}", path);
+    /**
+     * Drop cached listings a batch changes, before it starts and again once it has finished
+     */
+    private void invalidateBatch(RemoteBatchTask task) {
+        for (RemoteFile file : task.getFiles()) {
+            invalidateCachedTree(file.getFullPath());
+        }
+        if (task.getTargetDirectory() != null) {
+            invalidateCachedTree(task.getTargetDirectory());
+        }
     }
 
     /**
-     * Recursively delete directory and all its contents
+     * Create a search for entries below a directory whose name matches a glob or regex.
+     * Limits come from the settings; the caller runs it on a background thread.
      */
-    private void deleteDirectoryRecursive(String path) throws SftpException {
-        // List all files and subdirectories
-        @SuppressWarnings("unchecked")
-        Vector<ChannelSftp.LsEntry> entries = sftpChannel.ls(path);
+    public RemoteSearchTask createSearchTask(String rootPath, String pattern, boolean regex) {
+        requireConnected();
+
+        AppConfig.Settings settings = ConfigService.getInstance().getSettings();
+        RemoteSearchTask task = new RemoteSearchTask(session, getChannelPool(), rootPath, pattern);
+        task.setRegex(regex);
+        task.setMaxDepth(settings.getSftpSearchMaxDepth());
+        task.setTimeLimitMillis(settings.getSftpSearchTimeLimitSeconds() * 1000L);
+        task.setMaxResults(settings.getSftpSearchMaxResults());
+        task.setUseFind(settings.isSftpSearchUseFind());
+        return task;
+    }
 
-        for (ChannelSftp.LsEntry entry : entries) {
-            String filename = entry.getFilename();
+    /**
+     * Open a paged reader for viewing a remote file without downloading it.
+     * The caller closes the reader when done.
+     */
+    public RemoteFileReader openReader(String path) throws SftpException, InterruptedException {
+        requireConnected();
 
-            // Skip . and ..
-            if (".".equals(filename) || "..".equals(filename)) {
-                continue;
-            }
+        RemoteFileReader reader = new RemoteFileReader(session, getChannelPool(), path);
+        reader.open();
+        return reader;
+    }
 
-            String fullPath = path.endsWith("/") ? path + filename : path + "/" + filename;
+    /**
+     * Create a follower for a growing file. The caller starts and stops it;
+     * it stops by itself when the connection is closed.
+     */
+    public RemoteTailer createTailer(String path, RemoteTailer.Listener listener) {
+        requireConnected();
 
-            if (entry.getAttrs().isDir()) {
-                // Recursively delete subdirectory
-                deleteDirectoryRecursive(fullPath);
-            } else {
-                // Delete file
-                sftpChannel.rm(fullPath);
-                log.debug("Deleted file: {}", fullPath);
-            }
+        return new RemoteTailer(getChannelPool(), path, listener);
+    }
+
+    /**
+     * Pool of SFTP channels all operations of this session run on
+     */
+    SftpChannelPool getChannelPool() {
+        SftpChannelPool pool = channelPool;
+        if (pool == null) {
+            throw new IllegalStateException("SFTP channel is not connected");
         }
+        return pool;
+    }
 
-        // Delete the empty directory itself
-        sftpChannel.rmdir(path);
-        log.debug("Deleted empty directory: {}", path);
+    /**
+     * An operation on a borrowed channel
+     */
+    private interface ChannelCall<T> {
+        T call(ChannelSftp channel) throws SftpException;
     }
 
     /**
-     * Create a new directory
+     * Run an operation on a pooled channel, waiting for one to become free if needed
      */
-    public void createDirectory(String path) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
+    private <T> T withChannel(ChannelCall<T> call) throws SftpException {
+        SftpChannelPool pool = getChannelPool();
+        ChannelSftp channel;
+        try {
+            channel = pool.acquire();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "Interrupted while waiting for an SFTP channel", e);
+        }
+
+        try {
+            return call.call(channel);
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    private void requireConnected() {
+        if (!isConnected()) {
             throw new IllegalStateException("SFTP channel is not connected");
         }
+    }
+
+    /**
+     * Create a new directory
+     */
+    public void createDirectory(String path) throws SftpException {
+        requireConnected();
 
-        sftpChannel.mkdir(path);
+        withChannel(channel -> {
+            channel.mkdir(path);
+            return null;
+        });
+        listingCache.invalidate(getParentPath(path));
         log.info("Created directory: {}", path);
     }
 
@@ -238,11 +656,15 @@ public class SftpService {
      * Rename a file or directory
      */
     public void rename(String oldPath, String newPath) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
-            throw new IllegalStateException("SFTP channel is not connected");
-        }
+        requireConnected();
 
-        sftpChannel.rename(oldPath, newPath);
+        withChannel(channel -> {
+            channel.rename(oldPath, newPath);
+            return null;
+        });
+        listingCache.invalidateTree(oldPath);
+        listingCache.invalidate(getParentPath(oldPath));
+        listingCache.invalidate(getParentPath(newPath));
         log.info("Renamed: {} -> {}", oldPath, newPath);
     }
 
@@ -250,12 +672,42 @@ public class SftpService {
      * Change permissions
      */
     public void chmod(String path, int permissions) throws SftpException {
-        if (sftpChannel == null || !sftpChannel.isConnected()) {
+        requireConnected();
+
+        withChannel(channel -> {
+            channel.chmod(permissions, path);
+            return null;
+        });
+        listingCache.invalidate(getParentPath(path));
+        log.info("Changed permissions of {}: {}", path, Integer.toOctalString(permissions));
+    }
+
+    /**
+     * Drop cached listings of a path, everything below it and its parent
+     */
+    public void invalidateCachedTree(String path) {
+        listingCache.invalidateTree(path);
+        listingCache.invalidate(getParentPath(path));
+    }
+
+    /**
+     * Copy a file or directory from this session to another one without going through local disk
+     */
+    public RemoteCopyTask createCopyTask(String sourcePath, SftpService target, String targetPath) {
+        if (!isConnected() || !target.isConnected()) {
             throw new IllegalStateException("SFTP channel is not connected");
         }
 
-        sftpChannel.chmod(permissions, path);
-        log.info("Changed permissions of {}: {}", path, Integer.toOctalString(permissions));
+        RemoteCopyTask task = new RemoteCopyTask(this, target, sourcePath, targetPath);
+        task.setDirectTransfer(ConfigService.getInstance().getSettings().isSftpDirectTransfer());
+        return task;
+    }
+
+    /**
+     * Get the SSH session this SFTP connection runs on
+     */
+    public Session getSession() {
+        return session;
     }
 
     /**
@@ -269,15 +721,26 @@ public class SftpService {
      * Check if connected
      */
     public boolean isConnected() {
-        return sftpChannel != null && sftpChannel.isConnected();
+        Session current = session;
+        return channelPool != null && current != null && current.isConnected();
     }
 
     /**
      * Disconnect
      */
     public void disconnect() {
-        if (sftpChannel != null && sftpChannel.isConnected()) {
-            sftpChannel.disconnect();
+        SftpChannelPool pool;
+        synchronized (this) {
+            if (prefetcher != null) {
+                prefetcher.shutdown();
+                prefetcher = null;
+            }
+            pool = channelPool;
+            channelPool = null;
+        }
+        listingCache.clear();
+        if (pool != null) {
+            pool.close();
             log.info("SFTP disconnected");
         }
     }
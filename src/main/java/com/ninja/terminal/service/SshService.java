@@ -2,6 +2,8 @@ package com.ninja.terminal.service;
 
 import com.jcraft.jsch.*;
 import com.ninja.terminal.model.HostInfo;
+import com.ninja.terminal.util.CountingSocketFactory;
+import com.ninja.terminal.util.MeteredCompression;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +18,8 @@ public class SshService {
     private final JSch jsch;
     private Session session;
     private ChannelShell channel;
+    private CompressionMonitor compressionMonitor;
+    private final MeteredCompression.Meter compressionMeter = new MeteredCompression.Meter();
     
     public SshService() {
         this.jsch = new JSch();
@@ -42,12 +46,40 @@ public class SshService {
         // Skip host key checking (for simplicity - in production you'd want to handle this properly)
         Properties config = new Properties();
         config.put("StrictHostKeyChecking", "no");
+
+        int timeout = ConfigService.getInstance().getSettings().getConnectionTimeout();
+        HostInfo.CompressionMode compression = getCompressionMode(hostInfo);
+        CountingSocketFactory socketFactory = null;
+        if (compression != HostInfo.CompressionMode.NONE) {
+            // Both zlib variants are metered so the achieved ratio can be reported
+            config.put("zlib@openssh.com", MeteredCompression.class.getName());
+            config.put("zlib", MeteredCompression.class.getName());
+            config.put("compression_level", String.valueOf(CompressionMonitor.DEFAULT_LEVEL));
+        }
+        if (compression == HostInfo.CompressionMode.ZLIB) {
+            config.put("compression.s2c", CompressionMonitor.ZLIB_METHODS);
+            config.put("compression.c2s", CompressionMonitor.ZLIB_METHODS);
+        } else if (compression == HostInfo.CompressionMode.AUTO) {
+            // Auto mode starts uncompressed and decides from measured wire throughput
+            socketFactory = new CountingSocketFactory(timeout);
+            session.setSocketFactory(socketFactory);
+        }
         session.setConfig(config);
         
-        int timeout = ConfigService.getInstance().getSettings().getConnectionTimeout();
-        session.connect(timeout);
+        compressionMeter.reset();
+        MeteredCompression.attach(compressionMeter);
+        try {
+            session.connect(timeout);
+        } finally {
+            MeteredCompression.attach(null);
+        }
+
+        if (socketFactory != null) {
+            compressionMonitor = new CompressionMonitor(session, socketFactory, compressionMeter);
+            compressionMonitor.start();
+        }
         
-        log.info("Connected to {}", hostInfo.getHostname());
+        log.info("Connected to {} (compression: {})", hostInfo.getHostname(), compression);
     }
     
     public ChannelShell openShell() throws JSchException {
@@ -78,7 +110,49 @@ public class SshService {
         return channel.getOutputStream();
     }
     
+    /**
+     * Compression mode for a host, falling back to the global setting
+     */
+    private static HostInfo.CompressionMode getCompressionMode(HostInfo hostInfo) {
+        if (hostInfo.getCompression() != null) {
+            return hostInfo.getCompression();
+        }
+        HostInfo.CompressionMode global = ConfigService.getInstance().getSettings().getCompression();
+        return global != null ? global : HostInfo.CompressionMode.NONE;
+    }
+
+    /**
+     * Check whether the session currently compresses traffic
+     */
+    public boolean isCompressionActive() {
+        return session != null && compressionMeter.isActive();
+    }
+
+    /**
+     * Achieved compression ratio (uncompressed / compressed) since the last key exchange,
+     * or 0 if nothing was compressed
+     */
+    public double getCompressionRatio() {
+        return session != null ? compressionMeter.getRatio() : 0;
+    }
+
+    /**
+     * Short compression status for display, e.g. "zlib 3.2x"
+     */
+    public String getCompressionSummary() {
+        if (!isCompressionActive()) {
+            return compressionMonitor != null ? "compression: auto (off)" : "no compression";
+        }
+        double ratio = getCompressionRatio();
+        String mode = compressionMonitor != null ? "auto zlib" : "zlib";
+        return ratio > 0 ? String.format("%s %.1fx", mode, ratio) : mode;
+    }
+
     public void disconnect() {
+        if (compressionMonitor != null) {
+            compressionMonitor.stop();
+            compressionMonitor = null;
+        }
         if (channel != null) {
             channel.disconnect();
             channel = null;
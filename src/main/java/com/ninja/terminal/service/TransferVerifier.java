@@ -0,0 +1,349 @@
+package com.ninja.terminal.service;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import com.jcraft.jsch.SftpProgressMonitor;
+import com.ninja.terminal.util.RemoteExec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Transfers that check their result against the server.
+ *
+ * The file is hashed while it streams through the transfer (whole-file SHA-256 and MD5 plus
+ * an MD5 per 1 MB chunk), so no extra local read pass is needed. The SHA-256 is compared with
+ * sha256sum run over an exec channel. On a mismatch the server-side delta helper, available
+ * when delta uploads are enabled, lists the chunk digests of the remote file and only the
+ * differing chunks are transferred again: re-read by offset for downloads, resent through the
+ * helper's patch mode for uploads. Without the helper a mismatch fails the transfer.
+ */
+public class TransferVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferVerifier.class);
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Outcome of the check after a transfer
+     */
+    public static class Result {
+        private final boolean verified;
+        private final int repairedChunks;
+
+        Result(boolean verified, int repairedChunks) {
+            this.verified = verified;
+            this.repairedChunks = repairedChunks;
+        }
+
+        /** False when the server offered no way to compute a hash */
+        public boolean isVerified() { return verified; }
+        public int getRepairedChunks() { return repairedChunks; }
+
+        @Override
+        public String toString() {
+            if (!verified) {
+                return "not verified";
+            }
+            return repairedChunks > 0 ? "verified after repairing " + repairedChunks + " chunks" : "verified";
+        }
+    }
+
+    private final Session session;
+    private final SftpChannelPool pool;
+    private final DeltaUploader helper;
+
+    /**
+     * @param helper Delta helper used for chunk digests and upload repair, null if the server has none
+     */
+    public TransferVerifier(Session session, SftpChannelPool pool, DeltaUploader helper) {
+        this.session = session;
+        this.pool = pool;
+        this.helper = helper;
+    }
+
+    DeltaUploader getHelper() {
+        return helper;
+    }
+
+    /**
+     * Download a file, hashing it on the way, then verify and repair it
+     */
+    public Result download(String remotePath, String localPath, SftpProgressMonitor monitor)
+            throws SftpException, IOException {
+        ChannelSftp channel = acquire();
+        try {
+            return download(channel, remotePath, localPath, monitor);
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    /**
+     * Download, verify and repair a file on a channel the caller already holds
+     */
+    public Result download(ChannelSftp channel, String remotePath, String localPath, SftpProgressMonitor monitor)
+            throws SftpException, IOException {
+        Hasher hasher = new Hasher();
+        try (InputStream in = channel.get(remotePath, monitor, 0L);
+             OutputStream out = Files.newOutputStream(Path.of(localPath))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                hasher.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        hasher.finish();
+
+        String remoteSha = remoteSha256(remotePath);
+        if (hasher.sha256Hex().equals(remoteSha)) {
+            return new Result(true, 0);
+        }
+        if (helper == null) {
+            return unrepairable(remotePath, remoteSha);
+        }
+
+        List<byte[]> remoteChunks = blockDigests(remotePath);
+        Set<Integer> changed = changedChunks(hasher.chunkDigests, remoteChunks);
+        if (changed.isEmpty() && hasher.chunkDigests.size() == remoteChunks.size()) {
+            return new Result(true, 0);
+        }
+
+        log.warn("Download of {} differs from the server in {} chunks, fetching them again", remotePath, changed.size());
+        repairDownload(channel, remotePath, localPath, changed, remoteChunks);
+        return new Result(true, changed.size());
+    }
+
+    /**
+     * Upload a file, hashing it on the way, then verify and repair it
+     */
+    public Result upload(String localPath, String remotePath, SftpProgressMonitor monitor)
+            throws SftpException, IOException {
+        ChannelSftp channel = acquire();
+        try {
+            return upload(channel, localPath, remotePath, monitor);
+        } finally {
+            pool.release(channel);
+        }
+    }
+
+    /**
+     * Upload, verify and repair a file on a channel the caller already holds
+     */
+    public Result upload(ChannelSftp channel, String localPath, String remotePath, SftpProgressMonitor monitor)
+            throws SftpException, IOException {
+        Hasher hasher = new Hasher();
+        try (InputStream in = Files.newInputStream(Path.of(localPath));
+             OutputStream out = channel.put(remotePath, monitor, ChannelSftp.OVERWRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                hasher.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        }
+        hasher.finish();
+        return checkUpload(hasher, localPath, remotePath);
+    }
+
+    /**
+     * Verify and repair a file that reached the server some other way, such as a delta upload.
+     * This reads the local file once more to hash it.
+     */
+    public Result verifyUpload(String localPath, String remotePath) throws IOException {
+        Hasher hasher = new Hasher();
+        try (InputStream in = Files.newInputStream(Path.of(localPath))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                hasher.update(buffer, 0, read);
+            }
+        }
+        hasher.finish();
+        return checkUpload(hasher, localPath, remotePath);
+    }
+
+    private Result checkUpload(Hasher hasher, String localPath, String remotePath) throws IOException {
+        String remoteSha = remoteSha256(remotePath);
+        if (hasher.sha256Hex().equals(remoteSha)) {
+            return new Result(true, 0);
+        }
+        if (helper == null) {
+            return unrepairable(remotePath, remoteSha);
+        }
+
+        List<byte[]> remoteChunks = blockDigests(remotePath);
+        Set<Integer> changed = changedChunks(remoteChunks, hasher.chunkDigests);
+        if (changed.isEmpty() && hasher.chunkDigests.size() == remoteChunks.size()) {
+            return new Result(true, 0);
+        }
+
+        log.warn("Upload of {} differs on the server in {} chunks, sending them again", remotePath, changed.size());
+        try {
+            helper.repair(Path.of(localPath), remotePath, CHUNK_SIZE, changed, hasher.md5);
+        } catch (JSchException e) {
+            throw new IOException("Could not repair " + remotePath + ": " + e.getMessage(), e);
+        }
+        return new Result(true, changed.size());
+    }
+
+    /**
+     * Indexes of chunks in {@code actual} that are missing from or differ in {@code expected}
+     */
+    private static Set<Integer> changedChunks(List<byte[]> actual, List<byte[]> expected) {
+        Set<Integer> changed = new TreeSet<>();
+        for (int i = 0; i < expected.size(); i++) {
+            if (i >= actual.size() || !Arrays.equals(actual.get(i), expected.get(i))) {
+                changed.add(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Overwrite the given chunks of a local file with fresh reads and trim it to the remote size
+     */
+    private void repairDownload(ChannelSftp channel, String remotePath, String localPath, Set<Integer> changed,
+                                List<byte[]> remoteChunks) throws SftpException, IOException {
+        try (RandomAccessFile local = new RandomAccessFile(localPath, "rw")) {
+            long remoteSize = channel.stat(remotePath).getSize();
+            byte[] buffer = new byte[CHUNK_SIZE];
+            MessageDigest md5 = digest("MD5");
+
+            for (int index : changed) {
+                long offset = (long) index * CHUNK_SIZE;
+                int length = (int) Math.min(CHUNK_SIZE, remoteSize - offset);
+                int filled = 0;
+                try (InputStream in = channel.get(remotePath, null, offset)) {
+                    while (filled < length) {
+                        int read = in.read(buffer, filled, length - filled);
+                        if (read < 0) {
+                            break;
+                        }
+                        filled += read;
+                    }
+                }
+
+                md5.update(buffer, 0, filled);
+                if (filled != length || !Arrays.equals(md5.digest(), remoteChunks.get(index))) {
+                    throw new IOException("Chunk " + index + " of " + remotePath + " changed again while repairing");
+                }
+                local.seek(offset);
+                local.write(buffer, 0, filled);
+            }
+            local.setLength(remoteSize);
+        }
+    }
+
+    private Result unrepairable(String remotePath, String remoteSha) throws IOException {
+        if (remoteSha == null) {
+            log.warn("Cannot verify {}: no sha256sum or Python on the server", remotePath);
+            return new Result(false, 0);
+        }
+        throw new IOException("Checksum mismatch for " + remotePath + " (the server cannot repair single chunks)");
+    }
+
+    private List<byte[]> blockDigests(String remotePath) throws IOException {
+        try {
+            return helper.blockDigests(remotePath, CHUNK_SIZE);
+        } catch (JSchException e) {
+            throw new IOException("Could not read chunk digests of " + remotePath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * SHA-256 of a remote file in hex, or null if the server cannot compute it
+     */
+    private String remoteSha256(String remotePath) {
+        String quoted = RemoteExec.quote(remotePath);
+        try {
+            RemoteExec.Result result = RemoteExec.run(session,
+                    "sha256sum -- " + quoted + " 2>/dev/null || shasum -a 256 -- " + quoted, 0);
+            String hash = result.getStdout().trim().split("\\s+", 2)[0];
+            if (result.isSuccess() && hash.matches("[0-9a-fA-F]{64}")) {
+                return hash.toLowerCase();
+            }
+        } catch (JSchException | IOException e) {
+            log.debug("Remote hash of {} not available: {}", remotePath, e.getMessage());
+        }
+        return null;
+    }
+
+    private ChannelSftp acquire() throws SftpException {
+        try {
+            return pool.acquire();
+        } catch (JSchException e) {
+            throw new SftpException(ChannelSftp.SSH_FX_NO_CONNECTION, e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "Interrupted while waiting for an SFTP channel", e);
+        }
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes bytes as they pass through a transfer
+     */
+    static class Hasher {
+        private final MessageDigest sha256 = digest("SHA-256");
+        private final MessageDigest wholeMd5 = digest("MD5");
+        private final MessageDigest chunkMd5 = digest("MD5");
+        final List<byte[]> chunkDigests = new ArrayList<>();
+        private int inChunk;
+        private byte[] sha;
+        byte[] md5;
+
+        void update(byte[] data, int offset, int length) {
+            sha256.update(data, offset, length);
+            wholeMd5.update(data, offset, length);
+            while (length > 0) {
+                int n = Math.min(length, CHUNK_SIZE - inChunk);
+                chunkMd5.update(data, offset, n);
+                inChunk += n;
+                offset += n;
+                length -= n;
+                if (inChunk == CHUNK_SIZE) {
+                    chunkDigests.add(chunkMd5.digest());
+                    inChunk = 0;
+                }
+            }
+        }
+
+        void finish() {
+            if (inChunk > 0) {
+                chunkDigests.add(chunkMd5.digest());
+                inChunk = 0;
+            }
+            sha = sha256.digest();
+            md5 = wholeMd5.digest();
+        }
+
+        String sha256Hex() {
+            return HexFormat.of().formatHex(sha);
+        }
+    }
+}
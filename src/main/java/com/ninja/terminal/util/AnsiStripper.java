@@ -0,0 +1,102 @@
+package com.ninja.terminal.util;
+
+/**
+ * Streaming filter that turns terminal output into plain text.
+ *
+ * Removes CSI, OSC, DCS and other escape sequences as well as control characters other
+ * than newline and tab. A carriage return before a newline is dropped; one followed by
+ * anything else starts the line over, so the text written since the last newline in the
+ * output is removed and a redrawn line such as a progress bar leaves only its last state.
+ * That needs the unfinished line to stay in the output between calls. The parser state
+ * survives between calls, so a sequence or CR LF split across two reads is still handled.
+ * One instance per stream; not thread-safe.
+ */
+public class AnsiStripper {
+
+    private static final int TEXT = 0;
+    private static final int ESCAPE = 1;
+    private static final int ESCAPE_INTERMEDIATE = 2;
+    private static final int CSI = 3;
+    private static final int STRING = 4;
+    private static final int STRING_ESCAPE = 5;
+
+    private int state = TEXT;
+    private boolean carriageReturn;
+
+    /**
+     * True while the input so far ends inside an escape sequence
+     */
+    public boolean isInSequence() {
+        return state != TEXT;
+    }
+
+    /**
+     * Append the printable part of {@code length} characters to {@code out}
+     */
+    public void strip(CharSequence in, int offset, int length, StringBuilder out) {
+        for (int i = offset; i < offset + length; i++) {
+            char c = in.charAt(i);
+            if (carriageReturn && state == TEXT && c != '\r') {
+                carriageReturn = false;
+                if (c != '\n') {
+                    out.setLength(out.lastIndexOf("\n") + 1);
+                }
+            }
+            switch (state) {
+                case TEXT -> {
+                    if (c >= 0x20 && c != 0x7f && (c < 0x80 || c > 0x9f)) {
+                        out.append(c);
+                    } else if (c == '\n' || c == '\t') {
+                        out.append(c);
+                    } else if (c == '\r') {
+                        carriageReturn = true;
+                    } else if (c == 0x1b) {
+                        state = ESCAPE;
+                    } else if (c == 0x9b) {
+                        state = CSI;
+                    } else if (c == 0x9d || c == 0x90 || c == 0x98 || c == 0x9e || c == 0x9f) {
+                        state = STRING;
+                    }
+                }
+                case ESCAPE -> {
+                    if (c == '[') {
+                        state = CSI;
+                    } else if (c == ']' || c == 'P' || c == 'X' || c == '^' || c == '_') {
+                        state = STRING;
+                    } else if (c >= 0x20 && c <= 0x2f) {
+                        // Charset selection and similar: one more final character follows
+                        state = ESCAPE_INTERMEDIATE;
+                    } else {
+                        state = TEXT;
+                    }
+                }
+                case ESCAPE_INTERMEDIATE -> state = c >= 0x20 && c <= 0x2f ? ESCAPE_INTERMEDIATE : TEXT;
+                case CSI -> {
+                    if (c == 0x1b) {
+                        state = ESCAPE;
+                    } else if (c >= 0x40 && c <= 0x7e) {
+                        state = TEXT;
+                    }
+                }
+                case STRING -> {
+                    // OSC ends with BEL or ST (ESC \), the others with ST
+                    if (c == 0x07 || c == 0x9c) {
+                        state = TEXT;
+                    } else if (c == 0x1b) {
+                        state = STRING_ESCAPE;
+                    }
+                }
+                case STRING_ESCAPE -> {
+                    // Anything but ST cancels the string and starts a new sequence
+                    state = ESCAPE;
+                    if (c == '\\') {
+                        state = TEXT;
+                    } else {
+                        i--;
+                    }
+                }
+                default -> state = TEXT;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ninja.terminal.util;
+
+import com.jcraft.jsch.SocketFactory;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Socket factory for a JSch session that counts bytes on the wire, i.e. after SSH compression
+ */
+public class CountingSocketFactory implements SocketFactory {
+
+    private final int connectTimeout;
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    public CountingSocketFactory(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        // JSch does not pass its connect timeout to custom factories
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), connectTimeout);
+        socket.setTcpNoDelay(true);
+        return socket;
+    }
+
+    @Override
+    public InputStream getInputStream(Socket socket) throws IOException {
+        return new FilterInputStream(socket.getInputStream()) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesIn.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    bytesIn.addAndGet(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    @Override
+    public OutputStream getOutputStream(Socket socket) throws IOException {
+        return new FilterOutputStream(socket.getOutputStream()) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesOut.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesOut.addAndGet(len);
+            }
+        };
+    }
+
+    public long getBytesIn() { return bytesIn.get(); }
+
+    public long getBytesOut() { return bytesOut.get(); }
+}
@@ -9,30 +9,108 @@ import org.slf4j.LoggerFactory;
 import java.awt.*;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Connects JediTerm to a JSch shell channel.
+ *
+ * Output is decoded in batches sized to the traffic: each read blocks only until the first
+ * bytes arrive, then takes whatever else the channel already holds, up to a batch size
+ * that doubles while a backlog remains and shrinks again when output turns interactive.
+ * A keystroke's echo is therefore handed over as soon as it arrives, while bulk output
+ * is decoded in chunks of up to 64 KB and given to JediTerm from memory. Throughput, decode
+ * times and the time from a keystroke to the next output are measured for the tab.
+ */
 public class JSchTtyConnector implements TtyConnector {
     private static final Logger log = LoggerFactory.getLogger(JSchTtyConnector.class);
+    private static final int MIN_BATCH = 1024;
+    private static final int MAX_BATCH = 64 * 1024;
+
+    /**
+     * Observer of the data passing through the connector, e.g. a session recorder.
+     * Called on the reading and writing threads, so implementations must return quickly.
+     */
+    public interface StreamListener {
+        void onOutput(char[] buf, int offset, int length);
+
+        default void onInput(byte[] bytes) {
+        }
+
+        default void onResize(int columns, int rows) {
+        }
+    }
 
     private final ChannelShell channel;
     private final Session session;
-    private InputStreamReader inputStreamReader;
+    private final List<StreamListener> listeners = new CopyOnWriteArrayList<>();
+    private InputStream inputStream;
     private OutputStream outputStream;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer received = ByteBuffer.allocate(MAX_BATCH);
+    private final CharBuffer decoded = CharBuffer.allocate(MAX_BATCH).flip();
+
+    // Written by the reading thread, read by the UI
+    private volatile int batchSize = MIN_BATCH;
+    private volatile long bytesRead;
+    private volatile long batches;
+    private final TerminalMetrics metrics = new TerminalMetrics();
+    private volatile int columns = 80;
+    private volatile int rows = 24;
 
     public JSchTtyConnector(Session session, ChannelShell channel) {
         this.session = session;
         this.channel = channel;
         try {
-            InputStream inputStream = channel.getInputStream();
+            this.inputStream = channel.getInputStream();
             this.outputStream = channel.getOutputStream();
-            this.inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
         } catch (IOException e) {
             log.error("Error creating streams", e);
         }
     }
 
+    /**
+     * Connector over plain streams, without a channel to resize or close
+     */
+    JSchTtyConnector(InputStream inputStream, OutputStream outputStream) {
+        this.session = null;
+        this.channel = null;
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+    }
+
+    public void addListener(StreamListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StreamListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Terminal size last sent to the server */
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+
+    /** Bytes received from the channel so far */
+    public long getBytesRead() { return bytesRead; }
+
+    /** Average bytes taken from the channel per batch */
+    public long getAverageBatch() { return batches > 0 ? bytesRead / batches : 0; }
+
+    /** Current batch size limit in bytes */
+    public int getBatchSize() { return batchSize; }
+
+    /** Echo and decode times of this session */
+    public TerminalMetrics getMetrics() { return metrics; }
+
     @Override
     public void close() {
         if (channel != null) channel.disconnect();
@@ -46,13 +124,74 @@ public class JSchTtyConnector implements TtyConnector {
 
     @Override
     public int read(char[] buf, int offset, int length) throws IOException {
-        return inputStreamReader.read(buf, offset, length);
+        while (!decoded.hasRemaining()) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        int read = Math.min(length, decoded.remaining());
+        decoded.get(buf, offset, read);
+        for (StreamListener listener : listeners) {
+            listener.onOutput(buf, offset, read);
+        }
+        return read;
+    }
+
+    /**
+     * Wait for output, then take what else is already buffered in the channel and decode it
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        int count = inputStream.read(received.array(), received.position(), Math.min(batchSize, received.remaining()));
+        if (count < 0) {
+            return false;
+        }
+        long arrived = System.nanoTime();
+        int total = count;
+        received.position(received.position() + count);
+
+        int available;
+        while (total < batchSize && received.hasRemaining() && (available = inputStream.available()) > 0) {
+            count = inputStream.read(received.array(), received.position(),
+                    Math.min(available, Math.min(batchSize - total, received.remaining())));
+            if (count <= 0) {
+                break;
+            }
+            total += count;
+            received.position(received.position() + count);
+        }
+
+        // Grow while the channel keeps a backlog, shrink back for interactive traffic
+        if (total >= batchSize && inputStream.available() > 0) {
+            batchSize = Math.min(MAX_BATCH, batchSize * 2);
+        } else if (total < batchSize / 4) {
+            batchSize = Math.max(MIN_BATCH, batchSize / 2);
+        }
+
+        long decodeStart = System.nanoTime();
+        received.flip();
+        decoded.clear();
+        decoder.decode(received, decoded, false);
+        decoded.flip();
+        // Keep an incomplete UTF-8 sequence for the next batch
+        received.compact();
+        metrics.getDecode().record(System.nanoTime() - decodeStart);
+
+        bytesRead += total;
+        batches++;
+        // Keystrokes are stamped by the renderer, so replies to terminal queries, pastes and
+        // the startup command sent through write() are not taken for typing
+        metrics.outputArrived(arrived);
+        return true;
     }
 
     @Override
     public void write(byte[] bytes) throws IOException {
         outputStream.write(bytes);
         outputStream.flush();
+        for (StreamListener listener : listeners) {
+            listener.onInput(bytes);
+        }
     }
 
     @Override
@@ -70,6 +209,11 @@ public class JSchTtyConnector implements TtyConnector {
         if (channel != null && channel.isConnected()) {
             channel.setPtySize(termSize.width, termSize.height, pixelSize.width, pixelSize.height);
         }
+        columns = termSize.width;
+        rows = termSize.height;
+        for (StreamListener listener : listeners) {
+            listener.onResize(columns, rows);
+        }
     }
 
     @Override
@@ -82,6 +226,6 @@ public class JSchTtyConnector implements TtyConnector {
 
     @Override
     public boolean ready() throws IOException {
-        return inputStreamReader.ready();
+        return decoded.hasRemaining() || inputStream.available() > 0;
     }
 }
@@ -0,0 +1,118 @@
+package com.ninja.terminal.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations over a rolling time window.
+ *
+ * Durations are counted in logarithmic buckets, four per power of two of microseconds, so
+ * percentiles are accurate to about 20%. The window is split into slices that are reused
+ * in turn; recording is one atomic increment, plus clearing a slice when it is reused.
+ * A sample recorded while its slice is being cleared may be lost, which is fine for
+ * monitoring.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+    private static final int SLICES = 6;
+
+    /**
+     * Percentiles and maximum in microseconds over the window
+     */
+    public record Snapshot(long count, long p50, long p95, long p99, long max) {
+    }
+
+    private final long sliceNanos;
+    private final long origin = System.nanoTime();
+    private final AtomicLongArray counts = new AtomicLongArray(SLICES * BUCKETS);
+    private final AtomicLongArray epochs = new AtomicLongArray(SLICES);
+    private final AtomicLong total = new AtomicLong();
+
+    public LatencyHistogram(long windowMillis) {
+        this.sliceNanos = Math.max(1, windowMillis * 1_000_000 / SLICES);
+    }
+
+    public void record(long nanos) {
+        long epoch = (System.nanoTime() - origin) / sliceNanos;
+        int slice = (int) (epoch % SLICES);
+        long seen = epochs.get(slice);
+        if (seen != epoch && epochs.compareAndSet(slice, seen, epoch)) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(slice * BUCKETS + i, 0);
+            }
+        }
+        counts.incrementAndGet(slice * BUCKETS + bucket(nanos / 1000));
+        total.incrementAndGet();
+    }
+
+    /**
+     * Number of samples ever recorded, including those that left the window
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    public Snapshot snapshot() {
+        long current = (System.nanoTime() - origin) / sliceNanos;
+        long[] merged = new long[BUCKETS];
+        long count = 0;
+        for (int slice = 0; slice < SLICES; slice++) {
+            if (current - epochs.get(slice) >= SLICES) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long n = counts.get(slice * BUCKETS + i);
+                merged[i] += n;
+                count += n;
+            }
+        }
+        if (count == 0) {
+            return new Snapshot(0, 0, 0, 0, 0);
+        }
+
+        int highest = BUCKETS - 1;
+        while (merged[highest] == 0) {
+            highest--;
+        }
+        return new Snapshot(count, percentile(merged, count, 0.50), percentile(merged, count, 0.95),
+                percentile(merged, count, 0.99), upperBound(highest));
+    }
+
+    private static long percentile(long[] merged, long count, double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(count * fraction));
+        long seen = 0;
+        for (int i = 0; i < merged.length; i++) {
+            seen += merged[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(merged.length - 1);
+    }
+
+    /**
+     * Values below 4 µs get a bucket each; above that, every power of two is split in four
+     */
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exponent - 1) * SUB_BUCKETS + sub);
+    }
+
+    /**
+     * Largest value, in microseconds, that falls into a bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+    }
+}
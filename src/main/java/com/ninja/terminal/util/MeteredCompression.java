@@ -0,0 +1,122 @@
+package com.ninja.terminal.util;
+
+import com.jcraft.jsch.Compression;
+import com.jcraft.jsch.JSch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * zlib compression for JSch that counts bytes before and after compression.
+ * Registered per session through the "zlib@openssh.com" and "zlib" config entries in place of
+ * JSch's own zlib implementation, which it delegates to.
+ *
+ * JSch creates the compressors itself, on the thread that connects the session and later on
+ * the session's own thread, which that thread starts. Both see the {@link Meter} attached
+ * with {@link #attach} before connecting, so each compressor reports to its session's meter.
+ */
+public class MeteredCompression implements Compression {
+
+    // Resolved before any session overrides it, so this is always JSch's own class
+    private static final String DELEGATE_CLASS = JSch.getConfig("zlib@openssh.com");
+
+    private static final InheritableThreadLocal<Meter> connecting = new InheritableThreadLocal<>();
+
+    /**
+     * The compressors one session currently uses; JSch replaces them on every key exchange
+     */
+    public static class Meter {
+
+        private volatile MeteredCompression inflater;
+        private volatile MeteredCompression deflater;
+
+        /**
+         * Check whether the session compresses incoming data
+         */
+        public boolean isActive() {
+            return inflater != null;
+        }
+
+        /**
+         * Compression ratio (plain / compressed) since the last key exchange, or 0 if
+         * nothing was compressed
+         */
+        public double getRatio() {
+            long plain = 0;
+            long compressed = 0;
+            for (MeteredCompression compression : new MeteredCompression[] { inflater, deflater }) {
+                if (compression != null) {
+                    plain += compression.getPlainBytes();
+                    compressed += compression.getCompressedBytes();
+                }
+            }
+            return compressed > 0 ? (double) plain / compressed : 0;
+        }
+
+        /**
+         * Forget the compressors after a key exchange that turned compression off
+         */
+        public void reset() {
+            inflater = null;
+            deflater = null;
+        }
+    }
+
+    /**
+     * Report compressors created by the calling thread, and by threads it starts from now on,
+     * to a meter. Call before connecting a session and with null once it is connected.
+     */
+    public static void attach(Meter meter) {
+        if (meter != null) {
+            connecting.set(meter);
+        } else {
+            connecting.remove();
+        }
+    }
+
+    private final Compression delegate;
+    private final Meter meter = connecting.get();
+    private final AtomicLong plainBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    public MeteredCompression() {
+        try {
+            delegate = (Compression) Class.forName(DELEGATE_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("JSch zlib support not available", e);
+        }
+    }
+
+    @Override
+    public void init(int type, int level) {
+        delegate.init(type, level);
+        if (meter != null) {
+            if (type == INFLATER) {
+                meter.inflater = this;
+            } else {
+                meter.deflater = this;
+            }
+        }
+    }
+
+    @Override
+    public byte[] compress(byte[] buf, int start, int[] len) {
+        int before = len[0] - start;
+        byte[] result = delegate.compress(buf, start, len);
+        plainBytes.addAndGet(before);
+        compressedBytes.addAndGet(len[0] - start);
+        return result;
+    }
+
+    @Override
+    public byte[] uncompress(byte[] buf, int start, int[] len) {
+        int before = len[0];
+        byte[] result = delegate.uncompress(buf, start, len);
+        compressedBytes.addAndGet(before);
+        plainBytes.addAndGet(len[0]);
+        return result;
+    }
+
+    public long getPlainBytes() { return plainBytes.get(); }
+
+    public long getCompressedBytes() { return compressedBytes.get(); }
+}
@@ -0,0 +1,119 @@
+package com.ninja.terminal.util;
+
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs one-shot commands over an SSH exec channel.
+ * Used for server-side shortcuts (rm -rf, find, sha256sum, ...) when the host allows exec.
+ */
+public class RemoteExec {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteExec.class);
+
+    public static class Result {
+        private final int exitStatus;
+        private final String stdout;
+        private final String stderr;
+
+        public Result(int exitStatus, String stdout, String stderr) {
+            this.exitStatus = exitStatus;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        public int getExitStatus() { return exitStatus; }
+        public String getStdout() { return stdout; }
+        public String getStderr() { return stderr; }
+
+        public boolean isSuccess() {
+            return exitStatus == 0;
+        }
+    }
+
+    /**
+     * Run a command and collect its output
+     * @param timeoutMs Maximum time to wait for the command, 0 for no limit
+     */
+    public static Result run(Session session, String command, int timeoutMs) throws JSchException, IOException {
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        channel.setCommand(command);
+
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        channel.setErrStream(stderr);
+
+        InputStream in = channel.getInputStream();
+        channel.connect();
+
+        try {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            long deadline = timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : Long.MAX_VALUE;
+
+            while (true) {
+                while (in.available() > 0) {
+                    int read = in.read(buffer);
+                    if (read < 0) break;
+                    stdout.write(buffer, 0, read);
+                }
+                if (channel.isClosed() && in.available() == 0) {
+                    break;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Remote command timed out: " + command);
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for remote command", e);
+                }
+            }
+
+            int exitStatus = channel.getExitStatus();
+            log.debug("Remote command '{}' exited with {}", command, exitStatus);
+            return new Result(exitStatus,
+                    stdout.toString(StandardCharsets.UTF_8),
+                    stderr.toString(StandardCharsets.UTF_8));
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    /**
+     * Open an exec channel for a command whose output is consumed as a stream.
+     * The caller must disconnect the returned channel.
+     */
+    public static ChannelExec open(Session session, String command) throws JSchException {
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        channel.setCommand(command);
+        return channel;
+    }
+
+    /**
+     * Check whether a program is available on the remote PATH
+     */
+    public static boolean hasCommand(Session session, String program) {
+        try {
+            return run(session, "command -v " + quote(program) + " >/dev/null 2>&1", 10000).isSuccess();
+        } catch (Exception e) {
+            log.debug("Exec not available for probing {}: {}", program, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Quote an argument for a POSIX shell
+     */
+    public static String quote(String arg) {
+        return "'" + arg.replace("'", "'\\''") + "'";
+    }
+}
@@ -0,0 +1,52 @@
+package com.ninja.terminal.util;
+
+/**
+ * Adler-32 over a fixed-size window that can be rolled forward one byte at a time.
+ * Produces the same values as java.util.zip.Adler32 (and Python's zlib.adler32) on the window.
+ */
+public class RollingChecksum {
+
+    private static final int MOD = 65521;
+
+    private final int windowSize;
+    private int a;
+    private int b;
+
+    public RollingChecksum(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Compute the checksum of a full window
+     */
+    public void reset(byte[] buf, int offset) {
+        long sumA = 1;
+        long sumB = 0;
+        for (int i = 0; i < windowSize; i++) {
+            sumA += buf[offset + i] & 0xff;
+            sumB += sumA;
+            // Keep the sums small enough not to overflow
+            if ((i & 0xfff) == 0xfff) {
+                sumA %= MOD;
+                sumB %= MOD;
+            }
+        }
+        a = (int) (sumA % MOD);
+        b = (int) (sumB % MOD);
+    }
+
+    /**
+     * Slide the window one byte: drop {@code out} at the front and append {@code in}
+     */
+    public void roll(byte out, byte in) {
+        int o = out & 0xff;
+        int n = in & 0xff;
+
+        a = Math.floorMod(a - o + n, MOD);
+        b = (int) Math.floorMod(b - (long) windowSize * o + a - 1, (long) MOD);
+    }
+
+    public int getValue() {
+        return (b << 16) | a;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ninja.terminal.util;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency measurements of one terminal tab, kept over the last minute.
+ *
+ * Echo is the time from the user pressing a key to the next output arriving, which covers
+ * the network and the remote host. Replies the terminal sends on its own, pastes and startup
+ * commands are not keystrokes and start no measurement. Decode is the time to turn a batch of
+ * received bytes into characters, and paint the time the renderer spends drawing a frame;
+ * together they show what this side adds. Only renderers that draw the screen themselves
+ * time their painting.
+ */
+public class TerminalMetrics {
+
+    private static final long WINDOW_MILLIS = 60_000;
+    private static final long MAX_ECHO_NANOS = 5_000_000_000L;
+
+    private final LatencyHistogram echo = new LatencyHistogram(WINDOW_MILLIS);
+    private final LatencyHistogram decode = new LatencyHistogram(WINDOW_MILLIS);
+    private final LatencyHistogram paint = new LatencyHistogram(WINDOW_MILLIS);
+    private volatile long keystrokeAt;
+    private volatile boolean paintTimed;
+
+    /**
+     * Note that the user pressed a key which was sent to the remote host. A newer key replaces
+     * an unanswered one, so keys that get no echo, like a password, are not measured alone:
+     * the output that follows is measured from the last key typed, e.g. Enter.
+     */
+    public void markKeystroke() {
+        keystrokeAt = System.nanoTime();
+    }
+
+    /**
+     * Note output arriving at the given {@link System#nanoTime()}; the first output after a
+     * keystroke is its echo. Waits of several seconds are not echoes but the remote host
+     * thinking, and are not recorded.
+     */
+    public void outputArrived(long nanos) {
+        long pressed = keystrokeAt;
+        if (pressed != 0) {
+            keystrokeAt = 0;
+            if (nanos - pressed < MAX_ECHO_NANOS) {
+                echo.record(Math.max(0, nanos - pressed));
+            }
+        }
+    }
+
+    public LatencyHistogram getEcho() {
+        return echo;
+    }
+
+    public LatencyHistogram getDecode() {
+        return decode;
+    }
+
+    public LatencyHistogram getPaint() {
+        return paint;
+    }
+
+    /**
+     * Check whether the renderer records paint times; the Swing renderer paints inside
+     * JediTerm's widget, where it cannot be timed
+     */
+    public boolean isPaintTimed() {
+        return paintTimed;
+    }
+
+    public void setPaintTimed(boolean paintTimed) {
+        this.paintTimed = paintTimed;
+    }
+
+    /**
+     * Histograms by display name, in display order
+     */
+    public Map<String, LatencyHistogram> all() {
+        Map<String, LatencyHistogram> all = new LinkedHashMap<>();
+        all.put("Keystroke echo", echo);
+        all.put("Decode", decode);
+        if (paintTimed) {
+            all.put("Paint", paint);
+        }
+        return all;
+    }
+
+    /**
+     * Current percentiles as CSV, times in milliseconds
+     */
+    public String toCsv(String tabName) {
+        StringBuilder csv = new StringBuilder("time,tab,metric,samples,p50_ms,p95_ms,p99_ms,max_ms\n");
+        String now = LocalDateTime.now().withNano(0).toString();
+        for (Map.Entry<String, LatencyHistogram> entry : all().entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            csv.append(now).append(',').append(tabName.replace(",", " ")).append(',').append(entry.getKey())
+                    .append(',').append(snapshot.count())
+                    .append(',').append(formatMillis(snapshot.p50()))
+                    .append(',').append(formatMillis(snapshot.p95()))
+                    .append(',').append(formatMillis(snapshot.p99()))
+                    .append(',').append(formatMillis(snapshot.max()))
+                    .append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Microseconds as milliseconds with enough decimals for sub-millisecond times
+     */
+    public static String formatMillis(long micros) {
+        return micros < 10_000 ? String.format(Locale.ROOT, "%.2f", micros / 1000.0) : String.valueOf(micros / 1000);
+    }
+}
@@ -0,0 +1,64 @@
+# Remote side of delta uploads, run with "python3 -c".
+#   sig   <block> <path>  write adler32 (4 bytes, big endian) + md5 (16 bytes) per block to stdout
+#   patch <block> <path>  rebuild <path> from the op stream on stdin:
+#                         C <first block:u32> <count:u32>  copy blocks of the old file
+#                         L <length:u32> <bytes>           literal data
+#                         E <md5:16>                       end, md5 of the whole new file
+import hashlib, os, struct, sys, zlib
+
+mode, block, path = sys.argv[1], int(sys.argv[2]), sys.argv[3]
+
+def read_exact(stream, n):
+    data = b''
+    while len(data) < n:
+        chunk = stream.read(n - len(data))
+        if not chunk:
+            raise EOFError('truncated delta stream')
+        data += chunk
+    return data
+
+if mode == 'sig':
+    out = sys.stdout.buffer
+    with open(path, 'rb') as f:
+        while True:
+            data = f.read(block)
+            if not data:
+                break
+            out.write(struct.pack('>I', zlib.adler32(data) & 0xffffffff) + hashlib.md5(data).digest())
+    out.flush()
+elif mode == 'patch':
+    inp = sys.stdin.buffer
+    tmp = path + '.ninja-delta'
+    digest = hashlib.md5()
+    expected = None
+    replaced = False
+    # Never leave the temporary file behind, whatever ends the patch
+    try:
+        with open(path, 'rb') as old, open(tmp, 'wb') as new:
+            while True:
+                op = read_exact(inp, 1)
+                if op == b'C':
+                    first, count = struct.unpack('>II', read_exact(inp, 8))
+                    old.seek(first * block)
+                    data = old.read(count * block)
+                elif op == b'L':
+                    (length,) = struct.unpack('>I', read_exact(inp, 4))
+                    data = read_exact(inp, length)
+                else:
+                    expected = read_exact(inp, 16)
+                    break
+                new.write(data)
+                digest.update(data)
+        if digest.digest() != expected:
+            sys.stderr.write('checksum mismatch\n')
+            sys.exit(2)
+        os.chmod(tmp, os.stat(path).st_mode & 0o7777)
+        os.replace(tmp, path)
+        replaced = True
+    finally:
+        if not replaced:
+            try:
+                os.remove(tmp)
+            except OSError:
+                pass
+    sys.stdout.write(digest.hexdigest())
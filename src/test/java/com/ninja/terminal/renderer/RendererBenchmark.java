@@ -0,0 +1,288 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.TtyConnector;
+import com.ninja.terminal.model.AppConfig;
+import com.ninja.terminal.service.ConfigService;
+import com.ninja.terminal.util.TerminalMetrics;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import java.awt.Dimension;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Feeds the same output through the Canvas and the Swing renderer and reports, for each, the
+ * frames painted per second and the process CPU time per MB of output.
+ *
+ * Run it with {@code ./gradlew benchmarkRenderers}, optionally with {@code -Pmegabytes=16}
+ * and {@code -Pruns=3}. The output is generated from a fixed seed: colored log lines, a
+ * colored directory listing and progress bars redrawn with CR. Every renderer gets a warm-up
+ * run and the median of the measured runs is reported. A frame is a paint that drew
+ * something: a canvas paint that changed a row, or a Swing repaint pass. CPU covers the
+ * whole process, so emulation, painting, the FX and Swing threads and GC are all included.
+ * The window is shown on screen; run it on an otherwise idle desktop.
+ */
+public final class RendererBenchmark {
+
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 800;
+    private static final int SCROLLBACK_LINES = 10_000;
+    private static final int FONT_SIZE = 14;
+    private static final long TIMEOUT_MINUTES = 10;
+
+    private record Result(double seconds, long frames, long cpuNanos) {
+    }
+
+    private RendererBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        // Pinned for every run, never saved
+        AppConfig.Settings settings = ConfigService.getInstance().getSettings();
+        settings.setScrollBufferSize(SCROLLBACK_LINES);
+        settings.setFontSize(FONT_SIZE);
+
+        char[] output = workload(megabytes);
+        double outputMegabytes = output.length / (1024.0 * 1024.0);
+        System.out.printf("%.1f MB of output, %d runs per renderer, %s %d pt, %d lines of scrollback%n",
+                outputMegabytes, runs, settings.getFontFamily(), FONT_SIZE, SCROLLBACK_LINES);
+
+        CountingRepaintManager swingPaints = new CountingRepaintManager();
+        SwingUtilities.invokeAndWait(() -> RepaintManager.setCurrentManager(swingPaints));
+        Platform.setImplicitExit(false);
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-8s %8s %8s %8s %12s", "renderer", "seconds", "frames", "fps", "CPU ms/MB"));
+        lines.add(report("Canvas", CanvasTerminalRenderer::new, null, output, runs, outputMegabytes));
+        lines.add(report("Swing", SwingTerminalRenderer::new, swingPaints, output, runs, outputMegabytes));
+
+        lines.forEach(System.out::println);
+        Platform.exit();
+        System.exit(0);
+    }
+
+    private static String report(String name, Supplier<TerminalRenderer> factory, CountingRepaintManager swingPaints,
+                                 char[] output, int runs, double megabytes) throws Exception {
+        run(factory, swingPaints, output);
+        Result[] results = new Result[runs];
+        for (int i = 0; i < runs; i++) {
+            results[i] = run(factory, swingPaints, output);
+            System.out.printf("%s run %d: %.2f s, %d frames, %.0f ms CPU%n", name, i + 1,
+                    results[i].seconds(), results[i].frames(), results[i].cpuNanos() / 1e6);
+        }
+        double seconds = median(results, Result::seconds);
+        double frames = median(results, Result::frames);
+        double cpuMillis = median(results, result -> result.cpuNanos() / 1e6);
+        return String.format("%-8s %8.2f %8.0f %8.1f %12.0f", name, seconds, frames, frames / seconds,
+                cpuMillis / megabytes);
+    }
+
+    /**
+     * Show a fresh renderer, feed it all of the output and measure until the emulator has
+     * consumed the last character
+     */
+    private static Result run(Supplier<TerminalRenderer> factory, CountingRepaintManager swingPaints, char[] output)
+            throws Exception {
+        ReplayConnector connector = new ReplayConnector(output);
+        TerminalMetrics metrics = new TerminalMetrics();
+        TerminalRenderer renderer = onFx(factory::get);
+        Stage stage = onFx(() -> {
+            Stage window = new Stage();
+            window.setTitle("Renderer benchmark");
+            window.setScene(new Scene(new StackPane(renderer.getNode()), WIDTH, HEIGHT));
+            window.show();
+            return window;
+        });
+        // Let the window settle before measuring
+        Thread.sleep(500);
+
+        long paintsBefore = swingPaints != null ? swingPaints.paints.get() : 0;
+        long cpuBefore = processCpuNanos();
+        long start = System.nanoTime();
+        onFx(() -> {
+            renderer.setMetrics(metrics);
+            renderer.start(connector);
+            return null;
+        });
+        if (!connector.drained.await(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Renderer did not consume the output in " + TIMEOUT_MINUTES + " minutes");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long cpu = processCpuNanos() - cpuBefore;
+        long frames = swingPaints != null ? swingPaints.paints.get() - paintsBefore : metrics.getPaint().getTotal();
+
+        onFx(() -> {
+            renderer.close();
+            stage.close();
+            return null;
+        });
+        System.gc();
+        return new Result(seconds, frames, cpu);
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static <T> T onFx(Callable<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(action.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.get();
+    }
+
+    private static double median(Result[] results, ToDoubleFunction<Result> value) {
+        double[] values = Arrays.stream(results).mapToDouble(value).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    /**
+     * Terminal output of the given size, the same on every call
+     */
+    private static char[] workload(int megabytes) {
+        String[] words = {"connection", "request", "GET", "/api/v1/items", "200", "took", "ms", "cache",
+                "miss", "worker", "started", "queue", "flushed", "user", "session", "timeout", "retry"};
+        String[] levels = {"\033[32mINFO \033[0m", "\033[33mWARN \033[0m", "\033[31mERROR\033[0m", "\033[36mDEBUG\033[0m"};
+        Random random = new Random(42);
+        int size = megabytes * 1024 * 1024;
+        StringBuilder out = new StringBuilder(size + 4096);
+        int line = 0;
+        while (out.length() < size) {
+            switch (line++ % 50) {
+                case 0 -> {
+                    // Progress bar redrawn in place
+                    for (int percent = 0; percent <= 100; percent += 5) {
+                        out.append("\r\033[1mDownloading\033[0m [")
+                                .append("#".repeat(percent / 5)).append(" ".repeat(20 - percent / 5))
+                                .append("] ").append(percent).append('%');
+                    }
+                }
+                case 1 -> {
+                    // Colored directory listing
+                    for (int i = 0; i < 6; i++) {
+                        out.append(i % 3 == 0 ? "\033[01;34m" : "\033[0m").append(words[random.nextInt(words.length)])
+                                .append(i).append("\033[0m  ");
+                    }
+                }
+                default -> {
+                    out.append(String.format("2024-01-01 12:%02d:%02d.%03d ", line / 60 % 60, line % 60, line % 1000))
+                            .append(levels[random.nextInt(levels.length)]).append(' ');
+                    int count = 4 + random.nextInt(12);
+                    for (int i = 0; i < count; i++) {
+                        out.append(words[random.nextInt(words.length)]).append(' ');
+                    }
+                }
+            }
+            out.append("\r\n");
+        }
+        char[] chars = new char[out.length()];
+        out.getChars(0, chars.length, chars, 0);
+        return chars;
+    }
+
+    /**
+     * Serves the output as fast as the emulator reads it. The emulator only reads once it
+     * has parsed everything returned before, so the first end-of-stream means it is done.
+     */
+    private static final class ReplayConnector implements TtyConnector {
+
+        private final char[] output;
+        private final CountDownLatch drained = new CountDownLatch(1);
+        private int position;
+        private volatile boolean closed;
+
+        ReplayConnector(char[] output) {
+            this.output = output;
+        }
+
+        @Override
+        public synchronized int read(char[] buf, int offset, int length) {
+            if (position >= output.length) {
+                drained.countDown();
+                return -1;
+            }
+            int count = Math.min(length, output.length - position);
+            System.arraycopy(output, position, buf, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void write(byte[] bytes) {
+        }
+
+        @Override
+        public void write(String string) {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed;
+        }
+
+        @Override
+        public void resize(Dimension termSize, Dimension pixelSize) {
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            drained.await();
+            return 0;
+        }
+
+        @Override
+        public synchronized boolean ready() {
+            return position < output.length;
+        }
+
+        @Override
+        public String getName() {
+            return "benchmark";
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Counts Swing repaint passes; every dirty region of a pass is painted together
+     */
+    private static final class CountingRepaintManager extends RepaintManager {
+
+        private final AtomicLong paints = new AtomicLong();
+
+        @Override
+        public void paintDirtyRegions() {
+            paints.incrementAndGet();
+            super.paintDirtyRegions();
+        }
+    }
+}
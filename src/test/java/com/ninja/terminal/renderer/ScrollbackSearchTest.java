@@ -0,0 +1,128 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.util.CharUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static com.ninja.terminal.renderer.ScrollbackStoreTest.line;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScrollbackSearchTest {
+
+    private static final char DWC = CharUtils.DWC;
+
+    private static List<ScrollbackSearch.Match> search(String query, boolean regex, boolean caseSensitive,
+                                                       String... lines) {
+        return new ScrollbackSearch(query, regex, caseSensitive).run(null, 0, List.of(lines));
+    }
+
+    private static ScrollbackSearch.Match match(long line, int start, int end) {
+        return new ScrollbackSearch.Match(line, start, end);
+    }
+
+    @Test
+    void literalMatchesInLineOrder() {
+        assertEquals(List.of(match(0, 3, 8), match(2, 0, 5), match(2, 6, 11)),
+                search("error", false, true, "an error here", "nothing", "error error"));
+    }
+
+    @Test
+    void literalMatchesDoNotOverlap() {
+        assertEquals(List.of(match(0, 0, 2), match(0, 2, 4)), search("aa", false, true, "aaaaa"));
+    }
+
+    @Test
+    void caseInsensitiveLiteral() {
+        assertEquals(List.of(match(0, 0, 5), match(1, 3, 8)),
+                search("error", false, false, "ERROR: x", "an Error"));
+        assertEquals(List.of(match(0, 5, 9)), search("café", false, false, "cold CAFÉ"));
+        assertEquals(List.of(), search("error", false, true, "ERROR"));
+    }
+
+    @Test
+    void emptyQueryMatchesNothing() {
+        assertEquals(List.of(), search("", false, false, "anything"));
+    }
+
+    @Test
+    void regexMatches() {
+        assertEquals(List.of(match(0, 5, 8), match(1, 0, 4)),
+                search("\\d+", true, true, "code 404 ", "1234"));
+        assertEquals(List.of(match(0, 0, 4)), search("warn(ing)?", true, false, "WARN only"));
+    }
+
+    @Test
+    void emptyRegexMatchesAreSkipped() {
+        assertEquals(List.of(match(0, 1, 2)), search("x*", true, true, "ax"));
+    }
+
+    @Test
+    void invalidRegexIsRejected() {
+        assertThrows(PatternSyntaxException.class, () -> new ScrollbackSearch("(", true, true));
+    }
+
+    @Test
+    void wideCharactersMapToCells() {
+        // 漢 and 字 take two cells each, the second one a placeholder
+        String text = "a漢" + DWC + "字" + DWC + "b";
+
+        assertEquals(List.of(match(0, 1, 5)), search("漢字", false, true, text));
+        assertEquals(List.of(match(0, 3, 6)), search("字b", false, true, text));
+        assertEquals(List.of(match(0, 1, 3)), search("漢", true, true, text));
+        assertEquals(List.of(match(0, 5, 6)), search("b", false, true, text));
+    }
+
+    @Test
+    void keepsOnlyTheNewestMatches() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < ScrollbackSearch.MAX_MATCHES + 10; i++) {
+            lines.add("hit");
+        }
+
+        List<ScrollbackSearch.Match> matches = new ScrollbackSearch("hit", false, true).run(null, 0, lines);
+
+        assertEquals(ScrollbackSearch.MAX_MATCHES, matches.size());
+        assertEquals(10, matches.get(0).line());
+        assertEquals(ScrollbackSearch.MAX_MATCHES + 9, matches.get(matches.size() - 1).line());
+    }
+
+    @Test
+    void searchesStoreThenRecentLines() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        for (int i = 0; i < 3000; i++) {
+            store.append(line(i == 100 ? "needle in the store" : "hay " + i));
+        }
+
+        List<ScrollbackSearch.Match> matches = new ScrollbackSearch("NEEDLE", false, false)
+                .run(store, 3000, List.of("hay", "needle on screen"));
+
+        assertEquals(List.of(match(100, 0, 6), match(3001, 0, 6)), matches);
+    }
+
+    @Test
+    void storeLinesAppendedAfterTheCopyAreNotSearchedTwice() {
+        ScrollbackStore store = new ScrollbackStore(100, 0);
+        store.append(line("needle"));
+        store.append(line("needle"));
+
+        // The second line was still in the emulator's history when it was copied
+        List<ScrollbackSearch.Match> matches = new ScrollbackSearch("needle", false, true)
+                .run(store, 1, List.of("needle"));
+
+        assertEquals(List.of(match(0, 0, 6), match(1, 0, 6)), matches);
+    }
+
+    @Test
+    void cancelledSearchReturnsNothing() {
+        ScrollbackSearch search = new ScrollbackSearch("x", false, true);
+        search.cancel();
+
+        assertTrue(search.isCancelled());
+        assertEquals(List.of(), search.run(null, 0, List.of("x")));
+    }
+}
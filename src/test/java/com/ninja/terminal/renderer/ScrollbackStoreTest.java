@@ -0,0 +1,201 @@
+package com.ninja.terminal.renderer;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.util.CharUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScrollbackStoreTest {
+
+    static TerminalLine line(String text) {
+        return new TerminalLine(new TerminalLine.TextEntry(TextStyle.EMPTY, new CharBuffer(text)));
+    }
+
+    private static String numbered(int i) {
+        return "line " + i + " of the scrollback, some text to fill a row";
+    }
+
+    @Test
+    void storedLinesReadBack() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        for (int i = 0; i < 5000; i++) {
+            store.append(line(numbered(i)));
+        }
+
+        assertEquals(5000, store.size());
+        assertEquals(5000, store.getTotalLines());
+        assertTrue(store.getCompressedBytes() > 0, "no block was sealed");
+        Random random = new Random(1);
+        for (int n = 0; n < 200; n++) {
+            int i = random.nextInt(5000);
+            assertEquals(numbered(i), store.getText(i));
+        }
+        assertEquals(numbered(4999), store.getText(4999));
+    }
+
+    @Test
+    void stylesAndGapsAreKept() {
+        TextStyle bold = new TextStyle(TerminalColor.rgb(0x12, 0x34, 0x56), null, EnumSet.of(TextStyle.Option.BOLD));
+        TerminalLine styled = new TerminalLine();
+        styled.writeString(0, new CharBuffer("plain"), TextStyle.EMPTY);
+        styled.writeString(10, new CharBuffer("bold"), bold);
+        ScrollbackStore store = new ScrollbackStore(100, 0);
+
+        store.append(styled);
+
+        assertEquals("plain     bold", store.getText(0));
+        ScrollbackStore.Run run = store.get(0).stream().filter(r -> r.text().equals("bold")).findFirst().orElseThrow();
+        assertEquals(10, run.x());
+        assertEquals(0x123456, run.fg());
+        assertEquals(TerminalColors.DEFAULT_BACKGROUND, run.bg());
+        assertEquals(GlyphAtlas.BOLD, run.attrs());
+    }
+
+    @Test
+    void multiByteTextSurvivesEncoding() {
+        ScrollbackStore store = new ScrollbackStore(100, 0);
+        String wide = "漢" + CharUtils.DWC + "字" + CharUtils.DWC + " ✓ é";
+
+        store.append(line(wide));
+
+        assertEquals(wide, store.getText(0));
+    }
+
+    @Test
+    void lineLimitDropsOldestBlocks() {
+        ScrollbackStore store = new ScrollbackStore(5000, 0);
+        for (int i = 0; i < 20_000; i++) {
+            store.append(line(numbered(i)));
+        }
+
+        int size = store.size();
+        assertTrue(size <= 5000 && size > 3000, "size " + size);
+        assertEquals(20_000, store.getTotalLines());
+        // Index 0 is the oldest line kept
+        assertEquals(numbered(20_000 - size), store.getText(0));
+        assertEquals(numbered(19_999), store.getText(size - 1));
+    }
+
+    @Test
+    void byteLimitDropsOldestBlocks() {
+        long limit = 64 * 1024;
+        ScrollbackStore store = new ScrollbackStore(1_000_000, limit);
+        Random random = new Random(2);
+        List<String> appended = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Random text barely compresses
+            StringBuilder text = new StringBuilder();
+            for (int c = 0; c < 60; c++) {
+                text.append((char) ('!' + random.nextInt(90)));
+            }
+            appended.add(text.toString());
+            store.append(line(text.toString()));
+            assertTrue(store.getCompressedBytes() <= limit);
+        }
+
+        assertTrue(store.size() < 20_000);
+        assertEquals(appended.get(20_000 - store.size()), store.getText(0));
+    }
+
+    @Test
+    void outOfRangeIsEmpty() {
+        ScrollbackStore store = new ScrollbackStore(100, 0);
+        store.append(line("only"));
+
+        assertTrue(store.get(-1).isEmpty());
+        assertTrue(store.get(1).isEmpty());
+        assertEquals("", store.getText(5));
+    }
+
+    @Test
+    void clearKeepsNumbering() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        for (int i = 0; i < 3000; i++) {
+            store.append(line(numbered(i)));
+        }
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getCompressedBytes());
+        assertEquals(3000, store.getTotalLines());
+
+        store.append(line("after clear"));
+        assertEquals(1, store.size());
+        assertEquals("after clear", store.getText(0));
+        List<Long> numbers = new ArrayList<>();
+        store.scan(null, (number, text) -> numbers.add(number), () -> false);
+        assertEquals(List.of(3000L), numbers);
+    }
+
+    @Test
+    void scanVisitsEveryLineInOrder() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        for (int i = 0; i < 5000; i++) {
+            store.append(line(numbered(i)));
+        }
+
+        List<Long> numbers = new ArrayList<>();
+        store.scan(null, (number, text) -> {
+            assertEquals(numbered((int) number), text);
+            numbers.add(number);
+        }, () -> false);
+
+        assertEquals(5000, numbers.size());
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(i, numbers.get(i));
+        }
+    }
+
+    @Test
+    void scanSkipsBlocksWithoutTheLiteral() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        for (int i = 0; i < 6000; i++) {
+            store.append(line((i < 5000 ? "alpha " : "omega ") + i));
+        }
+
+        List<Long> visited = new ArrayList<>();
+        store.scan("OMEGA", (number, text) -> visited.add(number), () -> false);
+
+        assertTrue(visited.size() < 6000, "no block was skipped");
+        for (long i = 5000; i < 6000; i++) {
+            assertTrue(visited.contains(i), "line " + i + " not visited");
+        }
+    }
+
+    @Test
+    void scanFindsWideTextWithoutPlaceholders() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        store.append(line("漢" + CharUtils.DWC + "字" + CharUtils.DWC + "の表"));
+        for (int i = 0; i < 5000; i++) {
+            store.append(line(numbered(i)));
+        }
+
+        List<Long> visited = new ArrayList<>();
+        store.scan("漢字の", (number, text) -> visited.add(number), () -> false);
+
+        assertTrue(visited.contains(0L));
+    }
+
+    @Test
+    void cancelledScanStops() {
+        ScrollbackStore store = new ScrollbackStore(100_000, 0);
+        for (int i = 0; i < 5000; i++) {
+            store.append(line(numbered(i)));
+        }
+
+        List<Long> visited = new ArrayList<>();
+        store.scan(null, (number, text) -> visited.add(number), () -> true);
+
+        assertTrue(visited.isEmpty());
+    }
+}
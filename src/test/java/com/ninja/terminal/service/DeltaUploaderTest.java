@@ -0,0 +1,175 @@
+package com.ninja.terminal.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the delta helper with a local Python, the way the server runs it, and checks that
+ * the ops written by the uploader rebuild the local file exactly.
+ */
+class DeltaUploaderTest {
+
+    @TempDir
+    Path dir;
+
+    private static boolean hasPython() {
+        try {
+            Process process = new ProcessBuilder("python3", "--version").start();
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    private Process helper(String mode, int blockSize, Path remote) throws IOException {
+        Path helper = dir.resolve("delta_helper.py");
+        if (!Files.exists(helper)) {
+            try (InputStream in = DeltaUploader.class.getResourceAsStream("/scripts/delta_helper.py")) {
+                Files.copy(in, helper);
+            }
+        }
+        return new ProcessBuilder("python3", helper.toString(), mode, String.valueOf(blockSize), remote.toString())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /**
+     * Upload {@code local} over {@code remote} through the helper
+     */
+    private DeltaUploader.Result roundTrip(byte[] remoteContent, byte[] localContent) throws Exception {
+        assumeTrue(hasPython(), "python3 not available");
+        Path remote = dir.resolve("remote.bin");
+        Path local = dir.resolve("local.bin");
+        Files.write(remote, remoteContent);
+        Files.write(local, localContent);
+        int blockSize = DeltaUploader.blockSizeFor(remoteContent.length);
+
+        Map<Integer, List<Integer>> blocksByWeak = new HashMap<>();
+        List<byte[]> strong = new ArrayList<>();
+        Process sig = helper("sig", blockSize, remote);
+        DeltaUploader.parseSignatures(sig.getInputStream(), remoteContent.length / blockSize, blocksByWeak, strong);
+        assertEquals(0, sig.waitFor());
+        assertEquals((remoteContent.length + blockSize - 1) / blockSize, strong.size());
+
+        Process patch = helper("patch", blockSize, remote);
+        DeltaUploader.Result result = DeltaUploader.writeDelta(local, blockSize, blocksByWeak, strong,
+                patch.getOutputStream());
+        String md5 = new String(patch.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+        assertEquals(0, patch.waitFor());
+
+        assertArrayEquals(localContent, Files.readAllBytes(remote));
+        assertEquals(32, md5.length());
+        assertFalse(Files.exists(dir.resolve("remote.bin.ninja-delta")));
+        assertEquals(localContent.length, result.getFileSize());
+        return result;
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void blockSizeIsRoughlySquareRootInWholeKilobytes() {
+        assertEquals(2048, DeltaUploader.blockSizeFor(0));
+        assertEquals(2048, DeltaUploader.blockSizeFor(1024 * 1024));
+        assertEquals(10 * 1024, DeltaUploader.blockSizeFor(100L * 1024 * 1024));
+        assertEquals(128 * 1024, DeltaUploader.blockSizeFor(1L << 40));
+        for (long size = 1; size < 1L << 40; size *= 7) {
+            assertEquals(0, DeltaUploader.blockSizeFor(size) % 1024);
+        }
+    }
+
+    @Test
+    void identicalFileIsSentAsBlockReferences() throws Exception {
+        byte[] content = random(300_000, 1);
+
+        DeltaUploader.Result result = roundTrip(content, content);
+
+        // Only the short last block is resent
+        assertTrue(result.getLiteralBytes() < DeltaUploader.blockSizeFor(content.length));
+        assertEquals(content.length - result.getLiteralBytes(), result.getMatchedBytes());
+    }
+
+    @Test
+    void changedRangeIsSentAsLiteral() throws Exception {
+        byte[] remote = random(500_000, 2);
+        byte[] local = remote.clone();
+        System.arraycopy(random(1000, 3), 0, local, 200_000, 1000);
+
+        DeltaUploader.Result result = roundTrip(remote, local);
+
+        assertTrue(result.getLiteralBytes() < 4 * DeltaUploader.blockSizeFor(remote.length));
+        assertTrue(result.getMatchedBytes() > 400_000);
+    }
+
+    @Test
+    void insertionShiftsTheRestOfTheFile() throws Exception {
+        byte[] remote = random(400_000, 4);
+        byte[] inserted = "inserted in the middle".getBytes(StandardCharsets.US_ASCII);
+        byte[] local = new byte[remote.length + inserted.length];
+        System.arraycopy(remote, 0, local, 0, 100_000);
+        System.arraycopy(inserted, 0, local, 100_000, inserted.length);
+        System.arraycopy(remote, 100_000, local, 100_000 + inserted.length, remote.length - 100_000);
+
+        DeltaUploader.Result result = roundTrip(remote, local);
+
+        assertTrue(result.getMatchedBytes() > 350_000);
+    }
+
+    @Test
+    void unrelatedFileIsSentWhole() throws Exception {
+        byte[] local = random(200_000, 6);
+
+        DeltaUploader.Result result = roundTrip(random(200_000, 5), local);
+
+        assertEquals(0, result.getMatchedBytes());
+        assertEquals(local.length, result.getLiteralBytes());
+    }
+
+    @Test
+    void shorterAndEmptyFiles() throws Exception {
+        byte[] remote = random(100_000, 7);
+        byte[] truncated = new byte[30_000];
+        System.arraycopy(remote, 0, truncated, 0, truncated.length);
+
+        roundTrip(remote, truncated);
+        roundTrip(remote, new byte[0]);
+        roundTrip(new byte[0], random(5000, 8));
+    }
+
+    @Test
+    void shortLastBlockIsNotIndexed() throws IOException {
+        byte[] signatures = new byte[3 * 20];
+        for (int i = 0; i < 3; i++) {
+            signatures[i * 20 + 3] = 42;
+        }
+        Map<Integer, List<Integer>> blocksByWeak = new HashMap<>();
+        List<byte[]> strong = new ArrayList<>();
+
+        DeltaUploader.parseSignatures(new ByteArrayInputStream(signatures), 2, blocksByWeak, strong);
+
+        assertEquals(3, strong.size());
+        assertEquals(List.of(0, 1), blocksByWeak.get(42));
+    }
+}
@@ -0,0 +1,153 @@
+package com.ninja.terminal.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RemoteFileReaderTest {
+
+    private static final int STRIDE = RemoteFileReader.INDEX_STRIDE;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Lines of varying length, some empty, with CRLF and multi-byte text mixed in
+     */
+    private static byte[] sampleFile(int lines, boolean finalNewline) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 7 != 3) {
+                text.append("line ").append(i).append(" ").append("é".repeat(i % 5));
+            }
+            if (i < lines - 1 || finalNewline) {
+                text.append(i % 11 == 0 ? "\r\n" : "\n");
+            }
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Offset of every line start, for comparison
+     */
+    private static List<Long> lineStarts(byte[] data) {
+        List<Long> starts = new ArrayList<>();
+        boolean atLineStart = true;
+        for (int i = 0; i < data.length; i++) {
+            if (atLineStart) {
+                starts.add((long) i);
+                atLineStart = false;
+            }
+            if (data[i] == '\n') {
+                atLineStart = true;
+            }
+        }
+        return starts;
+    }
+
+    private static RemoteFileReader indexLocally(byte[] data) throws IOException {
+        RemoteFileReader reader = new RemoteFileReader(null, null, "test.log");
+        reader.indexStream(new ByteArrayInputStream(data));
+        return reader;
+    }
+
+    @Test
+    void localIndexHasACheckpointEveryStride() throws Exception {
+        byte[] data = sampleFile(3 * STRIDE + 17, true);
+        List<Long> starts = lineStarts(data);
+
+        RemoteFileReader reader = indexLocally(data);
+
+        assertEquals(starts.size(), reader.getTotalLines());
+        assertEquals(data.length, reader.getIndexedBytes());
+        for (int k = 0; k <= 3; k++) {
+            long line = (long) k * STRIDE;
+            assertEquals(starts.get((int) line), reader.offsetOfLine(line));
+            assertEquals(line, reader.lineNumberAt(starts.get((int) line)));
+        }
+        assertEquals(-1, reader.offsetOfLine(4L * STRIDE));
+    }
+
+    @Test
+    void lastLineWithoutNewlineIsCounted() throws Exception {
+        assertEquals(2 * STRIDE, indexLocally(sampleFile(2 * STRIDE, false)).getTotalLines());
+        assertEquals(2 * STRIDE, indexLocally(sampleFile(2 * STRIDE, true)).getTotalLines());
+    }
+
+    @Test
+    void emptyFileHasNoLines() throws Exception {
+        RemoteFileReader reader = indexLocally(new byte[0]);
+
+        assertEquals(0, reader.getTotalLines());
+        assertEquals(-1, reader.offsetOfLine(0));
+        assertEquals(-1, reader.lineNumberAt(0));
+    }
+
+    @Test
+    void serverIndexOutputIsParsed() throws Exception {
+        RemoteFileReader reader = new RemoteFileReader(null, null, "test.log");
+
+        boolean complete = reader.readIndex(new BufferedReader(new StringReader("0\n48213\n97002\nE 2500\n")));
+
+        assertTrue(complete);
+        assertEquals(2500, reader.getTotalLines());
+        assertEquals(48213, reader.offsetOfLine(STRIDE));
+        assertEquals(2 * STRIDE, reader.lineNumberAt(97002));
+    }
+
+    @Test
+    void serverIndexCutShortIsIncomplete() throws Exception {
+        RemoteFileReader reader = new RemoteFileReader(null, null, "test.log");
+
+        assertFalse(reader.readIndex(new BufferedReader(new StringReader("0\n48213\n"))));
+        assertEquals(-1, reader.getTotalLines());
+        assertEquals(48213, reader.getIndexedBytes());
+    }
+
+    @Test
+    void awkScriptAgreesWithLocalIndex() throws Exception {
+        for (boolean finalNewline : new boolean[] { true, false }) {
+            byte[] data = sampleFile(5 * STRIDE + 1, finalNewline);
+            Path file = dir.resolve("sample.log");
+            Files.write(file, data);
+
+            Process awk;
+            try {
+                ProcessBuilder builder = new ProcessBuilder("awk", RemoteFileReader.INDEX_SCRIPT, file.toString());
+                builder.environment().put("LC_ALL", "C");
+                awk = builder.start();
+            } catch (IOException e) {
+                assumeTrue(false, "awk not available");
+                return;
+            }
+            RemoteFileReader server = new RemoteFileReader(null, null, "test.log");
+            try (InputStream out = awk.getInputStream()) {
+                assertTrue(server.readIndex(new BufferedReader(new InputStreamReader(out, StandardCharsets.US_ASCII))));
+            }
+            assertTrue(awk.waitFor(10, TimeUnit.SECONDS));
+
+            RemoteFileReader local = indexLocally(data);
+            assertEquals(local.getTotalLines(), server.getTotalLines());
+            for (long line = 0; line < local.getTotalLines(); line += STRIDE) {
+                assertEquals(local.offsetOfLine(line), server.offsetOfLine(line), "line " + line);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ninja.terminal.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionRecordingTest {
+
+    private static final String CAST = """
+            {"version": 2, "width": 120, "height": 40, "timestamp": 1700000000, "title": "web-01",
+             "env": {"TERM": "xterm-256color", "SHELL": "/bin/bash"}}
+            [0.25, "o", "$ "]
+            [0.5, "i", "l"]
+            [0.75, "o", "ls\\r\\n"]
+            [1.0, "m", "marker"]
+            [1.0, "r", "100x30"]
+            [1.0, "o", "a.txt  \\u001b[1mb\\u001b[0m\\r\\n"]
+            [2.5, "o", "$ ", "extra", {"ignored": [1, 2]}]
+            """;
+
+    @TempDir
+    Path dir;
+
+    private Path write(String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void keepsOutputAndResizeEvents() throws IOException {
+        SessionRecording recording = SessionRecording.load(write("session.cast", CAST));
+
+        assertEquals(120, recording.getWidth());
+        assertEquals(40, recording.getHeight());
+        assertEquals("web-01", recording.getTitle());
+        assertEquals(5, recording.size());
+
+        assertEquals(250_000, recording.getTime(0));
+        assertEquals("$ ", recording.getData(0));
+        assertEquals("ls\r\n", recording.getData(1));
+        assertTrue(recording.isResize(2));
+        assertEquals("100x30", recording.getData(2));
+        assertFalse(recording.isResize(3));
+        assertEquals("a.txt  \u001b[1mb\u001b[0m\r\n", recording.getData(3));
+        assertEquals(2_500_000, recording.getDuration());
+    }
+
+    @Test
+    void defaultsWithoutOptionalHeaderFields() throws IOException {
+        SessionRecording recording = SessionRecording.load(write("bare.cast", "{\"version\": 2}\n"));
+
+        assertEquals(80, recording.getWidth());
+        assertEquals(24, recording.getHeight());
+        assertEquals("bare.cast", recording.getTitle());
+        assertEquals(0, recording.size());
+        assertEquals(0, recording.getDuration());
+    }
+
+    @Test
+    void readsGzipCompressedFiles() throws IOException {
+        Path file = dir.resolve("session.cast.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(CAST.getBytes(StandardCharsets.UTF_8));
+        }
+
+        SessionRecording recording = SessionRecording.load(file);
+
+        assertEquals(5, recording.size());
+        assertEquals("web-01", recording.getTitle());
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() throws IOException {
+        StringBuilder cast = new StringBuilder("{\"version\": 2, \"width\": 80, \"height\": 24}\n");
+        for (int i = 0; i < 3000; i++) {
+            cast.append('[').append(i / 100.0).append(", \"o\", \"").append(i).append("\"]\n");
+        }
+
+        SessionRecording recording = SessionRecording.load(write("long.cast", cast.toString()));
+
+        assertEquals(3000, recording.size());
+        assertEquals("2999", recording.getData(2999));
+        assertEquals(29_990_000, recording.getDuration());
+    }
+
+    @Test
+    void indexAfterSkipsEventsSharingATimestamp() throws IOException {
+        SessionRecording recording = SessionRecording.load(write("session.cast", CAST));
+
+        assertEquals(0, recording.indexAfter(0));
+        assertEquals(1, recording.indexAfter(250_000));
+        assertEquals(1, recording.indexAfter(300_000));
+        assertEquals(4, recording.indexAfter(1_000_000));
+        assertEquals(5, recording.indexAfter(2_500_000));
+    }
+
+    @Test
+    void rejectsOtherFormats() throws IOException {
+        assertThrows(IOException.class, () -> SessionRecording.load(write("v1.cast", "{\"version\": 1}\n")));
+        assertThrows(IOException.class, () -> SessionRecording.load(write("list.json", "[1, 2]\n")));
+    }
+}
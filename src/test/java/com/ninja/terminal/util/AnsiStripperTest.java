@@ -0,0 +1,92 @@
+package com.ninja.terminal.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnsiStripperTest {
+
+    private static String strip(String... chunks) {
+        AnsiStripper stripper = new AnsiStripper();
+        StringBuilder out = new StringBuilder();
+        for (String chunk : chunks) {
+            stripper.strip(chunk, 0, chunk.length(), out);
+        }
+        return out.toString();
+    }
+
+    @Test
+    void plainTextPassesThrough() {
+        assertEquals("hello\tworld\n", strip("hello\tworld\n"));
+    }
+
+    @Test
+    void removesCsiSequences() {
+        assertEquals("red plain\n", strip("\u001b[1;31mred\u001b[0m plain\n"));
+        assertEquals("ab", strip("a\u009b2Jb"));
+    }
+
+    @Test
+    void removesOscTerminatedByBelOrSt() {
+        assertEquals("$ ", strip("\u001b]0;user@host: ~\u0007$ "));
+        assertEquals("$ ", strip("\u001b]0;title\u001b\\$ "));
+    }
+
+    @Test
+    void removesCharsetSelection() {
+        assertEquals("x", strip("\u001b(Bx"));
+    }
+
+    @Test
+    void removesControlCharacters() {
+        assertEquals("ab", strip("a\u0007\u0008\u007fb"));
+    }
+
+    @Test
+    void sequenceSplitAcrossCalls() {
+        assertEquals("red\n", strip("\u001b", "[1;3", "1m", "red\u001b[", "0m\n"));
+        assertEquals("$ ", strip("\u001b]0;ti", "tle\u001b", "\\$ "));
+    }
+
+    @Test
+    void interruptedStringStartsNewSequence() {
+        assertEquals("x", strip("\u001b]0;title\u001b[1mx"));
+    }
+
+    @Test
+    void crlfIsOneLineBreak() {
+        assertEquals("one\ntwo\n", strip("one\r\ntwo\r\n"));
+        assertEquals("one\ntwo\n", strip("one\r", "\ntwo\r", "\n"));
+    }
+
+    @Test
+    void bareCarriageReturnRestartsTheLine() {
+        assertEquals("done\n", strip("10%\r50%\r", "done\r\n"));
+        assertEquals("line1\nprog 100%\nared\n",
+                strip("line1\nprog 10%\rprog 100%\n", "cleared\r\r", "ared\n"));
+    }
+
+    @Test
+    void carriageReturnBeforeEscapeSequence() {
+        assertEquals("new", strip("old\r\u001b[Knew"));
+    }
+
+    @Test
+    void reportsWhetherInputEndsInsideASequence() {
+        AnsiStripper stripper = new AnsiStripper();
+        StringBuilder out = new StringBuilder();
+        String csi = "text\u001b[1;3";
+        String osc = "1m\u001b]0;title";
+        String end = "\u0007done";
+
+        stripper.strip(csi, 0, csi.length(), out);
+        assertTrue(stripper.isInSequence());
+        stripper.strip(osc, 0, osc.length(), out);
+        assertTrue(stripper.isInSequence());
+        stripper.strip(end, 0, end.length(), out);
+        assertFalse(stripper.isInSequence());
+        assertEquals("textdone", out.toString());
+    }
+}
@@ -0,0 +1,182 @@
+package com.ninja.terminal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JSchTtyConnectorTest {
+
+    /**
+     * Channel stream that delivers data in the chunks it arrived in; available() only
+     * reports what is left of the current chunk, like a channel waiting for the network
+     */
+    private static class ChunkedStream extends InputStream {
+        private final Queue<byte[]> chunks = new ArrayDeque<>();
+        private byte[] current = new byte[0];
+        private int position;
+
+        void add(byte[] chunk) {
+            chunks.add(chunk);
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == current.length) {
+                if (chunks.isEmpty()) {
+                    return -1;
+                }
+                current = chunks.remove();
+                position = 0;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current.length - position;
+        }
+    }
+
+    private static String readAll(JSchTtyConnector connector) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buf = new char[4096];
+        int read;
+        while ((read = connector.read(buf, 0, buf.length)) > 0) {
+            text.append(buf, 0, read);
+        }
+        return text.toString();
+    }
+
+    @Test
+    void batchGrowsWhileBacklogRemains() throws IOException {
+        ChunkedStream in = new ChunkedStream();
+        byte[] backlog = new byte[1024 * 1024];
+        Arrays.fill(backlog, (byte) 'x');
+        in.add(backlog);
+        JSchTtyConnector connector = new JSchTtyConnector(in, new ByteArrayOutputStream());
+
+        char[] buf = new char[4096];
+        int batchSize = connector.getBatchSize();
+        assertEquals(1024, batchSize);
+        long read = 0;
+        while (read < 512 * 1024) {
+            read += connector.read(buf, 0, buf.length);
+            assertTrue(connector.getBatchSize() >= batchSize, "batch shrank during a backlog");
+            batchSize = connector.getBatchSize();
+        }
+        assertEquals(64 * 1024, connector.getBatchSize());
+    }
+
+    @Test
+    void batchShrinksForInteractiveOutput() throws IOException {
+        ChunkedStream in = new ChunkedStream();
+        byte[] backlog = new byte[256 * 1024];
+        Arrays.fill(backlog, (byte) 'x');
+        in.add(backlog);
+        JSchTtyConnector connector = new JSchTtyConnector(in, new ByteArrayOutputStream());
+        char[] buf = new char[backlog.length];
+        long read = 0;
+        while (read < backlog.length) {
+            read += connector.read(buf, 0, buf.length);
+        }
+        assertTrue(connector.getBatchSize() > 1024);
+
+        for (int i = 0; i < 10; i++) {
+            in.add("k".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertEquals("kkkkkkkkkk", readAll(connector));
+        assertEquals(1024, connector.getBatchSize());
+    }
+
+    @Test
+    void countsBytesAndBatches() throws IOException {
+        ChunkedStream in = new ChunkedStream();
+        in.add("hello ".getBytes(StandardCharsets.US_ASCII));
+        in.add("world".getBytes(StandardCharsets.US_ASCII));
+        JSchTtyConnector connector = new JSchTtyConnector(in, new ByteArrayOutputStream());
+
+        assertEquals("hello world", readAll(connector));
+        assertEquals(11, connector.getBytesRead());
+        assertEquals(5, connector.getAverageBatch());
+    }
+
+    @Test
+    void utf8SequenceSplitAcrossChunks() throws IOException {
+        byte[] text = "한글 ✓ text".getBytes(StandardCharsets.UTF_8);
+        ChunkedStream in = new ChunkedStream();
+        for (byte b : text) {
+            in.add(new byte[] {b});
+        }
+        JSchTtyConnector connector = new JSchTtyConnector(in, new ByteArrayOutputStream());
+
+        assertEquals("한글 ✓ text", readAll(connector));
+    }
+
+    @Test
+    void listenersSeeOutputAndInput() throws IOException {
+        ChunkedStream in = new ChunkedStream();
+        in.add("out".getBytes(StandardCharsets.US_ASCII));
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        JSchTtyConnector connector = new JSchTtyConnector(in, sent);
+        StringBuilder output = new StringBuilder();
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        connector.addListener(new JSchTtyConnector.StreamListener() {
+            @Override
+            public void onOutput(char[] buf, int offset, int length) {
+                output.append(buf, offset, length);
+            }
+
+            @Override
+            public void onInput(byte[] bytes) {
+                input.writeBytes(bytes);
+            }
+        });
+
+        connector.write("ls\r");
+        readAll(connector);
+
+        assertEquals("out", output.toString());
+        assertArrayEquals("ls\r".getBytes(StandardCharsets.US_ASCII), input.toByteArray());
+        assertArrayEquals("ls\r".getBytes(StandardCharsets.US_ASCII), sent.toByteArray());
+    }
+
+    @Test
+    void echoIsMeasuredFromKeystrokesOnly() throws IOException {
+        ChunkedStream in = new ChunkedStream();
+        JSchTtyConnector connector = new JSchTtyConnector(in, new ByteArrayOutputStream());
+        TerminalMetrics metrics = connector.getMetrics();
+
+        // A reply to a terminal query is not typing
+        connector.write("\u001b[?1;2c");
+        in.add("prompt".getBytes(StandardCharsets.US_ASCII));
+        readAll(connector);
+        assertEquals(0, metrics.getEcho().getTotal());
+
+        metrics.markKeystroke();
+        connector.write("a");
+        in.add("a".getBytes(StandardCharsets.US_ASCII));
+        in.add("more".getBytes(StandardCharsets.US_ASCII));
+        readAll(connector);
+        assertEquals(1, metrics.getEcho().getTotal());
+        assertTrue(metrics.getDecode().getTotal() >= 3);
+    }
+}
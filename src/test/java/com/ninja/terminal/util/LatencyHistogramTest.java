@@ -0,0 +1,107 @@
+package com.ninja.terminal.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesGetOneBucketEach() {
+        for (int micros = 0; micros < 4; micros++) {
+            assertEquals(micros, LatencyHistogram.bucket(micros));
+            assertEquals(micros, LatencyHistogram.upperBound(micros));
+        }
+        assertEquals(0, LatencyHistogram.bucket(-5));
+    }
+
+    @Test
+    void everyValueFallsBelowItsBucketsUpperBound() {
+        for (long micros = 0; micros < 1_000_000; micros = micros * 5 / 4 + 1) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertTrue(micros <= LatencyHistogram.upperBound(bucket), "value " + micros);
+            if (bucket > 0) {
+                assertTrue(micros > LatencyHistogram.upperBound(bucket - 1), "value " + micros);
+            }
+        }
+    }
+
+    @Test
+    void bucketsAreContiguous() {
+        for (int bucket = 1; bucket < 120; bucket++) {
+            long first = LatencyHistogram.upperBound(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucket(first));
+            assertEquals(bucket, LatencyHistogram.bucket(LatencyHistogram.upperBound(bucket)));
+        }
+    }
+
+    @Test
+    void bucketsAreWithinTwentyFivePercent() {
+        for (int bucket = 4; bucket < 120; bucket++) {
+            long low = LatencyHistogram.upperBound(bucket - 1) + 1;
+            long high = LatencyHistogram.upperBound(bucket);
+            assertTrue(high - low + 1 <= Math.max(1, low / 4), "bucket " + bucket);
+        }
+    }
+
+    @Test
+    void hugeValuesLandInTheLastBucket() {
+        int last = LatencyHistogram.bucket(Long.MAX_VALUE);
+        assertEquals(last, LatencyHistogram.bucket(Long.MAX_VALUE / 2));
+        assertTrue(LatencyHistogram.upperBound(last) > 0);
+    }
+
+    @Test
+    void emptySnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        assertEquals(new LatencyHistogram.Snapshot(0, 0, 0, 0, 0), histogram.snapshot());
+        assertEquals(0, histogram.getTotal());
+    }
+
+    @Test
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        // 1..100 ms
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(100, histogram.getTotal());
+        assertWithin(50_000, snapshot.p50());
+        assertWithin(95_000, snapshot.p95());
+        assertWithin(99_000, snapshot.p99());
+        assertWithin(100_000, snapshot.max());
+        assertTrue(snapshot.p50() <= snapshot.p95() && snapshot.p95() <= snapshot.p99()
+                && snapshot.p99() <= snapshot.max());
+    }
+
+    @Test
+    void singleSampleIsEveryPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram(60_000);
+        histogram.record(3_000);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.count());
+        assertEquals(3, snapshot.p50());
+        assertEquals(3, snapshot.p99());
+        assertEquals(3, snapshot.max());
+    }
+
+    @Test
+    void samplesLeaveTheWindow() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(60);
+        histogram.record(1_000_000);
+        Thread.sleep(150);
+        assertEquals(0, histogram.snapshot().count());
+        assertEquals(1, histogram.getTotal());
+    }
+
+    /**
+     * Reported values are bucket upper bounds, at most 25% above the true value
+     */
+    private static void assertWithin(long expectedMicros, long actualMicros) {
+        assertTrue(actualMicros >= expectedMicros && actualMicros <= expectedMicros * 5 / 4,
+                "expected about " + expectedMicros + " but was " + actualMicros);
+    }
+}